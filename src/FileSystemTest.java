@@ -1,38 +1,74 @@
+import consola.Consola;
+import interprete.Interprete;
+import interprete.ResumenScript;
+import manager.Almacen;
+import manager.Archivo;
+import manager.BorradoRecursivo;
+import manager.Directorio;
+import manager.EventoCambio;
 import manager.FileSystem;
+import manager.FileSystemArena;
+import manager.FileSystemBase;
+import manager.IndiceRutas;
+import manager.Instantanea;
+import manager.Lote;
+import manager.Metricas;
+import manager.PaginaListado;
+import manager.ResultadoLote;
+import manager.ResumenHistograma;
+import manager.ResumenMetricas;
+import manager.Sesion;
+import manager.UsoDirectorio;
+import manager.Vigilancia;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import servidor.ServidorArchivos;
+import static manager.CodigoResultado.*;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.PrintStream;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 public class FileSystemTest {
 
     private FileSystem fs;
-    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
-    private final PrintStream originalOut = System.out;
 
     @BeforeEach
     void setUp() {
         fs = new FileSystem();
-        // Redirigir System.out para capturar la salida de la consola (para ls, pwd)
-        System.setOut(new PrintStream(outContent));
     }
 
-    // Restaurar System.out después de cada test
-    // @AfterEach // Si necesitas esto, descomenta y usa el import org.junit.jupiter.api.AfterEach
-    // void restoreStreams() {
-    //     System.setOut(originalOut);
-    // }
-
 
     @Test
     @DisplayName("1. cd: Debe cambiar el directorio a un subdirectorio existente")
     void testCdToExistingSubdirectory() {
         fs.mkdir("testDir"); // [cite: 13]
-        assertTrue(fs.cd("testDir")); // [cite: 5, 6]
+        assertEquals(OK, fs.cd("testDir")); // [cite: 5, 6]
         assertEquals("/testDir", fs.getDirectorioActual().getRutaCompleta()); // [cite: 16]
     }
 
@@ -41,29 +77,28 @@ public class FileSystemTest {
     void testCdToParentDirectory() {
         fs.mkdir("a"); // [cite: 13]
         fs.cd("a"); // [cite: 5, 6]
-        assertTrue(fs.cd("..")); // [cite: 5, 7]
+        assertEquals(OK, fs.cd("..")); // [cite: 5, 7]
         assertEquals("/", fs.getDirectorioActual().getRutaCompleta()); // [cite: 16]
     }
 
     @Test
     @DisplayName("3. cd: Debe mantenerse en la raíz al intentar subir desde la raíz")
     void testCdFromRootToParent() {
-        assertFalse(fs.cd("..")); // [cite: 5, 7] // No debería poder subir
+        assertEquals(EN_LA_RAIZ, fs.cd("..")); // [cite: 5, 7] // No debería poder subir
         assertEquals("/", fs.getDirectorioActual().getRutaCompleta()); // [cite: 16]
     }
 
     @Test
     @DisplayName("4. cd: No debe cambiar a un directorio inexistente")
     void testCdToNonExistentDirectory() {
-        assertFalse(fs.cd("nonExistent")); // [cite: 5, 6]
+        assertEquals(NO_ENCONTRADO, fs.cd("nonExistent")); // [cite: 5, 6]
         assertEquals("/", fs.getDirectorioActual().getRutaCompleta()); // Sigue en la raíz [cite: 16]
-        assertTrue(outContent.toString().contains("Directorio 'nonExistent' no encontrado."));
     }
 
     @Test
     @DisplayName("5. touch: Debe crear un archivo en el directorio actual")
     void testTouchFileInCurrentDirectory() {
-        assertTrue(fs.touch("myFile.txt")); // [cite: 8, 10, 11]
+        assertEquals(OK, fs.touch("myFile.txt")); // [cite: 8, 10, 11]
         assertNotNull(fs.getDirectorioActual().getHijo("myFile.txt"));
         assertTrue(fs.getDirectorioActual().getHijo("myFile.txt") instanceof Archivo);
     }
@@ -72,14 +107,13 @@ public class FileSystemTest {
     @DisplayName("6. touch: No debe crear un archivo si ya existe")
     void testTouchExistingFile() {
         fs.touch("existing.txt"); // [cite: 8, 10, 11]
-        assertFalse(fs.touch("existing.txt")); // [cite: 8, 10, 11]
-        assertTrue(outContent.toString().contains("Ya existe un archivo o directorio con el nombre 'existing.txt' en este directorio."));
+        assertEquals(YA_EXISTE, fs.touch("existing.txt")); // [cite: 8, 10, 11]
     }
 
     @Test
     @DisplayName("7. mkdir: Debe crear un nuevo directorio")
     void testMkdirNewDirectory() {
-        assertTrue(fs.mkdir("newDir")); // [cite: 13, 15]
+        assertEquals(OK, fs.mkdir("newDir")); // [cite: 13, 15]
         assertNotNull(fs.getDirectorioActual().getHijo("newDir"));
         assertTrue(fs.getDirectorioActual().getHijo("newDir") instanceof Directorio);
     }
@@ -88,8 +122,7 @@ public class FileSystemTest {
     @DisplayName("8. mkdir: No debe crear un directorio si ya existe")
     void testMkdirExistingDirectory() {
         fs.mkdir("existingDir"); // [cite: 13, 15]
-        assertFalse(fs.mkdir("existingDir")); // [cite: 13, 15]
-        assertTrue(outContent.toString().contains("Ya existe un archivo o directorio con el nombre 'existingDir' en este directorio."));
+        assertEquals(YA_EXISTE, fs.mkdir("existingDir")); // [cite: 13, 15]
     }
 
     @Test
@@ -97,17 +130,18 @@ public class FileSystemTest {
     void testLsContents() {
         fs.mkdir("dir1"); // [cite: 13]
         fs.touch("file1.txt"); // [cite: 8]
-        fs.ls(); // [cite: 12]
-        String output = outContent.toString();
-        assertTrue(output.contains("dir1/\n"));
-        assertTrue(output.contains("file1.txt\n"));
+        List<String> lineas = new ArrayList<>();
+        assertEquals(2, fs.ls(lineas::add)); // [cite: 12]
+        assertTrue(lineas.contains("dir1/"));
+        assertTrue(lineas.contains("file1.txt"));
     }
 
     @Test
     @DisplayName("10. ls: Debe indicar cuando el directorio está vacío")
     void testLsEmptyDirectory() {
-        fs.ls(); // [cite: 12]
-        assertTrue(outContent.toString().contains("El directorio está vacío."));
+        List<String> lineas = new ArrayList<>();
+        assertEquals(0, fs.ls(lineas::add)); // [cite: 12]
+        assertTrue(lineas.isEmpty());
     }
 
     @Test
@@ -115,15 +149,16 @@ public class FileSystemTest {
     void testPwd() {
         fs.mkdir("dir1"); // [cite: 13]
         fs.cd("dir1"); // [cite: 5, 6]
-        fs.pwd(); // [cite: 14, 16]
-        assertTrue(outContent.toString().contains("/dir1"));
+        List<String> lineas = new ArrayList<>();
+        fs.pwd(lineas::add); // [cite: 14, 16]
+        assertEquals(List.of("/dir1"), lineas);
     }
 
     @Test
     @DisplayName("12. rm: Debe eliminar un archivo")
     void testRmFile() {
         fs.touch("tempFile.txt"); // [cite: 8]
-        assertTrue(fs.rm("tempFile.txt")); // [cite: 37, 38]
+        assertEquals(OK, fs.rm("tempFile.txt")); // [cite: 37, 38]
         assertNull(fs.getDirectorioActual().getHijo("tempFile.txt"));
     }
 
@@ -131,7 +166,7 @@ public class FileSystemTest {
     @DisplayName("13. rm: Debe eliminar un directorio vacío")
     void testRmEmptyDirectory() {
         fs.mkdir("emptyDir"); // [cite: 13]
-        assertTrue(fs.rm("emptyDir")); // [cite: 37, 38]
+        assertEquals(OK, fs.rm("emptyDir")); // [cite: 37, 38]
         assertNull(fs.getDirectorioActual().getHijo("emptyDir"));
     }
 
@@ -142,16 +177,14 @@ public class FileSystemTest {
         fs.cd("nonEmptyDir"); // [cite: 5, 6]
         fs.touch("inside.txt"); // [cite: 8]
         fs.cd(".."); // [cite: 5, 7]
-        assertFalse(fs.rm("nonEmptyDir")); // [cite: 37, 38]
+        assertEquals(DIRECTORIO_NO_VACIO, fs.rm("nonEmptyDir")); // [cite: 37, 38]
         assertNotNull(fs.getDirectorioActual().getHijo("nonEmptyDir")); // El directorio sigue ahí
-        assertTrue(outContent.toString().contains("El directorio 'nonEmptyDir' no está vacío y no puede ser eliminado."));
     }
 
     @Test
     @DisplayName("15. rm: No debe eliminar un elemento inexistente")
     void testRmNonExistentItem() {
-        assertFalse(fs.rm("noSuchThing")); // [cite: 37, 38]
-        assertTrue(outContent.toString().contains("'noSuchThing' no encontrado."));
+        assertEquals(NO_ENCONTRADO, fs.rm("noSuchThing")); // [cite: 37, 38]
     }
 
     // --- Tests para BONUS: Rutas Completas ---
@@ -161,7 +194,7 @@ public class FileSystemTest {
     void testTouchWithAbsolutePath() {
         fs.mkdir("a"); // [cite: 13]
         fs.mkdir("a/b"); // [cite: 13]
-        assertTrue(fs.touch("/a/b/file.txt")); // [cite: 8, 10, 11, 39, 41]
+        assertEquals(OK, fs.touch("/a/b/file.txt")); // [cite: 8, 10, 11, 39, 41]
         fs.cd("a/b"); // [cite: 5, 6]
         assertNotNull(fs.getDirectorioActual().getHijo("file.txt"));
     }
@@ -172,7 +205,7 @@ public class FileSystemTest {
         fs.mkdir("dir1"); // [cite: 13]
         fs.cd("dir1"); // [cite: 5, 6]
         fs.mkdir("dir2"); // [cite: 13]
-        assertTrue(fs.touch("dir2/file.txt")); // [cite: 8, 10, 11, 39]
+        assertEquals(OK, fs.touch("dir2/file.txt")); // [cite: 8, 10, 11, 39]
         fs.cd("dir2"); // [cite: 5, 6]
         assertNotNull(fs.getDirectorioActual().getHijo("file.txt"));
     }
@@ -182,7 +215,7 @@ public class FileSystemTest {
     void testCdWithAbsolutePath() {
         fs.mkdir("level1"); // [cite: 13]
         fs.mkdir("level1/level2"); // [cite: 13]
-        assertTrue(fs.cd("/level1/level2")); // [cite: 5, 6, 39]
+        assertEquals(OK, fs.cd("/level1/level2")); // [cite: 5, 6, 39]
         assertEquals("/level1/level2", fs.getDirectorioActual().getRutaCompleta()); // [cite: 16]
     }
 
@@ -193,7 +226,7 @@ public class FileSystemTest {
         fs.mkdir("parent/child1"); // [cite: 13]
         fs.mkdir("parent/child2"); // [cite: 13]
         fs.cd("parent/child1"); // [cite: 5, 6]
-        assertTrue(fs.cd("../child2")); // [cite: 5, 7, 39]
+        assertEquals(OK, fs.cd("../child2")); // [cite: 5, 7, 39]
         assertEquals("/parent/child2", fs.getDirectorioActual().getRutaCompleta()); // [cite: 16]
     }
 
@@ -201,7 +234,7 @@ public class FileSystemTest {
     @DisplayName("20. mkdir con ruta completa: Debe crear directorio en ruta absoluta")
     void testMkdirWithAbsolutePath() {
         fs.mkdir("a"); // [cite: 13]
-        assertTrue(fs.mkdir("/a/newDir")); // [cite: 13, 15, 39, 44]
+        assertEquals(OK, fs.mkdir("/a/newDir")); // [cite: 13, 15, 39, 44]
         fs.cd("a"); // [cite: 5, 6]
         assertNotNull(fs.getDirectorioActual().getHijo("newDir"));
     }
@@ -211,7 +244,7 @@ public class FileSystemTest {
     void testRmFileWithAbsolutePath() {
         fs.mkdir("data"); // [cite: 13]
         fs.touch("data/report.txt"); // [cite: 8]
-        assertTrue(fs.rm("/data/report.txt")); // [cite: 37, 38, 39]
+        assertEquals(OK, fs.rm("/data/report.txt")); // [cite: 37, 38, 39]
         fs.cd("data"); // [cite: 5, 6]
         assertNull(fs.getDirectorioActual().getHijo("report.txt"));
     }
@@ -223,7 +256,1422 @@ public class FileSystemTest {
         fs.cd("proj"); // [cite: 5, 6]
         fs.mkdir("temp"); // [cite: 13]
         fs.mkdir("temp/cache"); // [cite: 13]
-        assertTrue(fs.rm("temp/cache")); // [cite: 37, 38, 39]
-        assertNull(fs.getDirectorioActual().getHijo("temp").getHijo("cache"));
+        assertEquals(OK, fs.rm("temp/cache")); // [cite: 37, 38, 39]
+        assertNull(((Directorio) fs.getDirectorioActual().getHijo("temp")).getHijo("cache"));
+    }
+
+    // --- Tests para las rutas cacheadas ---
+
+    @Test
+    @DisplayName("22.1. rutas: Debe rearmar la ruta cacheada de todo el subárbol al renombrar o mover un directorio")
+    void testRutaCacheadaInvalidada() {
+        fs.mkdir("a");
+        fs.mkdir("a/b");
+        fs.mkdir("a/b/c");
+        fs.mkdir("z");
+        Directorio a = (Directorio) fs.getDirectorioActual().getHijo("a");
+        Directorio b = (Directorio) a.getHijo("b");
+        Directorio c = (Directorio) b.getHijo("c");
+        Directorio z = (Directorio) fs.getDirectorioActual().getHijo("z");
+
+        // Sin cambios se devuelve la ruta guardada, sin volver a armarla
+        String rutaC = c.getRutaCompleta();
+        assertEquals("/a/b/c", rutaC);
+        assertSame(rutaC, c.getRutaCompleta());
+
+        // Renombrar o mover un ancestro cambia la ruta de todo lo que tiene debajo
+        a.setNombre("x");
+        assertEquals("/x/b/c", c.getRutaCompleta());
+        assertEquals("/x/b", b.getRutaCompleta());
+        b.setPadre(z);
+        assertEquals("/z/b/c", c.getRutaCompleta());
+        assertEquals("/x", a.getRutaCompleta());
+        assertEquals("/z", z.getRutaCompleta());
+    }
+
+    // --- Tests para la cache de rutas ---
+
+    @Test
+    @DisplayName("23. cache de rutas: Debe resolver rutas absolutas repetidas desde la cache")
+    void testCacheRutasAciertos() {
+        fs.mkdir("a");
+        fs.mkdir("a/b");
+        assertEquals(OK, fs.cd("/a/b"));
+        assertEquals(OK, fs.cd("/a/b"));
+        assertEquals(1, fs.getCacheRutas().getAciertos());
+        assertEquals("/a/b", fs.getDirectorioActual().getRutaCompleta());
+    }
+
+    @Test
+    @DisplayName("24. cache de rutas: No debe devolver un directorio eliminado")
+    void testCacheRutasInvalidadaPorRm() {
+        fs.mkdir("a");
+        fs.mkdir("a/b");
+        assertEquals(OK, fs.cd("/a/b"));
+        fs.cd("/");
+        assertEquals(OK, fs.rm("/a/b"));
+        assertEquals(NO_ENCONTRADO, fs.cd("/a/b"));
+        assertEquals("/", fs.getDirectorioActual().getRutaCompleta());
+    }
+
+    @Test
+    @DisplayName("25. cache de rutas: Debe invalidarse al renombrar un directorio intermedio")
+    void testCacheRutasInvalidadaPorRenombre() {
+        fs.mkdir("a");
+        fs.mkdir("a/b");
+        assertEquals(OK, fs.cd("/a/b"));
+        fs.cd("/");
+        Directorio a = (Directorio) fs.getRaiz().getHijo("a");
+        a.setNombre("z");
+        fs.getRaiz().removeHijo("a");
+        fs.getRaiz().addHijo(a);
+        assertEquals(NO_ENCONTRADO, fs.cd("/a/b"));
+        assertEquals(OK, fs.cd("/z/b"));
+        assertEquals("/z/b", fs.getDirectorioActual().getRutaCompleta());
+    }
+
+    // --- Tests para el recorrido de rutas con CursorRuta ---
+
+    @Test
+    @DisplayName("26. touch con ruta absoluta de un nivel: Debe crear el archivo en la raíz aunque el actual sea otro")
+    void testTouchEnRaizDesdeSubdirectorio() {
+        fs.mkdir("sub");
+        fs.cd("sub");
+        assertEquals(OK, fs.touch("/raiz.txt"));
+        assertNotNull(fs.getRaiz().getHijo("raiz.txt"));
+        assertNull(fs.getDirectorioActual().getHijo("raiz.txt"));
+    }
+
+    @Test
+    @DisplayName("27. mkdir: Debe ignorar barras repetidas o finales y rechazar '.' y '..' como nombre")
+    void testMkdirBarrasYNombresInvalidos() {
+        assertEquals(OK, fs.mkdir("a/"));
+        assertEquals(OK, fs.mkdir("//a//b//"));
+        assertNotNull(((Directorio) fs.getRaiz().getHijo("a")).getHijo("b"));
+        assertEquals(NOMBRE_INVALIDO, fs.mkdir("a/.."));
+        assertEquals(NOMBRE_INVALIDO, fs.mkdir("/"));
+    }
+
+    // --- Tests para sesiones concurrentes ---
+
+    @Test
+    @DisplayName("28. sesiones: Cada sesión debe tener su propio directorio actual sobre el mismo árbol")
+    void testSesionesIndependientes() {
+        Sesion otra = fs.abrirSesion();
+        fs.mkdir("compartido");
+        assertEquals(OK, otra.cd("compartido"));
+        assertEquals(OK, otra.touch("desdeOtra.txt"));
+        assertEquals("/", fs.getDirectorioActual().getRutaCompleta());
+        assertEquals("/compartido", otra.getDirectorioActual().getRutaCompleta());
+        assertNotNull(((Directorio) fs.getRaiz().getHijo("compartido")).getHijo("desdeOtra.txt"));
+    }
+
+    @Test
+    @DisplayName("29. sesiones: Creaciones concurrentes en el mismo padre deben dejar el árbol consistente")
+    void testCreacionesConcurrentes() throws InterruptedException {
+        int hilos = 8;
+        int porHilo = 500;
+        fs.mkdir("comun");
+        List<Thread> trabajadores = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            int id = h;
+            Sesion sesion = fs.abrirSesion();
+            trabajadores.add(new Thread(() -> {
+                for (int i = 0; i < porHilo; i++) {
+                    sesion.mkdir("/comun/d" + id + "_" + i);
+                    sesion.touch("/comun/compartido" + i); // Todos los hilos compiten por el mismo nombre
+                }
+            }));
+        }
+        trabajadores.forEach(Thread::start);
+        for (Thread t : trabajadores) {
+            t.join();
+        }
+        Directorio comun = (Directorio) fs.getRaiz().getHijo("comun");
+        assertEquals(hilos * porHilo + porHilo, comun.getHijos().size());
+    }
+
+    @Test
+    @DisplayName("30. sesiones: rm de un directorio vacío no debe competir con una creación dentro de él")
+    void testRmConcurrenteConTouch() throws InterruptedException {
+        int cantidad = 2000;
+        fs.mkdir("carrera");
+        for (int i = 0; i < cantidad; i++) {
+            fs.mkdir("/carrera/r" + i);
+        }
+        boolean[] creados = new boolean[cantidad];
+        boolean[] borrados = new boolean[cantidad];
+        Sesion creadora = fs.abrirSesion();
+        Sesion borradora = fs.abrirSesion();
+        Thread t1 = new Thread(() -> {
+            for (int i = 0; i < cantidad; i++) creados[i] = creadora.touch("/carrera/r" + i + "/f").esExito();
+        });
+        Thread t2 = new Thread(() -> {
+            for (int i = 0; i < cantidad; i++) borrados[i] = borradora.rm("/carrera/r" + i).esExito();
+        });
+        t1.start();
+        t2.start();
+        t1.join();
+        t2.join();
+
+        Directorio carrera = (Directorio) fs.getRaiz().getHijo("carrera");
+        for (int i = 0; i < cantidad; i++) {
+            // Exactamente una de las dos operaciones gana, y un archivo creado nunca queda en un directorio borrado
+            assertTrue(creados[i] != borrados[i]);
+            Directorio r = (Directorio) carrera.getHijo("r" + i);
+            if (creados[i]) {
+                assertNotNull(r.getHijo("f"));
+            } else {
+                assertNull(r);
+            }
+        }
+    }
+
+    // --- Tests para instantáneas (MVCC) ---
+
+    @Test
+    @DisplayName("31. snapshot: Debe ver el árbol como estaba al crearla aunque luego cambie")
+    void testSnapshotAislado() {
+        fs.mkdir("docs");
+        fs.touch("docs/a.txt");
+        try (Instantanea foto = fs.snapshot()) {
+            fs.touch("docs/b.txt");
+            fs.rm("docs/a.txt");
+            fs.mkdir("nuevo");
+
+            assertEquals(List.of("a.txt"), foto.ls("/docs"));
+            assertNull(foto.buscar("/nuevo"));
+            assertNotNull(fs.getRaiz().getHijo("nuevo"));
+            assertEquals(Set.of("b.txt"), ((Directorio) fs.getRaiz().getHijo("docs")).getHijos().keySet());
+        }
+    }
+
+    @Test
+    @DisplayName("32. snapshot: Directorios grandes deben conservar todas sus entradas tras altas y bajas")
+    void testDirectorioGrandeAltasYBajas() {
+        Set<String> esperados = new HashSet<>();
+        for (int i = 0; i < 5000; i++) {
+            fs.touch("f" + i);
+            esperados.add("f" + i);
+        }
+        try (Instantanea foto = fs.snapshot()) {
+            for (int i = 0; i < 5000; i += 3) {
+                fs.rm("f" + i);
+                esperados.remove("f" + i);
+            }
+            assertEquals(5000, foto.ls("/").size());
+        }
+        assertEquals(esperados, fs.getRaiz().getHijos().keySet());
+        for (String nombre : esperados) {
+            assertNotNull(fs.getRaiz().getHijo(nombre));
+        }
+    }
+
+    // --- Tests para el arena fuera del heap ---
+
+    @Test
+    @DisplayName("33. arena: Debe comportarse igual que FileSystem con rutas, errores y directorios no vacíos")
+    void testArenaMismoComportamiento() {
+        try (FileSystemArena arena = new FileSystemArena()) {
+            assertEquals(OK, arena.mkdir("/home"));
+            assertEquals(OK, arena.mkdir("/home/user"));
+            assertEquals(OK, arena.touch("/home/user/notas.txt"));
+            assertEquals(YA_EXISTE, arena.touch("home/user/notas.txt"));
+            assertEquals(DIRECTORIO_NO_VACIO, arena.rm("/home/user"));
+            assertEquals(NO_ENCONTRADO, arena.cd("/home/user/notas.txt"));
+            assertEquals(OK, arena.cd("home//user/"));
+
+            List<String> lineas = new ArrayList<>();
+            arena.pwd(lineas::add);
+            assertEquals(1, arena.ls(lineas::add));
+            assertEquals(OK, arena.cd("../.."));
+            arena.pwd(lineas::add);
+            assertEquals(List.of("/home/user", "notas.txt", "/"), lineas);
+
+            assertEquals(OK, arena.rm("/home/user/notas.txt"));
+            assertEquals(OK, arena.rm("/home/user"));
+            assertEquals(NO_ENCONTRADO, arena.cd("/home/user"));
+            assertEquals(2, arena.getCantidadNodos());
+        }
+    }
+
+    // --- Tests para instantáneas en disco ---
+
+    @Test
+    @DisplayName("34. guardar/cargar: Debe recuperar el árbol completo y permitir seguir modificándolo")
+    void testGuardarYCargar(@TempDir Path carpeta) throws IOException {
+        fs.mkdir("home");
+        fs.mkdir("home/user");
+        fs.touch("home/user/notas.txt");
+        fs.touch("léame.txt");
+        Path archivo = carpeta.resolve("fs.bin");
+        fs.guardar(archivo);
+
+        FileSystem cargado = FileSystem.cargar(archivo);
+        assertEquals(Set.of("home", "léame.txt"), cargado.getRaiz().getHijos().keySet());
+        assertEquals(OK, cargado.cd("/home/user"));
+        assertEquals("/home/user", cargado.getDirectorioActual().getRutaCompleta());
+        assertInstanceOf(Archivo.class, cargado.getDirectorioActual().getHijo("notas.txt"));
+
+        try (Instantanea foto = cargado.snapshot()) {
+            assertEquals(OK, cargado.rm("notas.txt"));
+            assertEquals(OK, cargado.rm("/home/user"));
+            assertEquals(List.of("notas.txt"), foto.ls("/home/user"));
+        }
+        assertNull(((Directorio) cargado.getRaiz().getHijo("home")).getHijo("user"));
+    }
+
+    @Test
+    @DisplayName("35. bitácora: Debe recuperar las modificaciones al reabrir, antes y después de compactar")
+    void testBitacoraReabrir(@TempDir Path carpeta) throws IOException {
+        try (FileSystem persistente = FileSystem.abrir(carpeta)) {
+            persistente.mkdir("docs");
+            persistente.touch("docs/a.txt");
+            persistente.compactar();
+            persistente.touch("docs/b.txt");
+            persistente.rm("docs/a.txt");
+            assertEquals(DIRECTORIO_NO_VACIO, persistente.rm("docs"));
+        }
+        try (FileSystem reabierto = FileSystem.abrir(carpeta)) {
+            Directorio docs = (Directorio) reabierto.getRaiz().getHijo("docs");
+            assertEquals(Set.of("b.txt"), docs.getHijos().keySet());
+            assertEquals(OK, reabierto.rm("/docs/b.txt"));
+            assertEquals(OK, reabierto.rm("/docs"));
+        }
+        try (FileSystem reabierto = FileSystem.abrir(carpeta)) {
+            assertTrue(reabierto.getRaiz().estaVacio());
+        }
+    }
+
+    // --- Tests para el contenido de los archivos ---
+
+    @Test
+    @DisplayName("36. contenido: Debe escribir, agregar, truncar y transferir, incluso al pasar al archivo de respaldo")
+    void testContenidoArchivo() throws IOException {
+        fs.touch("datos.bin");
+        Archivo archivo = (Archivo) fs.getRaiz().getHijo("datos.bin");
+        assertEquals(0, archivo.getTamanio());
+        assertEquals(-1, archivo.leer(0, ByteBuffer.allocate(4)));
+
+        archivo.agregar(ByteBuffer.wrap("hola".getBytes(StandardCharsets.UTF_8)));
+        archivo.escribir(10, ByteBuffer.wrap("mundo".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(15, archivo.getTamanio());
+        ByteBuffer leido = ByteBuffer.allocate(15);
+        assertEquals(15, archivo.leer(0, leido));
+        assertEquals("hola\0\0\0\0\0\0mundo", new String(leido.array(), StandardCharsets.UTF_8));
+
+        // Varios MB: el contenido pasa a un archivo temporal mapeado
+        byte[] grande = new byte[3 << 20];
+        for (int i = 0; i < grande.length; i++) grande[i] = (byte) i;
+        archivo.escribir(0, ByteBuffer.wrap(grande));
+        archivo.truncar(grande.length - 7);
+        ByteArrayOutputStream copia = new ByteArrayOutputStream();
+        assertEquals(grande.length - 7, archivo.transferirA(Channels.newChannel(copia)));
+        assertArrayEquals(Arrays.copyOf(grande, grande.length - 7), copia.toByteArray());
+
+        archivo.truncar(grande.length);
+        assertEquals(0, archivo.leer(grande.length - 1, 1).get());
+        archivo.truncar(0);
+        assertEquals(0, archivo.getTamanio());
+    }
+
+    // --- Tests para el frente de consola ---
+
+    @Test
+    @DisplayName("37. consola: Debe mostrar los mismos mensajes que antes para cada resultado de los comandos")
+    void testConsolaMensajes() {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        Consola consola = new Consola(fs, new PrintStream(salida, true, StandardCharsets.UTF_8));
+        consola.ls();
+        assertTrue(consola.mkdir("docs"));
+        assertTrue(consola.touch("docs/a.txt"));
+        assertFalse(consola.cd("nonExistent"));
+        assertFalse(consola.touch("/docs/a.txt/"));
+        assertFalse(consola.mkdir("docs"));
+        assertFalse(consola.mkdir("a/.."));
+        assertFalse(consola.touch("nada/b.txt"));
+        assertFalse(consola.rm("docs"));
+        assertFalse(consola.rm("noSuchThing"));
+        assertFalse(consola.cd(""));
+        assertFalse(consola.cd(".."));
+        assertTrue(consola.cd("docs"));
+        consola.pwd();
+        consola.ls();
+        assertEquals("""
+                El directorio está vacío.
+                Error: Directorio 'nonExistent' no encontrado.
+                Error: Ya existe un archivo o directorio con el nombre 'a.txt' en este directorio.
+                Error: Ya existe un archivo o directorio con el nombre 'docs' en este directorio.
+                Error: El nombre 'a/..' no es válido.
+                Error: La ruta del directorio para 'nada/b.txt' no existe.
+                Error: El directorio 'docs' no está vacío y no puede ser eliminado.
+                Error: 'noSuchThing' no encontrado.
+                Error: El nombre del directorio no puede ser nulo o vacío.
+                /docs
+                a.txt
+                """, salida.toString(StandardCharsets.UTF_8).replace("\r\n", "\n"));
+    }
+
+    // --- Tests para ls paginado ---
+
+    @Test
+    @DisplayName("38. ls paginado: Debe listar por páginas en orden, con prefijo, ruta y altas entre páginas")
+    void testLsPaginado() {
+        fs.mkdir("grande");
+        List<String> esperados = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String nombre = String.format("f%03d", i);
+            fs.touch("/grande/" + nombre);
+            esperados.add(nombre);
+        }
+        fs.mkdir("/grande/g");
+        esperados.add("g/");
+
+        List<String> lineas = new ArrayList<>();
+        String desde = null;
+        int paginas = 0;
+        do {
+            PaginaListado pagina = fs.ls("/grande", "", desde, 7, lineas::add);
+            assertEquals(OK, pagina.getResultado());
+            desde = pagina.getSiguiente();
+            paginas++;
+            if (paginas == 3) {
+                // Una alta antes del token no se ve y una posterior aparece más adelante, sin repetir entradas
+                fs.touch("/grande/a");
+                fs.touch("/grande/f099b");
+                esperados.add(100, "f099b");
+            }
+        } while (desde != null);
+        assertEquals(esperados, lineas);
+        assertEquals(15, paginas);
+
+        lineas.clear();
+        PaginaListado conPrefijo = fs.ls("grande", "f05", null, 4, lineas::add);
+        assertEquals(List.of("f050", "f051", "f052", "f053"), lineas);
+        assertEquals("f053", conPrefijo.getSiguiente());
+        lineas.clear();
+        assertFalse(fs.ls("grande", "f05", conPrefijo.getSiguiente(), 100, lineas::add).hayMas());
+        assertEquals(List.of("f054", "f055", "f056", "f057", "f058", "f059"), lineas);
+
+        assertEquals(NO_ENCONTRADO, fs.ls("/nada", "", null, 10, lineas::add).getResultado());
+        try (FileSystemArena arena = new FileSystemArena()) {
+            arena.mkdir("d");
+            arena.touch("d/b");
+            arena.mkdir("d/a");
+            arena.touch("d/c");
+            lineas.clear();
+            PaginaListado pagina = arena.ls("d", "", null, 2, lineas::add);
+            assertEquals(List.of("a/", "b"), lineas);
+            assertEquals(1, arena.ls("d", "", pagina.getSiguiente(), 2, lineas::add).getCantidad());
+            assertEquals(List.of("a/", "b", "c"), lineas);
+        }
+    }
+
+    // --- Tests para rm -r ---
+
+    @Test
+    @DisplayName("39. rm -r: Debe quitar el subárbol en el momento, contar lo eliminado y no dejar crear dentro de él")
+    void testRmRecursivo(@TempDir Path carpeta) throws IOException {
+        try (FileSystem persistente = FileSystem.abrir(carpeta)) {
+            persistente.mkdir("proyecto");
+            persistente.mkdir("proyecto/src");
+            persistente.mkdir("proyecto/src/main");
+            for (int i = 0; i < 2000; i++) {
+                persistente.touch("proyecto/src/f" + i);
+            }
+            persistente.touch("proyecto/src/main/App.java");
+            Sesion adentro = persistente.abrirSesion();
+            assertEquals(OK, adentro.cd("/proyecto/src/main"));
+
+            try (Instantanea foto = persistente.snapshot()) {
+                BorradoRecursivo borrado = persistente.rmRecursivo("proyecto/src");
+                assertEquals(OK, borrado.getResultado());
+                assertNull(((Directorio) persistente.getRaiz().getHijo("proyecto")).getHijo("src"));
+                assertEquals(RUTA_INEXISTENTE, adentro.touch("nuevo.txt"));
+                assertEquals(RUTA_INEXISTENTE, persistente.mkdir("/proyecto/src/main/x"));
+
+                assertSame(borrado, borrado.esperar());
+                assertEquals(2001, borrado.getArchivos());
+                assertEquals(2, borrado.getDirectorios());
+                assertEquals(List.of("App.java"), foto.ls("/proyecto/src/main"));
+                assertEquals(RUTA_INEXISTENTE, adentro.mkdir("x"));
+            }
+
+            assertEquals(NO_ENCONTRADO, persistente.rmRecursivo("proyecto/src").getResultado());
+            assertEquals(NOMBRE_VACIO, persistente.rmRecursivo("").getResultado());
+            persistente.touch("proyecto/a.txt");
+            BorradoRecursivo archivo = persistente.rmRecursivo("proyecto/a.txt");
+            assertEquals(1, archivo.esperar().getArchivos());
+            persistente.mkdir("proyecto/src");
+        }
+        try (FileSystem reabierto = FileSystem.abrir(carpeta)) {
+            Directorio proyecto = (Directorio) reabierto.getRaiz().getHijo("proyecto");
+            assertEquals(Set.of("src"), proyecto.getHijos().keySet());
+            assertTrue(((Directorio) proyecto.getHijo("src")).estaVacio());
+        }
+
+        try (FileSystemArena arena = new FileSystemArena()) {
+            arena.mkdir("a");
+            arena.mkdir("a/b");
+            arena.mkdir("a/b/c");
+            arena.touch("a/b/c/x");
+            arena.touch("a/b/y");
+            arena.mkdir("a/d");
+            arena.cd("a/b/c");
+            BorradoRecursivo borrado = arena.rmRecursivo("/a");
+            assertEquals(2, borrado.getArchivos());
+            assertEquals(4, borrado.getDirectorios());
+            assertEquals(0, arena.ls(linea -> { }));
+            assertEquals(RUTA_INEXISTENTE, arena.touch("z"));
+            assertEquals(OK, arena.cd(".."));
+            List<String> lineas = new ArrayList<>();
+            arena.pwd(lineas::add);
+            assertEquals(List.of("/a/b"), lineas);
+            assertEquals(OK, arena.cd("/"));
+            assertEquals(0, arena.ls(linea -> { }));
+            assertEquals(OK, arena.mkdir("a"));
+        }
+    }
+
+    // --- Tests para find ---
+
+    @Test
+    @DisplayName("40. find: Debe encontrar por glob a cualquier profundidad, respetar maxDepth y permitir cortar antes")
+    void testFind() {
+        fs.mkdir("logs");
+        fs.mkdir("logs/2024");
+        fs.mkdir("logs/2024/enero");
+        fs.touch("logs/a.log");
+        fs.touch("logs/2024/b.log");
+        fs.touch("logs/2024/enero/c.log");
+        fs.touch("logs/2024/enero/notas.txt");
+        fs.touch("raiz.log");
+
+        assertEquals(Set.of("/raiz.log", "/logs/a.log", "/logs/2024/b.log", "/logs/2024/enero/c.log"),
+                fs.find("/", "**/*.log", Integer.MAX_VALUE).collect(Collectors.toSet()));
+        assertEquals(Set.of("/raiz.log", "/logs/a.log"), fs.find("/", "**/*.log", 2).collect(Collectors.toSet()));
+        assertEquals(Set.of("/logs/2024/b.log"), fs.find("logs", "20??/[ab].log", 5).collect(Collectors.toSet()));
+        assertEquals(Set.of("/logs/2024/enero/notas.txt", "/logs/2024/enero/c.log"),
+                fs.find("/logs", "*/enero/*", 3).collect(Collectors.toSet()));
+        assertEquals(Set.of("/logs/2024", "/logs/2024/enero"),
+                fs.find("/logs", "**/[!a-c]*", 3).filter(r -> !r.endsWith(".txt")).collect(Collectors.toSet()));
+
+        Sesion sesion = fs.abrirSesion();
+        sesion.cd("logs/2024");
+        assertEquals(List.of("/logs/2024/enero/c.log"), sesion.find("", "enero/*.log", 2).toList());
+        assertEquals(0, fs.find("/nada", "*", 1).count());
+        assertThrows(IllegalArgumentException.class, () -> fs.find("/", "", 1));
+
+        // Un directorio grande se reparte entre varias tareas y la búsqueda se puede cortar en el primer resultado
+        for (int i = 0; i < 5000; i++) {
+            fs.touch("/logs/2024/f" + i + ".log");
+        }
+        assertEquals(5003, fs.find("/logs", "**/*.log", Integer.MAX_VALUE).count());
+        assertTrue(fs.find("/", "**/f4999.log", Integer.MAX_VALUE).sequential().findFirst().isPresent());
+
+        try (FileSystemArena arena = new FileSystemArena()) {
+            arena.mkdir("logs");
+            arena.mkdir("logs/2024");
+            arena.touch("logs/a.log");
+            arena.touch("logs/2024/b.log");
+            assertEquals(Set.of("/logs/a.log", "/logs/2024/b.log"),
+                    arena.find("/", "**/*.log", Integer.MAX_VALUE).collect(Collectors.toSet()));
+        }
+    }
+
+    @Test
+    @DisplayName("41.1. du: Debe devolver archivos, directorios y profundidad del subárbol")
+    void testDu() {
+        fs.mkdir("proyecto");
+        fs.mkdir("proyecto/src");
+        fs.mkdir("proyecto/src/main");
+        fs.touch("proyecto/src/main/App.java");
+        fs.touch("proyecto/README");
+        UsoDirectorio uso = fs.du("/proyecto");
+        assertEquals(OK, uso.getResultado());
+        assertEquals(2, uso.getArchivos());
+        assertEquals(2, uso.getDirectorios());
+        assertEquals(3, uso.getProfundidad());
+        assertEquals(3, fs.du("").getDirectorios());
+        assertEquals(NO_ENCONTRADO, fs.du("/nada").getResultado());
+    }
+
+    @Test
+    @DisplayName("41.2. du: Debe seguir escrituras, truncados, rm y mv hasta la raíz")
+    void testDuPropagacion() throws IOException {
+        fs.mkdirConPadres("/proyecto/src/main");
+        fs.touch("/proyecto/src/main/App.java");
+        fs.touch("/proyecto/README");
+        fs.cd("/proyecto/src/main");
+        Archivo app = (Archivo) fs.getDirectorioActual().getHijo("App.java");
+        fs.cd("/");
+        app.agregar(ByteBuffer.wrap(new byte[100]));
+        app.truncar(40);
+        assertEquals(40, fs.du("/").getBytes());
+        assertEquals(40, fs.du("/proyecto/src").getBytes());
+
+        // Un mv resta del origen y suma en el destino, también en los ancestros
+        fs.mkdir("/otro");
+        assertEquals(OK, fs.mv("/proyecto/src/main", "/otro/main"));
+        assertEquals(0, fs.du("/proyecto").getBytes());
+        assertEquals(1, fs.du("/proyecto").getProfundidad());
+        assertEquals(40, fs.du("/otro").getBytes());
+        assertEquals(40, fs.du("/").getBytes());
+        assertEquals(OK, fs.mv("/otro/main", "/proyecto/src/main"));
+
+        // Quitar la rama más profunda baja la profundidad; quitar un archivo resta sus bytes
+        assertEquals(OK, fs.rm("/proyecto/src/main/App.java"));
+        assertEquals(0, fs.du("/").getBytes());
+        assertEquals(2, fs.du("/proyecto").getProfundidad());
+        assertEquals(OK, fs.rm("/proyecto/src/main"));
+        UsoDirectorio uso = fs.du("/proyecto");
+        assertEquals(1, uso.getArchivos());
+        assertEquals(1, uso.getDirectorios());
+        assertEquals(1, uso.getProfundidad());
+        fs.rmRecursivo("/proyecto/src").esperar();
+        assertEquals(2, fs.du("/").getProfundidad());
+        assertEquals(2, fs.du("").getDirectorios());
+    }
+
+    @Test
+    @DisplayName("41.3. du: Los totales deben guardarse en la instantánea y seguir manteniéndose en el árbol cargado")
+    void testDuInstantanea(@TempDir Path carpeta) throws IOException {
+        for (int i = 0; i < 10; i++) {
+            fs.mkdirConPadres("/proyecto/d" + i);
+            fs.touch("/proyecto/d" + i + "/f");
+        }
+        fs.touch("/proyecto/README");
+        Path archivo = carpeta.resolve("fs.bin");
+        fs.guardar(archivo);
+        FileSystem cargado = FileSystem.cargar(archivo);
+        UsoDirectorio uso = cargado.du("/");
+        assertEquals(11, uso.getArchivos());
+        assertEquals(11, uso.getDirectorios());
+        assertEquals(3, uso.getProfundidad());
+        assertEquals(OK, cargado.rm("/proyecto/d3/f"));
+        assertEquals(10, cargado.du("/").getArchivos());
+    }
+
+    @Test
+    @DisplayName("41.4. du: Altas y bajas concurrentes bajo la misma raíz no deben perder ninguna suma")
+    void testDuConcurrente() throws InterruptedException {
+        Thread[] hilos = new Thread[4];
+        for (int h = 0; h < hilos.length; h++) {
+            String base = "/h" + h;
+            fs.mkdir(base);
+            hilos[h] = new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    fs.touch(base + "/f" + i);
+                    if (i % 2 == 1) fs.rm(base + "/f" + i);
+                }
+            });
+            hilos[h].start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        UsoDirectorio uso = fs.du("/");
+        assertEquals(4 * 1000, uso.getArchivos());
+        assertEquals(4, uso.getDirectorios());
+
+        // Después de la contención los totales siguen sumando igual con un solo hilo
+        assertEquals(OK, fs.rm("/h0/f0"));
+        assertEquals(OK, fs.mkdir("/h0/d"));
+        uso = fs.du("/");
+        assertEquals(4 * 1000 - 1, uso.getArchivos());
+        assertEquals(5, uso.getDirectorios());
+        assertEquals(1000 - 1, fs.du("/h0").getArchivos());
+    }
+
+    @Test
+    @DisplayName("41.5. arena: du debe comportarse igual que en FileSystem")
+    void testDuArena() {
+        try (FileSystemArena arena = new FileSystemArena()) {
+            arena.mkdir("a");
+            arena.mkdir("a/b");
+            arena.touch("a/b/c");
+            UsoDirectorio uso = arena.du("/");
+            assertEquals(1, uso.getArchivos());
+            assertEquals(2, uso.getDirectorios());
+            assertEquals(3, uso.getProfundidad());
+        }
+    }
+
+    @Test
+    @DisplayName("42. mkdir -p y lotes: Debe crear los intermedios y aplicar cada lote entero o nada")
+    void testMkdirConPadresYLote(@TempDir Path carpeta) throws IOException {
+        assertEquals(OK, fs.mkdirConPadres("/a/b/c"));
+        assertEquals(OK, fs.mkdirConPadres("a/b/c"));
+        assertEquals(OK, fs.mkdirConPadres("/a/./b/../b/d"));
+        assertEquals(OK, fs.cd("/a/b/d"));
+        fs.cd("/");
+        fs.touch("/a/archivo");
+        assertEquals(YA_EXISTE, fs.mkdirConPadres("/a/archivo"));
+        assertEquals(RUTA_INEXISTENTE, fs.mkdirConPadres("/a/archivo/x"));
+        assertEquals(NOMBRE_INVALIDO, fs.mkdirConPadres("/a/.."));
+
+        // El orden dentro del lote no importa: los directorios se crean antes que lo que va adentro
+        ResultadoLote resultado = fs.lote()
+                .touch("/lote/x/f1")
+                .mkdir("/lote/x")
+                .mkdir("/lote")
+                .touch("/lote/f2")
+                .aplicar();
+        assertEquals(OK, resultado.getResultado());
+        assertEquals(4, resultado.getAplicadas());
+        UsoDirectorio uso = fs.du("/lote");
+        assertEquals(2, uso.getArchivos());
+        assertEquals(1, uso.getDirectorios());
+        assertEquals(2, uso.getProfundidad());
+
+        // Si una operación falla no se aplica ninguna, y se informa su posición
+        resultado = fs.lote().touch("/lote/nuevo").mkdir("/lote/x").aplicar();
+        assertEquals(YA_EXISTE, resultado.getResultado());
+        assertEquals(1, resultado.getFallida());
+        assertEquals(NO_ENCONTRADO, fs.rm("/lote/nuevo"));
+        resultado = fs.lote().rm("/lote/x").aplicar();
+        assertEquals(DIRECTORIO_NO_VACIO, resultado.getResultado());
+        assertEquals(NO_ENCONTRADO, fs.lote().rm("/lote/nada").aplicar().getResultado());
+        assertEquals(NOMBRE_VACIO, fs.lote().touch("/lote/a").touch("").aplicar().getResultado());
+
+        // Las bajas van de abajo hacia arriba, así que un directorio se puede vaciar y borrar en el mismo lote
+        Sesion sesion = fs.abrirSesion();
+        sesion.cd("/lote");
+        resultado = sesion.lote().rm("x").rm("x/f1").rm("../lote/f2").aplicar();
+        assertEquals(OK, resultado.getResultado());
+        assertEquals(0, fs.du("/lote").getArchivos());
+        assertEquals(0, fs.du("/lote").getDirectorios());
+
+        // Un lote persistente se recupera entero al reabrir
+        try (FileSystem persistente = FileSystem.abrir(carpeta)) {
+            Lote lote = persistente.lote();
+            for (int i = 0; i < 20; i++) {
+                lote.mkdir("/datos/d" + i);
+                for (int j = 0; j < 5; j++) {
+                    lote.touch("/datos/d" + i + "/f" + j);
+                }
+            }
+            lote.mkdir("/datos").touch("/temporal").rm("/temporal");
+            assertEquals(OK, lote.aplicar().getResultado());
+        }
+        try (FileSystem reabierto = FileSystem.abrir(carpeta)) {
+            uso = reabierto.du("/");
+            assertEquals(100, uso.getArchivos());
+            assertEquals(21, uso.getDirectorios());
+            assertEquals(NO_ENCONTRADO, reabierto.rm("/temporal"));
+        }
+
+        try (FileSystemArena arena = new FileSystemArena()) {
+            assertEquals(OK, arena.mkdirConPadres("/x/y/z"));
+            assertEquals(OK, arena.mkdirConPadres("/x/y"));
+            assertEquals(3, arena.du("/").getDirectorios());
+        }
+    }
+
+    @Test
+    @DisplayName("43.1. mv: Debe renombrar archivos y directorios en el mismo lugar, con todo lo que tienen")
+    void testMvRenombrar() {
+        fs.mkdirConPadres("/a/b/c");
+        fs.touch("/a/f2");
+        fs.touch("/a/b/c/f1");
+
+        assertEquals(OK, fs.mv("/a/f2", "/a/f3"));
+        assertEquals(NO_ENCONTRADO, fs.rm("/a/f2"));
+        assertEquals(OK, fs.mv("/a/b", "/a/b2"));
+        assertEquals(NO_ENCONTRADO, fs.cd("/a/b"));
+        assertEquals(OK, fs.cd("/a/b2/c"));
+        assertEquals("/a/b2/c", fs.getDirectorioActual().getRutaCompleta());
+        fs.cd("/");
+        UsoDirectorio uso = fs.du("/a");
+        assertEquals(2, uso.getArchivos());
+        assertEquals(2, uso.getDirectorios());
+        assertEquals(3, uso.getProfundidad());
+    }
+
+    @Test
+    @DisplayName("43.2. mv: Debe mover subárboles entre directorios y pasar los totales de un lado al otro")
+    void testMvEntreDirectorios() throws IOException {
+        fs.mkdirConPadres("/a/b/c");
+        fs.touch("/a/b/c/f1");
+        fs.touch("/a/b/f2");
+        fs.mkdir("/z");
+        Archivo f1 = (Archivo) ((Directorio) ((Directorio) ((Directorio) fs.getRaiz().getHijo("a"))
+                .getHijo("b")).getHijo("c")).getHijo("f1");
+        f1.agregar(ByteBuffer.wrap("hola".getBytes(StandardCharsets.UTF_8)));
+
+        // Un directorio se mueve con todo lo que tiene, y los totales pasan de un lado al otro
+        assertEquals(OK, fs.mv("/a/b", "/z/nuevo"));
+        assertEquals(NO_ENCONTRADO, fs.cd("/a/b"));
+        assertEquals(OK, fs.cd("/z/nuevo/c"));
+        assertEquals("/z/nuevo/c", fs.getDirectorioActual().getRutaCompleta());
+        fs.cd("/");
+        assertEquals(0, fs.du("/a").getArchivos());
+        assertEquals(0, fs.du("/a").getProfundidad());
+        UsoDirectorio uso = fs.du("/z");
+        assertEquals(2, uso.getArchivos());
+        assertEquals(2, uso.getDirectorios());
+        assertEquals(4, uso.getBytes());
+        assertEquals(3, uso.getProfundidad());
+        assertEquals(4, fs.du("/").getBytes());
+
+        // Con un directorio como destino, la entrada va adentro con su nombre
+        assertEquals(OK, fs.mv("/z/nuevo/f2", "/a"));
+        assertEquals(1, fs.du("/a").getArchivos());
+        assertEquals(1, fs.du("/z").getArchivos());
+        assertEquals(OK, fs.rm("/a/f2"));
+    }
+
+    @Test
+    @DisplayName("43.3. cp: Debe copiar sin duplicar el contenido y separar cada lado recién cuando se modifica")
+    void testCpCompartidaHastaModificar() throws IOException {
+        fs.mkdirConPadres("/z/nuevo/c");
+        fs.touch("/z/nuevo/c/f1");
+        fs.touch("/f3");
+        Archivo f1 = (Archivo) ((Directorio) ((Directorio) ((Directorio) fs.getRaiz().getHijo("z"))
+                .getHijo("nuevo")).getHijo("c")).getHijo("f1");
+        f1.agregar(ByteBuffer.wrap("hola".getBytes(StandardCharsets.UTF_8)));
+
+        // La copia tiene los mismos totales desde el principio y después cada lado cambia por su cuenta
+        assertEquals(OK, fs.cp("/z", "/copia"));
+        UsoDirectorio uso = fs.du("/copia");
+        assertEquals(1, uso.getArchivos());
+        assertEquals(2, uso.getDirectorios());
+        assertEquals(4, uso.getBytes());
+        assertEquals(3, uso.getProfundidad());
+        f1.agregar(ByteBuffer.wrap(" mundo".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(10, fs.du("/z").getBytes());
+        assertEquals(4, fs.du("/copia").getBytes());
+        Archivo copiaF1 = (Archivo) ((Directorio) ((Directorio) ((Directorio) fs.getRaiz().getHijo("copia"))
+                .getHijo("nuevo")).getHijo("c")).getHijo("f1");
+        assertEquals("hola", StandardCharsets.UTF_8.decode(copiaF1.leer(0, 100)).toString());
+        copiaF1.truncar(1);
+        assertEquals("hola mundo", StandardCharsets.UTF_8.decode(f1.leer(0, 100)).toString());
+        assertEquals(1, fs.du("/copia").getBytes());
+
+        // Las altas en la copia no aparecen en el original
+        assertEquals(OK, fs.touch("/copia/nuevo/otro"));
+        assertNull(((Directorio) ((Directorio) fs.getRaiz().getHijo("z")).getHijo("nuevo")).getHijo("otro"));
+        assertEquals(2, fs.du("/copia").getArchivos());
+        assertEquals(1, fs.du("/z").getArchivos());
+
+        // Un archivo copiado a un directorio va adentro con su nombre
+        assertEquals(OK, fs.cp("/f3", "/copia"));
+        assertNotNull(((Directorio) fs.getRaiz().getHijo("copia")).getHijo("f3"));
+        assertEquals(OK, fs.rmRecursivo("/copia").getResultado());
+        assertEquals(10, fs.du("/").getBytes());
+    }
+
+    @Test
+    @DisplayName("43.4. cp -r: Debe retener solo lo que está debajo del directorio copiado mientras se sigue escribiendo")
+    void testCpRecursivoMientrasSeEscribe() throws IOException {
+        fs.mkdirConPadres("/z/nuevo/c");
+        fs.touch("/z/nuevo/c/f1");
+        fs.mkdir("/otro");
+        fs.touch("/otro/g");
+        Archivo f1 = (Archivo) ((Directorio) ((Directorio) ((Directorio) fs.getRaiz().getHijo("z"))
+                .getHijo("nuevo")).getHijo("c")).getHijo("f1");
+        Archivo g = (Archivo) ((Directorio) fs.getRaiz().getHijo("otro")).getHijo("g");
+        f1.agregar(ByteBuffer.wrap("hola mundo".getBytes(StandardCharsets.UTF_8)));
+        g.agregar(ByteBuffer.wrap("uno".getBytes(StandardCharsets.UTF_8)));
+        ByteBuffer vistaG = g.leer(0, 100);
+        ByteBuffer vistaF1 = f1.leer(0, 100);
+
+        // Un archivo de otro lado se sigue escribiendo en su lugar: una vista tomada antes ve el cambio
+        assertEquals(OK, fs.cp("/z", "/copia2"));
+        g.escribir(0, ByteBuffer.wrap("dos".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("dos", StandardCharsets.UTF_8.decode(vistaG).toString());
+
+        // Uno que un mv saca de debajo del copiado se duplica al escribirse, y la copia lo ve como estaba
+        assertEquals(OK, fs.mv("/z/nuevo/c/f1", "/otro/f1"));
+        f1.escribir(0, ByteBuffer.wrap("HOLA".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("hola mundo", StandardCharsets.UTF_8.decode(vistaF1).toString());
+        Archivo copia2F1 = (Archivo) ((Directorio) ((Directorio) ((Directorio) fs.getRaiz().getHijo("copia2"))
+                .getHijo("nuevo")).getHijo("c")).getHijo("f1");
+        assertEquals("hola mundo", StandardCharsets.UTF_8.decode(copia2F1.leer(0, 100)).toString());
+        assertEquals("HOLA mundo", StandardCharsets.UTF_8.decode(f1.leer(0, 100)).toString());
+    }
+
+    @Test
+    @DisplayName("43.5. mv y cp: Debe rechazar orígenes inexistentes, destinos ocupados o dentro del origen y nombres inválidos")
+    void testMvCpErrores() {
+        fs.mkdirConPadres("/z/nuevo/c");
+        fs.mkdir("/a");
+        fs.touch("/a/f3");
+
+        assertEquals(NO_ENCONTRADO, fs.mv("/a/f2", "/z"));
+        assertEquals(YA_EXISTE, fs.mv("/a/f3", "/a/f3"));
+        assertEquals(DESTINO_DENTRO_DEL_ORIGEN, fs.mv("/z", "/z/nuevo/c/d"));
+        assertEquals(DESTINO_DENTRO_DEL_ORIGEN, fs.cp("/z/nuevo", "/z/nuevo"));
+        assertEquals(RUTA_INEXISTENTE, fs.mv("/a/f3", "/nada/f3"));
+        assertEquals(NOMBRE_INVALIDO, fs.mv("/a/f3", "/a/.."));
+        assertEquals(NOMBRE_VACIO, fs.cp("", "/a"));
+        // Nada de lo rechazado cambió el árbol
+        assertEquals(1, fs.du("/").getArchivos());
+        assertEquals(4, fs.du("/").getDirectorios());
+    }
+
+    @Test
+    @DisplayName("43.6. mv y cp: Debe registrarlos en la bitácora y reproducirlos al reabrir")
+    void testMvCpBitacora(@TempDir Path carpeta) throws IOException {
+        try (FileSystem persistente = FileSystem.abrir(carpeta)) {
+            persistente.mkdirConPadres("/p/q");
+            persistente.touch("/p/q/f");
+            assertEquals(OK, persistente.cp("/p", "/r"));
+            assertEquals(OK, persistente.mv("/p/q", "/s"));
+            assertEquals(OK, persistente.mv("/r/q/f", "/r/g"));
+        }
+        try (FileSystem reabierto = FileSystem.abrir(carpeta)) {
+            assertEquals(NO_ENCONTRADO, reabierto.cd("/p/q"));
+            assertEquals(OK, reabierto.cd("/s"));
+            assertEquals(NO_ENCONTRADO, reabierto.rm("/r/q/f"));
+            assertEquals(OK, reabierto.rm("/r/g"));
+            assertEquals(1, reabierto.du("/").getArchivos());
+        }
+    }
+
+    @Test
+    @DisplayName("43.7. arena: mv y cp deben comportarse igual que en FileSystem")
+    void testMvCpArena() {
+        try (FileSystemArena arena = new FileSystemArena()) {
+            arena.mkdirConPadres("/x/y");
+            arena.touch("/x/y/f");
+            assertEquals(OK, arena.cp("/x", "/w"));
+            assertEquals(YA_EXISTE, arena.mv("/x/y", "/w"));
+            assertEquals(DESTINO_DENTRO_DEL_ORIGEN, arena.mv("/w", "/w/y"));
+            assertEquals(OK, arena.mv("/x/y", "/w/y2"));
+            assertEquals(OK, arena.cd("/w/y2"));
+            UsoDirectorio uso = arena.du("/");
+            assertEquals(2, uso.getArchivos());
+            assertEquals(4, uso.getDirectorios());
+        }
+    }
+
+    @Test
+    @DisplayName("44. índice de rutas: Debe resolver rutas absolutas con una búsqueda y seguir los cambios del árbol")
+    void testIndiceRutas() {
+        FileSystem indexado = new FileSystem(0, true);
+        IndiceRutas indice = indexado.getIndiceRutas();
+        assertNull(fs.getIndiceRutas());
+        assertEquals(OK, indexado.mkdirConPadres("/a/b/c/d"));
+        assertEquals(4, indice.getEntradas());
+        assertEquals(OK, indexado.cd("/a/b/c/d"));
+        assertEquals(1, indice.getAciertos());
+        assertEquals("/a/b/c/d", indexado.getDirectorioActual().getRutaCompleta());
+        assertTrue(indice.getBytesEstimados() > 0);
+
+        // Las rutas no canónicas y las relativas se resuelven igual, sin tocar el índice
+        assertEquals(OK, indexado.cd("/a//b/"));
+        assertEquals(OK, indexado.cd("c/../c"));
+        assertEquals(1, indice.getAciertos());
+
+        // mv reindexa el directorio movido; sus descendientes se corrigen la primera vez que se resuelven
+        indexado.cd("/");
+        assertEquals(OK, indexado.mv("/a/b", "/x"));
+        assertEquals(NO_ENCONTRADO, indexado.cd("/a/b/c"));
+        assertEquals(OK, indexado.cd("/x"));
+        assertEquals(OK, indexado.cd("/x/c/d"));
+        assertEquals(OK, indexado.cd("/x/c/d"));
+        assertEquals("/x/c/d", indexado.getDirectorioActual().getRutaCompleta());
+        // La entrada vieja de c se descartó al buscar /a/b/c y vuelve recién cuando se resuelve /x/c
+        assertEquals(3, indice.getEntradas());
+
+        // rm, rm -r y los lotes quitan y agregan entradas
+        indexado.cd("/");
+        assertEquals(OK, indexado.rm("/x/c/d"));
+        assertEquals(NO_ENCONTRADO, indexado.cd("/x/c/d"));
+        assertEquals(3, indice.getEntradas());
+        assertEquals(OK, indexado.lote().mkdir("/l").mkdir("/l/m").rm("/x/c").aplicar().getResultado());
+        assertEquals(4, indice.getEntradas());
+        assertEquals(OK, indexado.cd("/l/m"));
+        assertEquals(NO_ENCONTRADO, indexado.cd("/x/c"));
+        indexado.cd("/");
+        assertEquals(OK, indexado.touch("/l/m/f"));
+        indexado.rmRecursivo("/l").esperar();
+        assertEquals(2, indice.getEntradas());
+        assertEquals(NO_ENCONTRADO, indexado.cd("/l/m"));
+        assertEquals(OK, indexado.cd("/a"));
+    }
+
+    @Test
+    @DisplayName("45. ids de inodo: Debe resolver por id aunque la entrada se renombre o se mueva, hasta que se elimine")
+    void testIdsDeInodo() {
+        fs.mkdirConPadres("/a/b");
+        fs.touch("/a/b/f");
+        long idF = fs.obtenerId("/a/b/f");
+        long idB = fs.obtenerId("/a/b/");
+        assertEquals(fs.getRaiz().getId(), fs.obtenerId("/"));
+        assertEquals(-1, fs.obtenerId("/a/nada"));
+        assertEquals(-1, fs.obtenerId(""));
+        assertNotEquals(idF, idB);
+
+        // El id y la igualdad siguen al nodo, no a la ruta
+        FileSystemBase f = fs.buscarPorId(idF);
+        assertEquals(OK, fs.mv("/a", "/x"));
+        assertEquals(OK, fs.mv("/x/b/f", "/x/b/g"));
+        assertSame(f, fs.buscarPorId(idF));
+        assertEquals("/x/b/g", fs.buscarPorId(idF).getRutaCompleta());
+        assertEquals("/x/b", fs.buscarPorId(idB).getRutaCompleta());
+        assertEquals(idF, f.getId());
+        assertEquals(Long.hashCode(idF), f.hashCode());
+        Sesion sesion = fs.abrirSesion();
+        sesion.cd("/x");
+        assertEquals(idF, sesion.obtenerId("b/g"));
+
+        // Una entrada nueva en la misma ruta es otro nodo
+        assertEquals(OK, fs.rm("/x/b/g"));
+        assertNull(fs.buscarPorId(idF));
+        assertEquals(OK, fs.touch("/x/b/g"));
+        long idNuevo = fs.obtenerId("/x/b/g");
+        assertNotEquals(idF, idNuevo);
+        assertNotEquals(f, fs.buscarPorId(idNuevo));
+
+        // rm -r invalida los ids de todo el subárbol; soltarId libera los que ya no se usan
+        assertEquals(3, fs.getIdsRegistrados());
+        assertTrue(fs.soltarId(fs.getRaiz().getId()));
+        assertFalse(fs.soltarId(fs.getRaiz().getId()));
+        assertEquals(OK, fs.rmRecursivo("/x").getResultado());
+        assertNull(fs.buscarPorId(idB));
+        assertNull(fs.buscarPorId(idNuevo));
+        assertEquals(0, fs.getIdsRegistrados());
+    }
+
+    @Test
+    @DisplayName("46. vigilar: Debe entregar por lotes los cambios del subárbol y avisar el desborde de un lector atrasado")
+    void testVigilancias() throws InterruptedException {
+        fs.mkdir("/a");
+        fs.mkdir("/b");
+        assertNull(fs.vigilar("/nada"));
+        try (Vigilancia vigilancia = fs.vigilar("/a")) {
+            assertEquals("/a", vigilancia.getRuta());
+            assertTrue(vigilancia.recibir(10, 5, TimeUnit.MILLISECONDS).isEmpty());
+            fs.touch("/a/f");
+            fs.mkdirConPadres("/a/d/e");
+            fs.touch("/b/x");
+            fs.rm("/a/f");
+            fs.lote().touch("/a/d/g").touch("/b/y").aplicar();
+            List<EventoCambio> lote = vigilancia.recibir(3);
+            assertEquals(List.of("CREADO /a/f", "CREADO /a/d", "CREADO /a/d/e"),
+                    lote.stream().map(EventoCambio::toString).toList());
+            assertFalse(lote.get(0).esDirectorio());
+            assertTrue(lote.get(1).esDirectorio());
+            assertEquals(List.of("ELIMINADO /a/f", "CREADO /a/d/g"),
+                    vigilancia.recibir(10).stream().map(EventoCambio::toString).toList());
+            assertTrue(vigilancia.recibir(10).isEmpty());
+
+            // Borrar un ancestro también elimina al directorio vigilado
+            try (Vigilancia interna = fs.vigilar("/a/d")) {
+                assertEquals(OK, fs.rmRecursivo("/a").getResultado());
+                assertEquals(List.of("ELIMINADO /a"), interna.recibir(10).stream().map(EventoCambio::toString).toList());
+            }
+            assertEquals(List.of("ELIMINADO /a"), vigilancia.recibir(10).stream().map(EventoCambio::toString).toList());
+        }
+
+        // Un lector que se atrasa más que el anillo pierde los eventos viejos y recibe un DESBORDE en su lugar
+        // Se cierra a mano para comprobar que después ya no entrega eventos
+        Vigilancia atrasada = fs.vigilar("/");
+        for (int i = 0; i < 10_000; i++) {
+            fs.touch("/b/f" + i);
+        }
+        List<EventoCambio> lote = atrasada.recibir(5);
+        assertEquals(EventoCambio.Tipo.DESBORDE, lote.get(0).getTipo());
+        assertEquals(10_000 - 8192, lote.get(0).getPerdidos());
+        assertEquals("CREADO /b/f" + (10_000 - 8192), lote.get(1).toString());
+        atrasada.close();
+        assertThrows(IllegalStateException.class, () -> atrasada.recibir(1));
+    }
+
+    @Test
+    @DisplayName("47. servidor: Debe atender clientes con su propia sesión y contestar en orden los pedidos encadenados")
+    void testServidor(@TempDir Path carpeta) throws IOException {
+        try (ServidorArchivos servidor = ServidorArchivos.iniciarTcp(fs, 0);
+             SocketChannel uno = SocketChannel.open(servidor.getDireccion());
+             SocketChannel otro = SocketChannel.open(servidor.getDireccion())) {
+            BufferedReader respuestasUno = new BufferedReader(new InputStreamReader(Channels.newInputStream(uno), StandardCharsets.UTF_8));
+            BufferedReader respuestasOtro = new BufferedReader(new InputStreamReader(Channels.newInputStream(otro), StandardCharsets.UTF_8));
+
+            // Todos los pedidos van juntos y recién después se leen las respuestas
+            enviar(uno, "mkdir -p /a/b\ncd /a\ntouch b/f\nls b\npwd\ntouch b/f\ndu /a\nvolar\nfind / x -1\nmkdir -p\nrm /a\n");
+            assertEquals(List.of("OK 0"), leer(respuestasUno, 1));
+            assertEquals(List.of("OK 0"), leer(respuestasUno, 1));
+            assertEquals(List.of("OK 0"), leer(respuestasUno, 1));
+            assertEquals(List.of("OK 1", "f"), leer(respuestasUno, 2));
+            assertEquals(List.of("OK 1", "/a"), leer(respuestasUno, 2));
+            assertEquals(List.of("YA_EXISTE 0"), leer(respuestasUno, 1));
+            assertEquals(List.of("OK 1", "1 1 0 2"), leer(respuestasUno, 2));
+            assertEquals(List.of("ERROR 1", "comando desconocido: volar"), leer(respuestasUno, 2));
+            assertEquals(List.of("ERROR 1", "la profundidad no puede ser negativa"), leer(respuestasUno, 2));
+            assertEquals(List.of("ERROR 1", "uso: mkdir [-p] ruta"), leer(respuestasUno, 2));
+            assertEquals(List.of("DIRECTORIO_NO_VACIO 0"), leer(respuestasUno, 1));
+
+            // Cada conexión tiene su directorio actual, sobre el mismo árbol
+            enviar(otro, "pwd\nls\nsalir\n");
+            assertEquals(List.of("OK 1", "/", "OK 1", "a/"), leer(respuestasOtro, 4));
+            assertNull(respuestasOtro.readLine());
+            assertEquals("/", fs.getDirectorioActual().getRutaCompleta());
+        }
+
+        // El mismo protocolo por un socket de dominio Unix
+        Path socket = carpeta.resolve("fs.sock");
+        try (ServidorArchivos servidor = ServidorArchivos.iniciarUnix(fs, socket);
+             SocketChannel cliente = SocketChannel.open(servidor.getDireccion())) {
+            enviar(cliente, "cd /a/b\nrm f\n");
+            BufferedReader respuestas = new BufferedReader(new InputStreamReader(Channels.newInputStream(cliente), StandardCharsets.UTF_8));
+            assertEquals(List.of("OK 0", "OK 0"), leer(respuestas, 2));
+        }
+        assertFalse(Files.exists(socket));
+    }
+
+    @Test
+    @DisplayName("48. interprete: Debe ejecutar un script en orden y contar los comandos con error")
+    void testInterprete() throws IOException {
+        String script = String.join("\n",
+                "# se ignoran los comentarios y las líneas en blanco",
+                "mkdir -p /a/b",
+                "cd /a",
+                "",
+                "touch b/f",
+                "ls b",
+                "pwd",
+                "volar",
+                "rm b",
+                "rm -r b",
+                "ls");
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        ResumenScript resumen = new Interprete(fs).ejecutar(new StringReader(script), salida);
+
+        assertEquals(9, resumen.getComandos());
+        assertEquals(2, resumen.getFallidos());
+        String[] lineas = salida.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("f", lineas[0]);
+        assertEquals("/a", lineas[1]);
+        assertTrue(lineas[2].contains("Línea 8") && lineas[2].contains("volar"));
+        assertTrue(lineas[3].startsWith("Error:"));
+        assertEquals("El directorio está vacío.", lineas[4]);
+        assertEquals(5, lineas.length);
+        // Los comandos se aplican sobre el mismo sistema, como si se escribieran en la consola
+        assertEquals("/a", fs.getDirectorioActual().getRutaCompleta());
+        assertEquals(-1, fs.obtenerId("/a/b"));
+    }
+
+    @Test
+    @DisplayName("49. metricas: Debe contar llamadas y errores por comando, medir latencias y publicarlas por JMX")
+    void testMetricas() throws JMException {
+        fs.mkdir("/a");
+        assertNull(fs.getMetricas());
+        Metricas metricas = fs.habilitarMetricas();
+        assertSame(metricas, fs.habilitarMetricas());
+
+        assertEquals(OK, fs.mkdir("/a/b"));
+        assertEquals(OK, fs.mkdirConPadres("/a/b/c/d"));
+        assertEquals(YA_EXISTE, fs.mkdir("/a/b"));
+        assertEquals(OK, fs.touch("/a/b/f"));
+        assertEquals(OK, fs.cd("/a/b"));
+        assertEquals(NO_ENCONTRADO, fs.cd("x"));
+        List<String> lineas = new ArrayList<>();
+        fs.ls(lineas::add);
+        fs.ls("/a", null, null, 10, lineas::add);
+        assertEquals(Set.of("c/", "f", "b/"), new HashSet<>(lineas));
+        assertEquals(OK, fs.rm("f"));
+        assertEquals(NO_ENCONTRADO, fs.rm("f"));
+
+        ResumenMetricas resumen = metricas.resumen();
+        assertEquals(3, resumen.getLlamadas(Metricas.Operacion.MKDIR));
+        assertEquals(1, resumen.getErrores(Metricas.Operacion.MKDIR));
+        assertEquals(1, resumen.getLlamadas(Metricas.Operacion.TOUCH));
+        assertEquals(0, resumen.getErrores(Metricas.Operacion.TOUCH));
+        assertEquals(2, resumen.getLlamadas(Metricas.Operacion.CD));
+        assertEquals(1, resumen.getErrores(Metricas.Operacion.CD));
+        assertEquals(2, resumen.getLlamadas(Metricas.Operacion.LS));
+        assertEquals(2, resumen.getLlamadas(Metricas.Operacion.RM));
+        assertEquals(1, resumen.getErrores(Metricas.Operacion.RM));
+
+        ResumenHistograma latencias = resumen.getLatencias(Metricas.Operacion.MKDIR);
+        assertEquals(3, latencias.getCantidad());
+        assertTrue(latencias.percentil(0.5) > 0);
+        assertTrue(latencias.percentil(0.5) <= latencias.percentil(0.99));
+        assertEquals(latencias.getMaximo(), latencias.percentil(1));
+
+        // Los listados fueron de /a/b (c y f) y de /a (b)
+        assertEquals(2, resumen.getAbanicos().getCantidad());
+        assertEquals(1, resumen.getAbanicos().contar(1, 1));
+        assertEquals(1, resumen.getAbanicos().contar(2, 2));
+        // cd /a/b resolvió un directorio a profundidad 2, y el cd a "x" no cuenta como profundidad sino como error
+        ResumenHistograma profundidades = resumen.getProfundidades();
+        assertEquals(resumen.getLlamadas(Metricas.Operacion.RESOLUCION) - resumen.getErrores(Metricas.Operacion.RESOLUCION),
+                profundidades.getCantidad());
+        assertTrue(profundidades.contar(2, 2) >= 1);
+        assertEquals(1, resumen.getErrores(Metricas.Operacion.RESOLUCION));
+
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        metricas.publicarJmx("prueba");
+        ObjectName cd = new ObjectName("manager:type=FileSystem,name=\"prueba\",operacion=cd");
+        assertEquals(2L, servidor.getAttribute(cd, "Llamadas"));
+        assertEquals(1L, servidor.getAttribute(cd, "Errores"));
+        assertEquals(2L, servidor.getAttribute(new ObjectName("manager:type=FileSystem,name=\"prueba\""), "DirectoriosListados"));
+
+        // Deshabilitadas, las operaciones dejan de contar y las MBeans se retiran
+        fs.deshabilitarMetricas();
+        assertNull(fs.getMetricas());
+        assertEquals(OK, fs.cd("/"));
+        assertEquals(2, metricas.resumen().getLlamadas(Metricas.Operacion.CD));
+        assertThrows(InstanceNotFoundException.class, () -> servidor.getAttribute(cd, "Llamadas"));
+    }
+
+    private static void enviar(SocketChannel canal, String pedidos) throws IOException {
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(pedidos);
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+    }
+
+    private static List<String> leer(BufferedReader respuestas, int lineas) throws IOException {
+        List<String> leidas = new ArrayList<>();
+        for (int i = 0; i < lineas; i++) {
+            leidas.add(respuestas.readLine());
+        }
+        return leidas;
+    }
+
+    @Test
+    @DisplayName("50.1. montar: Debe montar en directorios libres, listar los montajes y desmontarlos")
+    void testMontarYDesmontar() throws IOException {
+        fs.mkdir("/mnt");
+        assertEquals(OK, fs.montar("/mnt/ram", Almacen.enMemoria()));
+        assertEquals(OK, fs.montar("/mnt/otro", Almacen.enMemoria()));
+        assertEquals(YA_EXISTE, fs.montar("/mnt/ram", Almacen.enMemoria()));
+        assertEquals(RUTA_INEXISTENTE, fs.montar("/nada/x", Almacen.enMemoria()));
+        assertEquals(List.of("/mnt/otro", "/mnt/ram"), fs.getMontajes());
+
+        assertEquals(OK, fs.desmontar("/mnt/otro"));
+        assertEquals(NO_ENCONTRADO, fs.desmontar("/mnt/otro"));
+        assertEquals(NO_ENCONTRADO, fs.cd("/mnt/otro"));
+        assertEquals(List.of("/mnt/ram"), fs.getMontajes());
+
+        // Un almacén se monta una sola vez
+        Almacen usado = Almacen.enMemoria();
+        assertEquals(OK, fs.montar("/otra", usado));
+        assertThrows(IllegalStateException.class, () -> fs.montar("/otra2", usado));
+    }
+
+    @Test
+    @DisplayName("50.2. montar en memoria: Debe comportarse como cualquier directorio y admitir lotes")
+    void testMontajeEnMemoria() throws IOException {
+        fs.mkdir("/mnt");
+        assertEquals(OK, fs.montar("/mnt/ram", Almacen.enMemoria()));
+        assertEquals(OK, fs.mkdir("/mnt/ram/a"));
+        assertEquals(OK, fs.lote().touch("/mnt/ram/a/b.txt").aplicar().getResultado());
+        assertEquals(OK, fs.cd("/mnt/ram/a"));
+        assertEquals("/mnt/ram/a", fs.getDirectorioActual().getRutaCompleta());
+        assertNotNull(fs.getDirectorioActual().getHijo("b.txt"));
+        fs.cd("/");
+        assertEquals(1, fs.du("/mnt/ram").getArchivos());
+    }
+
+    @Test
+    @DisplayName("50.3. montar una instantánea: Debe poder leerse y copiarse, pero no cambiarse")
+    void testMontajeInstantanea(@TempDir Path carpeta) throws IOException {
+        FileSystem origen = new FileSystem();
+        origen.mkdir("/docs");
+        origen.touch("/docs/a.txt");
+        Path instantanea = carpeta.resolve("fs.snap");
+        origen.guardar(instantanea);
+
+        fs.mkdir("/mnt");
+        assertEquals(OK, fs.montar("/mnt/snap", Almacen.deInstantanea(instantanea)));
+        assertEquals(OK, fs.montar("/mnt/ram", Almacen.enMemoria()));
+        assertEquals(OK, fs.cd("/mnt/snap/docs"));
+        fs.cd("/");
+        assertEquals(1, fs.du("/mnt/snap").getArchivos());
+        assertEquals(SOLO_LECTURA, fs.touch("/mnt/snap/docs/b.txt"));
+        assertEquals(SOLO_LECTURA, fs.rm("/mnt/snap/docs/a.txt"));
+        assertEquals(SOLO_LECTURA, fs.lote().mkdir("/mnt/snap/otro").aplicar().getResultado());
+        assertEquals(OK, fs.cp("/mnt/snap/docs", "/mnt/ram/docs"));
+        assertEquals(1, fs.du("/mnt/ram").getArchivos());
+    }
+
+    @Test
+    @DisplayName("50.4. montar en disco: Debe ver lo que había y llevar los cambios a la carpeta")
+    void testMontajeEnDisco(@TempDir Path carpeta) throws IOException {
+        Path datos = Files.createDirectory(carpeta.resolve("datos"));
+        Files.createDirectory(datos.resolve("viejo"));
+        Files.createFile(datos.resolve("viejo").resolve("x.txt"));
+        fs.mkdir("/mnt");
+        assertEquals(OK, fs.montar("/mnt/ram", Almacen.enMemoria()));
+        fs.mkdir("/mnt/ram/a");
+        fs.touch("/mnt/ram/a/b.txt");
+        assertEquals(OK, fs.montar("/mnt/disco", Almacen.enDisco(datos)));
+
+        assertEquals(1, fs.du("/mnt/disco").getArchivos());
+        assertEquals(OK, fs.cd("/mnt/disco/viejo"));
+        fs.cd("/");
+        assertEquals(OK, fs.mkdir("/mnt/disco/nuevo"));
+        assertEquals(OK, fs.touch("/mnt/disco/nuevo/y.txt"));
+        assertTrue(Files.isRegularFile(datos.resolve("nuevo").resolve("y.txt")));
+        assertEquals(OK, fs.mv("/mnt/disco/nuevo/y.txt", "/mnt/disco/viejo/z.txt"));
+        assertTrue(Files.isRegularFile(datos.resolve("viejo").resolve("z.txt")));
+        assertEquals(OK, fs.rmRecursivo("/mnt/disco/viejo").getResultado());
+        assertFalse(Files.exists(datos.resolve("viejo")));
+        assertEquals(OK, fs.cp("/mnt/ram/a", "/mnt/disco/a"));
+        assertTrue(Files.isRegularFile(datos.resolve("a").resolve("b.txt")));
+        // Los lotes no pasan por un almacén en disco
+        assertEquals(OTRO_MONTAJE, fs.lote().touch("/mnt/disco/c.txt").aplicar().getResultado());
+
+        // Al desmontar la carpeta queda como estaba
+        assertEquals(OK, fs.desmontar("/mnt/disco"));
+        assertEquals(NO_ENCONTRADO, fs.cd("/mnt/disco"));
+        assertTrue(Files.isRegularFile(datos.resolve("a").resolve("b.txt")));
+    }
+
+    @Test
+    @DisplayName("50.5. montar en disco: Debe leer cada directorio de la carpeta recién al recorrerlo por primera vez")
+    void testMontajeEnDiscoCargaPerezosa(@TempDir Path carpeta) throws IOException {
+        Path datos = Files.createDirectory(carpeta.resolve("datos"));
+        Files.createDirectories(datos.resolve("a").resolve("b"));
+        Files.createFile(datos.resolve("a").resolve("b").resolve("x.txt"));
+        assertEquals(OK, fs.montar("/disco", Almacen.enDisco(datos)));
+
+        // Los totales salen del recorrido hecho al montar, sin cargar ningún directorio
+        UsoDirectorio uso = fs.du("/disco");
+        assertEquals(1, uso.getArchivos());
+        assertEquals(2, uso.getDirectorios());
+        assertEquals(3, uso.getProfundidad());
+
+        // Lo agregado en la carpeta antes de recorrer un directorio se ve al recorrerlo
+        Files.createFile(datos.resolve("a").resolve("b").resolve("tarde.txt"));
+        assertEquals(OK, fs.cd("/disco/a/b"));
+        Directorio b = fs.getDirectorioActual();
+        assertNotNull(b.getHijo("x.txt"));
+        assertNotNull(b.getHijo("tarde.txt"));
+
+        // Una vez cargado, lo que se cambie por fuera ya no se ve
+        Files.createFile(datos.resolve("a").resolve("b").resolve("despues.txt"));
+        assertNull(b.getHijo("despues.txt"));
+    }
+
+    @Test
+    @DisplayName("50.6. montar en disco: Una carpeta que se borró antes de cargarse debe verse vacía")
+    void testMontajeEnDiscoCarpetaBorrada(@TempDir Path carpeta) throws IOException {
+        Path datos = Files.createDirectory(carpeta.resolve("datos"));
+        Files.createDirectory(datos.resolve("viejo"));
+        Files.createFile(datos.resolve("viejo").resolve("x.txt"));
+        assertEquals(OK, fs.montar("/disco", Almacen.enDisco(datos)));
+
+        // Se carga la raíz del montaje, que ve a viejo, y después la carpeta desaparece sin que viejo se haya leído
+        assertEquals(OK, fs.cd("/disco/viejo"));
+        Directorio viejo = fs.getDirectorioActual();
+        Files.delete(datos.resolve("viejo").resolve("x.txt"));
+        Files.delete(datos.resolve("viejo"));
+        assertNull(viejo.getHijo("x.txt"));
+        assertTrue(viejo.getHijos().isEmpty());
+        fs.cd("/");
+        // Quitarla del árbol ya no puede reflejarse en la carpeta
+        assertEquals(ERROR_ALMACEN, fs.rm("/disco/viejo"));
+    }
+
+    @Test
+    @DisplayName("50.7. montar en disco: Lo anotado al montar debe seguir a cada directorio aunque un mv lo lleve al lugar de otro")
+    void testMontajeEnDiscoMover(@TempDir Path carpeta) throws IOException {
+        Path otra = Files.createDirectory(carpeta.resolve("otra"));
+        Files.createDirectories(otra.resolve("a").resolve("s"));
+        Files.createFile(otra.resolve("a").resolve("s").resolve("x"));
+        Files.createDirectories(otra.resolve("b").resolve("s"));
+        for (String nombre : List.of("x", "y", "z")) {
+            Files.createFile(otra.resolve("b").resolve("s").resolve(nombre));
+        }
+        assertEquals(OK, fs.montar("/otra", Almacen.enDisco(otra)));
+        assertEquals(OK, fs.mv("/otra/a", "/otra/c"));
+        assertEquals(OK, fs.mv("/otra/b", "/otra/a"));
+        assertEquals(3, fs.du("/otra/a/s").getArchivos());
+        assertEquals(1, fs.du("/otra/c/s").getArchivos());
+        assertEquals(OK, fs.desmontar("/otra"));
+    }
+
+    @Test
+    @DisplayName("50.8. montar: Un mv no debe cruzar montajes ni llevarse un punto de montaje, ni un rm -r borrarlo")
+    void testMontajesLimites() throws IOException {
+        fs.mkdir("/mnt");
+        assertEquals(OK, fs.montar("/mnt/ram", Almacen.enMemoria()));
+        assertEquals(OK, fs.montar("/mnt/ram2", Almacen.enMemoria()));
+        fs.mkdir("/mnt/ram/a");
+        assertEquals(OTRO_MONTAJE, fs.mv("/mnt/ram/a", "/mnt/ram2/b"));
+        assertEquals(OTRO_MONTAJE, fs.mv("/mnt/ram", "/ram"));
+        assertEquals(OTRO_MONTAJE, fs.rmRecursivo("/mnt").getResultado());
+        assertEquals(OK, fs.cd("/mnt/ram/a"));
+    }
+
+    @Test
+    @DisplayName("50.9. montar: En montajes anidados debe mandar el de prefijo más largo")
+    void testMontajesAnidados(@TempDir Path carpeta) throws IOException {
+        FileSystem origen = new FileSystem();
+        origen.mkdir("/docs");
+        Path instantanea = carpeta.resolve("fs.snap");
+        origen.guardar(instantanea);
+        fs.mkdir("/mnt");
+        assertEquals(OK, fs.montar("/mnt/ram", Almacen.enMemoria()));
+        fs.mkdir("/mnt/ram/a");
+
+        assertEquals(OK, fs.montar("/mnt/ram/a/dentro", Almacen.deInstantanea(instantanea)));
+        assertEquals(OK, fs.cd("/mnt/ram/a/dentro/docs"));
+        fs.cd("/");
+        assertEquals(SOLO_LECTURA, fs.mkdir("/mnt/ram/a/dentro/x"));
+        assertEquals(OK, fs.mkdir("/mnt/ram/a/x"));
+        // No se desmonta un montaje que tiene otro adentro
+        assertEquals(OTRO_MONTAJE, fs.desmontar("/mnt/ram"));
+        assertEquals(OK, fs.desmontar("/mnt/ram/a/dentro"));
+        assertEquals(OK, fs.desmontar("/mnt/ram"));
+    }
+
+    @Test
+    @DisplayName("51. rutas: Debe rearmar solo las rutas cacheadas del subárbol que se renombró o movió")
+    void testRutasCacheadas() {
+        fs.mkdirConPadres("/a/b/c");
+        fs.mkdirConPadres("/x/y");
+        fs.touch("/x/y/f");
+        Directorio c = (Directorio) ((Directorio) ((Directorio) fs.getRaiz().getHijo("a")).getHijo("b")).getHijo("c");
+        Directorio y = (Directorio) ((Directorio) fs.getRaiz().getHijo("x")).getHijo("y");
+        FileSystemBase f = y.getHijo("f");
+        String rutaC = c.getRutaCompleta();
+        assertEquals("/x/y/f", f.getRutaCompleta());
+
+        // Mover otro subárbol no rearma la ruta de c: sigue siendo la misma cadena
+        assertEquals(OK, fs.mv("/x", "/z"));
+        assertSame(rutaC, c.getRutaCompleta());
+        assertEquals("/z/y", y.getRutaCompleta());
+        assertEquals("/z/y/f", f.getRutaCompleta());
+
+        // Renombrar o mover un archivo cambia solo su ruta
+        assertEquals(OK, fs.mv("/z/y/f", "/z/y/g"));
+        assertEquals("/z/y/g", f.getRutaCompleta());
+        assertEquals(OK, fs.mv("/z/y/g", "/a/b/c/g"));
+        assertEquals("/a/b/c/g", f.getRutaCompleta());
+        assertSame(rutaC, c.getRutaCompleta());
+    }
+
+    @Test
+    @DisplayName("52. contenido: Una vista de leer no debe mostrar bytes de otro archivo tras borrar o truncar el suyo")
+    void testVistaNoSeRecicla() throws IOException {
+        assertEquals(OK, fs.mkdir("d"));
+        fs.touch("d/a.txt");
+        fs.touch("c.txt");
+        Archivo a = (Archivo) ((Directorio) fs.getRaiz().getHijo("d")).getHijo("a.txt");
+        Archivo c = (Archivo) fs.getRaiz().getHijo("c.txt");
+        a.escribir(0, ByteBuffer.wrap("secreto".getBytes(StandardCharsets.UTF_8)));
+        c.escribir(0, ByteBuffer.wrap("privado".getBytes(StandardCharsets.UTF_8)));
+        ByteBuffer vistaA = a.leer(0, 7);
+        ByteBuffer vistaC = c.leer(0, 7);
+
+        // El borrado recursivo y el truncado a cero liberan el contenido sin esperar al GC
+        assertEquals(OK, fs.rmRecursivo("d").getResultado());
+        c.truncar(0);
+
+        // Los bloques libres del pool se reutilizan primero: otros archivos los llenan con sus propios bytes
+        byte[] ajenos = new byte[4 << 14];
+        Arrays.fill(ajenos, (byte) 'x');
+        for (int i = 0; i < 4; i++) {
+            fs.touch("b" + i + ".txt");
+            ((Archivo) fs.getRaiz().getHijo("b" + i + ".txt")).escribir(0, ByteBuffer.wrap(ajenos));
+        }
+        assertEquals("secreto", StandardCharsets.UTF_8.decode(vistaA).toString());
+        assertEquals("privado", StandardCharsets.UTF_8.decode(vistaC).toString());
     }
-}
\ No newline at end of file
+}
@@ -1,92 +1,116 @@
+import consola.Consola;
+import interprete.Interprete;
+import interprete.ResumenScript;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import manager.FileSystem;
 
 public class Main {
-    public static void main(String[] args) {
-        FileSystem fs = new FileSystem();
+    // Uso: Main [script | -]. Con un script (o - para la entrada estándar) lo ejecuta; sin argumentos corre la demostración
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0) {
+            ejecutarScript(args[0]);
+            return;
+        }
+        Consola consola = new Consola(new FileSystem());
 
         System.out.println("--- PRUEBAS DE LA APLICACIÓN DE CONSOLA ---");
         System.out.println("Comando: pwd");
-        fs.pwd();
+        consola.pwd();
 
         System.out.println("\nComando: mkdir archivos");
-        fs.mkdir("archivos");
+        consola.mkdir("archivos");
         System.out.println("Contenido del directorio actual:");
-        fs.ls();
+        consola.ls();
 
         System.out.println("\nComando: cd archivos");
-        fs.cd("archivos");
+        consola.cd("archivos");
         System.out.println("Comando: pwd");
-        fs.pwd();
+        consola.pwd();
 
         System.out.println("\nComando: touch hola.txt");
-        fs.touch("hola.txt");
+        consola.touch("hola.txt");
         System.out.println("Contenido del directorio actual:");
-        fs.ls();
+        consola.ls();
 
         System.out.println("\nComando: mkdir documentos");
-        fs.mkdir("documentos");
+        consola.mkdir("documentos");
         System.out.println("Contenido del directorio actual:");
-        fs.ls();
+        consola.ls();
 
         System.out.println("\nComando: cd documentos");
-        fs.cd("documentos");
+        consola.cd("documentos");
         System.out.println("Comando: pwd");
-        fs.pwd();
+        consola.pwd();
 
         System.out.println("\nComando: cd ../..");
-        fs.cd("../..");
+        consola.cd("../..");
         System.out.println("Comando: pwd");
-        fs.pwd();
+        consola.pwd();
 
         System.out.println("\n--- PRUEBAS BONUS: RUTAS COMPLETAS ---");
 
         System.out.println("\nComando: touch /archivos/documentos/nuevo_archivo.txt");
-        fs.touch("/archivos/documentos/nuevo_archivo.txt");
+        consola.touch("/archivos/documentos/nuevo_archivo.txt");
         System.out.println("Comando: cd archivos/documentos");
-        fs.cd("archivos/documentos");
+        consola.cd("archivos/documentos");
         System.out.println("Contenido del directorio actual:");
-        fs.ls();
+        consola.ls();
 
         System.out.println("\nComando: cd /");
-        fs.cd("/");
+        consola.cd("/");
         System.out.println("Comando: pwd");
-        fs.pwd();
+        consola.pwd();
 
         System.out.println("\nComando: mkdir /archivos/documentos/2025");
-        fs.mkdir("/archivos/documentos/2025");
+        consola.mkdir("/archivos/documentos/2025");
         System.out.println("Comando: cd /archivos/documentos");
-        fs.cd("/archivos/documentos");
+        consola.cd("/archivos/documentos");
         System.out.println("Contenido del directorio actual:");
-        fs.ls();
+        consola.ls();
 
         System.out.println("\nComando: rm /archivos/documentos/nuevo_archivo.txt");
-        fs.rm("/archivos/documentos/nuevo_archivo.txt");
+        consola.rm("/archivos/documentos/nuevo_archivo.txt");
         System.out.println("Contenido del directorio actual:");
-        fs.ls();
+        consola.ls();
 
         System.out.println("\n--- PRUEBAS DE ERRORES / CASOS ESPECIALES ---");
         System.out.println("\nComando: Intentar eliminar un directorio no vacío (rm /archivos)");
-        fs.cd("/");
-        fs.rm("/archivos");
+        consola.cd("/");
+        consola.rm("/archivos");
         System.out.println("Contenido del directorio actual (debería seguir mostrando 'archivos/'):");
-        fs.ls();
+        consola.ls();
 
         System.out.println("\nComando: Eliminar directorio vacío (rm 2025)");
-        fs.cd("/archivos/documentos");
-        fs.rm("2025");
+        consola.cd("/archivos/documentos");
+        consola.rm("2025");
         System.out.println("Contenido del directorio actual:");
-        fs.ls();
+        consola.ls();
 
         System.out.println("\nComando: cd .. (desde /archivos/documentos)");
-        fs.cd("..");
+        consola.cd("..");
         System.out.println("Contenido del directorio actual:");
-        fs.ls();
+        consola.ls();
 
         System.out.println("\nComando: touch existente.txt");
-        fs.touch("existente.txt");
+        consola.touch("existente.txt");
         System.out.println("Comando: touch existente.txt (intentar crear uno ya existente)");
-        fs.touch("existente.txt");
+        consola.touch("existente.txt");
         System.out.println("Contenido del directorio actual:");
-        fs.ls();
+        consola.ls();
+    }
+
+    private static void ejecutarScript(String origen) throws IOException {
+        try (Reader script = origen.equals("-")
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : Files.newBufferedReader(Path.of(origen), StandardCharsets.UTF_8)) {
+            ResumenScript resumen = new Interprete(new FileSystem()).ejecutar(script, System.out);
+            System.err.printf("%d comandos (%d con error) en %.1f ms: %.0f comandos/s%n", resumen.getComandos(),
+                    resumen.getFallidos(), resumen.getNanos() / 1e6, resumen.getComandosPorSegundo());
+        }
     }
 }
\ No newline at end of file
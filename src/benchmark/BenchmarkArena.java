@@ -0,0 +1,55 @@
+package benchmark;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import manager.FileSystem;
+import manager.FileSystemArena;
+import manager.SistemaArchivos;
+
+// Compara el árbol de objetos (FileSystem) con el arena fuera del heap (FileSystemArena):
+// heap y memoria nativa por nodo, tiempo de GC durante la carga y costo de touch + rm con el árbol ya cargado.
+// Uso: BenchmarkArena [cantidadDeNodos], por defecto 1.000.000 (misma forma de árbol que BenchmarkMemoria)
+public class BenchmarkArena {
+    public static void main(String[] args) {
+        int nodos = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.println("implementacion\tnodos\theap B/nodo\tnativo B/nodo\tGC carga ms\tGC full ms\ttouch+rm ns/op");
+        medir("FileSystem", new FileSystem(), nodos);
+        try (FileSystemArena arena = new FileSystemArena(nodos)) {
+            medir("FileSystemArena", arena, nodos);
+        }
+    }
+
+    private static void medir(String nombre, SistemaArchivos fs, int nodos) {
+        long heapAntes = heapUsado();
+        long gcAntes = tiempoGc();
+        int creados = BenchmarkMemoria.construir(fs, nodos);
+        long gcCarga = tiempoGc() - gcAntes;
+        long heap = heapUsado() - heapAntes;
+        // Una recolección completa con el árbol vivo: en el arena no depende de la cantidad de nodos
+        long gcFullAntes = tiempoGc();
+        System.gc();
+        long gcFull = tiempoGc() - gcFullAntes;
+        long nativo = fs instanceof FileSystemArena arena ? arena.getBytesFueraDelHeap() : 0;
+        double nanos = Medidor.nanosPorOperacion(200_000, i -> {
+            String ruta = "/p0/d1/tmp" + (i & 1023);
+            return (fs.touch(ruta).esExito() ? 1 : 0) + (fs.rm(ruta).esExito() ? 1 : 0);
+        });
+        System.out.printf("%s\t%d\t%.1f\t%.1f\t%d\t%d\t%.0f%n", nombre, creados, heap / (double) creados,
+                nativo / (double) creados, gcCarga, gcFull, nanos);
+    }
+
+    private static long tiempoGc() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static long heapUsado() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
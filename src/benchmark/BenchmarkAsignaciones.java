@@ -0,0 +1,35 @@
+package benchmark;
+import manager.FileSystem;
+
+// Mide bytes asignados y tiempo por operación de touch/mkdir/rm/cd con rutas de varios niveles
+public class BenchmarkAsignaciones {
+    private static final int OPERACIONES = 200_000;
+    private static final String PADRE = "/proyecto/src/main/java/com/empresa";
+
+    public static void main(String[] args) {
+        FileSystem fs = new FileSystem();
+        fs.mkdir("/proyecto");
+        fs.mkdir("/proyecto/src");
+        fs.mkdir("/proyecto/src/main");
+        fs.mkdir("/proyecto/src/main/java");
+        fs.mkdir("/proyecto/src/main/java/com");
+        fs.mkdir("/proyecto/src/main/java/com/empresa");
+
+        String archivo = PADRE + "/Clase.java";
+        String directorio = PADRE + "/paquete";
+        String relativo = "proyecto/src/main/java/com/empresa";
+
+        System.out.println("operacion\tbytes/op\tns/op");
+        // Cada iteración crea y borra la misma entrada para que el árbol no crezca
+        imprimir("touch+rm", i -> (fs.touch(archivo).esExito() ? 1 : 0) + (fs.rm(archivo).esExito() ? 1 : 0));
+        imprimir("mkdir+rm", i -> (fs.mkdir(directorio).esExito() ? 1 : 0) + (fs.rm(directorio).esExito() ? 1 : 0));
+        imprimir("cd absoluto", i -> fs.cd(PADRE).esExito() ? 1 : 0);
+        imprimir("cd relativo", i -> (fs.cd("/").esExito() ? 1 : 0) + (fs.cd(relativo).esExito() ? 1 : 0));
+    }
+
+    private static void imprimir(String nombre, Medidor.Operacion operacion) {
+        double bytes = Medidor.bytesPorOperacion(OPERACIONES, operacion);
+        double nanos = Medidor.nanosPorOperacion(OPERACIONES, operacion);
+        System.out.printf("%s\t%.0f\t%.1f%n", nombre, bytes, nanos);
+    }
+}
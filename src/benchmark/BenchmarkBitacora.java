@@ -0,0 +1,74 @@
+package benchmark;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import manager.FileSystem;
+import manager.Sesion;
+
+// Operaciones por segundo (touch + rm) con bitácora para distintos tamaños de lote e intervalos,
+// comparadas con el modo solo en memoria. Cada hilo trabaja en su propio directorio con su propia sesión.
+// Uso: BenchmarkBitacora [hilos] [operacionesPorHilo] [carpeta], por defecto 8 hilos y 20.000 operaciones
+public class BenchmarkBitacora {
+    private static final int[] LOTES = {1, 16, 256};
+    private static final long[] INTERVALOS_MICROS = {0, 1000};
+
+    public static void main(String[] args) throws Exception {
+        int hilos = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int operaciones = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        Path base = args.length > 2 ? Path.of(args[2]) : Files.createTempDirectory("bitacora");
+
+        System.out.println("modo\tlote\tintervalo us\thilos\tops/s");
+        try (FileSystem memoria = new FileSystem()) {
+            System.out.printf("memoria\t-\t-\t%d\t%.0f%n", hilos, medir(memoria, hilos, operaciones));
+        }
+        for (int lote : LOTES) {
+            for (long intervalo : INTERVALOS_MICROS) {
+                Path carpeta = base.resolve("lote" + lote + "-" + intervalo);
+                try (FileSystem fs = FileSystem.abrir(carpeta, lote, intervalo, 0)) {
+                    System.out.printf("bitacora\t%d\t%d\t%d\t%.0f%n", lote, intervalo, hilos, medir(fs, hilos, operaciones));
+                }
+                borrar(carpeta);
+            }
+        }
+    }
+
+    private static double medir(FileSystem fs, int hilos, int operaciones) throws InterruptedException {
+        Thread[] trabajadores = new Thread[hilos];
+        for (int t = 0; t < hilos; t++) {
+            String directorio = "/h" + t;
+            fs.mkdir(directorio);
+            Sesion sesion = fs.abrirSesion();
+            sesion.cd(directorio);
+            trabajadores[t] = new Thread(() -> {
+                for (int i = 0; i < operaciones; i += 2) {
+                    String nombre = "f" + (i & 255);
+                    sesion.touch(nombre);
+                    sesion.rm(nombre);
+                }
+            });
+        }
+        long inicio = System.nanoTime();
+        for (Thread trabajador : trabajadores) {
+            trabajador.start();
+        }
+        for (Thread trabajador : trabajadores) {
+            trabajador.join();
+        }
+        return (double) hilos * operaciones / ((System.nanoTime() - inicio) / 1e9);
+    }
+
+    private static void borrar(Path carpeta) throws IOException {
+        try (Stream<Path> archivos = Files.walk(carpeta)) {
+            archivos.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.delete(p);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package benchmark;
+import manager.BorradoRecursivo;
+import manager.FileSystem;
+import manager.FileSystemArena;
+import manager.SistemaArchivos;
+
+// Mide rm -r sobre un subárbol grande: cuánto tarda en desaparecer del árbol (lo que espera quien llama),
+// cuánto la liberación completa y a qué ritmo, comparado con borrar entrada por entrada con rm.
+// Uso: BenchmarkBorrado [cantidadDeNodos], por defecto 1.000.000 (directorios de 1000 archivos bajo /borrar)
+public class BenchmarkBorrado {
+    private static final int ARCHIVOS_POR_DIRECTORIO = 1000;
+
+    public static void main(String[] args) {
+        int nodos = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int directorios = Math.max(1, nodos / (ARCHIVOS_POR_DIRECTORIO + 1));
+        System.out.println("implementacion\tnodos\tdesenlace us\tliberacion ms\tnodos/s");
+        for (int ronda = 0; ronda < 2; ronda++) {
+            medirRecursivo("FileSystem rm -r", new FileSystem(), directorios);
+            try (FileSystemArena arena = new FileSystemArena(nodos)) {
+                medirRecursivo("FileSystemArena rm -r", arena, directorios);
+            }
+        }
+        medirUnoPorUno(new FileSystem(), directorios);
+    }
+
+    private static void medirRecursivo(String nombre, SistemaArchivos fs, int directorios) {
+        construir(fs, directorios);
+        long inicio = System.nanoTime();
+        BorradoRecursivo borrado = fs.rmRecursivo("/borrar");
+        long desenlace = System.nanoTime() - inicio;
+        borrado.esperar();
+        long total = System.nanoTime() - inicio;
+        long eliminados = borrado.getArchivos() + borrado.getDirectorios();
+        System.out.printf("%s\t%d\t%.1f\t%.1f\t%.0f%n", nombre, eliminados, desenlace / 1e3, total / 1e6,
+                eliminados / (total / 1e9));
+    }
+
+    // Lo que hacía falta antes de rm -r: vaciar cada directorio y recién después borrarlo
+    private static void medirUnoPorUno(SistemaArchivos fs, int directorios) {
+        int eliminados = construir(fs, directorios);
+        long inicio = System.nanoTime();
+        for (int d = 0; d < directorios; d++) {
+            String ruta = "/borrar/d" + d;
+            for (int i = 0; i < ARCHIVOS_POR_DIRECTORIO; i++) {
+                fs.rm(ruta + "/f" + i);
+            }
+            fs.rm(ruta);
+        }
+        fs.rm("/borrar");
+        long total = System.nanoTime() - inicio;
+        System.out.printf("FileSystem rm uno por uno\t%d\t%.1f\t%.1f\t%.0f%n", eliminados, total / 1e3, total / 1e6,
+                eliminados / (total / 1e9));
+    }
+
+    private static int construir(SistemaArchivos fs, int directorios) {
+        fs.mkdir("/borrar");
+        int creados = 1;
+        for (int d = 0; d < directorios; d++) {
+            String ruta = "/borrar/d" + d;
+            fs.mkdir(ruta);
+            for (int i = 0; i < ARCHIVOS_POR_DIRECTORIO; i++) {
+                fs.touch(ruta + "/f" + i);
+            }
+            creados += ARCHIVOS_POR_DIRECTORIO + 1;
+        }
+        return creados;
+    }
+}
@@ -0,0 +1,35 @@
+package benchmark;
+import manager.FileSystem;
+
+// Compara cd con rutas absolutas profundas con y sin la cache de rutas,
+// e informa aciertos y fallos para dimensionar la capacidad
+public class BenchmarkCacheRutas {
+    private static final int PROFUNDIDAD = 30;
+    private static final int RUTAS_DISTINTAS = 1000;
+    private static final int OPERACIONES = 1_000_000;
+
+    public static void main(String[] args) {
+        System.out.println("capacidad\tcd(ns)\taciertos\tfallos");
+        for (int capacidad : new int[] {0, 256, 4096}) {
+            FileSystem fs = new FileSystem(capacidad);
+            String[] rutas = construirArbol(fs);
+            double nanos = Medidor.nanosPorOperacion(OPERACIONES, i -> fs.cd(rutas[i % rutas.length]).esExito() ? 1 : 0);
+            System.out.printf("%d\t%.1f\t%d\t%d%n", capacidad, nanos,
+                    fs.getCacheRutas().getAciertos(), fs.getCacheRutas().getFallos());
+        }
+    }
+
+    // Crea RUTAS_DISTINTAS ramas de PROFUNDIDAD niveles y devuelve sus rutas absolutas
+    private static String[] construirArbol(FileSystem fs) {
+        String[] rutas = new String[RUTAS_DISTINTAS];
+        for (int r = 0; r < RUTAS_DISTINTAS; r++) {
+            StringBuilder ruta = new StringBuilder();
+            for (int nivel = 0; nivel < PROFUNDIDAD; nivel++) {
+                ruta.append('/').append(nivel == 0 ? "rama" + r : "nivel" + nivel);
+                fs.mkdir(ruta.toString());
+            }
+            rutas[r] = ruta.toString();
+        }
+        return rutas;
+    }
+}
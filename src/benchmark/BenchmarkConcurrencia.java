@@ -0,0 +1,44 @@
+package benchmark;
+import manager.FileSystem;
+import manager.Sesion;
+
+// Mide el throughput de mkdir/touch/rm con varios hilos, cada uno con su sesión y su propio subárbol
+// Como los bloqueos son por directorio, el throughput debería escalar con la cantidad de hilos
+public class BenchmarkConcurrencia {
+    private static final int OPERACIONES_POR_HILO = 300_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int maxHilos = Runtime.getRuntime().availableProcessors();
+        System.out.println("hilos\tops/seg");
+        for (int hilos = 1; hilos <= maxHilos; hilos *= 2) {
+            // La primera corrida de cada configuración es de calentamiento
+            correr(hilos);
+            System.out.printf("%d\t%.0f%n", hilos, correr(hilos));
+        }
+    }
+
+    private static double correr(int hilos) throws InterruptedException {
+        FileSystem fs = new FileSystem();
+        Thread[] trabajadores = new Thread[hilos];
+        for (int h = 0; h < hilos; h++) {
+            String base = "/usuario" + h;
+            fs.mkdir(base);
+            Sesion sesion = fs.abrirSesion();
+            trabajadores[h] = new Thread(() -> {
+                String directorio = base + "/tmp";
+                String archivo = directorio + "/archivo.txt";
+                for (int i = 0; i < OPERACIONES_POR_HILO; i++) {
+                    sesion.mkdir(directorio);
+                    sesion.touch(archivo);
+                    sesion.rm(archivo);
+                    sesion.rm(directorio);
+                }
+            });
+        }
+        long inicio = System.nanoTime();
+        for (Thread t : trabajadores) t.start();
+        for (Thread t : trabajadores) t.join();
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        return hilos * OPERACIONES_POR_HILO * 4L / segundos;
+    }
+}
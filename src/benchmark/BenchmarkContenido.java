@@ -0,0 +1,69 @@
+package benchmark;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import manager.Archivo;
+import manager.FileSystem;
+
+// Lectura y escritura secuencial de un archivo grande (MB/s): escritura en bloques, lectura con vistas sin copia,
+// lectura copiando a un buffer y transferencia completa a un archivo en disco con transferirA.
+// Uso: BenchmarkContenido [megabytes] [bloqueKB], por defecto 512 MB en bloques de 1024 KB
+public class BenchmarkContenido {
+    public static void main(String[] args) throws IOException {
+        long megas = args.length > 0 ? Long.parseLong(args[0]) : 512;
+        int bloque = (args.length > 1 ? Integer.parseInt(args[1]) : 1024) << 10;
+        long total = megas << 20;
+
+        FileSystem fs = new FileSystem();
+        fs.touch("grande.bin");
+        Archivo archivo = (Archivo) fs.getRaiz().getHijo("grande.bin");
+        ByteBuffer datos = ByteBuffer.allocateDirect(bloque);
+        while (datos.hasRemaining()) {
+            datos.put((byte) datos.position());
+        }
+
+        System.out.println("operacion\tMB\tMB/s");
+        long inicio = System.nanoTime();
+        for (long escritos = 0; escritos < total; escritos += bloque) {
+            archivo.agregar(datos.clear());
+        }
+        reportar("escritura secuencial", megas, inicio);
+
+        inicio = System.nanoTime();
+        long suma = 0;
+        for (long posicion = 0; posicion < total; ) {
+            ByteBuffer vista = archivo.leer(posicion, bloque);
+            suma += vista.get(0);
+            posicion += vista.remaining();
+        }
+        reportar("lectura con vistas", megas, inicio);
+
+        ByteBuffer destino = ByteBuffer.allocateDirect(bloque);
+        inicio = System.nanoTime();
+        for (long posicion = 0; posicion < total; ) {
+            destino.clear();
+            posicion += archivo.leer(posicion, destino);
+            suma += destino.get(0);
+        }
+        reportar("lectura copiando", megas, inicio);
+
+        Path copia = Files.createTempFile("copia-", ".bin");
+        try (FileChannel canal = FileChannel.open(copia, StandardOpenOption.WRITE)) {
+            inicio = System.nanoTime();
+            archivo.transferirA(canal);
+            reportar("transferirA a disco", megas, inicio);
+        } finally {
+            Files.delete(copia);
+        }
+        archivo.truncar(0);
+        if (suma == 42) System.out.println();
+    }
+
+    private static void reportar(String operacion, long megas, long inicio) {
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        System.out.printf("%s\t%d\t%.0f%n", operacion, megas, megas / segundos);
+    }
+}
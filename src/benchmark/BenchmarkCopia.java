@@ -0,0 +1,88 @@
+package benchmark;
+import manager.CodigoResultado;
+import manager.FileSystem;
+import manager.FileSystemArena;
+import manager.Lote;
+
+// Mide mv y cp -r de un árbol grande: en FileSystem los dos deberían costar lo mismo sin importar el tamaño
+// (la copia se arma después, al recorrerla, y se mide aparte con un find que la visita entera), mientras que
+// en FileSystemArena la copia es completa en el momento. Para comparar, también se mide crear el árbol.
+// Uso: BenchmarkCopia [cantidadDeEntradas], por defecto 1.000.000 (directorios de 1000 archivos bajo /origen)
+public class BenchmarkCopia {
+    private static final int ARCHIVOS_POR_DIRECTORIO = 1000;
+
+    public static void main(String[] args) {
+        int entradas = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int directorios = Math.max(1, entradas / (ARCHIVOS_POR_DIRECTORIO + 1));
+        System.out.println("sistema\tentradas\tcrear ms\tmv us\tcp us\trecorrer copia ms");
+        for (int ronda = 0; ronda < 3; ronda++) {
+            medirFileSystem(directorios);
+            medirArena(directorios);
+        }
+    }
+
+    private static void medirFileSystem(int directorios) {
+        System.gc();
+        FileSystem fs = new FileSystem();
+        long inicio = System.nanoTime();
+        Lote lote = fs.lote().mkdir("/origen");
+        for (int d = 0; d < directorios; d++) {
+            String ruta = "/origen/d" + d;
+            lote.mkdir(ruta);
+            for (int i = 0; i < ARCHIVOS_POR_DIRECTORIO; i++) {
+                lote.touch(ruta + "/f" + i);
+            }
+        }
+        verificar(lote.aplicar().getResultado());
+        long crear = System.nanoTime() - inicio;
+
+        inicio = System.nanoTime();
+        verificar(fs.mv("/origen", "/movido"));
+        long mv = System.nanoTime() - inicio;
+        inicio = System.nanoTime();
+        verificar(fs.cp("/movido", "/copia"));
+        long cp = System.nanoTime() - inicio;
+        inicio = System.nanoTime();
+        long visitadas = fs.find("/copia", "**", Integer.MAX_VALUE).count();
+        long recorrer = System.nanoTime() - inicio;
+        if (visitadas != (long) directorios * (ARCHIVOS_POR_DIRECTORIO + 1)) {
+            throw new IllegalStateException("La copia no tiene todas las entradas: " + visitadas);
+        }
+        imprimir("FileSystem", directorios, crear, mv, cp, recorrer);
+    }
+
+    private static void medirArena(int directorios) {
+        System.gc();
+        try (FileSystemArena arena = new FileSystemArena((long) directorios * (ARCHIVOS_POR_DIRECTORIO + 1) * 2)) {
+            long inicio = System.nanoTime();
+            arena.mkdir("/origen");
+            for (int d = 0; d < directorios; d++) {
+                String ruta = "/origen/d" + d;
+                arena.mkdir(ruta);
+                for (int i = 0; i < ARCHIVOS_POR_DIRECTORIO; i++) {
+                    arena.touch(ruta + "/f" + i);
+                }
+            }
+            long crear = System.nanoTime() - inicio;
+
+            inicio = System.nanoTime();
+            verificar(arena.mv("/origen", "/movido"));
+            long mv = System.nanoTime() - inicio;
+            inicio = System.nanoTime();
+            verificar(arena.cp("/movido", "/copia"));
+            long cp = System.nanoTime() - inicio;
+            imprimir("FileSystemArena", directorios, crear, mv, cp, 0);
+        }
+    }
+
+    private static void verificar(CodigoResultado resultado) {
+        if (resultado != CodigoResultado.OK) {
+            throw new IllegalStateException("La operación falló: " + resultado);
+        }
+    }
+
+    private static void imprimir(String sistema, int directorios, long crear, long mv, long cp, long recorrer) {
+        long entradas = (long) directorios * (ARCHIVOS_POR_DIRECTORIO + 1);
+        System.out.printf("%s\t%d\t%.1f\t%.1f\t%.1f\t%.1f%n", sistema, entradas, crear / 1e6, mv / 1e3, cp / 1e3, recorrer / 1e6);
+    }
+}
@@ -0,0 +1,47 @@
+package benchmark;
+import manager.FileSystem;
+import manager.IndiceRutas;
+
+// Compara cd con rutas absolutas profundas recorriendo, con la cache de rutas y con el índice de rutas, usando más
+// rutas distintas que la capacidad de la cache. Mide también lo que cuesta crear directorios con el índice activo
+// y la memoria que ocupa
+public class BenchmarkIndiceRutas {
+    private static final int PROFUNDIDAD = 30;
+    private static final int RUTAS_DISTINTAS = 10_000;
+    private static final int CAPACIDAD_CACHE = 4096;
+    private static final int OPERACIONES = 200_000;
+
+    public static void main(String[] args) {
+        System.out.println("modo\tmkdir(ns)\tcd(ns)\tentradas\tbytes");
+        for (int ronda = 0; ronda < 2; ronda++) {
+            medir("recorrido", new FileSystem(0));
+            medir("cache", new FileSystem(CAPACIDAD_CACHE));
+            medir("indice", new FileSystem(0, true));
+        }
+    }
+
+    private static void medir(String modo, FileSystem fs) {
+        System.gc();
+        long inicio = System.nanoTime();
+        String[] rutas = construirArbol(fs);
+        double mkdir = (double) (System.nanoTime() - inicio) / (RUTAS_DISTINTAS * PROFUNDIDAD);
+        double cd = Medidor.nanosPorOperacion(OPERACIONES, i -> fs.cd(rutas[i % rutas.length]).esExito() ? 1 : 0);
+        IndiceRutas indice = fs.getIndiceRutas();
+        System.out.printf("%s\t%.1f\t%.1f\t%d\t%d%n", modo, mkdir, cd,
+                indice == null ? 0 : indice.getEntradas(), indice == null ? 0 : indice.getBytesEstimados());
+    }
+
+    // Crea RUTAS_DISTINTAS ramas de PROFUNDIDAD niveles y devuelve sus rutas absolutas
+    private static String[] construirArbol(FileSystem fs) {
+        String[] rutas = new String[RUTAS_DISTINTAS];
+        for (int r = 0; r < RUTAS_DISTINTAS; r++) {
+            StringBuilder ruta = new StringBuilder();
+            for (int nivel = 0; nivel < PROFUNDIDAD; nivel++) {
+                ruta.append('/').append(nivel == 0 ? "rama" + r : "nivel" + nivel);
+                fs.mkdir(ruta.toString());
+            }
+            rutas[r] = ruta.toString();
+        }
+        return rutas;
+    }
+}
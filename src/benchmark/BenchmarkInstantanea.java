@@ -0,0 +1,53 @@
+package benchmark;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import manager.Directorio;
+import manager.FileSystem;
+import manager.FileSystemBase;
+
+// Compara el tiempo hasta el primer ls al arrancar desde una instantánea en disco (mapeada y con carga perezosa)
+// contra reconstruir el árbol repitiendo mkdir/touch, y contra materializar de entrada todo el árbol cargado.
+// Uso: BenchmarkInstantanea [cantidadDeNodos] [archivo]; si el archivo no existe se genera primero.
+// Con 50M nodos la reconstrucción necesita un heap de varios GB (por ejemplo -Xmx8g)
+public class BenchmarkInstantanea {
+    public static void main(String[] args) throws Exception {
+        int nodos = args.length > 0 ? Integer.parseInt(args[0]) : 50_000_000;
+        Path archivo = Paths.get(args.length > 1 ? args[1] : "instantanea-" + nodos + ".bin");
+
+        if (!Files.exists(archivo)) {
+            long inicio = System.nanoTime();
+            FileSystem fs = new FileSystem();
+            BenchmarkMemoria.construir(fs, nodos);
+            fs.guardar(archivo);
+            System.out.printf("generar y guardar\t%d ms\t%d MB%n", (System.nanoTime() - inicio) / 1_000_000,
+                    Files.size(archivo) >> 20);
+        }
+
+        long inicio = System.nanoTime();
+        FileSystem cargado = FileSystem.cargar(archivo);
+        cargado.cd("/p0/d1");
+        cargado.ls(System.out::println);
+        System.out.printf("cargar perezoso hasta el primer ls\t%.2f ms%n", (System.nanoTime() - inicio) / 1e6);
+
+        inicio = System.nanoTime();
+        int materializados = materializar(FileSystem.cargar(archivo).getRaiz());
+        System.out.printf("cargar y materializar todo\t%d ms\t%d nodos%n", (System.nanoTime() - inicio) / 1_000_000,
+                materializados);
+
+        inicio = System.nanoTime();
+        FileSystem reconstruido = new FileSystem();
+        BenchmarkMemoria.construir(reconstruido, nodos);
+        reconstruido.cd("/p0/d1");
+        reconstruido.ls(System.out::println);
+        System.out.printf("reconstruir con mkdir/touch hasta el primer ls\t%d ms%n", (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    private static int materializar(Directorio directorio) {
+        int cantidad = 1;
+        for (FileSystemBase hijo : directorio.getHijos().values()) {
+            cantidad += hijo instanceof Directorio dir ? materializar(dir) : 1;
+        }
+        return cantidad;
+    }
+}
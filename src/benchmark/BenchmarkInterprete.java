@@ -0,0 +1,46 @@
+package benchmark;
+import interprete.Interprete;
+import interprete.ResumenScript;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import manager.FileSystem;
+
+// Mide cuántas líneas por segundo ejecuta el intérprete con un script armado en memoria: cada bloque crea un
+// directorio anidado, entra, crea y lista archivos, borra uno y vuelve a la raíz. La salida se descarta, así
+// que se mide el análisis, la ejecución y el armado de los mensajes, sin el costo de escribirlos en ningún lado.
+// Uso: BenchmarkInterprete [lineas], por defecto 1.000.000
+public class BenchmarkInterprete {
+    private static final int ARCHIVOS_POR_BLOQUE = 4;
+
+    public static void main(String[] args) throws IOException {
+        int lineas = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String script = armarScript(lineas);
+        System.out.println("ronda\tlineas\tcomandos\tcon error\tms\tcomandos/s");
+        for (int ronda = 0; ronda < 5; ronda++) {
+            System.gc();
+            ResumenScript resumen = new Interprete(new FileSystem()).ejecutar(new StringReader(script), OutputStream.nullOutputStream());
+            System.out.printf("%d\t%d\t%d\t%d\t%.0f\t%.0f%n", ronda, lineas, resumen.getComandos(), resumen.getFallidos(),
+                    resumen.getNanos() / 1e6, resumen.getComandosPorSegundo());
+        }
+    }
+
+    private static String armarScript(int lineas) {
+        StringBuilder script = new StringBuilder(lineas * 16);
+        int escritas = 0;
+        for (int bloque = 0; escritas < lineas; bloque++) {
+            String ruta = "/d" + (bloque % 1000) + "/s" + bloque;
+            script.append("mkdir -p ").append(ruta).append('\n');
+            script.append("cd ").append(ruta).append('\n');
+            escritas += 2;
+            for (int i = 0; i < ARCHIVOS_POR_BLOQUE; i++) {
+                script.append("touch f").append(i).append('\n');
+            }
+            script.append("ls\n");
+            script.append("rm f0\n");
+            script.append("cd /\n");
+            escritas += ARCHIVOS_POR_BLOQUE + 3;
+        }
+        return script.toString();
+    }
+}
@@ -0,0 +1,111 @@
+package benchmark;
+import manager.CodigoResultado;
+import manager.FileSystem;
+import manager.Lote;
+
+// Mide el costo por entrada de crear y borrar un árbol grande con llamadas sueltas (mkdir/touch/rm) y con lotes:
+// un lote por directorio, y un único lote con todo el árbol. Los directorios padre se crean con mkdir -p.
+// Uso: BenchmarkLote [cantidadDeEntradas], por defecto 1.000.000 (directorios de 1000 archivos bajo /lote/datos)
+public class BenchmarkLote {
+    private static final int ARCHIVOS_POR_DIRECTORIO = 1000;
+
+    public static void main(String[] args) {
+        int entradas = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int directorios = Math.max(1, entradas / (ARCHIVOS_POR_DIRECTORIO + 1));
+        System.out.println("forma\tentradas\talta ns/entrada\tbaja ns/entrada");
+        for (int ronda = 0; ronda < 3; ronda++) {
+            medirSueltas(directorios);
+            medirLotePorDirectorio(directorios);
+            medirLoteUnico(directorios);
+        }
+    }
+
+    private static void medirSueltas(int directorios) {
+        System.gc();
+        FileSystem fs = new FileSystem();
+        long inicio = System.nanoTime();
+        fs.mkdirConPadres("/lote/datos");
+        for (int d = 0; d < directorios; d++) {
+            String ruta = "/lote/datos/d" + d;
+            fs.mkdir(ruta);
+            for (int i = 0; i < ARCHIVOS_POR_DIRECTORIO; i++) {
+                fs.touch(ruta + "/f" + i);
+            }
+        }
+        long alta = System.nanoTime() - inicio;
+        inicio = System.nanoTime();
+        for (int d = 0; d < directorios; d++) {
+            String ruta = "/lote/datos/d" + d;
+            for (int i = 0; i < ARCHIVOS_POR_DIRECTORIO; i++) {
+                fs.rm(ruta + "/f" + i);
+            }
+            fs.rm(ruta);
+        }
+        imprimir("llamadas sueltas", directorios, alta, System.nanoTime() - inicio);
+    }
+
+    private static void medirLotePorDirectorio(int directorios) {
+        System.gc();
+        FileSystem fs = new FileSystem();
+        long inicio = System.nanoTime();
+        fs.mkdirConPadres("/lote/datos");
+        for (int d = 0; d < directorios; d++) {
+            String ruta = "/lote/datos/d" + d;
+            Lote lote = fs.lote().mkdir(ruta);
+            for (int i = 0; i < ARCHIVOS_POR_DIRECTORIO; i++) {
+                lote.touch(ruta + "/f" + i);
+            }
+            verificar(lote);
+        }
+        long alta = System.nanoTime() - inicio;
+        inicio = System.nanoTime();
+        for (int d = 0; d < directorios; d++) {
+            String ruta = "/lote/datos/d" + d;
+            Lote lote = fs.lote().rm(ruta);
+            for (int i = 0; i < ARCHIVOS_POR_DIRECTORIO; i++) {
+                lote.rm(ruta + "/f" + i);
+            }
+            verificar(lote);
+        }
+        imprimir("un lote por directorio", directorios, alta, System.nanoTime() - inicio);
+    }
+
+    private static void medirLoteUnico(int directorios) {
+        System.gc();
+        FileSystem fs = new FileSystem();
+        long inicio = System.nanoTime();
+        Lote altas = fs.lote().mkdir("/lote").mkdir("/lote/datos");
+        for (int d = 0; d < directorios; d++) {
+            String ruta = "/lote/datos/d" + d;
+            altas.mkdir(ruta);
+            for (int i = 0; i < ARCHIVOS_POR_DIRECTORIO; i++) {
+                altas.touch(ruta + "/f" + i);
+            }
+        }
+        verificar(altas);
+        long alta = System.nanoTime() - inicio;
+        inicio = System.nanoTime();
+        Lote bajas = fs.lote();
+        for (int d = 0; d < directorios; d++) {
+            String ruta = "/lote/datos/d" + d;
+            bajas.rm(ruta);
+            for (int i = 0; i < ARCHIVOS_POR_DIRECTORIO; i++) {
+                bajas.rm(ruta + "/f" + i);
+            }
+        }
+        verificar(bajas);
+        imprimir("un solo lote", directorios, alta, System.nanoTime() - inicio);
+    }
+
+    private static void verificar(Lote lote) {
+        CodigoResultado resultado = lote.aplicar().getResultado();
+        if (resultado != CodigoResultado.OK) {
+            throw new IllegalStateException("El lote falló: " + resultado);
+        }
+    }
+
+    private static void imprimir(String forma, int directorios, long alta, long baja) {
+        long entradas = (long) directorios * (ARCHIVOS_POR_DIRECTORIO + 1);
+        System.out.printf("%s\t%d\t%.0f\t%.0f%n", forma, entradas, (double) alta / entradas, (double) baja / entradas);
+    }
+}
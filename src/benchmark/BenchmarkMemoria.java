@@ -0,0 +1,52 @@
+package benchmark;
+import manager.FileSystem;
+import manager.SistemaArchivos;
+
+// Construye un árbol de N nodos con forma realista (muchos directorios con pocas entradas y algunos muy grandes)
+// y reporta el heap usado por nodo. Uso: BenchmarkMemoria [cantidadDeNodos], por defecto 1.000.000;
+// para 10M nodos hace falta correrlo con un heap grande (por ejemplo -Xmx8g)
+public class BenchmarkMemoria {
+    public static void main(String[] args) {
+        int nodos = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long antes = heapUsado();
+        FileSystem fs = new FileSystem();
+        int creados = construir(fs, nodos);
+        long despues = heapUsado();
+        System.out.printf("nodos\t%d%nbytes totales\t%d%nbytes/nodo\t%.1f%n",
+                creados, despues - antes, (despues - antes) / (double) creados);
+        // Mantiene vivo el árbol hasta después de medir
+        if (fs.getRaiz().getHijos().isEmpty()) System.out.println();
+    }
+
+    // Reparte los nodos en proyectos con subdirectorios de entre 0 y 7 archivos,
+    // cada 10 directorios uno mediano de 40 archivos y cada 1000 uno grande de 2000
+    static int construir(SistemaArchivos fs, int nodos) {
+        int creados = 0;
+        int directorio = 0;
+        while (creados < nodos) {
+            String ruta = "/p" + (directorio / 1000);
+            if (directorio % 1000 == 0) {
+                fs.mkdir(ruta);
+                creados++;
+            }
+            ruta = ruta + "/d" + directorio;
+            fs.mkdir(ruta);
+            creados++;
+            int archivos = directorio % 1000 == 999 ? 2000 : directorio % 10 == 9 ? 40 : directorio % 8;
+            for (int i = 0; i < archivos && creados < nodos; i++) {
+                fs.touch(ruta + "/archivo" + i + ".txt");
+                creados++;
+            }
+            directorio++;
+        }
+        return creados;
+    }
+
+    private static long heapUsado() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
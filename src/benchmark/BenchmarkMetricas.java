@@ -0,0 +1,64 @@
+package benchmark;
+import manager.FileSystem;
+import manager.Metricas;
+import manager.ResumenHistograma;
+import manager.ResumenMetricas;
+import manager.Salida;
+
+// Mide cuánto cuestan las métricas: la misma mezcla de comandos (cd a una ruta absoluta, touch, ls, rm) sobre un
+// árbol de 1000 directorios, con las métricas deshabilitadas y habilitadas. Al final muestra lo que midieron.
+// Uso: BenchmarkMetricas [rondas], por defecto 2.000.000 (cuatro comandos por ronda)
+public class BenchmarkMetricas {
+    private static final int DIRECTORIOS = 1000;
+
+    public static void main(String[] args) {
+        int rondas = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        String[] rutas = new String[DIRECTORIOS];
+        for (int d = 0; d < DIRECTORIOS; d++) {
+            rutas[d] = "/a" + (d % 10) + "/b" + (d % 100) + "/c" + d;
+        }
+        System.out.println("metricas\tcomandos\tns/comando");
+        Metricas metricas = null;
+        for (int ronda = 0; ronda < 3; ronda++) {
+            medir(rutas, rondas, false);
+            metricas = medir(rutas, rondas, true);
+        }
+
+        ResumenMetricas resumen = metricas.resumen();
+        System.out.println("operacion\tllamadas\terrores\tmedia ns\tp50 ns\tp99 ns\tp99.9 ns\tmaxima ns");
+        for (Metricas.Operacion operacion : Metricas.Operacion.values()) {
+            ResumenHistograma latencias = resumen.getLatencias(operacion);
+            System.out.printf("%s\t%d\t%d\t%.0f\t%d\t%d\t%d\t%d%n", operacion.getNombre(), resumen.getLlamadas(operacion),
+                    resumen.getErrores(operacion), latencias.getMedia(), latencias.percentil(0.5),
+                    latencias.percentil(0.99), latencias.percentil(0.999), latencias.getMaximo());
+        }
+        System.out.printf("profundidad\tp50 %d\tmaxima %d%n", resumen.getProfundidades().percentil(0.5),
+                resumen.getProfundidades().getMaximo());
+        System.out.printf("abanico\tp50 %d\tmaxima %d%n", resumen.getAbanicos().percentil(0.5),
+                resumen.getAbanicos().getMaximo());
+    }
+
+    private static Metricas medir(String[] rutas, int rondas, boolean conMetricas) {
+        System.gc();
+        FileSystem fs = new FileSystem();
+        for (String ruta : rutas) {
+            fs.mkdirConPadres(ruta);
+        }
+        Metricas metricas = conMetricas ? fs.habilitarMetricas() : null;
+        int[] listadas = new int[1];
+        Salida salida = texto -> listadas[0]++;
+        long inicio = System.nanoTime();
+        for (int i = 0; i < rondas; i++) {
+            fs.cd(rutas[i % DIRECTORIOS]);
+            fs.touch("f");
+            fs.ls(salida);
+            fs.rm("f");
+        }
+        long total = System.nanoTime() - inicio;
+        if (listadas[0] != rondas) {
+            throw new IllegalStateException("Se listaron " + listadas[0] + " entradas en lugar de " + rondas);
+        }
+        System.out.printf("%s\t%d\t%.1f%n", conMetricas ? "si" : "no", rondas * 4L, (double) total / (rondas * 4L));
+        return metricas;
+    }
+}
@@ -0,0 +1,38 @@
+package benchmark;
+import manager.Directorio;
+import manager.FileSystem;
+
+// Mide hashCode/equals, getRutaCompleta y la resolución por ruta y por id de inodo sobre nodos a distintas profundidades
+// hashCode/equals usan el id y la ruta está cacheada, así que su costo debe mantenerse plano al crecer la profundidad;
+// resolver la ruta absoluta crece con ella, mientras que buscarPorId no
+public class BenchmarkRutas {
+    private static final int[] PROFUNDIDADES = {1, 10, 100, 1000};
+    private static final int OPERACIONES = 1_000_000;
+
+    public static void main(String[] args) {
+        System.out.println("profundidad\thashCode(ns)\tequals(ns)\tgetRutaCompleta(ns)\tdu ruta(ns)\tbuscarPorId(ns)");
+        for (int profundidad : PROFUNDIDADES) {
+            FileSystem fs = new FileSystem(0);
+            Directorio hoja = construirCadena(fs, profundidad);
+            Directorio otra = construirCadena(new FileSystem(), profundidad);
+            String rutaHoja = hoja.getRutaCompleta();
+            long id = fs.obtenerId(rutaHoja);
+
+            double hash = Medidor.nanosPorOperacion(OPERACIONES, i -> hoja.hashCode());
+            double equals = Medidor.nanosPorOperacion(OPERACIONES, i -> hoja.equals(otra) ? 1 : 0);
+            double ruta = Medidor.nanosPorOperacion(OPERACIONES, i -> hoja.getRutaCompleta().length());
+            double porRuta = Medidor.nanosPorOperacion(OPERACIONES, i -> fs.du(rutaHoja).getDirectorios());
+            double porId = Medidor.nanosPorOperacion(OPERACIONES, i -> fs.buscarPorId(id) == hoja ? 1 : 0);
+            System.out.printf("%d\t%.1f\t%.1f\t%.1f\t%.1f\t%.1f%n", profundidad, hash, equals, ruta, porRuta, porId);
+        }
+    }
+
+    // Crea una cadena /d/d/d/... de la profundidad pedida y devuelve el último directorio
+    static Directorio construirCadena(FileSystem fs, int profundidad) {
+        for (int i = 0; i < profundidad; i++) {
+            fs.mkdir("d");
+            fs.cd("d");
+        }
+        return fs.getDirectorioActual();
+    }
+}
@@ -0,0 +1,164 @@
+package benchmark;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import manager.FileSystem;
+import servidor.ServidorArchivos;
+
+// Prueba de carga del servidor: abre muchas conexiones a la vez (10.000 por defecto) y en cada una manda rondas de
+// pedidos encadenados (cd, touch, ls, rm) sin esperar respuesta entre uno y otro. La latencia de cada pedido va
+// desde que se escribió su ronda hasta que llegó su respuesta completa; se informan p50, p99 y el máximo.
+// Los clientes se manejan todos desde un solo hilo con un Selector, para que la carga no dependa de tener
+// miles de hilos de este lado
+// Cada conexión usa un descriptor de cada lado: con el servidor en el mismo proceso, 10.000 conexiones necesitan
+// más de 20.000 descriptores abiertos. Si el límite no alcanza, se puede levantar el servidor aparte
+// (servidor.ServidorArchivos puerto) y pasarle el puerto a la prueba
+// Uso: BenchmarkServidor [conexiones] [rondas] [puerto de un servidor ya levantado]
+public class BenchmarkServidor {
+    private static final String[] RONDA = {"cd /c%d", "touch f", "ls", "rm f"};
+
+    public static void main(String[] args) throws IOException {
+        int conexiones = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int rondas = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        ServidorArchivos servidor = args.length > 2 ? null : ServidorArchivos.iniciarTcp(new FileSystem(), 0);
+        SocketAddress direccion = servidor != null
+                ? servidor.getDireccion()
+                : new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[2]));
+        try (Selector selector = Selector.open()) {
+            long inicio = System.nanoTime();
+            Cliente[] clientes = new Cliente[conexiones];
+            for (int i = 0; i < conexiones; i++) {
+                SocketChannel canal = SocketChannel.open(direccion);
+                clientes[i] = new Cliente(i, canal, rondas);
+                clientes[i].prepararDirectorio();
+                canal.configureBlocking(false);
+                canal.register(selector, SelectionKey.OP_READ, clientes[i]);
+            }
+            long conectar = System.nanoTime() - inicio;
+            System.out.printf("conexiones abiertas\t%d en %.0f ms%n", conexiones, conectar / 1e6);
+
+            long[] latencias = new long[conexiones * rondas * RONDA.length];
+            int[] medidas = new int[1];
+            inicio = System.nanoTime();
+            for (Cliente cliente : clientes) {
+                cliente.enviarRonda();
+            }
+            int terminados = 0;
+            while (terminados < conexiones) {
+                selector.select();
+                for (SelectionKey clave : selector.selectedKeys()) {
+                    Cliente cliente = (Cliente) clave.attachment();
+                    if (cliente.leer(latencias, medidas)) {
+                        terminados++;
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+            long total = System.nanoTime() - inicio;
+
+            Arrays.sort(latencias, 0, medidas[0]);
+            System.out.printf("pedidos\t%d en %.0f ms (%.0f pedidos/s)%n", medidas[0], total / 1e6, medidas[0] / (total / 1e9));
+            System.out.printf("latencia p50\t%.2f ms%n", percentil(latencias, medidas[0], 0.50) / 1e6);
+            System.out.printf("latencia p99\t%.2f ms%n", percentil(latencias, medidas[0], 0.99) / 1e6);
+            System.out.printf("latencia maxima\t%.2f ms%n", latencias[medidas[0] - 1] / 1e6);
+            for (Cliente cliente : clientes) {
+                cliente.canal.close();
+            }
+        } finally {
+            if (servidor != null) {
+                servidor.close();
+            }
+        }
+    }
+
+    private static long percentil(long[] ordenadas, int cantidad, double p) {
+        return ordenadas[Math.min(cantidad - 1, (int) Math.ceil(p * cantidad) - 1)];
+    }
+
+    // Una conexión con su ronda en curso: cuenta las líneas de respuesta para saber cuándo terminó cada pedido
+    private static final class Cliente {
+        private final int numero;
+        private final SocketChannel canal;
+        private final ByteBuffer pedidos;
+        private final ByteBuffer entrada = ByteBuffer.allocate(4096);
+        private int rondasRestantes;
+        private long enviada;
+        private int respondidos;
+        // Líneas de cuerpo que faltan de la respuesta actual, o -1 si lo que sigue es un encabezado
+        private int faltan = -1;
+        private final StringBuilder linea = new StringBuilder();
+
+        private Cliente(int numero, SocketChannel canal, int rondas) {
+            this.numero = numero;
+            this.canal = canal;
+            this.rondasRestantes = rondas;
+            StringBuilder texto = new StringBuilder();
+            for (String pedido : RONDA) {
+                texto.append(String.format(pedido, numero)).append('\n');
+            }
+            this.pedidos = StandardCharsets.UTF_8.encode(texto.toString());
+        }
+
+        // Crea el directorio propio de la conexión antes de medir, esperando la respuesta
+        private void prepararDirectorio() throws IOException {
+            canal.write(StandardCharsets.UTF_8.encode("mkdir -p /c" + numero + "\n"));
+            ByteBuffer respuesta = ByteBuffer.allocate(64);
+            while (respuesta.position() == 0 || respuesta.get(respuesta.position() - 1) != '\n') {
+                if (canal.read(respuesta) < 0) {
+                    throw new IOException("El servidor cerró la conexión");
+                }
+            }
+        }
+
+        private void enviarRonda() throws IOException {
+            pedidos.rewind();
+            enviada = System.nanoTime();
+            respondidos = 0;
+            // Las rondas son cortas: entran enteras en el buffer del socket
+            while (pedidos.hasRemaining()) {
+                canal.write(pedidos);
+            }
+        }
+
+        // Devuelve true cuando termina la última ronda
+        private boolean leer(long[] latencias, int[] medidas) throws IOException {
+            if (canal.read(entrada) < 0) {
+                throw new IOException("El servidor cerró la conexión");
+            }
+            entrada.flip();
+            while (entrada.hasRemaining()) {
+                char c = (char) entrada.get();
+                if (c != '\n') {
+                    linea.append(c);
+                    continue;
+                }
+                if (faltan < 0) {
+                    faltan = Integer.parseInt(linea.substring(linea.indexOf(" ") + 1));
+                } else {
+                    faltan--;
+                }
+                linea.setLength(0);
+                if (faltan == 0) {
+                    faltan = -1;
+                    latencias[medidas[0]++] = System.nanoTime() - enviada;
+                    if (++respondidos == RONDA.length) {
+                        if (--rondasRestantes == 0) {
+                            entrada.clear();
+                            return true;
+                        }
+                        enviarRonda();
+                    }
+                }
+            }
+            entrada.clear();
+            return false;
+        }
+    }
+}
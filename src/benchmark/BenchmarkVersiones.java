@@ -0,0 +1,56 @@
+package benchmark;
+import java.util.HashMap;
+import java.util.Map;
+import manager.Archivo;
+import manager.Directorio;
+import manager.FileSystem;
+import manager.FileSystemBase;
+import manager.Instantanea;
+
+// Compara el costo de escribir en un directorio con versiones copy-on-write (HAMT) contra
+// la mutación en el lugar de un HashMap, para distintos tamaños de directorio,
+// y el costo de leer un hijo en ambos casos
+public class BenchmarkVersiones {
+    private static final int[] TAMANIOS = {10, 1_000, 100_000};
+    private static final int OPERACIONES = 500_000;
+
+    public static void main(String[] args) {
+        System.out.println("hijos\tHashMap alta+baja(ns)\tCOW alta+baja(ns)\tCOW con instantánea(ns)\tHashMap get(ns)\tCOW get(ns)");
+        for (int tamanio : TAMANIOS) {
+            FileSystem fs = new FileSystem();
+            Directorio directorio = fs.getRaiz();
+            Map<String, FileSystemBase> mapa = new HashMap<>();
+            for (int i = 0; i < tamanio; i++) {
+                Archivo archivo = new Archivo("f" + i, directorio);
+                directorio.addHijo(archivo);
+                mapa.put(archivo.getNombre(), archivo);
+            }
+            Archivo extra = new Archivo("extra", directorio);
+            String[] nombres = new String[tamanio];
+            for (int i = 0; i < tamanio; i++) nombres[i] = "f" + i;
+
+            double enLugar = Medidor.nanosPorOperacion(OPERACIONES, i -> {
+                mapa.put("extra", extra);
+                return mapa.remove("extra") != null ? 1 : 0;
+            });
+            double cow = Medidor.nanosPorOperacion(OPERACIONES, i -> {
+                directorio.addHijo(extra);
+                return directorio.removeHijo("extra") ? 1 : 0;
+            });
+            double cowConInstantanea;
+            // Con una instantánea abierta cada escritura además retiene la versión que esa instantánea ve
+            Instantanea foto = fs.snapshot();
+            try {
+                cowConInstantanea = Medidor.nanosPorOperacion(OPERACIONES, i -> {
+                    directorio.addHijo(extra);
+                    return directorio.removeHijo("extra") ? 1 : 0;
+                });
+            } finally {
+                foto.close();
+            }
+            double getMapa = Medidor.nanosPorOperacion(OPERACIONES, i -> mapa.get(nombres[i % tamanio]) != null ? 1 : 0);
+            double getCow = Medidor.nanosPorOperacion(OPERACIONES, i -> directorio.getHijo(nombres[i % tamanio]) != null ? 1 : 0);
+            System.out.printf("%d\t%.1f\t%.1f\t%.1f\t%.1f\t%.1f%n", tamanio, enLugar, cow, cowConInstantanea, getMapa, getCow);
+        }
+    }
+}
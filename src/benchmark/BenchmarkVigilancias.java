@@ -0,0 +1,44 @@
+package benchmark;
+import manager.FileSystem;
+import manager.Vigilancia;
+
+// Mide touch+rm sin vigilancias, con una vigilancia que no lee y con una que lee en lotes desde otro hilo,
+// para ver cuánto le agrega a quien publica armar los eventos
+public class BenchmarkVigilancias {
+    private static final int OPERACIONES = 1_000_000;
+    private static final int TAMANIO_LOTE = 1024;
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("vigilancias\ttouch+rm(ns)\teventos leidos");
+        for (int ronda = 0; ronda < 2; ronda++) {
+            FileSystem fs = new FileSystem();
+            fs.mkdir("/d");
+            System.out.printf("ninguna\t%.1f\t0%n", medir(fs));
+
+            Vigilancia quieta = fs.vigilar("/");
+            System.out.printf("sin leer\t%.1f\t0%n", medir(fs));
+            quieta.close();
+
+            Vigilancia lectora = fs.vigilar("/d");
+            long[] leidos = new long[1];
+            Thread hilo = new Thread(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    leidos[0] += lectora.recibir(TAMANIO_LOTE).size();
+                }
+            });
+            hilo.start();
+            double nanos = medir(fs);
+            hilo.interrupt();
+            hilo.join();
+            lectora.close();
+            System.out.printf("leyendo\t%.1f\t%d%n", nanos, leidos[0]);
+        }
+    }
+
+    private static double medir(FileSystem fs) {
+        return Medidor.nanosPorOperacion(OPERACIONES, i -> {
+            fs.touch("/d/f");
+            return fs.rm("/d/f").esExito() ? 1 : 0;
+        });
+    }
+}
@@ -0,0 +1,137 @@
+package benchmark;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Utilidad mínima para medir tiempo por operación sin dependencias externas
+// Cada medición hace un calentamiento previo para que el JIT compile el código medido
+public final class Medidor {
+    private static final int REPETICIONES_CALENTAMIENTO = 5;
+
+    // Evita que el JIT elimine como código muerto el resultado de las operaciones medidas
+    private static volatile long sumidero;
+
+    private Medidor() {
+    }
+
+    public interface Operacion {
+        long ejecutar(int i);
+    }
+
+    // Crea la operación que corre cada hilo, para que cada uno tenga su propio estado (sesión, nombres, etc.)
+    public interface FabricaOperacion {
+        Operacion crear(int hilo);
+    }
+
+    public static final class Resultado {
+        public final double nanosPorOperacion;
+        public final double operacionesPorSegundo;
+        public final double bytesPorOperacion;
+        public final long recolecciones;
+        public final long milisegundosGc;
+
+        private Resultado(double nanosPorOperacion, double operacionesPorSegundo, double bytesPorOperacion,
+                          long recolecciones, long milisegundosGc) {
+            this.nanosPorOperacion = nanosPorOperacion;
+            this.operacionesPorSegundo = operacionesPorSegundo;
+            this.bytesPorOperacion = bytesPorOperacion;
+            this.recolecciones = recolecciones;
+            this.milisegundosGc = milisegundosGc;
+        }
+    }
+
+    /**
+     * Corre la operación en varios hilos a la vez, cada uno con su calentamiento, y mide en conjunto la parte medida:
+     * latencia promedio por operación de cada hilo, throughput total, bytes asignados por operación y actividad del GC.
+     */
+    public static Resultado medir(int hilos, int operaciones, FabricaOperacion fabrica) throws InterruptedException {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] gcAntes = new long[2];
+        long[] gcDespues = new long[2];
+        long[] tiempos = new long[2];
+        // La acción de la barrera corre una sola vez, cuando todos los hilos llegaron: marca el inicio y el fin
+        CyclicBarrier inicio = new CyclicBarrier(hilos, () -> {
+            leerGc(gcAntes);
+            tiempos[0] = System.nanoTime();
+        });
+        CyclicBarrier fin = new CyclicBarrier(hilos, () -> {
+            tiempos[1] = System.nanoTime();
+            leerGc(gcDespues);
+        });
+        AtomicLong bytes = new AtomicLong();
+        Thread[] trabajadores = new Thread[hilos];
+        for (int h = 0; h < hilos; h++) {
+            Operacion operacion = fabrica.crear(h);
+            trabajadores[h] = new Thread(() -> {
+                long id = Thread.currentThread().getId();
+                for (int r = 0; r < REPETICIONES_CALENTAMIENTO; r++) {
+                    correr(operaciones, operacion);
+                }
+                esperar(inicio);
+                long antes = mx.getThreadAllocatedBytes(id);
+                correr(operaciones, operacion);
+                bytes.addAndGet(mx.getThreadAllocatedBytes(id) - antes);
+                esperar(fin);
+            });
+        }
+        for (Thread trabajador : trabajadores) {
+            trabajador.start();
+        }
+        for (Thread trabajador : trabajadores) {
+            trabajador.join();
+        }
+        double nanos = tiempos[1] - tiempos[0];
+        long total = (long) hilos * operaciones;
+        return new Resultado(nanos / operaciones, total / (nanos / 1e9), bytes.get() / (double) total,
+                gcDespues[0] - gcAntes[0], gcDespues[1] - gcAntes[1]);
+    }
+
+    // Devuelve los bytes asignados en el heap por operación, medidos sobre el hilo actual
+    public static double bytesPorOperacion(int operaciones, Operacion operacion) {
+        com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        for (int r = 0; r < REPETICIONES_CALENTAMIENTO; r++) {
+            correr(operaciones, operacion);
+        }
+        long antes = hilos.getThreadAllocatedBytes(id);
+        correr(operaciones, operacion);
+        return (hilos.getThreadAllocatedBytes(id) - antes) / (double) operaciones;
+    }
+
+    // Devuelve los nanosegundos promedio por operación
+    public static double nanosPorOperacion(int operaciones, Operacion operacion) {
+        for (int r = 0; r < REPETICIONES_CALENTAMIENTO; r++) {
+            correr(operaciones, operacion);
+        }
+        long inicio = System.nanoTime();
+        correr(operaciones, operacion);
+        return (System.nanoTime() - inicio) / (double) operaciones;
+    }
+
+    private static void leerGc(long[] destino) {
+        destino[0] = 0;
+        destino[1] = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            destino[0] += Math.max(0, gc.getCollectionCount());
+            destino[1] += Math.max(0, gc.getCollectionTime());
+        }
+    }
+
+    private static void esperar(CyclicBarrier barrera) {
+        try {
+            barrera.await();
+        } catch (InterruptedException | BrokenBarrierException e) {
+            throw new IllegalStateException("Se interrumpió la medición.", e);
+        }
+    }
+
+    private static void correr(int operaciones, Operacion operacion) {
+        long acumulado = 0;
+        for (int i = 0; i < operaciones; i++) {
+            acumulado += operacion.ejecutar(i);
+        }
+        sumidero += acumulado;
+    }
+}
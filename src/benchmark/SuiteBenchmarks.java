@@ -0,0 +1,264 @@
+package benchmark;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import manager.Directorio;
+import manager.FileSystem;
+import manager.PaginaListado;
+import manager.Salida;
+import manager.Sesion;
+
+// Suite de benchmarks del paquete manager, pensada para seguir regresiones entre versiones
+// Recorre cada operación sobre tres formas de árbol (una cadena profunda, un directorio muy ancho y una mezcla
+// realista), con un hilo y con varios, y reporta latencia, throughput, bytes asignados por operación y actividad del GC.
+// Los resultados se imprimen como tabla y, si se indica un archivo, se guardan como CSV o JSON según su extensión.
+// Uso: SuiteBenchmarks [resultados.csv|resultados.json] [--hilos N] [--filtro prefijoDelBenchmark]
+public class SuiteBenchmarks {
+    private static final int PROFUNDIDAD = 512;
+    private static final int ANCHO = 100_000;
+    private static final int NODOS_MIXTA = 200_000;
+    // ls escribe en esta salida, que no arma ni guarda texto: se mide solo el recorrido del directorio
+    private static final Salida DESCARTAR = new Salida() {
+        @Override
+        public void linea(String texto) {
+        }
+
+        @Override
+        public void entrada(String nombre, boolean esDirectorio) {
+        }
+    };
+
+    public static void main(String[] args) throws Exception {
+        Path salida = null;
+        int hilos = Math.max(2, Runtime.getRuntime().availableProcessors());
+        String filtro = "";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--hilos" -> hilos = Integer.parseInt(args[++i]);
+                case "--filtro" -> filtro = args[++i];
+                default -> salida = Path.of(args[i]);
+            }
+        }
+
+        List<Fila> filas = new ArrayList<>();
+        System.out.println("benchmark\tforma\thilos\tns/op\tops/s\tB/op\tgc\tgc ms");
+        for (Arbol arbol : List.of(Arbol.profundo(), Arbol.ancho(), Arbol.mixto())) {
+            for (Caso caso : casos(arbol)) {
+                if (!caso.nombre.startsWith(filtro)) continue;
+                for (int cantidadHilos : new int[]{1, hilos}) {
+                    Medidor.Resultado resultado = Medidor.medir(cantidadHilos, caso.operaciones, caso.fabrica);
+                    Fila fila = new Fila(caso.nombre, arbol.forma, cantidadHilos, caso.operaciones, resultado);
+                    filas.add(fila);
+                    System.out.println(fila.comoTabla());
+                }
+            }
+        }
+        if (salida != null) {
+            String texto = salida.toString().endsWith(".json") ? comoJson(filas) : comoCsv(filas);
+            Files.writeString(salida, texto, StandardCharsets.UTF_8);
+            System.out.println("Resultados guardados en " + salida);
+        }
+    }
+
+    // Cada caso crea, para cada hilo, una operación con su propia sesión y nombres que no chocan con los de otros hilos
+    private static List<Caso> casos(Arbol arbol) {
+        String destino = arbol.rutaDestino;
+        String ultimo = destino.substring(destino.lastIndexOf('/') + 1);
+        Directorio directorio = arbol.directorioDestino();
+        Directorio mismaRuta = new Directorio(directorio.getNombre(), directorio.getPadre());
+        return List.of(
+                new Caso("cd.absoluto", 100_000, h -> {
+                    Sesion sesion = arbol.fs.abrirSesion();
+                    return i -> sesion.cd(destino).esExito() ? 1 : 0;
+                }),
+                new Caso("cd.absoluto.sinCache", arbol.forma.equals("profunda") ? 2_000 : 100_000, h -> {
+                    Sesion sesion = arbol.sinCache.abrirSesion();
+                    return i -> sesion.cd(destino).esExito() ? 1 : 0;
+                }),
+                new Caso("cd.relativo(..+nombre)", 100_000, h -> {
+                    Sesion sesion = arbol.fs.abrirSesion();
+                    sesion.cd(destino);
+                    return i -> (sesion.cd("..").esExito() ? 1 : 0) + (sesion.cd(ultimo).esExito() ? 1 : 0);
+                }),
+                new Caso("touch+rm", 50_000, h -> {
+                    Sesion sesion = arbol.fs.abrirSesion();
+                    sesion.cd(destino);
+                    String[] nombres = nombres("t" + h + "-", 256);
+                    return i -> (sesion.touch(nombres[i & 255]).esExito() ? 1 : 0) + (sesion.rm(nombres[i & 255]).esExito() ? 1 : 0);
+                }),
+                new Caso("mkdir+rm", 50_000, h -> {
+                    Sesion sesion = arbol.fs.abrirSesion();
+                    sesion.cd(destino);
+                    String[] nombres = nombres("m" + h + "-", 256);
+                    return i -> (sesion.mkdir(nombres[i & 255]).esExito() ? 1 : 0) + (sesion.rm(nombres[i & 255]).esExito() ? 1 : 0);
+                }),
+                new Caso("ls", arbol.forma.equals("ancha") ? 20 : 20_000, h -> {
+                    Sesion sesion = arbol.fs.abrirSesion();
+                    sesion.cd(destino);
+                    return i -> sesion.ls(DESCARTAR);
+                }),
+                new Caso("ls.pagina100", 20_000, h -> {
+                    // Recorre el directorio de a 100 entradas en orden, volviendo al principio al terminar
+                    Sesion sesion = arbol.fs.abrirSesion();
+                    String[] desde = new String[1];
+                    return i -> {
+                        PaginaListado pagina = sesion.ls(destino, "", desde[0], 100, DESCARTAR);
+                        desde[0] = pagina.getSiguiente();
+                        return pagina.getCantidad();
+                    };
+                }),
+                new Caso("find(**/*.txt)", arbol.forma.equals("profunda") ? 2_000 : 20, h -> {
+                    Sesion sesion = arbol.fs.abrirSesion();
+                    return i -> (int) sesion.find("/", "**/*.txt", Integer.MAX_VALUE).count();
+                }),
+                new Caso("find.primero", 20_000, h -> {
+                    // Corta en el primer resultado: mide cuánto cuesta empezar a recibir rutas
+                    Sesion sesion = arbol.fs.abrirSesion();
+                    return i -> sesion.find("/", "**/*.txt", Integer.MAX_VALUE).sequential().findFirst().isPresent() ? 1 : 0;
+                }),
+                new Caso("du", 1_000_000, h -> {
+                    // Los totales ya están en cada directorio: no depende del tamaño del árbol
+                    Sesion sesion = arbol.fs.abrirSesion();
+                    return i -> (int) sesion.du("/").getArchivos();
+                }),
+                new Caso("hashCode", 1_000_000, h -> i -> directorio.hashCode()),
+                new Caso("equals", 1_000_000, h -> i -> directorio.equals(mismaRuta) ? 1 : 0));
+    }
+
+    private static String[] nombres(String prefijo, int cantidad) {
+        String[] nombres = new String[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            nombres[i] = prefijo + i;
+        }
+        return nombres;
+    }
+
+    private static String comoCsv(List<Fila> filas) {
+        StringBuilder csv = new StringBuilder("benchmark,forma,hilos,operaciones,ns_op,ops_s,bytes_op,gc_recolecciones,gc_ms\n");
+        for (Fila fila : filas) {
+            csv.append(String.format(Locale.ROOT, "%s,%s,%d,%d,%.2f,%.0f,%.1f,%d,%d%n", fila.benchmark, fila.forma,
+                    fila.hilos, fila.operaciones, fila.resultado.nanosPorOperacion, fila.resultado.operacionesPorSegundo,
+                    fila.resultado.bytesPorOperacion, fila.resultado.recolecciones, fila.resultado.milisegundosGc));
+        }
+        return csv.toString();
+    }
+
+    private static String comoJson(List<Fila> filas) {
+        StringBuilder json = new StringBuilder();
+        json.append(String.format(Locale.ROOT, "{%n  \"fecha\": \"%s\",%n  \"java\": \"%s\",%n  \"procesadores\": %d,%n  \"resultados\": [%n",
+                Instant.now(), System.getProperty("java.version"), Runtime.getRuntime().availableProcessors()));
+        for (int i = 0; i < filas.size(); i++) {
+            Fila fila = filas.get(i);
+            json.append(String.format(Locale.ROOT, "    {\"benchmark\": \"%s\", \"forma\": \"%s\", \"hilos\": %d, \"operaciones\": %d, "
+                            + "\"ns_op\": %.2f, \"ops_s\": %.0f, \"bytes_op\": %.1f, \"gc_recolecciones\": %d, \"gc_ms\": %d}%s%n",
+                    fila.benchmark, fila.forma, fila.hilos, fila.operaciones, fila.resultado.nanosPorOperacion,
+                    fila.resultado.operacionesPorSegundo, fila.resultado.bytesPorOperacion, fila.resultado.recolecciones,
+                    fila.resultado.milisegundosGc, i + 1 < filas.size() ? "," : ""));
+        }
+        return json.append("  ]\n}\n").toString();
+    }
+
+    // Un árbol de prueba, armado igual con y sin cache de rutas, y el directorio sobre el que operan los casos
+    private static final class Arbol {
+        private final String forma;
+        private final FileSystem fs;
+        private final FileSystem sinCache;
+        private final String rutaDestino;
+
+        private Arbol(String forma, FileSystem fs, FileSystem sinCache, String rutaDestino) {
+            this.forma = forma;
+            this.fs = fs;
+            this.sinCache = sinCache;
+            this.rutaDestino = rutaDestino;
+        }
+
+        // Una cadena de directorios anidados; se opera en el más profundo
+        private static Arbol profundo() {
+            StringBuilder ruta = new StringBuilder();
+            for (int i = 0; i < PROFUNDIDAD; i++) {
+                ruta.append("/n").append(i);
+            }
+            FileSystem fs = new FileSystem();
+            FileSystem sinCache = new FileSystem(0);
+            for (FileSystem sistema : List.of(fs, sinCache)) {
+                for (int i = 0; i < PROFUNDIDAD; i++) {
+                    sistema.mkdir("n" + i);
+                    sistema.cd("n" + i);
+                }
+                sistema.cd("/");
+            }
+            return new Arbol("profunda", fs, sinCache, ruta.toString());
+        }
+
+        // Un directorio con muchísimas entradas, donde se opera directamente
+        private static Arbol ancho() {
+            FileSystem fs = new FileSystem();
+            FileSystem sinCache = new FileSystem(0);
+            for (FileSystem sistema : List.of(fs, sinCache)) {
+                sistema.mkdir("/ancho");
+                for (int i = 0; i < ANCHO; i++) {
+                    if (i % 100 == 0) {
+                        sistema.mkdir("/ancho/sub" + i);
+                    } else {
+                        sistema.touch("/ancho/archivo" + i + ".txt");
+                    }
+                }
+            }
+            return new Arbol("ancha", fs, sinCache, "/ancho");
+        }
+
+        // La forma de BenchmarkMemoria: muchos directorios chicos y algunos grandes
+        private static Arbol mixto() {
+            FileSystem fs = new FileSystem();
+            FileSystem sinCache = new FileSystem(0);
+            BenchmarkMemoria.construir(fs, NODOS_MIXTA);
+            BenchmarkMemoria.construir(sinCache, NODOS_MIXTA);
+            return new Arbol("mixta", fs, sinCache, "/p0/d9");
+        }
+
+        private Directorio directorioDestino() {
+            Sesion sesion = fs.abrirSesion();
+            sesion.cd(rutaDestino);
+            return sesion.getDirectorioActual();
+        }
+    }
+
+    private static final class Caso {
+        private final String nombre;
+        private final int operaciones;
+        private final Medidor.FabricaOperacion fabrica;
+
+        private Caso(String nombre, int operaciones, Medidor.FabricaOperacion fabrica) {
+            this.nombre = nombre;
+            this.operaciones = operaciones;
+            this.fabrica = fabrica;
+        }
+    }
+
+    private static final class Fila {
+        private final String benchmark;
+        private final String forma;
+        private final int hilos;
+        private final int operaciones;
+        private final Medidor.Resultado resultado;
+
+        private Fila(String benchmark, String forma, int hilos, int operaciones, Medidor.Resultado resultado) {
+            this.benchmark = benchmark;
+            this.forma = forma;
+            this.hilos = hilos;
+            this.operaciones = operaciones;
+            this.resultado = resultado;
+        }
+
+        private String comoTabla() {
+            return String.format(Locale.ROOT, "%s\t%s\t%d\t%.1f\t%.0f\t%.1f\t%d\t%d", benchmark, forma, hilos,
+                    resultado.nanosPorOperacion, resultado.operacionesPorSegundo, resultado.bytesPorOperacion,
+                    resultado.recolecciones, resultado.milisegundosGc);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package consola;
+import java.io.PrintStream;
+import manager.CodigoResultado;
+import manager.PaginaListado;
+import manager.Salida;
+import manager.SistemaArchivos;
+import manager.UsoDirectorio;
+
+// Frente de consola sobre cualquier SistemaArchivos (FileSystem, una Sesion o FileSystemArena)
+// Ejecuta los comandos y traduce cada CodigoResultado al mensaje que ve el usuario; es el único
+// lugar donde se imprime, así que los comandos del núcleo no pagan el costo de formatear ni de escribir
+public class Consola {
+    // Entradas que se piden por vez al listar una ruta: la salida se va escribiendo sin juntar todo el directorio
+    private static final int TAMANIO_PAGINA = 1024;
+
+    private final SistemaArchivos sistema;
+    private final PrintStream salida;
+    private final Salida lineas;
+
+    public Consola(SistemaArchivos sistema) {
+        this(sistema, System.out);
+    }
+
+    public Consola(SistemaArchivos sistema, PrintStream salida) {
+        this.sistema = sistema;
+        this.salida = salida;
+        this.lineas = salida::println;
+    }
+
+    public SistemaArchivos getSistema() {
+        return sistema;
+    }
+
+    public boolean cd(String dirName) {
+        CodigoResultado resultado = sistema.cd(dirName);
+        switch (resultado) {
+            case NOMBRE_VACIO -> salida.println(Mensajes.nombreDirectorioVacio());
+            case NO_ENCONTRADO -> salida.println(Mensajes.directorioNoEncontrado(dirName));
+            default -> { } // Subir desde la raíz no es un error que se informe
+        }
+        return resultado.esExito();
+    }
+
+    public boolean touch(String fileName) {
+        CodigoResultado resultado = sistema.touch(fileName);
+        switch (resultado) {
+            case NOMBRE_VACIO -> salida.println(Mensajes.nombreArchivoVacio());
+            case RUTA_INEXISTENTE -> salida.println(Mensajes.rutaDirectorioInexistente(fileName));
+            default -> informarCreacion(resultado, fileName);
+        }
+        return resultado.esExito();
+    }
+
+    public boolean mkdir(String dirName) {
+        CodigoResultado resultado = sistema.mkdir(dirName);
+        switch (resultado) {
+            case NOMBRE_VACIO -> salida.println(Mensajes.nombreDirectorioVacio());
+            case RUTA_INEXISTENTE -> salida.println(Mensajes.rutaPadreInexistente(dirName));
+            default -> informarCreacion(resultado, dirName);
+        }
+        return resultado.esExito();
+    }
+
+    public boolean mkdirConPadres(String dirName) {
+        CodigoResultado resultado = sistema.mkdirConPadres(dirName);
+        switch (resultado) {
+            case NOMBRE_VACIO -> salida.println(Mensajes.nombreDirectorioVacio());
+            case RUTA_INEXISTENTE -> salida.println(Mensajes.rutaPadreInexistente(dirName));
+            default -> informarCreacion(resultado, dirName);
+        }
+        return resultado.esExito();
+    }
+
+    public boolean rm(String name) {
+        CodigoResultado resultado = sistema.rm(name);
+        switch (resultado) {
+            case NOMBRE_VACIO -> salida.println(Mensajes.nombreVacio());
+            case NOMBRE_INVALIDO -> salida.println(Mensajes.nombreInvalido(name));
+            case RUTA_INEXISTENTE -> salida.println(Mensajes.rutaPadreInexistente(name));
+            case NO_ENCONTRADO -> salida.println(Mensajes.noEncontrado(name));
+            case DIRECTORIO_NO_VACIO -> salida.println(Mensajes.directorioNoVacio(hoja(name)));
+            default -> informarMontaje(resultado, name);
+        }
+        return resultado.esExito();
+    }
+
+    // rm -r: el subárbol desaparece en el momento y su memoria se libera en segundo plano, sin esperar acá
+    public boolean rmRecursivo(String name) {
+        CodigoResultado resultado = sistema.rmRecursivo(name).getResultado();
+        switch (resultado) {
+            case NOMBRE_VACIO -> salida.println(Mensajes.nombreVacio());
+            case NOMBRE_INVALIDO -> salida.println(Mensajes.nombreInvalido(name));
+            case RUTA_INEXISTENTE -> salida.println(Mensajes.rutaPadreInexistente(name));
+            case NO_ENCONTRADO -> salida.println(Mensajes.noEncontrado(name));
+            default -> informarMontaje(resultado, name);
+        }
+        return resultado.esExito();
+    }
+
+    public boolean mv(String origen, String destino) {
+        CodigoResultado resultado = sistema.mv(origen, destino);
+        informarTraslado(resultado, origen, destino);
+        return resultado.esExito();
+    }
+
+    // cp -r: la copia se arma a medida que se recorre, así que vuelve enseguida aunque el directorio sea grande
+    public boolean cp(String origen, String destino) {
+        CodigoResultado resultado = sistema.cp(origen, destino);
+        informarTraslado(resultado, origen, destino);
+        return resultado.esExito();
+    }
+
+    public void ls() {
+        if (sistema.ls(lineas) == 0) {
+            salida.println(Mensajes.directorioVacio());
+        }
+    }
+
+    // Lista ordenado por nombre el directorio de la ruta, recorriéndolo por páginas
+    public boolean ls(String ruta) {
+        return ls(ruta, "");
+    }
+
+    public boolean ls(String ruta, String prefijo) {
+        String desde = null;
+        int total = 0;
+        do {
+            PaginaListado pagina = sistema.ls(ruta, prefijo, desde, TAMANIO_PAGINA, lineas);
+            if (pagina.getResultado() == CodigoResultado.NO_ENCONTRADO) {
+                salida.println(Mensajes.directorioNoEncontrado(ruta));
+                return false;
+            }
+            total += pagina.getCantidad();
+            desde = pagina.getSiguiente();
+        } while (desde != null);
+        if (total == 0) {
+            salida.println(Mensajes.directorioVacio());
+        }
+        return true;
+    }
+
+    // Escribe cada ruta a medida que aparece; el orden depende del recorrido
+    public long find(String ruta, String glob, int maxDepth) {
+        long[] total = new long[1];
+        sistema.find(ruta, glob, maxDepth).sequential().forEach(encontrada -> {
+            salida.println(encontrada);
+            total[0]++;
+        });
+        return total[0];
+    }
+
+    public boolean du(String ruta) {
+        UsoDirectorio uso = sistema.du(ruta);
+        if (uso.getResultado() == CodigoResultado.NO_ENCONTRADO) {
+            salida.println(Mensajes.directorioNoEncontrado(ruta));
+            return false;
+        }
+        salida.println(Mensajes.uso(uso));
+        return true;
+    }
+
+    public void pwd() {
+        sistema.pwd(lineas);
+    }
+
+    private void informarCreacion(CodigoResultado resultado, String ruta) {
+        if (resultado == CodigoResultado.NOMBRE_INVALIDO) {
+            salida.println(Mensajes.nombreInvalido(ruta));
+        } else if (resultado == CodigoResultado.YA_EXISTE) {
+            salida.println(Mensajes.yaExiste(hoja(ruta)));
+        } else {
+            informarMontaje(resultado, ruta);
+        }
+    }
+
+    private void informarTraslado(CodigoResultado resultado, String origen, String destino) {
+        switch (resultado) {
+            case NOMBRE_VACIO -> salida.println(Mensajes.nombreVacio());
+            case NOMBRE_INVALIDO -> salida.println(Mensajes.nombreInvalido(destino));
+            case RUTA_INEXISTENTE -> salida.println(Mensajes.rutaPadreInexistente(destino));
+            case NO_ENCONTRADO -> salida.println(Mensajes.noEncontrado(origen));
+            case YA_EXISTE -> salida.println(Mensajes.yaExiste(hoja(destino)));
+            case DESTINO_DENTRO_DEL_ORIGEN -> salida.println(Mensajes.destinoDentroDelOrigen(origen, destino));
+            default -> informarMontaje(resultado, destino);
+        }
+    }
+
+    // Cambios que rechazó el montaje donde caen
+    private void informarMontaje(CodigoResultado resultado, String ruta) {
+        switch (resultado) {
+            case SOLO_LECTURA -> salida.println(Mensajes.soloLectura(ruta));
+            case OTRO_MONTAJE -> salida.println(Mensajes.otroMontaje(ruta));
+            case ERROR_ALMACEN -> salida.println(Mensajes.errorAlmacen(ruta));
+            default -> { }
+        }
+    }
+
+    // Último segmento de la ruta, ignorando las barras finales, tal como lo nombran los mensajes
+    private static String hoja(String ruta) {
+        int fin = ruta.length();
+        while (fin > 0 && ruta.charAt(fin - 1) == '/') fin--;
+        return ruta.substring(ruta.lastIndexOf('/', fin - 1) + 1, fin);
+    }
+}
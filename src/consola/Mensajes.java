@@ -0,0 +1,73 @@
+package consola;
+import manager.UsoDirectorio;
+
+// Textos que la consola muestra para cada resultado de los comandos
+final class Mensajes {
+    private Mensajes() {
+    }
+
+    static String nombreDirectorioVacio() {
+        return "Error: El nombre del directorio no puede ser nulo o vacío.";
+    }
+
+    static String nombreArchivoVacio() {
+        return "Error: El nombre del archivo no puede ser nulo o vacío.";
+    }
+
+    static String nombreVacio() {
+        return "Error: El nombre no puede ser nulo o vacío.";
+    }
+
+    static String nombreInvalido(String ruta) {
+        return "Error: El nombre '" + ruta + "' no es válido.";
+    }
+
+    static String directorioNoEncontrado(String ruta) {
+        return "Error: Directorio '" + ruta + "' no encontrado.";
+    }
+
+    static String rutaDirectorioInexistente(String ruta) {
+        return "Error: La ruta del directorio para '" + ruta + "' no existe.";
+    }
+
+    static String rutaPadreInexistente(String ruta) {
+        return "Error: La ruta del directorio padre para '" + ruta + "' no existe.";
+    }
+
+    static String yaExiste(String nombre) {
+        return "Error: Ya existe un archivo o directorio con el nombre '" + nombre + "' en este directorio.";
+    }
+
+    static String noEncontrado(String ruta) {
+        return "Error: '" + ruta + "' no encontrado.";
+    }
+
+    static String directorioNoVacio(String nombre) {
+        return "Error: El directorio '" + nombre + "' no está vacío y no puede ser eliminado.";
+    }
+
+    static String destinoDentroDelOrigen(String origen, String destino) {
+        return "Error: No se puede mover ni copiar el directorio '" + origen + "' dentro de sí mismo ('" + destino + "').";
+    }
+
+    static String soloLectura(String ruta) {
+        return "Error: '" + ruta + "' está en un montaje de solo lectura.";
+    }
+
+    static String otroMontaje(String ruta) {
+        return "Error: '" + ruta + "' es o contiene un punto de montaje, o el cambio pasaría de un montaje a otro.";
+    }
+
+    static String errorAlmacen(String ruta) {
+        return "Error: El almacén montado no pudo aplicar el cambio en '" + ruta + "'.";
+    }
+
+    static String directorioVacio() {
+        return "El directorio está vacío.";
+    }
+
+    static String uso(UsoDirectorio uso) {
+        return uso.getArchivos() + " archivos, " + uso.getDirectorios() + " directorios, " + uso.getBytes()
+                + " bytes, profundidad " + uso.getProfundidad();
+    }
+}
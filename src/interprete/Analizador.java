@@ -0,0 +1,118 @@
+package interprete;
+import java.util.HashMap;
+import java.util.Map;
+
+// Convierte líneas de estilo shell en Comandos. Las rutas se internan: una ruta que se repite a lo largo del script
+// es siempre el mismo String, así su hash se calcula una vez y la cache y el índice de rutas del FileSystem la
+// comparan primero por identidad. Las líneas vacías y las que empiezan con # se ignoran
+// Un Analizador lo usa un solo hilo
+final class Analizador {
+    // Tope de rutas distintas que se internan, para que un script con rutas siempre nuevas no acumule memoria
+    private static final int MAX_RUTAS = 1 << 16;
+    private static final int MAX_PARTES = 5;
+
+    private final Map<String, String> rutas = new HashMap<>();
+    private final String[] partes = new String[MAX_PARTES];
+
+    // Devuelve null si la línea no tiene ningún comando
+    Comando analizar(String texto, long linea) {
+        int cantidad = partir(texto);
+        if (cantidad == 0 || partes[0].charAt(0) == '#') {
+            return null;
+        }
+        String comando = partes[0];
+        boolean opcion = cantidad > 1 && partes[1].charAt(0) == '-';
+        switch (comando) {
+            case "cd":
+                if (cantidad == 2) return new Comando(Comando.CD, internar(partes[1]), null, 0, linea);
+                break;
+            case "pwd":
+                if (cantidad == 1) return new Comando(Comando.PWD, null, null, 0, linea);
+                break;
+            case "ls":
+                if (cantidad <= 2) return new Comando(Comando.LS, cantidad == 2 ? internar(partes[1]) : null, null, 0, linea);
+                break;
+            case "mkdir":
+                if (cantidad == 3 && opcion && partes[1].equals("-p")) {
+                    return new Comando(Comando.MKDIR_P, internar(partes[2]), null, 0, linea);
+                }
+                if (cantidad == 2 && !opcion) return new Comando(Comando.MKDIR, internar(partes[1]), null, 0, linea);
+                break;
+            case "touch":
+                if (cantidad == 2) return new Comando(Comando.TOUCH, internar(partes[1]), null, 0, linea);
+                break;
+            case "rm":
+                if (cantidad == 3 && opcion && (partes[1].equals("-r") || partes[1].equals("-rf"))) {
+                    return new Comando(Comando.RM_R, internar(partes[2]), null, 0, linea);
+                }
+                if (cantidad == 2 && !opcion) return new Comando(Comando.RM, internar(partes[1]), null, 0, linea);
+                break;
+            case "mv":
+            case "cp":
+                if (cantidad == 4 && comando.equals("cp") && partes[1].equals("-r")) {
+                    return new Comando(Comando.CP, internar(partes[2]), internar(partes[3]), 0, linea);
+                }
+                if (cantidad == 3) {
+                    byte tipo = comando.equals("mv") ? Comando.MV : Comando.CP;
+                    return new Comando(tipo, internar(partes[1]), internar(partes[2]), 0, linea);
+                }
+                break;
+            case "du":
+                if (cantidad <= 2) return new Comando(Comando.DU, cantidad == 2 ? internar(partes[1]) : null, null, 0, linea);
+                break;
+            case "find":
+                if (cantidad == 3 || cantidad == 4) {
+                    int profundidad = cantidad == 4 ? profundidad(partes[3]) : Integer.MAX_VALUE;
+                    if (profundidad >= 0) {
+                        return new Comando(Comando.FIND, internar(partes[1]), partes[2], profundidad, linea);
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+        return new Comando(Comando.INVALIDO, texto.trim(), null, 0, linea);
+    }
+
+    private String internar(String ruta) {
+        String previa = rutas.get(ruta);
+        if (previa != null) {
+            return previa;
+        }
+        if (rutas.size() < MAX_RUTAS) {
+            rutas.put(ruta, ruta);
+        }
+        return ruta;
+    }
+
+    // Parte la línea por espacios y tabulaciones sin expresiones regulares; devuelve la cantidad de partes,
+    // o MAX_PARTES si hay de más (ningún comando acepta tantas)
+    private int partir(String texto) {
+        int cantidad = 0;
+        int i = 0;
+        int largo = texto.length();
+        while (i < largo) {
+            while (i < largo && esEspacio(texto.charAt(i))) i++;
+            if (i == largo) break;
+            int inicio = i;
+            while (i < largo && !esEspacio(texto.charAt(i))) i++;
+            if (cantidad == MAX_PARTES) {
+                return MAX_PARTES;
+            }
+            partes[cantidad++] = texto.substring(inicio, i);
+        }
+        return cantidad;
+    }
+
+    private static boolean esEspacio(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    private static int profundidad(String texto) {
+        try {
+            return Integer.parseInt(texto);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package interprete;
+
+// Una línea del script ya analizada: el tipo y sus argumentos, listos para ejecutar sin volver a partir el texto
+// Las rutas repetidas son la misma instancia de String (ver Analizador), con el hash ya calculado
+final class Comando {
+    static final byte CD = 0;
+    static final byte PWD = 1;
+    static final byte LS = 2;
+    static final byte MKDIR = 3;
+    static final byte MKDIR_P = 4;
+    static final byte TOUCH = 5;
+    static final byte RM = 6;
+    static final byte RM_R = 7;
+    static final byte MV = 8;
+    static final byte CP = 9;
+    static final byte DU = 10;
+    static final byte FIND = 11;
+    // Línea que no se pudo analizar; primero tiene el texto original para el mensaje de error
+    static final byte INVALIDO = 12;
+
+    final byte tipo;
+    final String primero;
+    final String segundo;
+    // Profundidad máxima de find
+    final int profundidad;
+    final long linea;
+
+    Comando(byte tipo, String primero, String segundo, int profundidad, long linea) {
+        this.tipo = tipo;
+        this.primero = primero;
+        this.segundo = segundo;
+        this.profundidad = profundidad;
+        this.linea = linea;
+    }
+}
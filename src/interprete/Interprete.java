@@ -0,0 +1,163 @@
+package interprete;
+import consola.Consola;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import manager.SistemaArchivos;
+
+// Corre scripts de comandos de estilo shell (cd, pwd, ls, mkdir [-p], touch, rm [-r], mv, cp, du, find) sobre
+// cualquier SistemaArchivos. Trabaja en dos etapas: un hilo lee y analiza las líneas y las pasa en tandas, por una
+// cola acotada, al hilo que llamó, que las ejecuta en orden. Así el análisis de una tanda se superpone con
+// la ejecución de la anterior, y si la ejecución se atrasa la cola llena frena la lectura.
+// La salida y los mensajes de error son los de la Consola, pero se escriben en un buffer grande y no línea por línea
+public final class Interprete {
+    private static final int TAMANIO_TANDA = 512;
+    private static final int TANDAS_EN_COLA = 64;
+    private static final int TAMANIO_BUFFER_SALIDA = 1 << 16;
+    // Marca el final del script en la cola
+    private static final Comando[] FIN = new Comando[0];
+
+    private final SistemaArchivos sistema;
+
+    public Interprete(SistemaArchivos sistema) {
+        this.sistema = sistema;
+    }
+
+    /**
+     * Ejecuta el script entero. La salida queda escrita (y vaciada) al volver, pero no se cierra.
+     * @param script Una línea por comando; las vacías y las que empiezan con # se ignoran.
+     * @return Cuántos comandos se ejecutaron, cuántos fallaron y el tiempo total.
+     * @throws IOException Si falla la lectura del script o la escritura de la salida.
+     */
+    public ResumenScript ejecutar(Reader script, OutputStream salida) throws IOException {
+        long inicio = System.nanoTime();
+        BlockingQueue<Comando[]> cola = new ArrayBlockingQueue<>(TANDAS_EN_COLA);
+        Lectura lectura = new Lectura(script, cola);
+        Thread lector = new Thread(lectura, "analizador-script");
+        lector.setDaemon(true);
+        lector.start();
+
+        PrintStream impresion = new PrintStream(new BufferedOutputStream(salida, TAMANIO_BUFFER_SALIDA), false, StandardCharsets.UTF_8);
+        Consola consola = new Consola(sistema, impresion);
+        long comandos = 0;
+        long fallidos = 0;
+        try {
+            Comando[] tanda;
+            while ((tanda = cola.take()) != FIN) {
+                for (Comando comando : tanda) {
+                    comandos++;
+                    if (!ejecutar(comando, consola, impresion)) {
+                        fallidos++;
+                    }
+                }
+            }
+            lector.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Se interrumpió la ejecución del script");
+        } finally {
+            // Si la ejecución se cortó antes del final, el lector no queda esperando lugar en la cola
+            lector.interrupt();
+            impresion.flush();
+        }
+        if (impresion.checkError()) {
+            throw new IOException("No se pudo escribir la salida del script");
+        }
+        if (lectura.error != null) {
+            throw lectura.error;
+        }
+        return new ResumenScript(comandos, fallidos, System.nanoTime() - inicio);
+    }
+
+    private boolean ejecutar(Comando comando, Consola consola, PrintStream impresion) {
+        switch (comando.tipo) {
+            case Comando.CD:
+                return consola.cd(comando.primero);
+            case Comando.PWD:
+                consola.pwd();
+                return true;
+            case Comando.LS:
+                if (comando.primero == null) {
+                    consola.ls();
+                    return true;
+                }
+                return consola.ls(comando.primero);
+            case Comando.MKDIR:
+                return consola.mkdir(comando.primero);
+            case Comando.MKDIR_P:
+                return consola.mkdirConPadres(comando.primero);
+            case Comando.TOUCH:
+                return consola.touch(comando.primero);
+            case Comando.RM:
+                return consola.rm(comando.primero);
+            case Comando.RM_R:
+                return consola.rmRecursivo(comando.primero);
+            case Comando.MV:
+                return consola.mv(comando.primero, comando.segundo);
+            case Comando.CP:
+                return consola.cp(comando.primero, comando.segundo);
+            case Comando.DU:
+                return consola.du(comando.primero);
+            case Comando.FIND:
+                consola.find(comando.primero, comando.segundo, comando.profundidad);
+                return true;
+            default:
+                impresion.println("Error: Línea " + comando.linea + ": comando no reconocido '" + comando.primero + "'.");
+                return false;
+        }
+    }
+
+    // Etapa de lectura y análisis: arma tandas de comandos y las pone en la cola; al final pone FIN, aunque falle
+    private static final class Lectura implements Runnable {
+        private final Reader script;
+        private final BlockingQueue<Comando[]> cola;
+        private IOException error;
+
+        private Lectura(Reader script, BlockingQueue<Comando[]> cola) {
+            this.script = script;
+            this.cola = cola;
+        }
+
+        @Override
+        public void run() {
+            Analizador analizador = new Analizador();
+            BufferedReader lineas = script instanceof BufferedReader b ? b : new BufferedReader(script, TAMANIO_BUFFER_SALIDA);
+            try {
+                Comando[] tanda = new Comando[TAMANIO_TANDA];
+                int cantidad = 0;
+                long numero = 0;
+                String texto;
+                try {
+                    while ((texto = lineas.readLine()) != null) {
+                        Comando comando = analizador.analizar(texto, ++numero);
+                        if (comando == null) {
+                            continue;
+                        }
+                        tanda[cantidad++] = comando;
+                        if (cantidad == TAMANIO_TANDA) {
+                            cola.put(tanda);
+                            tanda = new Comando[TAMANIO_TANDA];
+                            cantidad = 0;
+                        }
+                    }
+                } catch (IOException e) {
+                    error = e;
+                }
+                if (cantidad > 0) {
+                    cola.put(Arrays.copyOf(tanda, cantidad));
+                }
+                cola.put(FIN);
+            } catch (InterruptedException e) {
+                // Quien ejecuta ya no espera más tandas
+            }
+        }
+    }
+}
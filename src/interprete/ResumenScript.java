@@ -0,0 +1,31 @@
+package interprete;
+
+// Resultado de correr un script: cuántos comandos se ejecutaron, cuántos fallaron y cuánto tardó todo
+public final class ResumenScript {
+    private final long comandos;
+    private final long fallidos;
+    private final long nanos;
+
+    ResumenScript(long comandos, long fallidos, long nanos) {
+        this.comandos = comandos;
+        this.fallidos = fallidos;
+        this.nanos = nanos;
+    }
+
+    public long getComandos() {
+        return comandos;
+    }
+
+    // Comandos que devolvieron un error, incluidas las líneas que no se pudieron analizar
+    public long getFallidos() {
+        return fallidos;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public double getComandosPorSegundo() {
+        return nanos == 0 ? 0 : comandos / (nanos / 1e9);
+    }
+}
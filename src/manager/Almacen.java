@@ -0,0 +1,110 @@
+package manager;
+import java.io.IOException;
+import java.nio.file.Path;
+
+// Almacenamiento detrás de un punto de montaje (ver FileSystem.montar). El subárbol montado se ve como cualquier
+// otro directorio del árbol: lo que cambia es de dónde salen sus hijos y adónde van sus cambios.
+// Un almacén en memoria es un directorio común; uno de instantánea lee un archivo guardado con FileSystem.guardar
+// y es de solo lectura; uno de disco refleja una carpeta real, cargando cada directorio al recorrerlo por primera
+// vez y aplicando en la carpeta las altas, bajas, mv y cp antes de hacerlo en memoria.
+// Cada almacén se monta una sola vez
+public abstract class Almacen {
+    private boolean montado;
+
+    Almacen() {
+    }
+
+    public static Almacen enMemoria() {
+        return new AlmacenMemoria();
+    }
+
+    /**
+     * @param archivo Instantánea guardada con FileSystem.guardar o Instantanea.guardar; se mapea en memoria
+     *                y cada directorio se lee recién al recorrerlo.
+     * @throws IOException Si el archivo no existe o no es una instantánea válida.
+     */
+    public static Almacen deInstantanea(Path archivo) throws IOException {
+        return new AlmacenInstantanea(ArchivoInstantanea.abrir(archivo));
+    }
+
+    /**
+     * @param carpeta Carpeta real a reflejar. Al montarla se recorre una vez para conocer los totales de cada
+     *                directorio (para du), pero las entradas se cargan recién al recorrer cada directorio.
+     * @throws IOException Si la carpeta no existe o no es un directorio.
+     */
+    public static Almacen enDisco(Path carpeta) throws IOException {
+        return new AlmacenDisco(carpeta);
+    }
+
+    public abstract boolean esSoloLectura();
+
+    // Si sus cambios quedan solo en memoria, y entonces se pueden aplicar en un Lote junto con los del resto del árbol
+    boolean esEnMemoria() {
+        return false;
+    }
+
+    // Directorio que se cuelga en el punto de montaje, con sus hijos todavía sin cargar
+    abstract Directorio crearRaiz(String nombre, Directorio padre) throws IOException;
+
+    // Lo siguiente se llama con los directorios afectados bloqueados y antes de aplicar el cambio en memoria:
+    // si falla, el cambio no se aplica. Los almacenes que no guardan nada fuera de la memoria no hacen nada
+
+    void crear(Directorio padre, String nombre, boolean esDirectorio) throws IOException {
+    }
+
+    void eliminar(Directorio padre, String nombre, boolean recursivo) throws IOException {
+    }
+
+    void mover(Directorio padreOrigen, String nombre, Directorio padreDestino, String nuevoNombre) throws IOException {
+    }
+
+    void copiar(FileSystemBase entrada, Directorio padreDestino, String nuevoNombre) throws IOException {
+    }
+
+    // Al desmontarlo
+    void cerrar() {
+    }
+
+    synchronized void marcarMontado() {
+        if (montado) {
+            throw new IllegalStateException("El almacén ya fue montado.");
+        }
+        montado = true;
+    }
+
+    private static final class AlmacenMemoria extends Almacen {
+        @Override
+        public boolean esSoloLectura() {
+            return false;
+        }
+
+        @Override
+        boolean esEnMemoria() {
+            return true;
+        }
+
+        @Override
+        Directorio crearRaiz(String nombre, Directorio padre) {
+            return new Directorio(nombre, padre);
+        }
+    }
+
+    private static final class AlmacenInstantanea extends Almacen {
+        private final ArchivoInstantanea archivo;
+
+        private AlmacenInstantanea(ArchivoInstantanea archivo) {
+            this.archivo = archivo;
+        }
+
+        @Override
+        public boolean esSoloLectura() {
+            return true;
+        }
+
+        // La raíz de la instantánea es el nodo 0
+        @Override
+        Directorio crearRaiz(String nombre, Directorio padre) {
+            return new Directorio(nombre, padre, archivo, 0);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package manager;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Almacén que refleja una carpeta real (ver Almacen.enDisco)
+// Al montarse recorre la carpeta una vez y anota, para cada directorio, un índice y los totales de su subárbol,
+// como los que trae una instantánea; las entradas de cada directorio se leen de la carpeta recién al recorrerlo.
+// Lo anotado de un directorio se descarta cuando se cargan sus hijos, y cada subdirectorio se busca por su nombre
+// dentro de lo anotado para su padre (no por su ruta en la carpeta, que un mv cambia).
+// Los archivos se ven con tamaño 0: se reflejan los nombres pero no los contenidos (un cp hacia el montaje sí
+// escribe en la carpeta el contenido de los archivos copiados). Los enlaces simbólicos se ven como archivos.
+// Un directorio se ubica en la carpeta por su camino desde la raíz del montaje, así que sigue encontrándose
+// después de un mv. Lo que se cambie en la carpeta por fuera, después de cargado el directorio, no se ve
+final class AlmacenDisco extends Almacen {
+    private final Path carpeta;
+    private final Fuente fuente = new Fuente();
+    // Directorios anotados cuyos hijos todavía no se cargaron, por índice
+    private final Map<Integer, Pendiente> pendientes = new HashMap<>();
+    private int siguiente;
+    private volatile Directorio raiz;
+    private volatile boolean cerrado;
+
+    AlmacenDisco(Path carpeta) throws IOException {
+        if (!Files.isDirectory(carpeta)) {
+            throw new NotDirectoryException(carpeta.toString());
+        }
+        this.carpeta = carpeta.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public boolean esSoloLectura() {
+        return false;
+    }
+
+    @Override
+    Directorio crearRaiz(String nombre, Directorio padre) throws IOException {
+        int indice;
+        synchronized (this) {
+            indice = escanear(carpeta);
+        }
+        Directorio directorio = new Directorio(nombre, padre, fuente, indice);
+        raiz = directorio;
+        return directorio;
+    }
+
+    // Los directorios que quedaron sin cargar ya no leen la carpeta: el desmontaje los recorre para liberarlos
+    @Override
+    void cerrar() {
+        cerrado = true;
+        synchronized (this) {
+            pendientes.clear();
+        }
+    }
+
+    @Override
+    void crear(Directorio padre, String nombre, boolean esDirectorio) throws IOException {
+        Path ruta = ubicar(padre).resolve(nombre);
+        if (esDirectorio) {
+            Files.createDirectory(ruta);
+        } else {
+            Files.createFile(ruta);
+        }
+    }
+
+    @Override
+    void eliminar(Directorio padre, String nombre, boolean recursivo) throws IOException {
+        Path ruta = ubicar(padre).resolve(nombre);
+        if (!recursivo || !Files.isDirectory(ruta, LinkOption.NOFOLLOW_LINKS)) {
+            Files.delete(ruta);
+            return;
+        }
+        borrarArbol(ruta);
+    }
+
+    private static void borrarArbol(Path ruta) throws IOException {
+        Files.walkFileTree(ruta, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path archivo, BasicFileAttributes atributos) throws IOException {
+                Files.delete(archivo);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path directorio, IOException error) throws IOException {
+                if (error != null) {
+                    throw error;
+                }
+                Files.delete(directorio);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Override
+    void mover(Directorio padreOrigen, String nombre, Directorio padreDestino, String nuevoNombre) throws IOException {
+        Files.move(ubicar(padreOrigen).resolve(nombre), ubicar(padreDestino).resolve(nuevoNombre));
+    }
+
+    // La entrada puede venir de cualquier parte del árbol: se escribe su versión actual en la carpeta.
+    // Si la escritura falla a mitad de camino se borra lo escrito, ya que en memoria la copia no se va a hacer
+    @Override
+    void copiar(FileSystemBase entrada, Directorio padreDestino, String nuevoNombre) throws IOException {
+        Path destino = ubicar(padreDestino).resolve(nuevoNombre);
+        try {
+            escribir(entrada, destino);
+        } catch (IOException | RuntimeException e) {
+            try {
+                if (Files.exists(destino, LinkOption.NOFOLLOW_LINKS)) {
+                    borrarArbol(destino);
+                }
+            } catch (IOException otro) {
+                e.addSuppressed(otro);
+            }
+            throw e;
+        }
+    }
+
+    private static void escribir(FileSystemBase entrada, Path destino) throws IOException {
+        if (entrada instanceof Archivo archivo) {
+            try (FileChannel canal = FileChannel.open(destino, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                archivo.transferirA(canal);
+            }
+            return;
+        }
+        Files.createDirectory(destino);
+        for (Map.Entry<String, FileSystemBase> hijo : ((Directorio) entrada).getHijos().entrySet()) {
+            escribir(hijo.getValue(), destino.resolve(hijo.getKey()));
+        }
+    }
+
+    // Carpeta real de un directorio del montaje, según su camino actual desde la raíz del montaje
+    private Path ubicar(Directorio directorio) throws IOException {
+        List<String> nombres = new ArrayList<>();
+        Directorio d = directorio;
+        while (d != raiz) {
+            if (d == null) {
+                throw new IOException("El directorio '" + directorio.getRutaCompleta() + "' no está en el montaje.");
+            }
+            nombres.add(d.getNombre());
+            d = d.getPadre();
+        }
+        Path ruta = carpeta;
+        for (int i = nombres.size() - 1; i >= 0; i--) {
+            ruta = ruta.resolve(nombres.get(i));
+        }
+        return ruta;
+    }
+
+    // Recorre la carpeta y anota sus directorios con los totales de cada subárbol. Devuelve el índice de la carpeta
+    private int escanear(Path inicio) throws IOException {
+        int primero = siguiente;
+        Deque<Pendiente> abiertos = new ArrayDeque<>();
+        Files.walkFileTree(inicio, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directorio, BasicFileAttributes atributos) {
+                Pendiente nuevo = new Pendiente(siguiente++);
+                pendientes.put(nuevo.indice, nuevo);
+                if (!abiertos.isEmpty()) {
+                    abiertos.peek().subdirectorios.put(directorio.getFileName().toString(), nuevo.indice);
+                }
+                abiertos.push(nuevo);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path archivo, BasicFileAttributes atributos) {
+                Pendiente padre = abiertos.peek();
+                padre.archivos++;
+                padre.profundidad = Math.max(padre.profundidad, 1);
+                return FileVisitResult.CONTINUE;
+            }
+
+            // Una entrada que no se puede leer se cuenta como archivo, que es como se va a ver
+            @Override
+            public FileVisitResult visitFileFailed(Path archivo, IOException error) throws IOException {
+                if (abiertos.isEmpty()) {
+                    throw error;
+                }
+                return visitFile(archivo, null);
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path directorio, IOException error) {
+                Pendiente hijo = abiertos.pop();
+                if (!abiertos.isEmpty()) {
+                    Pendiente padre = abiertos.peek();
+                    padre.archivos += hijo.archivos;
+                    padre.directorios += hijo.directorios + 1;
+                    padre.profundidad = Math.max(padre.profundidad, hijo.profundidad + 1);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return primero;
+    }
+
+    // Totales de un directorio anotado y los índices de sus subdirectorios por nombre
+    private static final class Pendiente {
+        final int indice;
+        final Map<String, Integer> subdirectorios = new HashMap<>();
+        long archivos;
+        long directorios;
+        int profundidad;
+
+        Pendiente(int indice) {
+            this.indice = indice;
+        }
+    }
+
+    // Los directorios se cargan desde varios hilos: el recorrido y las tablas se protegen con el almacén
+    private final class Fuente extends FuenteHijos {
+        // Un directorio anotado se arma una sola vez, antes de cargar sus hijos, así que su anotación sigue ahí;
+        // si no está, el montaje se cerró y el directorio se ve vacío
+        @Override
+        long archivosEnSubarbol(int indice) {
+            synchronized (AlmacenDisco.this) {
+                Pendiente pendiente = pendientes.get(indice);
+                return pendiente != null ? pendiente.archivos : 0;
+            }
+        }
+
+        @Override
+        long directoriosEnSubarbol(int indice) {
+            synchronized (AlmacenDisco.this) {
+                Pendiente pendiente = pendientes.get(indice);
+                return pendiente != null ? pendiente.directorios : 0;
+            }
+        }
+
+        @Override
+        int profundidad(int indice) {
+            synchronized (AlmacenDisco.this) {
+                Pendiente pendiente = pendientes.get(indice);
+                return pendiente != null ? pendiente.profundidad : 0;
+            }
+        }
+
+        // Una carpeta que ya no existe (la borró un rm -r, que la quita del disco antes que de memoria) se ve vacía
+        @Override
+        MapaHijos hijos(Directorio directorio, int indice) {
+            if (cerrado) {
+                return MapaHijos.VACIO;
+            }
+            List<Map.Entry<String, FileSystemBase>> entradas = new ArrayList<>();
+            try {
+                Path ruta = ubicar(directorio);
+                synchronized (AlmacenDisco.this) {
+                    Pendiente pendiente = pendientes.get(indice);
+                    try (DirectoryStream<Path> contenido = Files.newDirectoryStream(ruta)) {
+                        for (Path entrada : contenido) {
+                            String nombre = entrada.getFileName().toString();
+                            FileSystemBase hijo;
+                            if (Files.isDirectory(entrada, LinkOption.NOFOLLOW_LINKS)) {
+                                // Uno que no estaba al montar se recorre ahora para conocer sus totales
+                                Integer conocido = pendiente != null ? pendiente.subdirectorios.remove(nombre) : null;
+                                hijo = new Directorio(nombre, directorio, this, conocido != null ? conocido : escanear(entrada));
+                            } else {
+                                hijo = new Archivo(nombre, directorio);
+                            }
+                            entradas.add(new AbstractMap.SimpleImmutableEntry<>(nombre, hijo));
+                        }
+                    }
+                    descartar(pendiente);
+                }
+            } catch (NoSuchFileException e) {
+                synchronized (AlmacenDisco.this) {
+                    descartar(pendientes.get(indice));
+                }
+                return MapaHijos.VACIO;
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo leer el directorio '" + directorio.getRutaCompleta() + "'.", e);
+            }
+            return MapaHijos.desde(entradas.iterator(), entradas.size());
+        }
+
+        // Ya cargados los hijos, lo anotado del directorio no se vuelve a usar, y tampoco lo de los subdirectorios
+        // anotados que ya no estaban en la carpeta (los que sí estaban se sacaron de la anotación al armarlos)
+        private void descartar(Pendiente pendiente) {
+            if (pendiente == null) {
+                return;
+            }
+            pendientes.remove(pendiente.indice);
+            for (int subdirectorio : pendiente.subdirectorios.values()) {
+                descartar(pendientes.get(subdirectorio));
+            }
+        }
+    }
+}
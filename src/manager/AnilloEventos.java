@@ -0,0 +1,63 @@
+package manager;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Anillo acotado de eventos de cambio, sin bloqueos: cada publicación toma una secuencia con un incremento atómico
+// y escribe su ranura, pisando el evento de una vuelta anterior. Los escritores nunca esperan a los lectores;
+// cada Vigilancia lleva su propia posición y, si se atrasa más de una vuelta, lo nota por la secuencia de la ranura
+// Sin vigilancias abiertas, quien publica solo lee un contador y no arma la ruta ni el evento
+final class AnilloEventos {
+    private final AtomicReferenceArray<EventoCambio> ranuras;
+    private final int mascara;
+    private final AtomicLong siguiente = new AtomicLong();
+    private final AtomicInteger vigilancias = new AtomicInteger();
+
+    AnilloEventos(int capacidad) {
+        int tamanio = Integer.highestOneBit(Math.max(2, capacidad * 2 - 1));
+        this.ranuras = new AtomicReferenceArray<>(tamanio);
+        this.mascara = tamanio - 1;
+    }
+
+    boolean hayVigilancias() {
+        return vigilancias.get() != 0;
+    }
+
+    void publicar(EventoCambio.Tipo tipo, String ruta, boolean directorio) {
+        long secuencia = siguiente.getAndIncrement();
+        EventoCambio evento = new EventoCambio(tipo, ruta, directorio, secuencia, 0);
+        int i = (int) secuencia & mascara;
+        // Un escritor demorado no pisa el evento de una vuelta posterior que ya se escribió en su ranura
+        EventoCambio actual;
+        do {
+            actual = ranuras.get(i);
+            if (actual != null && actual.getSecuencia() > secuencia) {
+                return;
+            }
+        } while (!ranuras.compareAndSet(i, actual, evento));
+    }
+
+    // Secuencia que va a tomar la próxima publicación; las anteriores ya se tomaron, aunque alguna puede no estar escrita
+    long publicados() {
+        return siguiente.get();
+    }
+
+    // El evento de la ranura de la secuencia, que puede ser de otra vuelta
+    EventoCambio leer(long secuencia) {
+        return ranuras.get((int) secuencia & mascara);
+    }
+
+    int capacidad() {
+        return mascara + 1;
+    }
+
+    // Devuelve la secuencia desde la que la vigilancia nueva empieza a leer
+    long abrir() {
+        vigilancias.incrementAndGet();
+        return siguiente.get();
+    }
+
+    void cerrar() {
+        vigilancias.decrementAndGet();
+    }
+}
@@ -1,15 +1,174 @@
 package manager;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+// El contenido se guarda fuera del heap (ver Contenido) y se crea recién con la primera escritura,
+// así los archivos vacíos no pagan nada por él. Las operaciones sobre el contenido son seguras entre hilos.
+// Un cp deja el contenido compartido entre el archivo original y la copia (copy-on-write): el primero que escribe
+// se hace su propia copia, y mientras un cp -r del directorio donde está no terminó de materializarse también
+// se copia el contenido que ese cp todavía tiene que leer (ver MarcaCopia)
 public class Archivo extends FileSystemBase {
+    private volatile Contenido contenido;
+    // Se marca al quitarlo de su directorio con rm o un lote; a diferencia de desenlazado, un mv no lo toca
+    private volatile boolean eliminado;
+
+    // Una modificación del contenido; devuelve cuánto cambió el tamaño
+    private interface Modificacion {
+        long aplicar(Contenido contenido) throws IOException;
+    }
+
     public Archivo(String nombre, Directorio padre) {
         super(nombre, padre);
     }
 
-    @Override
-    public String getRutaCompleta() {
-        if (this.getPadre() == null || this.getPadre().getNombre().equals("/")) { // Si es el raíz
-            return "/" + this.getNombre();
+    public long getTamanio() {
+        Contenido actual = contenido;
+        return actual != null ? actual.tamanio() : 0;
+    }
+
+    /**
+     * Devuelve una vista de solo lectura, sin copiar, de hasta largo bytes desde la posición indicada.
+     * Puede devolver menos bytes que los pedidos (la vista no cruza páginas internas), y ninguno al final del archivo.
+     * La vista refleja el contenido actual: solo es confiable hasta la próxima escritura o truncado del archivo,
+     * pero nunca muestra bytes de otro archivo, aunque este se borre o se trunque a cero.
+     */
+    public ByteBuffer leer(long posicion, int largo) throws IOException {
+        return contenidoParaLeer().leer(posicion, largo);
+    }
+
+    /**
+     * Copia en destino los bytes desde la posición indicada, hasta llenarlo o llegar al final del archivo.
+     * @return La cantidad de bytes copiados, o -1 si la posición está al final del archivo o más allá.
+     */
+    public int leer(long posicion, ByteBuffer destino) throws IOException {
+        return contenidoParaLeer().leer(posicion, destino);
+    }
+
+    /**
+     * Escribe los bytes restantes de datos a partir de la posición indicada, extendiendo el archivo si hace falta.
+     * Si la posición está más allá del final, el hueco queda con ceros.
+     */
+    public void escribir(long posicion, ByteBuffer datos) throws IOException {
+        modificar(actual -> actual.escribir(posicion, datos));
+    }
+
+    /**
+     * Agrega los bytes restantes de datos al final del archivo.
+     */
+    public void agregar(ByteBuffer datos) throws IOException {
+        modificar(actual -> actual.agregar(datos));
+    }
+
+    /**
+     * Cambia el tamaño del archivo: si es menor descarta el resto, si es mayor lo completa con ceros.
+     */
+    public void truncar(long largo) throws IOException {
+        modificar(actual -> actual.truncar(largo));
+    }
+
+    /**
+     * Escribe todo el contenido en el canal sin copiarlo al heap.
+     * @return La cantidad de bytes transferidos (menos que el tamaño solo si el canal es no bloqueante y se llenó).
+     */
+    public long transferirA(WritableByteChannel canal) throws IOException {
+        return transferirA(0, Long.MAX_VALUE, canal);
+    }
+
+    public long transferirA(long posicion, long largo, WritableByteChannel canal) throws IOException {
+        return contenidoParaLeer().transferirA(posicion, largo, canal);
+    }
+
+    // Cada modificación se hace con el archivo bloqueado y dentro del reloj de versiones, así un cp -r que fija
+    // su época en el medio la ve entera o no la ve. El contenido se duplica antes si otro archivo lo comparte
+    // o si un cp -r de un directorio que lo contiene, abierto desde que se escribió, todavía puede leerlo
+    private synchronized void modificar(Modificacion modificacion) throws IOException {
+        RelojVersiones reloj = RelojVersiones.global();
+        long epoca = reloj.entrar();
+        try {
+            Contenido actual = contenido;
+            if (actual == null) {
+                contenido = actual = new Contenido(epoca);
+            } else if (actual.compartido || MarcaCopia.hayEntre(this, actual.epoca, epoca)) {
+                contenido = actual = actual.copiar(epoca, MarcaCopia.masAntiguaSobre(this));
+            }
+            contar(epoca, modificacion.aplicar(actual));
+        } finally {
+            reloj.salir(epoca);
         }
-        return this.getPadre().getRutaCompleta() + "/" + this.getNombre();
+    }
+
+    // El cambio de tamaño se suma a los directorios solo mientras el archivo está en el árbol. Agregarlo o quitarlo
+    // suma o resta lo contado hasta ese momento, así una escritura concurrente no deja bytes de más ni de menos
+    private void contar(long epoca, long delta) {
+        if (delta != 0) {
+            contenido.contados += delta;
+            if (!estaDesenlazado()) {
+                getPadre().propagar(epoca, 0, 0, delta);
+            }
+        }
+    }
+
+    /**
+     * Archivo nuevo que comparte, sin copiarlo, el contenido que este tenía en la época indicada
+     * (Long.MAX_VALUE para el actual). Ninguno de los dos lo vuelve a modificar: el que escribe se hace su copia.
+     */
+    synchronized Archivo copiaEn(long epoca, String nombre, Directorio padre) {
+        Archivo copia = new Archivo(nombre, padre);
+        Contenido actual = contenido;
+        Contenido visible = actual != null ? actual.visibleEn(epoca) : null;
+        if (visible != null) {
+            visible.compartido = true;
+            copia.contenido = visible;
+        }
+        return copia;
+    }
+
+    // Tamaño que tenía en la época indicada
+    long tamanioEn(long epoca) {
+        Contenido actual = contenido;
+        Contenido visible = actual != null ? actual.visibleEn(epoca) : null;
+        return visible != null ? visible.tamanio() : 0;
+    }
+
+    // Lo llama el directorio al agregarlo; devuelve los bytes que pasa a sumar
+    synchronized long enlazar() {
+        marcarDesenlazado(false);
+        Contenido actual = contenido;
+        return actual != null ? actual.contados : 0;
+    }
+
+    // Lo llama el directorio al quitarlo; devuelve los bytes que hay que restar
+    synchronized long desenlazar() {
+        marcarDesenlazado(true);
+        Contenido actual = contenido;
+        return actual != null ? actual.contados : 0;
+    }
+
+    void marcarEliminado(boolean eliminado) {
+        this.eliminado = eliminado;
+    }
+
+    // Si se quitó del árbol, él solo o dentro de un directorio que se quitó
+    boolean estaEliminado() {
+        Directorio padre = getPadre();
+        return eliminado || padre == null || padre.estaDesconectado();
+    }
+
+    // Lo usa el borrado recursivo con el archivo ya fuera del árbol, para no esperar al GC. Un contenido compartido,
+    // o que un cp -r abierto todavía puede leer, queda para el Cleaner. Va con el mismo monitor que copiaEn y modificar,
+    // así un cp que comparte el contenido o una escritura que lo reemplaza no se cruzan con la liberación
+    synchronized void liberarContenido() {
+        Contenido actual = contenido;
+        if (actual != null && !actual.compartido && !MarcaCopia.hayEntre(this, actual.epoca, Long.MAX_VALUE)) {
+            actual.liberar();
+        }
+    }
+
+    // Un archivo sin contenido se lee igual que uno vacío, sin crearle uno
+    private Contenido contenidoParaLeer() {
+        Contenido actual = contenido;
+        return actual != null ? actual : Contenido.VACIO;
     }
 
     @Override
@@ -17,4 +176,3 @@ public class Archivo extends FileSystemBase {
         return "Archivo: " + this.getNombre();
     }
 }
-
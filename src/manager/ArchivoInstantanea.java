@@ -0,0 +1,233 @@
+package manager;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+// Formato binario de una instantánea del árbol y su carga perezosa con el archivo mapeado en memoria
+// Estructura del archivo (en el orden de bytes de la máquina que lo generó):
+//  - encabezado de 32 bytes: magia, versión, marca de orden de bytes, reservado, cantidad de nodos, largo del pool
+//  - tabla de nodos en orden de recorrido en profundidad (preorden), 24 bytes cada uno:
+//    id del nombre, tipo, cantidad de hijos, tamaño del subárbol (el nodo incluido), cantidad de directorios
+//    en el subárbol (el nodo incluido) y profundidad; con estos dos un directorio cargado ya conoce sus totales
+//  - pool de nombres con el formato de TablaNombres, donde cada nombre distinto aparece una sola vez
+// Los hijos de un nodo empiezan en el nodo siguiente y se saltea de un hermano al otro sumando el tamaño
+// de su subárbol, así que un directorio se arma leyendo solo sus hijos directos
+final class ArchivoInstantanea extends FuenteHijos {
+    private static final int MAGIA = 0x46534E50; // "FSNP"
+    private static final int VERSION = 2;
+    private static final int MARCA_ORDEN = 0x01020304;
+    private static final int ENCABEZADO = 32;
+    private static final int NODO = 24;
+    private static final int ARCHIVO = 1;
+    private static final int DIRECTORIO = 2;
+    private static final int BITS_PAGINA = 30;
+
+    private final MemoriaPaginada nodos;
+    private final MemoriaPaginada nombres;
+    private final long cantidadNodos;
+
+    private ArchivoInstantanea(MemoriaPaginada nodos, MemoriaPaginada nombres, long cantidadNodos) {
+        this.nodos = nodos;
+        this.nombres = nombres;
+        this.cantidadNodos = cantidadNodos;
+    }
+
+    long cantidadNodos() {
+        return cantidadNodos;
+    }
+
+    /**
+     * Escribe el árbol tal como lo ve la instantánea. Se escribe primero a un archivo temporal que después
+     * reemplaza al destino, así un archivo mapeado por otro FileSystem nunca queda a medio escribir.
+     */
+    static void guardar(Instantanea foto, Path destino) throws IOException {
+        MemoriaPaginada tabla = new MemoriaPaginada(TablaNombres.BITS_PAGINA);
+        TablaNombres pool = new TablaNombres(1 << 16);
+        try {
+            long cantidad = escribirNodos(foto, tabla, pool);
+
+            ByteBuffer encabezado = ByteBuffer.allocate(ENCABEZADO).order(ByteOrder.nativeOrder());
+            encabezado.putInt(MAGIA).putInt(VERSION).putInt(MARCA_ORDEN).putInt(0)
+                    .putLong(cantidad).putLong(pool.largoPool()).flip();
+
+            Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (encabezado.hasRemaining()) {
+                    canal.write(encabezado);
+                }
+                tabla.escribirEn(canal, cantidad * NODO);
+                pool.escribirPoolEn(canal);
+                canal.force(true);
+            }
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            tabla.liberar();
+            pool.liberar();
+        }
+    }
+
+    // Recorre en preorden con una pila explícita (el árbol puede ser muy profundo) y completa
+    // el tamaño, los directorios y la profundidad del subárbol de cada directorio al terminar con sus hijos
+    private static long escribirNodos(Instantanea foto, MemoriaPaginada tabla, TablaNombres pool) {
+        long epoca = foto.getEpoca();
+        Deque<Pendiente> pila = new ArrayDeque<>();
+        MapaHijos hijosRaiz = foto.getRaiz().hijosEn(epoca);
+        escribirNodo(tabla, pool, 0, "/", DIRECTORIO, hijosRaiz.tamanio());
+        pila.push(new Pendiente(0, hijosRaiz.iterador()));
+        long siguiente = 1;
+
+        while (!pila.isEmpty()) {
+            Pendiente actual = pila.peek();
+            if (!actual.hijos.hasNext()) {
+                pila.pop();
+                long posicion = actual.indice * NODO;
+                tabla.putInt(posicion + 12, (int) (siguiente - actual.indice));
+                tabla.putInt(posicion + 16, actual.directorios);
+                tabla.putInt(posicion + 20, actual.profundidad);
+                Pendiente padre = pila.peek();
+                if (padre != null) {
+                    padre.directorios += actual.directorios;
+                    padre.profundidad = Math.max(padre.profundidad, actual.profundidad + 1);
+                }
+                continue;
+            }
+            if (siguiente == Integer.MAX_VALUE) {
+                throw new IllegalStateException("El árbol supera la cantidad máxima de nodos de una instantánea.");
+            }
+            Map.Entry<String, FileSystemBase> hijo = actual.hijos.next();
+            long indice = siguiente++;
+            if (hijo.getValue() instanceof Directorio dir) {
+                MapaHijos nietos = dir.hijosEn(epoca);
+                escribirNodo(tabla, pool, indice, hijo.getKey(), DIRECTORIO, nietos.tamanio());
+                pila.push(new Pendiente(indice, nietos.iterador()));
+            } else {
+                escribirNodo(tabla, pool, indice, hijo.getKey(), ARCHIVO, 0);
+                tabla.putInt(indice * NODO + 12, 1);
+                tabla.putInt(indice * NODO + 16, 0);
+                tabla.putInt(indice * NODO + 20, 0);
+                actual.profundidad = Math.max(actual.profundidad, 1);
+            }
+        }
+        return siguiente;
+    }
+
+    private static void escribirNodo(MemoriaPaginada tabla, TablaNombres pool, long indice,
+                                     String nombre, int tipo, int cantidadHijos) {
+        long posicion = indice * NODO;
+        tabla.asegurar(posicion + NODO);
+        tabla.putInt(posicion, pool.internar(nombre, 0, nombre.length()));
+        tabla.putInt(posicion + 4, tipo);
+        tabla.putInt(posicion + 8, cantidadHijos);
+    }
+
+    /**
+     * Mapea el archivo en memoria y valida su encabezado; no lee ningún nodo todavía.
+     * El mapeo sigue siendo válido después de cerrar el canal.
+     */
+    static ArchivoInstantanea abrir(Path origen) throws IOException {
+        try (FileChannel canal = FileChannel.open(origen, StandardOpenOption.READ)) {
+            ByteBuffer encabezado = ByteBuffer.allocate(ENCABEZADO).order(ByteOrder.nativeOrder());
+            while (encabezado.hasRemaining()) {
+                if (canal.read(encabezado) < 0) break;
+            }
+            encabezado.flip();
+            if (encabezado.remaining() < ENCABEZADO || encabezado.getInt() != MAGIA) {
+                throw new IOException("El archivo '" + origen + "' no es una instantánea del sistema de archivos.");
+            }
+            if (encabezado.getInt() != VERSION) {
+                throw new IOException("La versión de la instantánea '" + origen + "' no es compatible.");
+            }
+            if (encabezado.getInt() != MARCA_ORDEN) {
+                throw new IOException("La instantánea '" + origen + "' fue generada con otro orden de bytes.");
+            }
+            encabezado.getInt();
+            long cantidad = encabezado.getLong();
+            long largoPool = encabezado.getLong();
+            if (cantidad < 1 || cantidad >= Integer.MAX_VALUE || largoPool < 0
+                    || ENCABEZADO + cantidad * NODO + largoPool != canal.size()) {
+                throw new IOException("La instantánea '" + origen + "' está incompleta o dañada.");
+            }
+            MemoriaPaginada nodos = MemoriaPaginada.mapear(canal, ENCABEZADO, cantidad * NODO, BITS_PAGINA);
+            MemoriaPaginada nombres = MemoriaPaginada.mapear(canal, ENCABEZADO + cantidad * NODO, largoPool, BITS_PAGINA);
+            return new ArchivoInstantanea(nodos, nombres, cantidad);
+        }
+    }
+
+    // Directorio raíz sin materializar: sus hijos se leen del archivo la primera vez que se consultan
+    Directorio raiz() {
+        return new Directorio("/", null, this, 0);
+    }
+
+    // Totales guardados del subárbol de un directorio, sin contarlo a él
+    @Override
+    long archivosEnSubarbol(int indice) {
+        long posicion = (long) indice * NODO;
+        return nodos.getInt(posicion + 12) - nodos.getInt(posicion + 16);
+    }
+
+    @Override
+    long directoriosEnSubarbol(int indice) {
+        return nodos.getInt((long) indice * NODO + 16) - 1;
+    }
+
+    @Override
+    int profundidad(int indice) {
+        return nodos.getInt((long) indice * NODO + 20);
+    }
+
+    // Arma los hijos directos de un nodo; los subdirectorios quedan a su vez sin materializar
+    @Override
+    MapaHijos hijos(Directorio directorio, int indice) {
+        int cantidad = nodos.getInt((long) indice * NODO + 8);
+        Iterator<Map.Entry<String, FileSystemBase>> entradas = new Iterator<>() {
+            private int restantes = cantidad;
+            private int hijo = indice + 1;
+
+            @Override
+            public boolean hasNext() {
+                return restantes > 0;
+            }
+
+            @Override
+            public Map.Entry<String, FileSystemBase> next() {
+                if (restantes == 0) {
+                    throw new NoSuchElementException();
+                }
+                int actual = hijo;
+                long posicion = (long) actual * NODO;
+                hijo += nodos.getInt(posicion + 12);
+                restantes--;
+                String nombre = TablaNombres.texto(nombres, nodos.getInt(posicion));
+                FileSystemBase entrada = nodos.getInt(posicion + 4) == DIRECTORIO
+                        ? new Directorio(nombre, directorio, ArchivoInstantanea.this, actual)
+                        : new Archivo(nombre, directorio);
+                return new AbstractMap.SimpleImmutableEntry<>(nombre, entrada);
+            }
+        };
+        return MapaHijos.desde(entradas, cantidad);
+    }
+
+    private static final class Pendiente {
+        private final long indice;
+        private final Iterator<Map.Entry<String, FileSystemBase>> hijos;
+        private int directorios = 1;
+        private int profundidad;
+
+        private Pendiente(long indice, Iterator<Map.Entry<String, FileSystemBase>> hijos) {
+            this.indice = indice;
+            this.hijos = hijos;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package manager;
+import java.util.ArrayDeque;
+
+// Almacén de nodos fuera del heap: cada nodo es un registro de tamaño fijo identificado por un int,
+// con enlaces a su padre y hermanos guardados como ids en lugar de referencias a objetos.
+// Los hijos se encuentran con una tabla hash (padre, nombre) -> hijo, también fuera del heap,
+// y los nombres se internan en una TablaNombres. El GC no ve nada de esto, sin importar la cantidad de nodos.
+final class ArenaNodos {
+    static final int NINGUNO = -1;
+    static final int RAIZ = 0;
+    static final int ARCHIVO = 1;
+    static final int DIRECTORIO = 2;
+
+    private static final int BITS_PAGINA = 20;
+
+    // Registro de nodo: 8 ints
+    private static final int REGISTRO = 32;
+    private static final int PADRE = 0;
+    private static final int NOMBRE = 4;
+    private static final int TIPO = 8;
+    private static final int PRIMER_HIJO = 12;
+    private static final int SIGUIENTE = 16;
+    private static final int ANTERIOR = 20;
+    private static final int CANTIDAD_HIJOS = 24;
+
+    // Ranura de la tabla de hijos: padre, nombre, hijo + 1 (0 = libre), hash
+    private static final int RANURA = 16;
+
+    private final MemoriaPaginada registros = new MemoriaPaginada(BITS_PAGINA);
+    private final MemoriaPaginada hijos = new MemoriaPaginada(BITS_PAGINA);
+    private final TablaNombres nombres;
+    private int siguienteId;
+    private int primerLibre = NINGUNO;
+    private long cantidadNodos;
+    private long capacidadHijos;
+    private long entradasHijos;
+
+    ArenaNodos(long capacidadInicial) {
+        nombres = new TablaNombres(capacidadInicial);
+        capacidadHijos = Long.highestOneBit(Math.max(1024, capacidadInicial * 2 - 1));
+        hijos.asegurar(capacidadHijos * RANURA);
+        int raiz = nuevoRegistro();
+        registros.putInt(posicion(raiz) + PADRE, NINGUNO);
+        registros.putInt(posicion(raiz) + NOMBRE, nombres.internar("/", 0, 1));
+        registros.putInt(posicion(raiz) + TIPO, DIRECTORIO);
+        registros.putInt(posicion(raiz) + PRIMER_HIJO, NINGUNO);
+    }
+
+    int padre(int id) {
+        return registros.getInt(posicion(id) + PADRE);
+    }
+
+    int tipo(int id) {
+        return registros.getInt(posicion(id) + TIPO);
+    }
+
+    int primerHijo(int id) {
+        return registros.getInt(posicion(id) + PRIMER_HIJO);
+    }
+
+    int siguiente(int id) {
+        return registros.getInt(posicion(id) + SIGUIENTE);
+    }
+
+    int cantidadHijos(int id) {
+        return registros.getInt(posicion(id) + CANTIDAD_HIJOS);
+    }
+
+    String nombre(int id) {
+        return nombres.texto(registros.getInt(posicion(id) + NOMBRE));
+    }
+
+    long cantidadNodos() {
+        return cantidadNodos;
+    }
+
+    long bytesFueraDelHeap() {
+        return registros.capacidad() + hijos.capacidad() + nombres.bytesUsados();
+    }
+
+    // Busca el hijo de nombre ruta[inicio, fin) sin crear ningún objeto; NINGUNO si no existe
+    int buscarHijo(int padre, String ruta, int inicio, int fin) {
+        int nombre = nombres.buscar(ruta, inicio, fin);
+        if (nombre < 0) {
+            return NINGUNO;
+        }
+        long ranura = ranuraDe(padre, nombre);
+        int hijo = hijos.getInt(ranura + 8) - 1;
+        return hijo >= 0 ? hijo : NINGUNO;
+    }
+
+    // Crea un nodo nuevo bajo el padre; quien llama verifica antes que el nombre no exista
+    int crear(int padre, String ruta, int inicio, int fin, int tipo) {
+        return crear(padre, nombres.internar(ruta, inicio, fin), tipo);
+    }
+
+    // Cambia de lugar un nodo con todo su subárbol: los descendientes siguen colgando de su id, así que solo cambian
+    // su enlace y su ranura. Quien llama verifica que el nombre no exista en el destino y que no sea un descendiente
+    void mover(int id, int nuevoPadre, String ruta, int inicio, int fin) {
+        int nombre = nombres.internar(ruta, inicio, fin);
+        desenlazar(id);
+        enlazar(id, nuevoPadre, nombre);
+    }
+
+    // Copia el nodo y todo su subárbol bajo el padre, con el nombre nuevo, sin recursión; devuelve el id de la copia
+    // Cada nodo copiado reutiliza el nombre ya internado. Mismas verificaciones que mover
+    int copiar(int id, int padre, String ruta, int inicio, int fin) {
+        int copia = crear(padre, nombres.internar(ruta, inicio, fin), tipo(id));
+        ArrayDeque<int[]> pendientes = new ArrayDeque<>();
+        pendientes.push(new int[] {id, copia});
+        while (!pendientes.isEmpty()) {
+            int[] par = pendientes.pop();
+            for (int hijo = primerHijo(par[0]); hijo != NINGUNO; hijo = siguiente(hijo)) {
+                int nuevo = crear(par[1], registros.getInt(posicion(hijo) + NOMBRE), tipo(hijo));
+                if (tipo(hijo) == DIRECTORIO) {
+                    pendientes.push(new int[] {hijo, nuevo});
+                }
+            }
+        }
+        return copia;
+    }
+
+    private int crear(int padre, int nombre, int tipo) {
+        int id = nuevoRegistro();
+        long p = posicion(id);
+        registros.putInt(p + TIPO, tipo);
+        registros.putInt(p + PRIMER_HIJO, NINGUNO);
+        registros.putInt(p + CANTIDAD_HIJOS, 0);
+        enlazar(id, padre, nombre);
+        return id;
+    }
+
+    private void enlazar(int id, int padre, int nombre) {
+        long p = posicion(id);
+        registros.putInt(p + PADRE, padre);
+        registros.putInt(p + NOMBRE, nombre);
+        // Se enlaza al principio de la lista de hermanos
+        int primero = primerHijo(padre);
+        registros.putInt(p + SIGUIENTE, primero);
+        registros.putInt(p + ANTERIOR, NINGUNO);
+        if (primero != NINGUNO) {
+            registros.putInt(posicion(primero) + ANTERIOR, id);
+        }
+        registros.putInt(posicion(padre) + PRIMER_HIJO, id);
+        registros.putInt(posicion(padre) + CANTIDAD_HIJOS, cantidadHijos(padre) + 1);
+
+        if ((entradasHijos + 1) * 4 > capacidadHijos * 3) {
+            agrandarHijos();
+        }
+        long ranura = ranuraDe(padre, nombre);
+        hijos.putInt(ranura, padre);
+        hijos.putInt(ranura + 4, nombre);
+        hijos.putInt(ranura + 8, id + 1);
+        hijos.putInt(ranura + 12, hash(padre, nombre));
+        entradasHijos++;
+    }
+
+    // Elimina un nodo sin hijos y deja su registro para reutilizar
+    void eliminar(int id) {
+        desenlazar(id);
+        liberarRegistro(id);
+    }
+
+    // Quita un nodo de su padre, pero conserva su registro (y su enlace al padre); sus hijos, si tiene, no se tocan
+    void desenlazar(int id) {
+        long p = posicion(id);
+        int padre = registros.getInt(p + PADRE);
+        int nombre = registros.getInt(p + NOMBRE);
+        int anterior = registros.getInt(p + ANTERIOR);
+        int siguiente = registros.getInt(p + SIGUIENTE);
+        if (anterior != NINGUNO) {
+            registros.putInt(posicion(anterior) + SIGUIENTE, siguiente);
+        } else {
+            registros.putInt(posicion(padre) + PRIMER_HIJO, siguiente);
+        }
+        if (siguiente != NINGUNO) {
+            registros.putInt(posicion(siguiente) + ANTERIOR, anterior);
+        }
+        registros.putInt(posicion(padre) + CANTIDAD_HIJOS, cantidadHijos(padre) - 1);
+        quitarRanura(ranuraDe(padre, nombre));
+    }
+
+    void liberarRegistro(int id) {
+        long p = posicion(id);
+        registros.putInt(p + TIPO, 0);
+        registros.putInt(p + SIGUIENTE, primerLibre);
+        primerLibre = id;
+        cantidadNodos--;
+    }
+
+    void liberar() {
+        registros.liberar();
+        hijos.liberar();
+        nombres.liberar();
+    }
+
+    private int nuevoRegistro() {
+        int id;
+        if (primerLibre != NINGUNO) {
+            id = primerLibre;
+            primerLibre = registros.getInt(posicion(id) + SIGUIENTE);
+        } else {
+            if (siguienteId == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Se alcanzó la cantidad máxima de nodos del arena.");
+            }
+            id = siguienteId++;
+            registros.asegurar(posicion(id) + REGISTRO);
+        }
+        cantidadNodos++;
+        return id;
+    }
+
+    private static long posicion(int id) {
+        return (long) id * REGISTRO;
+    }
+
+    // Ranura donde está la clave (padre, nombre) o la primera libre donde iría
+    private long ranuraDe(int padre, int nombre) {
+        long mascara = capacidadHijos - 1;
+        for (long i = hash(padre, nombre) & mascara; ; i = (i + 1) & mascara) {
+            long ranura = i * RANURA;
+            if (hijos.getInt(ranura + 8) == 0
+                    || (hijos.getInt(ranura) == padre && hijos.getInt(ranura + 4) == nombre)) {
+                return ranura;
+            }
+        }
+    }
+
+    // Borrado con corrimiento hacia atrás: sondeo lineal sin marcas de borrado
+    private void quitarRanura(long ranura) {
+        long mascara = capacidadHijos - 1;
+        long libre = ranura / RANURA;
+        long j = libre;
+        while (true) {
+            j = (j + 1) & mascara;
+            long rj = j * RANURA;
+            if (hijos.getInt(rj + 8) == 0) break;
+            long origen = hijos.getInt(rj + 12) & mascara;
+            // Se mueve si su posición original no queda entre el hueco (exclusivo) y j (inclusivo)
+            boolean mover = libre <= j ? (origen <= libre || origen > j) : (origen <= libre && origen > j);
+            if (mover) {
+                long rl = libre * RANURA;
+                for (int k = 0; k < RANURA; k += 4) {
+                    hijos.putInt(rl + k, hijos.getInt(rj + k));
+                }
+                libre = j;
+            }
+        }
+        long rl = libre * RANURA;
+        for (int k = 0; k < RANURA; k += 4) {
+            hijos.putInt(rl + k, 0);
+        }
+        entradasHijos--;
+    }
+
+    private void agrandarHijos() {
+        long capacidadVieja = capacidadHijos;
+        MemoriaPaginada vieja = new MemoriaPaginada(BITS_PAGINA);
+        vieja.asegurar(capacidadVieja * RANURA);
+        for (long i = 0; i < capacidadVieja * RANURA; i += 4) {
+            vieja.putInt(i, hijos.getInt(i));
+        }
+        capacidadHijos = capacidadVieja * 2;
+        hijos.liberar();
+        hijos.asegurar(capacidadHijos * RANURA);
+        long mascara = capacidadHijos - 1;
+        for (long i = 0; i < capacidadVieja; i++) {
+            long rv = i * RANURA;
+            if (vieja.getInt(rv + 8) == 0) continue;
+            long j = vieja.getInt(rv + 12) & mascara;
+            while (hijos.getInt(j * RANURA + 8) != 0) {
+                j = (j + 1) & mascara;
+            }
+            for (int k = 0; k < RANURA; k += 4) {
+                hijos.putInt(j * RANURA + k, vieja.getInt(rv + k));
+            }
+        }
+        vieja.liberar();
+    }
+
+    private static int hash(int padre, int nombre) {
+        long h = ((long) padre << 32 | (nombre & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 33);
+    }
+}
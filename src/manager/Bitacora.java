@@ -0,0 +1,518 @@
+package manager;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Bitácora de escritura anticipada (write-ahead log) de las modificaciones del árbol
+// Cada mkdir, touch, rm, rm -r, mv y cp exitoso encola un registro con la ruta absoluta afectada y espera a que esté en disco.
+// Un único hilo escritor junta los registros de todos los hilos y los baja en lotes con un solo force()
+// (group commit): se escribe cuando el lote llega al tamaño configurado o vence el intervalo desde el primero.
+// Los registros se numeran en orden y se guardan en segmentos "bitacora-<primera secuencia>.log";
+// al compactar se empieza un segmento nuevo y se borran los que ya quedaron cubiertos por una instantánea.
+// Formato de cada registro: int crc, int largo, byte tipo y la ruta en UTF-8.
+// Un lote (ver Lote) es un único registro cuyo contenido son sus operaciones, cada una con byte tipo, int largo y ruta:
+// el CRC lo cubre entero, así que tras una caída se reproduce completo o no se reproduce.
+// Un mv o un cp lleva dos rutas: int largo de la de origen, esa ruta y a continuación la de destino.
+final class Bitacora {
+    static final byte MKDIR = 1;
+    static final byte TOUCH = 2;
+    static final byte RM = 3;
+    static final byte RM_RECURSIVO = 4;
+    static final byte LOTE = 5;
+    static final byte MV = 6;
+    static final byte CP = 7;
+
+    // Lo devuelve registrar() cuando el directorio destino ya quedó dentro de un subárbol borrado con rm -r
+    static final long RECHAZADO = Long.MIN_VALUE;
+
+    private static final int MAGIA = 0x46534C47; // "FSLG"
+    private static final int ENCABEZADO_SEGMENTO = 12; // int magia + long primera secuencia
+    private static final int ENCABEZADO_REGISTRO = 9;
+    private static final int TAMANIO_BUFFER = 1 << 16;
+    private static final String PREFIJO = "bitacora-";
+    private static final String EXTENSION = ".log";
+
+    // Aplica un registro durante la reproducción de la bitácora; destino es null salvo en un mv o un cp
+    interface Reproductor {
+        void aplicar(byte tipo, String ruta, String destino);
+    }
+
+    private final Path carpeta;
+    private final int tamanioLote;
+    private final long intervaloNanos;
+    private final long registrosPorCompactacion;
+    private final Runnable compactar;
+    private final Thread escritor;
+
+    // Todo lo siguiente se protege con el monitor de la bitácora, salvo el canal, que solo usa el escritor
+    private FileChannel canal;
+    private List<Registro> pendientes = new ArrayList<>();
+    private long primerPendienteNanos;
+    private long siguiente;
+    private long durable;
+    private long inicioSegmento;
+    private long numeroSegmento;
+    private long rotaciones;
+    // Registros encolados cuyo cambio todavía no se publicó, por paridad del segmento en que se encolaron
+    private final long[] enVuelo = new long[2];
+    private long registrosDesdeCompactacion;
+    private boolean compactando;
+    private boolean rotacionPedida;
+    private boolean cerrando;
+    private IOException error;
+
+    Bitacora(Path carpeta, long primeraSecuencia, int tamanioLote, long intervaloMicros,
+             long registrosPorCompactacion, Runnable compactar) throws IOException {
+        if (tamanioLote < 1 || intervaloMicros < 0) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser positivo y el intervalo no puede ser negativo.");
+        }
+        this.carpeta = carpeta;
+        this.tamanioLote = tamanioLote;
+        this.intervaloNanos = TimeUnit.MICROSECONDS.toNanos(intervaloMicros);
+        this.registrosPorCompactacion = registrosPorCompactacion;
+        this.compactar = compactar;
+        this.siguiente = primeraSecuencia;
+        this.durable = primeraSecuencia - 1;
+        this.inicioSegmento = primeraSecuencia;
+        this.canal = crearSegmento(primeraSecuencia);
+        this.escritor = new Thread(this::escribir, "escritor-bitacora");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    /**
+     * Encola un registro y devuelve su número de secuencia. Se llama con el bloqueo del directorio tomado
+     * y antes de publicar el cambio, para que el orden de la bitácora respete el de las operaciones que dependen entre sí.
+     * Después de publicarlo hay que llamar a terminar() con la secuencia devuelta.
+     * Si el destino ya fue desconectado por un rm -r no se encola nada y se devuelve RECHAZADO: la comprobación se hace
+     * bajo el mismo monitor que ordena los registros, así que ningún cambio dentro del subárbol queda después del borrado.
+     */
+    long registrar(byte tipo, String ruta, Directorio destino) {
+        return encolar(new Registro(tipo, ruta.getBytes(StandardCharsets.UTF_8)), List.of(destino));
+    }
+
+    // Para un mv o un cp, con los bloqueos de los dos directorios padre tomados
+    long registrar(byte tipo, String ruta, String destino, Collection<Directorio> destinos) {
+        byte[] origen = ruta.getBytes(StandardCharsets.UTF_8);
+        byte[] hacia = destino.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer contenido = ByteBuffer.allocate(4 + origen.length + hacia.length).order(ByteOrder.LITTLE_ENDIAN);
+        contenido.putInt(origen.length).put(origen).put(hacia);
+        return encolar(new Registro(tipo, contenido.array()), destinos);
+    }
+
+    /**
+     * Igual que registrar, pero para todas las operaciones de un lote en un solo registro, con los bloqueos
+     * de todos los directorios que modifica tomados. Se rechaza entero si alguno de ellos ya fue desconectado.
+     */
+    long registrarLote(byte[] tipos, String[] rutas, Collection<Directorio> destinos) {
+        byte[][] codificadas = new byte[rutas.length][];
+        int largo = 0;
+        for (int i = 0; i < rutas.length; i++) {
+            codificadas[i] = rutas[i].getBytes(StandardCharsets.UTF_8);
+            largo += 5 + codificadas[i].length;
+        }
+        ByteBuffer contenido = ByteBuffer.allocate(largo).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < rutas.length; i++) {
+            contenido.put(tipos[i]).putInt(codificadas[i].length).put(codificadas[i]);
+        }
+        return encolar(new Registro(LOTE, contenido.array()), destinos);
+    }
+
+    private long encolar(Registro registro, Collection<Directorio> destinos) {
+        long secuencia;
+        boolean iniciarCompactacion;
+        synchronized (this) {
+            if (cerrando) {
+                throw new IllegalStateException("La bitácora ya fue cerrada.");
+            }
+            if (error != null) {
+                throw new UncheckedIOException("No se pudo escribir la bitácora.", error);
+            }
+            for (Directorio destino : destinos) {
+                if (destino.estaDesconectado()) {
+                    return RECHAZADO;
+                }
+            }
+            if (pendientes.isEmpty()) {
+                primerPendienteNanos = System.nanoTime();
+            }
+            pendientes.add(registro);
+            if (pendientes.size() >= tamanioLote) {
+                notifyAll();
+            }
+            enVuelo[(int) (numeroSegmento & 1)]++;
+            secuencia = siguiente++;
+            iniciarCompactacion = registrosPorCompactacion > 0 && !compactando
+                    && ++registrosDesdeCompactacion >= registrosPorCompactacion;
+            if (iniciarCompactacion) {
+                compactando = true;
+            }
+        }
+        if (iniciarCompactacion) {
+            Thread compactador = new Thread(compactar, "compactador-bitacora");
+            compactador.setDaemon(true);
+            compactador.start();
+        }
+        return secuencia;
+    }
+
+    // Indica que el cambio del registro ya se publicó en el árbol
+    synchronized void terminar(long secuencia) {
+        long segmento = secuencia >= inicioSegmento ? numeroSegmento : numeroSegmento - 1;
+        if (--enVuelo[(int) (segmento & 1)] == 0) {
+            notifyAll();
+        }
+    }
+
+    // Bloquea hasta que el registro esté en disco
+    synchronized void esperar(long secuencia) {
+        boolean interrumpido = false;
+        while (durable < secuencia && error == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+        }
+        if (interrumpido) {
+            Thread.currentThread().interrupt();
+        }
+        if (durable < secuencia) {
+            throw new UncheckedIOException("No se pudo escribir la bitácora.", error);
+        }
+    }
+
+    /**
+     * Cierra el segmento actual y empieza uno nuevo. Devuelve la primera secuencia del segmento nuevo,
+     * después de esperar a que todos los cambios anteriores a ella estén publicados en el árbol:
+     * una instantánea tomada a partir de ese momento ya los contiene.
+     */
+    synchronized long rotar() throws IOException {
+        long anteriores = rotaciones;
+        rotacionPedida = true;
+        notifyAll();
+        boolean interrumpido = false;
+        try {
+            // Se espera a que el escritor fije el corte y termine de bajar y cerrar el segmento anterior
+            while ((rotaciones == anteriores || durable < inicioSegmento - 1) && error == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrumpido = true;
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+            while (enVuelo[(int) ((numeroSegmento - 1) & 1)] > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrumpido = true;
+                }
+            }
+            registrosDesdeCompactacion = siguiente - inicioSegmento;
+            return inicioSegmento;
+        } finally {
+            if (interrumpido) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    synchronized void compactacionTerminada() {
+        compactando = false;
+    }
+
+    // Borra los segmentos cuyos registros son todos anteriores a la secuencia indicada
+    void eliminarSegmentosAnteriores(long secuencia) throws IOException {
+        List<Path> segmentos = segmentos(carpeta);
+        for (int i = 0; i + 1 < segmentos.size() && primeraSecuencia(segmentos.get(i + 1)) <= secuencia; i++) {
+            Files.deleteIfExists(segmentos.get(i));
+        }
+    }
+
+    // Baja lo pendiente, detiene el escritor y cierra el segmento actual
+    void cerrar() throws IOException {
+        synchronized (this) {
+            if (cerrando) {
+                return;
+            }
+            cerrando = true;
+            notifyAll();
+        }
+        boolean interrumpido = false;
+        while (escritor.isAlive()) {
+            try {
+                escritor.join();
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+        }
+        if (interrumpido) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+
+    private void escribir() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANIO_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc = new CRC32();
+        List<Registro> libre = new ArrayList<>();
+        while (true) {
+            List<Registro> lote;
+            long ultima;
+            boolean rotar;
+            boolean terminar;
+            synchronized (this) {
+                try {
+                    esperarLote();
+                } catch (InterruptedException e) {
+                    // El escritor solo termina al cerrar la bitácora
+                    continue;
+                }
+                lote = pendientes;
+                pendientes = libre;
+                ultima = siguiente - 1;
+                terminar = cerrando;
+                // El corte entre segmentos se fija acá, junto con el lote: todo lo encolado desde ahora va al segmento nuevo.
+                // Si el segmento actual no tiene registros no hace falta empezar otro
+                rotar = rotacionPedida && !terminar && siguiente > inicioSegmento;
+                if (rotacionPedida) {
+                    rotacionPedida = false;
+                    rotaciones++;
+                    if (rotar) {
+                        inicioSegmento = siguiente;
+                        numeroSegmento++;
+                    }
+                }
+            }
+            try {
+                for (Registro registro : lote) {
+                    registro.escribir(canal, buffer, crc);
+                }
+                vaciar(canal, buffer);
+                if (!lote.isEmpty()) {
+                    canal.force(false);
+                }
+                if (rotar || terminar) {
+                    canal.close();
+                }
+                if (rotar) {
+                    canal = crearSegmento(ultima + 1);
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    error = e;
+                    notifyAll();
+                }
+                return;
+            }
+            lote.clear();
+            libre = lote;
+            synchronized (this) {
+                durable = ultima;
+                notifyAll();
+                if (terminar) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Espera hasta tener un lote completo, vencer el intervalo o recibir un pedido de rotación o de cierre
+    private void esperarLote() throws InterruptedException {
+        while (pendientes.isEmpty() && !rotacionPedida && !cerrando) {
+            wait();
+        }
+        while (pendientes.size() < tamanioLote && !rotacionPedida && !cerrando) {
+            long restante = primerPendienteNanos + intervaloNanos - System.nanoTime();
+            if (restante <= 0) {
+                return;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, restante);
+        }
+    }
+
+    private FileChannel crearSegmento(long primeraSecuencia) throws IOException {
+        FileChannel nuevo = FileChannel.open(carpeta.resolve(nombreSegmento(primeraSecuencia)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer encabezado = ByteBuffer.allocate(ENCABEZADO_SEGMENTO).order(ByteOrder.LITTLE_ENDIAN);
+        encabezado.putInt(MAGIA).putLong(primeraSecuencia).flip();
+        while (encabezado.hasRemaining()) {
+            nuevo.write(encabezado);
+        }
+        nuevo.force(true);
+        return nuevo;
+    }
+
+    /**
+     * Aplica en orden los registros con secuencia mayor o igual a desde y devuelve la secuencia siguiente a la última.
+     * Un registro incompleto o dañado al final de un segmento (una escritura cortada por una caída)
+     * se descarta junto con lo que sigue en ese segmento, y el archivo se trunca ahí.
+     */
+    static long reproducir(Path carpeta, long desde, Reproductor reproductor) throws IOException {
+        long siguiente = desde;
+        for (Path segmento : segmentos(carpeta)) {
+            long fin;
+            try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                fin = reproducirSegmento(canal, desde, reproductor);
+            }
+            if (fin < 0) {
+                // Segmento creado justo antes de una caída, sin ningún registro: no aporta nada
+                // y su nombre podría coincidir con el del segmento nuevo
+                Files.delete(segmento);
+            } else {
+                siguiente = Math.max(siguiente, fin);
+            }
+        }
+        return siguiente;
+    }
+
+    // Devuelve la secuencia siguiente al último registro válido del segmento, o -1 si no tiene ninguno
+    private static long reproducirSegmento(FileChannel canal, long desde, Reproductor reproductor) throws IOException {
+        ByteBuffer encabezado = leer(canal, 0, ENCABEZADO_SEGMENTO);
+        if (encabezado == null || encabezado.getInt() != MAGIA) {
+            return -1;
+        }
+        CRC32 crc = new CRC32();
+        long secuencia = encabezado.getLong();
+        long posicion = ENCABEZADO_SEGMENTO;
+        while (true) {
+            ByteBuffer cabecera = leer(canal, posicion, ENCABEZADO_REGISTRO);
+            if (cabecera == null) break;
+            int esperado = cabecera.getInt();
+            int largo = cabecera.getInt();
+            byte tipo = cabecera.get();
+            ByteBuffer ruta = largo >= 0 ? leer(canal, posicion + ENCABEZADO_REGISTRO, largo) : null;
+            if (ruta == null) break;
+            crc.reset();
+            crc.update(tipo);
+            crc.update(ruta.duplicate());
+            if ((int) crc.getValue() != esperado) break;
+            if (secuencia >= desde) {
+                if (tipo == LOTE) {
+                    reproducirLote(ruta, reproductor);
+                } else if (tipo == MV || tipo == CP) {
+                    reproducirPar(tipo, ruta, reproductor);
+                } else {
+                    reproductor.aplicar(tipo, StandardCharsets.UTF_8.decode(ruta).toString(), null);
+                }
+            }
+            secuencia++;
+            posicion += ENCABEZADO_REGISTRO + largo;
+        }
+        if (posicion == ENCABEZADO_SEGMENTO) {
+            return -1;
+        }
+        if (posicion < canal.size()) {
+            canal.truncate(posicion);
+        }
+        return secuencia;
+    }
+
+    private static void reproducirLote(ByteBuffer contenido, Reproductor reproductor) {
+        while (contenido.hasRemaining()) {
+            byte tipo = contenido.get();
+            int largo = contenido.getInt();
+            ByteBuffer ruta = contenido.slice(contenido.position(), largo);
+            contenido.position(contenido.position() + largo);
+            reproductor.aplicar(tipo, StandardCharsets.UTF_8.decode(ruta).toString(), null);
+        }
+    }
+
+    private static void reproducirPar(byte tipo, ByteBuffer contenido, Reproductor reproductor) {
+        int largo = contenido.getInt();
+        ByteBuffer origen = contenido.slice(contenido.position(), largo);
+        ByteBuffer destino = contenido.slice(contenido.position() + largo, contenido.remaining() - largo);
+        reproductor.aplicar(tipo, StandardCharsets.UTF_8.decode(origen).toString(),
+                StandardCharsets.UTF_8.decode(destino).toString());
+    }
+
+    static String nombreSegmento(long primeraSecuencia) {
+        return String.format("%s%020d%s", PREFIJO, primeraSecuencia, EXTENSION);
+    }
+
+    // Segmentos de la carpeta ordenados por su primera secuencia
+    private static List<Path> segmentos(Path carpeta) throws IOException {
+        try (Stream<Path> archivos = Files.list(carpeta)) {
+            return archivos.filter(p -> {
+                String nombre = p.getFileName().toString();
+                return nombre.startsWith(PREFIJO) && nombre.endsWith(EXTENSION);
+            }).sorted().toList();
+        }
+    }
+
+    private static long primeraSecuencia(Path segmento) {
+        String nombre = segmento.getFileName().toString();
+        return Long.parseLong(nombre.substring(PREFIJO.length(), nombre.length() - EXTENSION.length()));
+    }
+
+    // Lee exactamente largo bytes desde la posición; null si el archivo termina antes
+    private static ByteBuffer leer(FileChannel canal, long posicion, int largo) throws IOException {
+        if (posicion + largo > canal.size()) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(largo).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer, posicion + buffer.position()) < 0) {
+                return null;
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void vaciar(FileChannel canal, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static final class Registro {
+        private final byte tipo;
+        private final byte[] ruta;
+
+        private Registro(byte tipo, byte[] ruta) {
+            this.tipo = tipo;
+            this.ruta = ruta;
+        }
+
+        private void escribir(FileChannel canal, ByteBuffer buffer, CRC32 crc) throws IOException {
+            crc.reset();
+            crc.update(tipo);
+            crc.update(ruta);
+            if (buffer.remaining() < ENCABEZADO_REGISTRO + ruta.length) {
+                vaciar(canal, buffer);
+            }
+            buffer.putInt((int) crc.getValue()).putInt(ruta.length).put(tipo);
+            if (buffer.remaining() >= ruta.length) {
+                buffer.put(ruta);
+            } else {
+                // Una ruta más grande que el buffer se escribe directamente
+                vaciar(canal, buffer);
+                ByteBuffer directa = ByteBuffer.wrap(ruta);
+                while (directa.hasRemaining()) {
+                    canal.write(directa);
+                }
+            }
+        }
+    }
+}
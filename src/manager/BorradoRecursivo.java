@@ -0,0 +1,173 @@
+package manager;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Resultado de un rm -r. El subárbol se quita de su padre en el momento, así que para el resto del sistema
+// desaparece de inmediato; sus nodos se recorren después en segundo plano con un ForkJoinPool, que marca
+// cada directorio como eliminado, vacía su versión actual y devuelve la memoria del contenido de los archivos.
+// Las instantáneas abiertas antes del borrado siguen viendo el subárbol completo (ver Directorio.vaciar)
+public final class BorradoRecursivo {
+    // Por encima de esta cantidad de hijos, el recorrido de un directorio se divide entre varias tareas
+    private static final int UMBRAL_DIVISION = 1024;
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private final CodigoResultado resultado;
+    // Recibe cada directorio ya vaciado; null si no hay nada que hacer con ellos
+    private final Consumer<Directorio> alVaciar;
+    private final LongAdder archivos = new LongAdder();
+    private final LongAdder directorios = new LongAdder();
+    private final CompletableFuture<BorradoRecursivo> terminado = new CompletableFuture<>();
+
+    private BorradoRecursivo(CodigoResultado resultado, Consumer<Directorio> alVaciar) {
+        this.resultado = resultado;
+        this.alVaciar = alVaciar;
+    }
+
+    // Borrado que no llega a empezar (por ejemplo, la ruta no existe) o que se hizo entero en el momento
+    static BorradoRecursivo terminado(CodigoResultado resultado, long archivos, long directorios) {
+        BorradoRecursivo borrado = new BorradoRecursivo(resultado, null);
+        borrado.archivos.add(archivos);
+        borrado.directorios.add(directorios);
+        borrado.terminado.complete(borrado);
+        return borrado;
+    }
+
+    // Recorre en segundo plano un subárbol ya quitado de su padre; el Runnable se ejecuta al terminar
+    static BorradoRecursivo liberar(FileSystemBase raiz, Consumer<Directorio> alVaciar, Runnable alTerminar) {
+        BorradoRecursivo borrado = new BorradoRecursivo(CodigoResultado.OK, alVaciar);
+        POOL.execute(new Poda(null, borrado, alTerminar, raiz, null, 0, 0));
+        return borrado;
+    }
+
+    public CodigoResultado getResultado() {
+        return resultado;
+    }
+
+    // Archivos liberados hasta el momento (el total, una vez terminado)
+    public long getArchivos() {
+        return archivos.sum();
+    }
+
+    // Directorios liberados hasta el momento, incluido el borrado
+    public long getDirectorios() {
+        return directorios.sum();
+    }
+
+    public boolean estaTerminado() {
+        return terminado.isDone();
+    }
+
+    /**
+     * Espera a que se liberen todos los nodos del subárbol.
+     * @return Este mismo borrado, con los totales ya definitivos.
+     */
+    public BorradoRecursivo esperar() {
+        return terminado.join();
+    }
+
+    // Se completa cuando termina la liberación, para encadenar acciones sin bloquear
+    public CompletableFuture<BorradoRecursivo> alTerminar() {
+        return terminado.copy();
+    }
+
+    // Cada tarea libera un nodo, o un rango de los hijos de un directorio grande. No se espera a las subtareas
+    // (CountedCompleter), así que la profundidad del árbol no se traduce en profundidad de pila
+    private static final class Poda extends CountedCompleter<Void> {
+        private static final long serialVersionUID = 1L;
+
+        private final BorradoRecursivo borrado;
+        private final Runnable alTerminar;
+        private final FileSystemBase nodo;
+        private final FileSystemBase[] hijos;
+        private final int desde;
+        private final int hasta;
+
+        private Poda(Poda padre, BorradoRecursivo borrado, Runnable alTerminar, FileSystemBase nodo,
+                     FileSystemBase[] hijos, int desde, int hasta) {
+            super(padre);
+            this.borrado = borrado;
+            this.alTerminar = alTerminar;
+            this.nodo = nodo;
+            this.hijos = hijos;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        public void compute() {
+            if (nodo != null) {
+                liberarNodo(nodo);
+            } else {
+                liberarRango(hijos, desde, hasta);
+            }
+            tryComplete();
+        }
+
+        private void liberarNodo(FileSystemBase actual) {
+            if (actual instanceof Archivo archivo) {
+                archivo.liberarContenido();
+                borrado.archivos.increment();
+                return;
+            }
+            Directorio directorio = (Directorio) actual;
+            MapaHijos mapa = directorio.vaciar();
+            if (borrado.alVaciar != null) {
+                borrado.alVaciar.accept(directorio);
+            }
+            borrado.directorios.increment();
+            int cantidad = mapa.tamanio();
+            if (cantidad == 0) {
+                return;
+            }
+            FileSystemBase[] arreglo = new FileSystemBase[cantidad];
+            Iterator<Map.Entry<String, FileSystemBase>> entradas = mapa.iterador();
+            for (int i = 0; i < cantidad; i++) {
+                arreglo[i] = entradas.next().getValue();
+            }
+            liberarRango(arreglo, 0, cantidad);
+        }
+
+        private void liberarRango(FileSystemBase[] arreglo, int inicio, int fin) {
+            // Se reparten mitades a otras tareas hasta que el rango es chico
+            while (fin - inicio > UMBRAL_DIVISION) {
+                int medio = (inicio + fin) >>> 1;
+                addToPendingCount(1);
+                new Poda(this, borrado, null, null, arreglo, medio, fin).fork();
+                fin = medio;
+            }
+            for (int i = inicio; i < fin; i++) {
+                FileSystemBase hijo = arreglo[i];
+                if (hijo instanceof Archivo archivo) {
+                    archivo.liberarContenido();
+                    borrado.archivos.increment();
+                } else {
+                    addToPendingCount(1);
+                    new Poda(this, borrado, null, hijo, null, 0, 0).fork();
+                }
+            }
+        }
+
+        @Override
+        public void onCompletion(CountedCompleter<?> llamador) {
+            if (getCompleter() == null) {
+                alTerminar.run();
+                borrado.terminado.complete(borrado);
+            }
+        }
+
+        @Override
+        public boolean onExceptionalCompletion(Throwable error, CountedCompleter<?> llamador) {
+            if (getCompleter() == null) {
+                alTerminar.run();
+                borrado.terminado.completeExceptionally(error);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package manager;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Cache acotada de resolución de rutas absolutas a Directorio, con desalojo LRU
+// Una entrada deja de ser válida si cambió la generación de rutas (renombre o movimiento
+// de algún directorio) o si el directorio (o alguno de sus ancestros) fue eliminado, así que no hace falta recorrerla para invalidar
+// Para que varias sesiones concurrentes no compitan por un único bloqueo, la cache se divide
+// en segmentos independientes según el hash de la ruta; el LRU es por segmento
+public class CacheRutas {
+    private static final int MAX_SEGMENTOS = 16;
+
+    private final int capacidad;
+    private final Segmento[] segmentos;
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+
+    public CacheRutas(int capacidad) {
+        if (capacidad < 0) {
+            throw new IllegalArgumentException("La capacidad de la cache no puede ser negativa.");
+        }
+        this.capacidad = capacidad;
+        int cantidad = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTOS, capacidad / 64)));
+        int capacidadSegmento = (capacidad + cantidad - 1) / cantidad;
+        this.segmentos = new Segmento[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            segmentos[i] = new Segmento(capacidadSegmento);
+        }
+    }
+
+    boolean estaActiva() {
+        return capacidad > 0;
+    }
+
+    Directorio buscar(String ruta) {
+        if (capacidad == 0) return null;
+        Directorio directorio = segmento(ruta).buscar(ruta);
+        if (directorio != null) {
+            aciertos.increment();
+        } else {
+            fallos.increment();
+        }
+        return directorio;
+    }
+
+    // La generación debe leerse antes de resolver la ruta, para no validar un resultado ya viejo
+    void guardar(String ruta, Directorio directorio, long generacion) {
+        if (capacidad == 0) return;
+        segmento(ruta).guardar(ruta, new Entrada(directorio, generacion));
+    }
+
+    public void limpiar() {
+        for (Segmento segmento : segmentos) {
+            segmento.limpiar();
+        }
+    }
+
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    public int getTamanio() {
+        int tamanio = 0;
+        for (Segmento segmento : segmentos) {
+            tamanio += segmento.tamanio();
+        }
+        return tamanio;
+    }
+
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    private Segmento segmento(String ruta) {
+        int h = ruta.hashCode();
+        return segmentos[(h ^ (h >>> 16)) & (segmentos.length - 1)];
+    }
+
+    private static final class Segmento {
+        private final Map<String, Entrada> entradas;
+
+        private Segmento(int capacidad) {
+            this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+                    return size() > capacidad;
+                }
+            };
+        }
+
+        private synchronized Directorio buscar(String ruta) {
+            Entrada entrada = entradas.get(ruta);
+            if (entrada == null) {
+                return null;
+            }
+            if (!entrada.esValida()) {
+                entradas.remove(ruta);
+                return null;
+            }
+            return entrada.directorio;
+        }
+
+        private synchronized void guardar(String ruta, Entrada entrada) {
+            entradas.put(ruta, entrada);
+        }
+
+        private synchronized void limpiar() {
+            entradas.clear();
+        }
+
+        private synchronized int tamanio() {
+            return entradas.size();
+        }
+    }
+
+    private static final class Entrada {
+        private final Directorio directorio;
+        private final long generacion;
+
+        private Entrada(Directorio directorio, long generacion) {
+            this.directorio = directorio;
+            this.generacion = generacion;
+        }
+
+        private boolean esValida() {
+            return generacion == FileSystemBase.generacionActual() && !directorio.estaDesconectado();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package manager;
+
+// Resultado de un comando de SistemaArchivos
+// Los comandos no imprimen ni arman mensajes: devuelven uno de estos códigos y el texto
+// para el usuario lo decide quien los muestra (ver consola.Consola)
+public enum CodigoResultado {
+    OK,
+    // El nombre o la ruta es nulo o vacío
+    NOMBRE_VACIO,
+    // La ruta no nombra una entrada nueva: termina en "." o "..", o es solo "/"
+    NOMBRE_INVALIDO,
+    // El destino de cd o la entrada a eliminar no existe
+    NO_ENCONTRADO,
+    // No existe el directorio que debería contener la entrada a crear o eliminar
+    RUTA_INEXISTENTE,
+    YA_EXISTE,
+    DIRECTORIO_NO_VACIO,
+    // mv o cp de un directorio a sí mismo o a uno de sus descendientes
+    DESTINO_DENTRO_DEL_ORIGEN,
+    // cd ".." desde la raíz
+    EN_LA_RAIZ,
+    // La entrada está en un montaje de solo lectura
+    SOLO_LECTURA,
+    // mv entre montajes distintos; mv, rm o desmontaje de un directorio que contiene un punto de montaje;
+    // o un lote con cambios en un montaje que no está en memoria
+    OTRO_MONTAJE,
+    // El almacén del montaje no pudo aplicar el cambio (por ejemplo, falló la escritura en la carpeta)
+    ERROR_ALMACEN;
+
+    public boolean esExito() {
+        return this == OK;
+    }
+}
@@ -0,0 +1,383 @@
+package manager;
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Contenido de un archivo guardado en páginas fuera del heap
+// Mientras el archivo es chico las páginas son bloques del PoolBloques; al superar UMBRAL_MAPEO el contenido
+// se vuelca a un archivo temporal de respaldo y las páginas pasan a ser regiones grandes mapeadas de ese archivo.
+// Las páginas se crean a medida que se escriben: una página que nunca se escribió se lee como ceros.
+// Invariante: todo byte más allá del tamaño es cero, así extender el archivo no expone datos viejos.
+// Los recursos (bloques y archivo de respaldo) se liberan al truncar a cero o cuando el archivo deja de ser alcanzable.
+// Un contenido puede quedar compartido entre varios archivos por un cp; desde ahí ninguno lo modifica y el primero
+// que escribe se hace su propia copia (ver Archivo). Las copias forman una cadena de versiones por época, como
+// VersionDirectorio, para que un cp -r todavía no materializado lea cada archivo tal como estaba al copiarlo
+final class Contenido {
+    static final long UMBRAL_MAPEO = 1 << 20;
+    private static final int BITS_REGION = 26;
+    private static final Cleaner LIMPIADOR = Cleaner.create();
+    private static final byte[] CEROS = new byte[PoolBloques.TAMANIO_BLOQUE];
+    private static final ByteBuffer VISTA_CEROS = ByteBuffer.allocateDirect(PoolBloques.TAMANIO_BLOQUE).asReadOnlyBuffer();
+    private static final ByteBuffer VISTA_VACIA = ByteBuffer.allocate(0).asReadOnlyBuffer();
+    // Contenido compartido por los archivos que nunca se escribieron; solo se usa para leer
+    static final Contenido VACIO = new Contenido();
+
+    // El estado va aparte para que el Cleaner pueda liberarlo sin mantener vivo al Contenido
+    private final Estado estado = new Estado();
+    // Bytes del archivo que ya están sumados en los totales de sus directorios; lo protege el monitor del Archivo
+    long contados;
+    // Época desde la que vale esta versión del contenido, y la versión anterior mientras alguna copia pueda leerla
+    final long epoca;
+    private volatile Contenido anterior;
+    // Lo ven otros archivos además del que lo creó, así que ya no se modifica
+    volatile boolean compartido;
+
+    Contenido() {
+        this(0);
+    }
+
+    Contenido(long epoca) {
+        this.epoca = epoca;
+        LIMPIADOR.register(this, estado);
+    }
+
+    // Versión más nueva visible desde la época indicada, o null si el archivo todavía no tenía contenido
+    Contenido visibleEn(long epoca) {
+        Contenido c = this;
+        while (c != null && c.epoca > epoca) {
+            c = c.anterior;
+        }
+        return c;
+    }
+
+    /**
+     * Devuelve una copia con los mismos bytes, estampada con la época indicada, que encadena a esta como anterior
+     * y descarta las versiones que ya no puede leer ni la copia abierta más antigua. Solo se copian las páginas
+     * escritas; con archivo de respaldo el kernel copia el archivo entero.
+     */
+    Contenido copiar(long epoca, long copiaMasAntigua) throws IOException {
+        Contenido copia = new Contenido(epoca);
+        synchronized (estado) {
+            estado.copiarEn(copia.estado);
+        }
+        copia.contados = contados;
+        copia.anterior = this;
+        Contenido visible = copia.visibleEn(copiaMasAntigua);
+        if (visible != null) {
+            visible.anterior = null;
+        }
+        return copia;
+    }
+
+    long tamanio() {
+        synchronized (estado) {
+            return estado.tamanio;
+        }
+    }
+
+    // La vista sale del archivo, así que su página deja de reciclarse (ver Estado.exponer)
+    ByteBuffer leer(long posicion, int largo) throws IOException {
+        synchronized (estado) {
+            return estado.exponer(posicion, largo);
+        }
+    }
+
+    int leer(long posicion, ByteBuffer destino) throws IOException {
+        synchronized (estado) {
+            if (posicion >= estado.tamanio && destino.hasRemaining()) {
+                return -1;
+            }
+            int copiados = 0;
+            while (destino.hasRemaining() && posicion < estado.tamanio) {
+                ByteBuffer vista = estado.vista(posicion, destino.remaining());
+                copiados += vista.remaining();
+                posicion += vista.remaining();
+                destino.put(vista);
+            }
+            return copiados;
+        }
+    }
+
+    // Las modificaciones devuelven cuánto cambió el tamaño, que el archivo suma a los totales de sus directorios
+    long escribir(long posicion, ByteBuffer datos) throws IOException {
+        synchronized (estado) {
+            long antes = estado.tamanio;
+            estado.escribir(posicion, datos);
+            return estado.tamanio - antes;
+        }
+    }
+
+    long agregar(ByteBuffer datos) throws IOException {
+        synchronized (estado) {
+            long antes = estado.tamanio;
+            estado.escribir(estado.tamanio, datos);
+            return estado.tamanio - antes;
+        }
+    }
+
+    long truncar(long largo) throws IOException {
+        synchronized (estado) {
+            long antes = estado.tamanio;
+            estado.truncar(largo);
+            return estado.tamanio - antes;
+        }
+    }
+
+    // Devuelve la memoria sin esperar al Cleaner; el contenido queda vacío
+    void liberar() {
+        synchronized (estado) {
+            estado.liberar();
+        }
+    }
+
+    long transferirA(long posicion, long largo, WritableByteChannel canal) throws IOException {
+        synchronized (estado) {
+            return estado.transferirA(posicion, largo, canal);
+        }
+    }
+
+    private static void llenarCeros(ByteBuffer pagina, int desde, int hasta) {
+        for (int i = desde; i < hasta; i += CEROS.length) {
+            pagina.put(i, CEROS, 0, Math.min(CEROS.length, hasta - i));
+        }
+    }
+
+    private static final class Estado implements Runnable {
+        private ByteBuffer[] paginas = new ByteBuffer[0];
+        private int bitsPagina = PoolBloques.BITS_BLOQUE;
+        private FileChannel respaldo;
+        private long tamanio;
+        // Páginas que ya salieron en una vista de leer: son bloques propios, fuera del pool, y nunca se reciclan
+        private BitSet expuestas;
+
+        private ByteBuffer vista(long posicion, long largo) throws IOException {
+            if (posicion < 0 || largo < 0) {
+                throw new IllegalArgumentException("La posición y el largo no pueden ser negativos.");
+            }
+            if (posicion >= tamanio || largo == 0) {
+                return VISTA_VACIA;
+            }
+            int desplazamiento = (int) (posicion & mascara());
+            int cantidad = (int) Math.min(Math.min(largo, tamanio - posicion), (1L << bitsPagina) - desplazamiento);
+            // Con respaldo se mapea la región aunque no se haya escrito: el archivo temporal es disperso y se lee como ceros
+            ByteBuffer pagina = pagina(posicion, respaldo != null);
+            if (pagina == null) {
+                return VISTA_CEROS.slice(0, cantidad);
+            }
+            return pagina.slice(desplazamiento, cantidad).asReadOnlyBuffer();
+        }
+
+        // Un bloque del pool que se recicla mientras alguien guarda una vista suya mostraría los bytes de otro archivo.
+        // Por eso la primera vez que una página sale hacia afuera se pasa a un bloque propio, que el GC libera recién
+        // cuando no quedan ni la página ni vistas (ni recortes de ellas) que lo usen
+        private ByteBuffer exponer(long posicion, long largo) throws IOException {
+            if (respaldo == null && posicion >= 0 && posicion < tamanio) {
+                int indice = (int) (posicion >>> bitsPagina);
+                if (indice < paginas.length && paginas[indice] != null && (expuestas == null || !expuestas.get(indice))) {
+                    ByteBuffer propio = ByteBuffer.allocateDirect(PoolBloques.TAMANIO_BLOQUE);
+                    propio.put(0, paginas[indice], 0, PoolBloques.TAMANIO_BLOQUE);
+                    PoolBloques.global().devolver(paginas[indice]);
+                    paginas[indice] = propio;
+                    if (expuestas == null) expuestas = new BitSet();
+                    expuestas.set(indice);
+                }
+            }
+            return vista(posicion, largo);
+        }
+
+        private void escribir(long posicion, ByteBuffer datos) throws IOException {
+            if (posicion < 0) {
+                throw new IllegalArgumentException("La posición no puede ser negativa.");
+            }
+            long fin = posicion + datos.remaining();
+            if (respaldo == null && fin > UMBRAL_MAPEO) {
+                volcarARespaldo();
+            }
+            while (datos.hasRemaining()) {
+                ByteBuffer pagina = pagina(posicion, true);
+                int desplazamiento = (int) (posicion & mascara());
+                int cantidad = Math.min(datos.remaining(), (1 << bitsPagina) - desplazamiento);
+                pagina.put(desplazamiento, datos, datos.position(), cantidad);
+                datos.position(datos.position() + cantidad);
+                posicion += cantidad;
+            }
+            tamanio = Math.max(tamanio, fin);
+        }
+
+        private void truncar(long largo) throws IOException {
+            if (largo < 0) {
+                throw new IllegalArgumentException("El largo no puede ser negativo.");
+            }
+            if (largo == 0) {
+                liberar();
+            } else if (largo < tamanio) {
+                // Se ponen en cero los bytes que quedan afuera, y sin respaldo se devuelven los bloques que quedan enteros afuera
+                for (long inicio = largo & ~mascara(); inicio < tamanio; inicio += 1L << bitsPagina) {
+                    int indice = (int) (inicio >>> bitsPagina);
+                    ByteBuffer pagina = indice < paginas.length ? paginas[indice] : null;
+                    if (pagina == null) continue;
+                    if (respaldo == null && inicio >= largo) {
+                        devolver(indice);
+                        paginas[indice] = null;
+                    } else {
+                        llenarCeros(pagina, (int) (Math.max(largo, inicio) - inicio),
+                                (int) Math.min(1L << bitsPagina, tamanio - inicio));
+                    }
+                }
+            }
+            tamanio = largo;
+        }
+
+        private long transferirA(long posicion, long largo, WritableByteChannel canal) throws IOException {
+            if (posicion < 0 || largo < 0) {
+                throw new IllegalArgumentException("La posición y el largo no pueden ser negativos.");
+            }
+            long fin = Math.min(tamanio, posicion + largo);
+            long transferidos = 0;
+            while (posicion < fin) {
+                long escritos;
+                if (respaldo != null) {
+                    // El kernel copia directamente desde el cache de páginas del respaldo (sendfile cuando el destino lo permite)
+                    escritos = respaldo.transferTo(posicion, fin - posicion, canal);
+                } else {
+                    escritos = canal.write(vista(posicion, fin - posicion));
+                }
+                if (escritos <= 0) {
+                    // Canal no bloqueante lleno
+                    break;
+                }
+                posicion += escritos;
+                transferidos += escritos;
+            }
+            return transferidos;
+        }
+
+        private ByteBuffer pagina(long posicion, boolean crear) throws IOException {
+            int indice = (int) (posicion >>> bitsPagina);
+            if (indice >= paginas.length) {
+                if (!crear) return null;
+                paginas = Arrays.copyOf(paginas, Math.max(indice + 1, paginas.length * 2));
+            }
+            ByteBuffer pagina = paginas[indice];
+            if (pagina == null && crear) {
+                pagina = respaldo == null
+                        ? PoolBloques.global().tomar()
+                        : respaldo.map(FileChannel.MapMode.READ_WRITE, (long) indice << bitsPagina, 1L << bitsPagina);
+                paginas[indice] = pagina;
+            }
+            return pagina;
+        }
+
+        // Con bloques del pool se copia cada página escrita; con respaldo, el archivo temporal pasa entero a otro
+        private void copiarEn(Estado destino) throws IOException {
+            if (respaldo == null) {
+                destino.paginas = new ByteBuffer[paginas.length];
+                for (int i = 0; i < paginas.length; i++) {
+                    if (paginas[i] != null) {
+                        ByteBuffer bloque = PoolBloques.global().tomar();
+                        bloque.put(0, paginas[i], 0, PoolBloques.TAMANIO_BLOQUE);
+                        destino.paginas[i] = bloque;
+                    }
+                }
+            } else {
+                FileChannel canal = crearRespaldo();
+                try {
+                    // Lo que falte después del final del respaldo (un truncado que agrandó) se lee como ceros igual
+                    long copiados;
+                    for (long posicion = 0; posicion < tamanio; posicion += copiados) {
+                        copiados = respaldo.transferTo(posicion, tamanio - posicion, canal);
+                        if (copiados <= 0) break;
+                    }
+                } catch (IOException e) {
+                    canal.close();
+                    throw e;
+                }
+                destino.respaldo = canal;
+                destino.bitsPagina = BITS_REGION;
+            }
+            destino.tamanio = tamanio;
+        }
+
+        // Pasa el contenido de los bloques del pool a un archivo temporal, que se borra solo al cerrarlo
+        private void volcarARespaldo() throws IOException {
+            FileChannel canal = crearRespaldo();
+            try {
+                for (int i = 0; i < paginas.length; i++) {
+                    if (paginas[i] == null) continue;
+                    ByteBuffer bloque = paginas[i].duplicate().clear();
+                    long posicion = (long) i << bitsPagina;
+                    while (bloque.hasRemaining()) {
+                        posicion += canal.write(bloque, posicion);
+                    }
+                }
+            } catch (IOException e) {
+                canal.close();
+                throw e;
+            }
+            for (int i = 0; i < paginas.length; i++) {
+                devolver(i);
+            }
+            paginas = new ByteBuffer[0];
+            expuestas = null;
+            bitsPagina = BITS_REGION;
+            respaldo = canal;
+        }
+
+        private static FileChannel crearRespaldo() throws IOException {
+            return FileChannel.open(Files.createTempFile("contenido-", ".bin"), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        }
+
+        private long mascara() {
+            return (1L << bitsPagina) - 1;
+        }
+
+        // Devuelve al pool el bloque de la página, salvo que una vista lo haya expuesto: ese queda para el GC
+        private void devolver(int indice) {
+            ByteBuffer bloque = paginas[indice];
+            if (bloque == null) {
+                return;
+            }
+            if (expuestas != null && expuestas.get(indice)) {
+                expuestas.clear(indice);
+            } else {
+                PoolBloques.global().devolver(bloque);
+            }
+        }
+
+        // Las vistas devueltas antes siguen mostrando los bytes que tenían: sus bloques no vuelven al pool
+        // y las regiones mapeadas se desmapean recién cuando el GC las recolecta
+        private void liberar() {
+            if (respaldo == null) {
+                for (int i = 0; i < paginas.length; i++) {
+                    devolver(i);
+                }
+            } else {
+                try {
+                    respaldo.close();
+                } catch (IOException e) {
+                    // El archivo temporal se borra igual al terminar el proceso
+                }
+                respaldo = null;
+            }
+            paginas = new ByteBuffer[0];
+            expuestas = null;
+            bitsPagina = PoolBloques.BITS_BLOQUE;
+            tamanio = 0;
+        }
+
+        // Lo llama el Cleaner cuando el Contenido deja de ser alcanzable
+        @Override
+        public void run() {
+            synchronized (this) {
+                liberar();
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package manager;
+
+// Recorre los segmentos de una ruta directamente sobre el String original usando offsets,
+// sin expresiones regulares ni arreglos intermedios. Las barras repetidas o finales se ignoran.
+// Al construirlo se ubica el último segmento (la "hoja"), para poder resolver padre y hoja en una sola pasada.
+final class CursorRuta {
+    private final String ruta;
+    private final int inicioHoja;
+    private final int finHoja;
+    private int inicio;
+    private int fin;
+
+    CursorRuta(String ruta) {
+        this.ruta = ruta;
+        int f = ruta.length();
+        while (f > 0 && ruta.charAt(f - 1) == '/') f--;
+        int i = f;
+        while (i > 0 && ruta.charAt(i - 1) != '/') i--;
+        this.inicioHoja = i;
+        this.finHoja = f;
+        this.fin = 0;
+    }
+
+    boolean esAbsoluta() {
+        return !ruta.isEmpty() && ruta.charAt(0) == '/';
+    }
+
+    // Avanza al siguiente segmento no vacío; devuelve false si no quedan más
+    boolean siguiente() {
+        int i = fin;
+        int largo = ruta.length();
+        while (i < largo && ruta.charAt(i) == '/') i++;
+        if (i >= largo) {
+            inicio = fin = largo;
+            return false;
+        }
+        int f = i;
+        while (f < largo && ruta.charAt(f) != '/') f++;
+        inicio = i;
+        fin = f;
+        return true;
+    }
+
+    // Indica si el segmento actual es la hoja, es decir el último de la ruta
+    boolean esHoja() {
+        return inicio == inicioHoja && fin == finHoja;
+    }
+
+    boolean tieneHoja() {
+        return finHoja > inicioHoja;
+    }
+
+    boolean esPunto() {
+        return fin - inicio == 1 && ruta.charAt(inicio) == '.';
+    }
+
+    boolean esPuntoPunto() {
+        return fin - inicio == 2 && ruta.charAt(inicio) == '.' && ruta.charAt(inicio + 1) == '.';
+    }
+
+    int inicio() {
+        return inicio;
+    }
+
+    int fin() {
+        return fin;
+    }
+
+    int inicioHoja() {
+        return inicioHoja;
+    }
+
+    int finHoja() {
+        return finHoja;
+    }
+
+    String segmento() {
+        return ruta.substring(inicio, fin);
+    }
+
+    boolean hojaEsPunto() {
+        int largo = finHoja - inicioHoja;
+        return (largo == 1 || largo == 2) && ruta.charAt(inicioHoja) == '.' && ruta.charAt(finHoja - 1) == '.';
+    }
+
+    String hoja() {
+        return ruta.substring(inicioHoja, finHoja);
+    }
+
+    // Ruta del padre de la hoja sin la barra final ("" si la hoja está en la raíz), usada como clave de cache
+    String rutaPadre() {
+        int f = inicioHoja;
+        while (f > 0 && ruta.charAt(f - 1) == '/') f--;
+        return ruta.substring(0, f);
+    }
+
+    String getRuta() {
+        return ruta;
+    }
+}
@@ -1,54 +1,824 @@
 package manager;
-import java.util.HashMap;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.Cleaner;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
+// Los hijos se guardan como una cadena de versiones inmutables (MVCC): los lectores toman la versión
+// publicada sin bloquear y las instantáneas leen la que corresponde a su época.
+// Las modificaciones se sincronizan sobre el propio directorio, que es el bloqueo que usa FileSystem
+// para que verificar y modificar sea atómico, y publican una versión nueva que comparte estructura con la anterior
+// Cada directorio lleva además los totales de su subárbol (archivos, directorios, bytes y profundidad), que las altas,
+// las bajas y las escrituras suman hacia arriba por la cadena de padres, así que un du no recorre nada
+// Un mv cambia solo el padre y las entradas de los dos directorios (las rutas se derivan, no se guardan), y un cp -r
+// crea un único directorio que toma sus hijos del origen, tal como estaban al copiar, recién cuando alguien lo recorre
 public class Directorio extends FileSystemBase {
-    private final Map<String, FileSystemBase> hijos;
+    // Borrados recursivos cuyo recorrido en segundo plano todavía no marcó a todos sus directorios
+    private static final AtomicInteger podasEnCurso = new AtomicInteger();
+    // Sumas que están subiendo por la cadena de padres. Quitar un subárbol espera a las que ya lo atravesaron
+    // antes de leer sus totales, así ninguna se resta de menos ni queda sumada en los ancestros viejos
+    private static final RelojVersiones PROPAGACIONES = new RelojVersiones();
+    private static final VarHandle ARCHIVOS;
+    private static final VarHandle DIRECTORIOS;
+    private static final VarHandle BYTES;
+    private static final VarHandle ALTURA;
+    private static final VarHandle REPARTIDOS;
+    private static final VarHandle ULTIMO_CAMBIO;
+    // Valores de altura que no son una profundidad: hay que recalcularla, o otro hilo la está recalculando
+    private static final int ALTURA_INVALIDA = -1;
+    private static final int ALTURA_CALCULANDO = -2;
+    // Las épocas del reloj empiezan en 1
+    static final long SIN_LOTE = 0;
+    // Un lote que cambia al menos una de cada tantas entradas del directorio arma su mapa de hijos de cero
+    private static final int CAMBIOS_POR_RECONSTRUCCION = 4;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            ARCHIVOS = lookup.findVarHandle(Directorio.class, "archivos", long.class);
+            DIRECTORIOS = lookup.findVarHandle(Directorio.class, "directorios", long.class);
+            BYTES = lookup.findVarHandle(Directorio.class, "bytes", long.class);
+            ALTURA = lookup.findVarHandle(Directorio.class, "altura", int.class);
+            REPARTIDOS = lookup.findVarHandle(Directorio.class, "repartidos", Repartidos.class);
+            ULTIMO_CAMBIO = lookup.findVarHandle(Directorio.class, "ultimoCambio", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile VersionDirectorio version = VersionDirectorio.INICIAL;
+    // Se marca al eliminarlo de su padre, para que las caches de rutas dejen de devolverlo
+    // y para que no se pueda crear nada dentro de un directorio ya borrado
+    private volatile boolean eliminado;
+    // Si el directorio viene de una instantánea o de una carpeta montada, sus hijos se leen recién en el primer acceso
+    private volatile FuenteHijos origen;
+    private int indiceOrigen;
+    // Si el directorio es un cp -r que todavía no se recorrió, sus hijos salen del directorio copiado
+    private volatile Copia copia;
+    // Totales del subárbol, sin contar al propio directorio. Cada suma intenta un solo CAS; si falla porque otro
+    // hilo actualizó al mismo tiempo, el directorio pasa a sumar en LongAdders repartidos por hilo y el valor
+    // es la base más lo repartido. Así la raíz de un árbol con muchos escritores no se vuelve un punto de contención
+    private volatile long archivos;
+    private volatile long directorios;
+    private volatile long bytes;
+    private volatile Repartidos repartidos;
+    // Cantidad de niveles por debajo (0 si está vacío), o ALTURA_INVALIDA/ALTURA_CALCULANDO
+    private volatile int altura;
+    // Época de la última suma que pasó por acá: si no es posterior a la de un cp -r, los totales de ahora
+    // siguen siendo los del subárbol en esa época. Se marca antes de sumar
+    private volatile long ultimoCambio;
+    // Solo mientras un mv lo cambia de lugar: las sumas que suben desde adentro se juntan acá
+    private volatile Mudanza mudanza;
+    // Ruta con la que está en el IndiceRutas, si el sistema lo usa
+    volatile String claveIndice;
 
     public Directorio(String nombre, Directorio padre) {
         super(nombre, padre);
-        this.hijos = new HashMap<>();
     }
 
-    public void addHijo(FileSystemBase hijo) {
-        hijos.put(hijo.getNombre(), hijo);
-        hijo.setPadre(this);
+    Directorio(String nombre, Directorio padre, FuenteHijos origen, int indiceOrigen) {
+        super(nombre, padre);
+        this.indiceOrigen = indiceOrigen;
+        this.origen = origen;
+        this.archivos = origen.archivosEnSubarbol(indiceOrigen);
+        this.directorios = origen.directoriosEnSubarbol(indiceOrigen);
+        this.altura = origen.profundidad(indiceOrigen);
     }
 
+    private Directorio(String nombre, Directorio padre, Directorio fuente, Fijacion fijacion) {
+        super(nombre, padre);
+        copiarTotales(fuente, fijacion.epoca);
+        this.copia = new Copia(fuente, fijacion);
+    }
+
+    /**
+     * Copia del directorio para un cp -r, que todavía no tiene hijos propios: fija una época en el reloj y en el
+     * primer acceso arma sus hijos con los del origen en esa época, directorios que a su vez se copian igual y
+     * archivos que comparten el contenido (ver Archivo.copiaEn). La época queda fijada hasta que se arman todos
+     * los directorios copiados; mientras tanto el origen conserva sus versiones viejas.
+     */
+    static Directorio copiaDe(Directorio fuente, String nombre, Directorio padre) {
+        return new Directorio(nombre, padre, fuente, new Fijacion(fuente));
+    }
+
+    // Una copia recién creada que al final no se agrega al árbol libera su época sin esperar al GC
+    void descartarCopia() {
+        Copia pendiente = copia;
+        if (pendiente != null) {
+            copia = null;
+            pendiente.fijacion.armado(0);
+        }
+    }
+
+    // La versión nueva y las sumas a los totales entran al reloj con la misma época (ver copiarTotales)
+    public synchronized void addHijo(FileSystemBase hijo) {
+        VersionDirectorio actual = version();
+        IndiceNombres indice = actual.indice;
+        RelojVersiones reloj = RelojVersiones.global();
+        long epoca = reloj.entrar();
+        try {
+            publicar(actual.hijos.con(hijo.getNombre(), hijo), indice != null ? indice.con(hijo.getNombre(), hijo) : null, epoca);
+            hijo.setPadre(this);
+            if (hijo instanceof Directorio dir) {
+                dir.eliminado = false;
+                dir.marcarDesenlazado(false);
+                propagar(epoca, dir.getArchivosEnSubarbol(), dir.getDirectoriosEnSubarbol() + 1, dir.getBytesEnSubarbol());
+                int bajo = dir.altura;
+                subirAltura(bajo < 0 ? ALTURA_INVALIDA : bajo + 1);
+            } else {
+                Archivo archivo = (Archivo) hijo;
+                archivo.marcarEliminado(false);
+                propagar(epoca, 1, 0, archivo.enlazar());
+                subirAltura(1);
+            }
+        } finally {
+            reloj.salir(epoca);
+        }
+    }
+
+    // Vista de solo lectura de los hijos en la versión actual; no cambia aunque haya escrituras posteriores
     public Map<String, FileSystemBase> getHijos() {
-        return hijos;
+        return version().hijos.comoMapa();
     }
 
     public FileSystemBase getHijo(String nombre) {
-        return hijos.get(nombre);
+        return version().hijos.get(nombre);
+    }
+
+    public boolean estaVacio() {
+        return version().hijos.estaVacio();
+    }
+
+    public synchronized boolean removeHijo(String nombre) {
+        VersionDirectorio actual = version();
+        FileSystemBase hijo = actual.hijos.get(nombre);
+        if (hijo == null) {
+            return false;
+        }
+        IndiceNombres indice = actual.indice;
+        RelojVersiones reloj = RelojVersiones.global();
+        long epoca = reloj.entrar();
+        try {
+            publicar(actual.hijos.sin(nombre), indice != null ? indice.sin(nombre) : null, epoca);
+            int aporte;
+            if (hijo instanceof Directorio dir) {
+                dir.eliminado = true;
+                dir.marcarDesenlazado(true);
+                // Desde acá las sumas que suben desde adentro se cortan en dir; se espera a las que ya pasaron por él
+                if (dir.getArchivosEnSubarbol() + dir.getDirectoriosEnSubarbol() != 0) {
+                    PROPAGACIONES.esperarEnCurso();
+                }
+                propagar(epoca, -dir.getArchivosEnSubarbol(), -dir.getDirectoriosEnSubarbol() - 1, -dir.getBytesEnSubarbol());
+                int bajo = dir.altura;
+                aporte = bajo < 0 ? ALTURA_INVALIDA : bajo + 1;
+            } else {
+                Archivo archivo = (Archivo) hijo;
+                archivo.marcarEliminado(true);
+                propagar(epoca, -1, 0, -archivo.desenlazar());
+                aporte = 1;
+            }
+            bajarAltura(aporte, actual.hijos.tamanio() == 1);
+        } finally {
+            reloj.salir(epoca);
+        }
+        return true;
+    }
+
+    /**
+     * Mueve la entrada nombre de origen a destino con el nombre nuevo, sin tocar a sus descendientes: cambian su padre
+     * y las entradas de los dos directorios, que se publican con la misma época, así una instantánea ve la entrada
+     * en un solo lugar. Los totales del subárbol se restan de los ancestros viejos y se suman a los nuevos.
+     * Se llama con los dos directorios bloqueados y, si la entrada es un directorio, sin otro mv de un directorio
+     * en curso en el mismo árbol (ver FileSystem.mv). El nombre existe en origen y el nuevo no existe en destino.
+     */
+    static void mover(Directorio origen, String nombre, Directorio destino, String nuevoNombre) {
+        VersionDirectorio desde = origen.version();
+        VersionDirectorio hacia = destino.version();
+        FileSystemBase hijo = desde.hijos.get(nombre);
+        RelojVersiones reloj = RelojVersiones.global();
+        long epoca = reloj.entrar();
+        try {
+            if (origen != destino) {
+                MarcaCopia.heredar(hijo, origen);
+            }
+            // Primero se publican las entradas y después cambia la ruta: así ninguna cache de rutas
+            // guarda el camino viejo con la generación nueva
+            if (origen == destino) {
+                IndiceNombres indice = desde.indice;
+                origen.publicar(desde.hijos.sin(nombre).con(nuevoNombre, hijo),
+                        indice != null ? indice.sin(nombre).con(nuevoNombre, hijo) : null, epoca);
+                hijo.setNombre(nuevoNombre);
+                return;
+            }
+            IndiceNombres indiceDesde = desde.indice;
+            IndiceNombres indiceHacia = hacia.indice;
+            origen.publicar(desde.hijos.sin(nombre), indiceDesde != null ? indiceDesde.sin(nombre) : null, epoca);
+            destino.publicar(hacia.hijos.con(nuevoNombre, hijo),
+                    indiceHacia != null ? indiceHacia.con(nuevoNombre, hijo) : null, epoca);
+            boolean quedaVacio = desde.hijos.tamanio() == 1;
+            if (hijo instanceof Archivo archivo) {
+                long bytes = archivo.desenlazar();
+                archivo.setPadre(destino);
+                archivo.setNombre(nuevoNombre);
+                long enlazados = archivo.enlazar();
+                origen.propagar(epoca, -1, 0, -bytes);
+                destino.propagar(epoca, 1, 0, enlazados);
+                origen.bajarAltura(1, quedaVacio);
+                destino.subirAltura(1);
+                return;
+            }
+            Directorio dir = (Directorio) hijo;
+            // Las sumas que suben desde adentro se apartan mientras dura el cambio, así los totales que se pasan
+            // de una cadena de ancestros a la otra no se mueven; al final se suman en el lugar nuevo
+            Mudanza apartadas = new Mudanza();
+            dir.mudanza = apartadas;
+            PROPAGACIONES.esperarEnCurso();
+            long archivos = dir.getArchivosEnSubarbol();
+            long directorios = dir.getDirectoriosEnSubarbol() + 1;
+            long bytes = dir.getBytesEnSubarbol();
+            int bajo = dir.altura;
+            dir.setPadre(destino);
+            dir.setNombre(nuevoNombre);
+            origen.propagar(epoca, -archivos, -directorios, -bytes);
+            destino.propagar(epoca, archivos, directorios, bytes);
+            origen.bajarAltura(bajo < 0 ? ALTURA_INVALIDA : bajo + 1, quedaVacio);
+            dir.mudanza = null;
+            PROPAGACIONES.esperarEnCurso();
+            dir.propagar(Math.max(epoca, apartadas.epoca.get()),
+                    apartadas.archivos.sum(), apartadas.directorios.sum(), apartadas.bytes.sum());
+            bajo = dir.altura;
+            destino.subirAltura(bajo < 0 ? ALTURA_INVALIDA : bajo + 1);
+        } finally {
+            reloj.salir(epoca);
+        }
+    }
+
+    /**
+     * Aplica de una vez las altas y bajas de un lote (ver Lote) con una sola versión nueva, estampada con la época
+     * del lote para que una instantánea vea todo el lote o nada. Los totales se suman una sola vez para todo el grupo.
+     * Los nombres de las altas no existen en el directorio y los de las bajas sí; los directorios que se quitan
+     * están vacíos y bloqueados por quien llama.
+     */
+    synchronized void aplicarLote(Collection<FileSystemBase> altas, Set<String> bajas, long epoca) {
+        VersionDirectorio actual = version();
+        MapaHijos hijos = actual.hijos;
+        IndiceNombres indice = actual.indice;
+        List<FileSystemBase> quitados = new ArrayList<>(bajas.size());
+        for (String nombre : bajas) {
+            FileSystemBase hijo = hijos.get(nombre);
+            if (hijo != null) {
+                quitados.add(hijo);
+            }
+        }
+        int cantidad = hijos.tamanio() - quitados.size() + altas.size();
+        if (quitados.size() + altas.size() > MapaHijos.MAX_ARREGLO
+                && (quitados.size() + altas.size()) * CAMBIOS_POR_RECONSTRUCCION >= cantidad) {
+            // Con tantos cambios sale más barato armar el mapa de nuevo que copiar un camino por entrada;
+            // el índice ordenado se vuelve a armar recién cuando alguien lo pida (ver indiceOrdenado)
+            List<Map.Entry<String, FileSystemBase>> entradas = new ArrayList<>(cantidad);
+            for (Iterator<Map.Entry<String, FileSystemBase>> it = hijos.iterador(); it.hasNext(); ) {
+                Map.Entry<String, FileSystemBase> entrada = it.next();
+                if (quitados.isEmpty() || !bajas.contains(entrada.getKey())) {
+                    entradas.add(entrada);
+                }
+            }
+            for (FileSystemBase hijo : altas) {
+                entradas.add(Map.entry(hijo.getNombre(), hijo));
+            }
+            hijos = MapaHijos.desde(entradas.iterator(), cantidad);
+            indice = null;
+        } else {
+            for (FileSystemBase hijo : quitados) {
+                hijos = hijos.sin(hijo.getNombre());
+                indice = indice != null ? indice.sin(hijo.getNombre()) : null;
+            }
+            for (FileSystemBase hijo : altas) {
+                hijos = hijos.con(hijo.getNombre(), hijo);
+                indice = indice != null ? indice.con(hijo.getNombre(), hijo) : null;
+            }
+        }
+        publicar(hijos, indice, epoca);
+
+        long deltaArchivos = 0;
+        long deltaDirectorios = 0;
+        long deltaBytes = 0;
+        int aporteQuitado = 0;
+        for (FileSystemBase hijo : quitados) {
+            int aporte = 1;
+            if (hijo instanceof Directorio dir) {
+                dir.eliminado = true;
+                dir.marcarDesenlazado(true);
+                deltaArchivos -= dir.getArchivosEnSubarbol();
+                deltaDirectorios -= dir.getDirectoriosEnSubarbol() + 1;
+                deltaBytes -= dir.getBytesEnSubarbol();
+                aporte = dir.altura < 0 ? ALTURA_INVALIDA : dir.altura + 1;
+            } else {
+                Archivo archivo = (Archivo) hijo;
+                archivo.marcarEliminado(true);
+                deltaArchivos--;
+                deltaBytes -= archivo.desenlazar();
+            }
+            aporteQuitado = aporteQuitado < 0 || aporte < 0 ? ALTURA_INVALIDA : Math.max(aporteQuitado, aporte);
+        }
+        int aporteAgregado = 0;
+        for (FileSystemBase hijo : altas) {
+            hijo.setPadre(this);
+            int aporte = 1;
+            if (hijo instanceof Directorio dir) {
+                dir.eliminado = false;
+                dir.marcarDesenlazado(false);
+                deltaArchivos += dir.getArchivosEnSubarbol();
+                deltaDirectorios += dir.getDirectoriosEnSubarbol() + 1;
+                deltaBytes += dir.getBytesEnSubarbol();
+                aporte = dir.altura < 0 ? ALTURA_INVALIDA : dir.altura + 1;
+            } else {
+                Archivo archivo = (Archivo) hijo;
+                archivo.marcarEliminado(false);
+                deltaArchivos++;
+                deltaBytes += archivo.enlazar();
+            }
+            aporteAgregado = aporteAgregado < 0 || aporte < 0 ? ALTURA_INVALIDA : Math.max(aporteAgregado, aporte);
+        }
+        propagar(epoca, deltaArchivos, deltaDirectorios, deltaBytes);
+        if (!quitados.isEmpty()) {
+            bajarAltura(aporteQuitado, hijos.estaVacio());
+        }
+        if (!altas.isEmpty()) {
+            subirAltura(aporteAgregado);
+        }
+    }
+
+    // Cantidad de archivos en todo el subárbol
+    public long getArchivosEnSubarbol() {
+        Repartidos r = repartidos;
+        return r == null ? archivos : archivos + r.archivos.sum();
+    }
+
+    // Cantidad de directorios en todo el subárbol, sin contar a este
+    public long getDirectoriosEnSubarbol() {
+        Repartidos r = repartidos;
+        return r == null ? directorios : directorios + r.directorios.sum();
+    }
+
+    // Suma de los tamaños de los archivos del subárbol
+    public long getBytesEnSubarbol() {
+        Repartidos r = repartidos;
+        return r == null ? bytes : bytes + r.bytes.sum();
+    }
+
+    /**
+     * Cantidad de niveles por debajo del directorio: 0 si está vacío, 1 si solo tiene archivos o directorios vacíos.
+     * Se mantiene al agregar; al quitar la rama más profunda queda invalidada hasta la raíz y la próxima consulta
+     * la recalcula mirando solo los directorios invalidados, con los valores guardados de todos los demás.
+     */
+    public int getProfundidad() {
+        int valor = altura;
+        return valor >= 0 ? valor : recalcularAltura();
     }
-    
-    public boolean removeHijo(String nombre) {
-        if (hijos.containsKey(nombre)) {
-            hijos.remove(nombre);
+
+    // Suma a este directorio y a sus ancestros, hasta el primero que ya no está en el árbol o que un mv está moviendo
+    // Se llama dentro del reloj de versiones, con la época del cambio que se suma
+    void propagar(long epoca, long deltaArchivos, long deltaDirectorios, long deltaBytes) {
+        if (deltaArchivos == 0 && deltaDirectorios == 0 && deltaBytes == 0) {
+            return;
+        }
+        long e = PROPAGACIONES.entrar();
+        try {
+            for (Directorio d = this; d != null; d = d.getPadre()) {
+                d.marcarCambio(epoca);
+                Mudanza enCurso = d.mudanza;
+                if (enCurso != null) {
+                    enCurso.apartar(epoca, deltaArchivos, deltaDirectorios, deltaBytes);
+                    break;
+                }
+                d.sumar(deltaArchivos, deltaDirectorios, deltaBytes);
+                if (d.estaDesenlazado()) {
+                    break;
+                }
+            }
+        } finally {
+            PROPAGACIONES.salir(e);
+        }
+    }
+
+    private void marcarCambio(long epoca) {
+        long actual;
+        while ((actual = ultimoCambio) < epoca && !ULTIMO_CAMBIO.compareAndSet(this, actual, epoca)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private void sumar(long deltaArchivos, long deltaDirectorios, long deltaBytes) {
+        Repartidos r = repartidos;
+        if (r == null) {
+            boolean archivosSumados = sumarDirecto(ARCHIVOS, deltaArchivos);
+            boolean directoriosSumados = sumarDirecto(DIRECTORIOS, deltaDirectorios);
+            boolean bytesSumados = sumarDirecto(BYTES, deltaBytes);
+            if (archivosSumados && directoriosSumados && bytesSumados) {
+                return;
+            }
+            r = repartir();
+            // Lo que ya quedó en la base no se vuelve a sumar
+            if (archivosSumados) deltaArchivos = 0;
+            if (directoriosSumados) deltaDirectorios = 0;
+            if (bytesSumados) deltaBytes = 0;
+        }
+        if (deltaArchivos != 0) r.archivos.add(deltaArchivos);
+        if (deltaDirectorios != 0) r.directorios.add(deltaDirectorios);
+        if (deltaBytes != 0) r.bytes.add(deltaBytes);
+    }
+
+    private boolean sumarDirecto(VarHandle contador, long delta) {
+        if (delta == 0) {
             return true;
         }
+        long valor = (long) contador.getVolatile(this);
+        return contador.compareAndSet(this, valor, valor + delta);
+    }
+
+    // No toma el bloqueo del directorio: quien suma puede estar dentro de un alta en un descendiente
+    private Repartidos repartir() {
+        Repartidos nuevos = new Repartidos();
+        Repartidos actuales = (Repartidos) REPARTIDOS.compareAndExchange(this, (Repartidos) null, nuevos);
+        return actuales != null ? actuales : nuevos;
+    }
+
+    // Un hijo nuevo que aporta esa altura sube la de este directorio y la de sus ancestros mientras sea mayor
+    private void subirAltura(int aporte) {
+        long e = PROPAGACIONES.entrar();
+        try {
+            for (Directorio d = this; d != null; d = d.getPadre()) {
+                if (aporte < 0) {
+                    d.invalidarAltura();
+                    return;
+                }
+                while (true) {
+                    int actual = d.altura;
+                    if (actual < 0) {
+                        // Sus ancestros ya están invalidados; si otro hilo la estaba recalculando, su resultado se descarta
+                        if (ALTURA.compareAndSet(d, actual, ALTURA_INVALIDA)) return;
+                    } else if (actual >= aporte) {
+                        return;
+                    } else if (ALTURA.compareAndSet(d, actual, aporte)) {
+                        break;
+                    }
+                }
+                if (d.estaDesenlazado() || d.mudanza != null) {
+                    return;
+                }
+                aporte++;
+            }
+        } finally {
+            PROPAGACIONES.salir(e);
+        }
+    }
+
+    // Quitar un hijo solo cambia la altura si era (o podía ser) la rama más profunda
+    private void bajarAltura(int aporte, boolean quedaVacio) {
+        int actual = altura;
+        if (actual >= 0 && aporte >= 0 && (aporte < actual || actual == 1 && !quedaVacio)) {
+            return;
+        }
+        long e = PROPAGACIONES.entrar();
+        try {
+            invalidarAltura();
+        } finally {
+            PROPAGACIONES.salir(e);
+        }
+    }
+
+    // Invalida la altura de este directorio y la de todos sus ancestros, así las inválidas siempre llegan hasta la raíz
+    // Si una ya estaba invalidada, las de arriba también lo están y no hace falta seguir subiendo
+    private void invalidarAltura() {
+        for (Directorio d = this; d != null; d = d.getPadre()) {
+            if ((int) ALTURA.getAndSet(d, ALTURA_INVALIDA) == ALTURA_INVALIDA || d.estaDesenlazado() || d.mudanza != null) {
+                return;
+            }
+        }
+    }
+
+    // Recorre en postorden, con una pila explícita, solo los directorios con la altura inválida. Cada uno se marca
+    // como en cálculo y el resultado se guarda solo si nadie lo invalidó mientras tanto; si no, se empieza de nuevo
+    private int recalcularAltura() {
+        while (true) {
+            int valor = altura;
+            if (valor >= 0) {
+                return valor;
+            }
+            ArrayDeque<CalculoAltura> pila = new ArrayDeque<>();
+            pila.push(new CalculoAltura(this));
+            int resultado = -1;
+            while (!pila.isEmpty()) {
+                CalculoAltura calculo = pila.peek();
+                if (calculo.hijos.hasNext()) {
+                    FileSystemBase hijo = calculo.hijos.next();
+                    int bajo = hijo instanceof Directorio dir ? dir.altura : 0;
+                    if (bajo >= 0) {
+                        calculo.maximo = Math.max(calculo.maximo, bajo + 1);
+                    } else {
+                        pila.push(new CalculoAltura((Directorio) hijo));
+                    }
+                    continue;
+                }
+                pila.pop();
+                if (calculo.propio && !ALTURA.compareAndSet(calculo.directorio, ALTURA_CALCULANDO, calculo.maximo)) {
+                    // Algo cambió debajo: se devuelven las marcas propias que quedan en la pila y se reintenta
+                    for (CalculoAltura pendiente : pila) {
+                        if (pendiente.propio) {
+                            ALTURA.compareAndSet(pendiente.directorio, ALTURA_CALCULANDO, ALTURA_INVALIDA);
+                        }
+                    }
+                    break;
+                }
+                if (pila.isEmpty()) {
+                    resultado = calculo.maximo;
+                } else {
+                    pila.peek().maximo = Math.max(pila.peek().maximo, calculo.maximo + 1);
+                }
+            }
+            if (resultado >= 0) {
+                return resultado;
+            }
+        }
+    }
+
+    void marcarEliminado(boolean eliminado) {
+        this.eliminado = eliminado;
+    }
+
+    // Indica si el directorio ya no está en el árbol. Tras un rm -r solo la raíz del subárbol queda marcada
+    // en el momento; mientras el borrado en segundo plano no llega a los demás, se revisan también los ancestros
+    boolean estaDesconectado() {
+        if (eliminado) {
+            return true;
+        }
+        if (podasEnCurso.get() == 0) {
+            return false;
+        }
+        for (Directorio ancestro = getPadre(); ancestro != null; ancestro = ancestro.getPadre()) {
+            if (ancestro.eliminado) {
+                return true;
+            }
+        }
         return false;
     }
 
+    static void iniciarPoda() {
+        podasEnCurso.incrementAndGet();
+    }
+
+    static void terminarPoda() {
+        podasEnCurso.decrementAndGet();
+    }
+
+    // Lo usa el borrado recursivo: marca el directorio y publica una versión vacía, que es lo que ve una sesión
+    // parada adentro. Las instantáneas anteriores conservan la versión con los hijos, que se devuelven para recorrerlos
+    synchronized MapaHijos vaciar() {
+        eliminado = true;
+        VersionDirectorio actual = version();
+        if (!actual.hijos.estaVacio()) {
+            publicar(MapaHijos.VACIO, actual.indice != null ? IndiceNombres.VACIO : null);
+        }
+        return actual.hijos;
+    }
+
+    // Índice ordenado de la versión actual. Se arma la primera vez que se pide, con el directorio bloqueado
+    // para que ninguna alta o baja quede afuera, y desde ahí cada modificación lo mantiene en O(log n)
+    // Los directorios chicos no lo guardan: armarlo cada vez cuesta menos que mantenerlo en cada escritura
+    IndiceNombres indiceOrdenado() {
+        VersionDirectorio leida = version();
+        IndiceNombres indice = leida.indice;
+        if (indice != null) {
+            return indice;
+        }
+        if (leida.hijos.tamanio() <= MapaHijos.MAX_ARREGLO) {
+            return IndiceNombres.desde(leida.hijos);
+        }
+        synchronized (this) {
+            VersionDirectorio actual = version();
+            if (actual.indice == null) {
+                actual.indice = IndiceNombres.desde(actual.hijos);
+            }
+            return actual.indice;
+        }
+    }
+
+    // Hijos tal como estaban en la época de una instantánea
+    MapaHijos hijosEn(long epoca) {
+        VersionDirectorio visible = version().visibleEn(epoca);
+        return visible != null ? visible.hijos : MapaHijos.VACIO;
+    }
+
+    private VersionDirectorio version() {
+        if (origen != null) {
+            materializar();
+        } else if (copia != null) {
+            armarCopia();
+        }
+        return version;
+    }
+
+    // Los hijos cargados existían antes de cualquier escritura, así que se publican como la versión 0,
+    // visible desde cualquier instantánea
+    private synchronized void materializar() {
+        FuenteHijos fuente = origen;
+        if (fuente != null) {
+            version = new VersionDirectorio(0, fuente.hijos(this, indiceOrigen), null);
+            origen = null;
+        }
+    }
+
+    // Los hijos se arman sin bloquear este directorio, porque leer el origen puede necesitar armarlo a él también
+    // y un lote puede tenerlo bloqueado esperando a este; si dos hilos los arman a la vez, se usa el primero.
+    // Como los cargados de disco, se publican como la versión 0
+    private void armarCopia() {
+        Copia pendiente = copia;
+        if (pendiente == null) {
+            return;
+        }
+        long epoca = pendiente.fijacion.epoca;
+        MapaHijos delOrigen = pendiente.fuente.hijosEn(epoca);
+        List<Map.Entry<String, FileSystemBase>> entradas = new ArrayList<>(delOrigen.tamanio());
+        int directorios = 0;
+        for (Iterator<Map.Entry<String, FileSystemBase>> it = delOrigen.iterador(); it.hasNext(); ) {
+            Map.Entry<String, FileSystemBase> entrada = it.next();
+            FileSystemBase hijo;
+            if (entrada.getValue() instanceof Directorio dir) {
+                hijo = new Directorio(entrada.getKey(), this, dir, pendiente.fijacion);
+                directorios++;
+            } else {
+                hijo = ((Archivo) entrada.getValue()).copiaEn(epoca, entrada.getKey(), this);
+            }
+            entradas.add(Map.entry(entrada.getKey(), hijo));
+        }
+        MapaHijos hijos = MapaHijos.desde(entradas.iterator(), entradas.size());
+        synchronized (this) {
+            if (copia != pendiente) {
+                return;
+            }
+            version = new VersionDirectorio(0, hijos, null);
+            copia = null;
+        }
+        pendiente.fijacion.armado(directorios);
+    }
+
+    // Totales del subárbol de fuente en la época de la copia. Los contadores se leen antes que la marca de cambio,
+    // que quien suma pone antes de sumar: si la marca no es posterior a la época, lo leído es lo de esa época.
+    // Si no, se recorren los hijos de esa época y se baja solo por los directorios que cambiaron
+    private void copiarTotales(Directorio fuente, long epoca) {
+        long[] totales = new long[4];
+        if (!fuente.sumarTotales(epoca, totales, 0)) {
+            ArrayDeque<Directorio> pendientes = new ArrayDeque<>();
+            ArrayDeque<Integer> niveles = new ArrayDeque<>();
+            pendientes.push(fuente);
+            niveles.push(0);
+            while (!pendientes.isEmpty()) {
+                Directorio dir = pendientes.pop();
+                int nivel = niveles.pop() + 1;
+                for (Iterator<Map.Entry<String, FileSystemBase>> it = dir.hijosEn(epoca).iterador(); it.hasNext(); ) {
+                    FileSystemBase hijo = it.next().getValue();
+                    totales[3] = Math.max(totales[3], nivel);
+                    if (hijo instanceof Directorio sub) {
+                        totales[1]++;
+                        if (!sub.sumarTotales(epoca, totales, nivel)) {
+                            pendientes.push(sub);
+                            niveles.push(nivel);
+                        }
+                    } else {
+                        totales[0]++;
+                        totales[2] += ((Archivo) hijo).tamanioEn(epoca);
+                    }
+                }
+            }
+        }
+        archivos = totales[0];
+        directorios = totales[1];
+        bytes = totales[2];
+        altura = (int) totales[3];
+    }
+
+    // Suma los totales actuales (archivos, directorios, bytes y profundidad desde el nivel) si siguen siendo los de la época
+    private boolean sumarTotales(long epoca, long[] totales, int nivel) {
+        long archivosActuales = getArchivosEnSubarbol();
+        long directoriosActuales = getDirectoriosEnSubarbol();
+        long bytesActuales = getBytesEnSubarbol();
+        int profundidad = getProfundidad();
+        if (ultimoCambio > epoca) {
+            return false;
+        }
+        totales[0] += archivosActuales;
+        totales[1] += directoriosActuales;
+        totales[2] += bytesActuales;
+        totales[3] = Math.max(totales[3], nivel + profundidad);
+        return true;
+    }
+
+    // Se llama con el bloqueo del directorio tomado
+    private void publicar(MapaHijos nuevos, IndiceNombres indice) {
+        publicar(nuevos, indice, SIN_LOTE);
+    }
+
+    // Un lote ya entró al reloj y publica todas sus versiones con la misma época
+    private void publicar(MapaHijos nuevos, IndiceNombres indice, long epocaLote) {
+        RelojVersiones reloj = RelojVersiones.global();
+        long epoca = epocaLote != SIN_LOTE ? epocaLote : reloj.entrar();
+        try {
+            VersionDirectorio actual = version;
+            // Dentro de una misma época ninguna instantánea distingue las versiones, así que la nueva reemplaza a la actual
+            VersionDirectorio anterior = actual.numero == epoca ? actual.anterior() : actual;
+            VersionDirectorio nueva = new VersionDirectorio(epoca, nuevos, indice, anterior);
+            nueva.podar(Math.min(reloj.instantaneaMasAntigua(), MarcaCopia.masAntiguaSobre(this)));
+            version = nueva;
+        } finally {
+            if (epocaLote == SIN_LOTE) {
+                reloj.salir(epoca);
+            }
+        }
+    }
+
     @Override
     public String toString() {
         return "Directorio: " + this.getNombre();
     }
 
-    // Sobrescribir equals y hashCode para Directorio, igual que EntradaSistemaArchivos
-    // Asegurarse de que al comparar directorios, se base en su ruta completa
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        Directorio that = (Directorio) o;
-        return Objects.equals(getRutaCompleta(), that.getRutaCompleta());
+    // Contadores repartidos por hilo de un directorio con escrituras concurrentes; se crean la primera vez que un CAS falla
+    private static final class Repartidos {
+        private final LongAdder archivos = new LongAdder();
+        private final LongAdder directorios = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
     }
 
-    @Override
-    public int hashCode() {
-        return Objects.hash(getRutaCompleta());
+    // Sumas que llegan a un directorio mientras un mv lo mueve, con la época más nueva entre ellas
+    private static final class Mudanza {
+        private final LongAdder archivos = new LongAdder();
+        private final LongAdder directorios = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAccumulator epoca = new LongAccumulator(Math::max, SIN_LOTE);
+
+        private void apartar(long epocaSuma, long deltaArchivos, long deltaDirectorios, long deltaBytes) {
+            epoca.accumulate(epocaSuma);
+            archivos.add(deltaArchivos);
+            directorios.add(deltaDirectorios);
+            bytes.add(deltaBytes);
+        }
+    }
+
+    // Directorio copiado que todavía no armó sus hijos, y la época del cp -r al que pertenece
+    private static final class Copia {
+        private final Directorio fuente;
+        private final Fijacion fijacion;
+
+        private Copia(Directorio fuente, Fijacion fijacion) {
+            this.fuente = fuente;
+            this.fijacion = fijacion;
+        }
+    }
+
+    // Época fijada por un cp -r, compartida por todos sus directorios sin armar y anotada en el directorio copiado.
+    // Se libera cuando no queda ninguno; si los que quedan dejan de ser alcanzables antes (un rm de la copia sin
+    // recorrerla), la libera el Cleaner. La marca no apunta a la fijación, así no la mantiene viva desde el origen
+    private static final class Fijacion {
+        private static final Cleaner LIMPIADOR = Cleaner.create();
+
+        private final long epoca;
+        private final AtomicLong pendientes = new AtomicLong(1);
+        private final Cleaner.Cleanable liberacion;
+
+        private Fijacion(Directorio fuente) {
+            MarcaCopia marca = MarcaCopia.abrir(fuente);
+            this.epoca = marca.getEpoca();
+            this.liberacion = LIMPIADOR.register(this, marca::liberar);
+        }
+
+        // Un directorio se armó y dejó otros tantos directorios nuevos sin armar
+        private void armado(int nuevos) {
+            if (pendientes.addAndGet(nuevos - 1) == 0) {
+                liberacion.clean();
+            }
+        }
+    }
+
+    // Un directorio del recorrido de recalcularAltura: propio indica que este hilo lo marcó como en cálculo
+    private static final class CalculoAltura {
+        private final Directorio directorio;
+        private final boolean propio;
+        private final Iterator<FileSystemBase> hijos;
+        private int maximo;
+
+        private CalculoAltura(Directorio directorio) {
+            this.directorio = directorio;
+            this.propio = ALTURA.compareAndSet(directorio, ALTURA_INVALIDA, ALTURA_CALCULANDO);
+            this.hijos = directorio.getHijos().values().iterator();
+        }
     }
 }
@@ -0,0 +1,54 @@
+package manager;
+
+// Un cambio que recibe una Vigilancia: una entrada creada o eliminada, o un desborde que avisa que la vigilancia
+// se atrasó más que la capacidad del anillo y perdió eventos. Eliminar un directorio con rm -r es un solo evento
+// que cubre a todo su subárbol. La secuencia es global y crece con cada cambio publicado
+public final class EventoCambio {
+    public enum Tipo {
+        CREADO,
+        ELIMINADO,
+        DESBORDE
+    }
+
+    private final Tipo tipo;
+    private final String ruta;
+    private final boolean directorio;
+    private final long secuencia;
+    private final long perdidos;
+
+    EventoCambio(Tipo tipo, String ruta, boolean directorio, long secuencia, long perdidos) {
+        this.tipo = tipo;
+        this.ruta = ruta;
+        this.directorio = directorio;
+        this.secuencia = secuencia;
+        this.perdidos = perdidos;
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    // Ruta absoluta de la entrada al momento del cambio; null en un desborde
+    public String getRuta() {
+        return ruta;
+    }
+
+    public boolean esDirectorio() {
+        return directorio;
+    }
+
+    // En un desborde, la secuencia del primer evento que se perdió
+    public long getSecuencia() {
+        return secuencia;
+    }
+
+    // Cantidad de eventos que se perdieron en un desborde (de todo el sistema, no solo del subárbol vigilado)
+    public long getPerdidos() {
+        return perdidos;
+    }
+
+    @Override
+    public String toString() {
+        return tipo == Tipo.DESBORDE ? tipo + " " + perdidos : tipo + " " + ruta;
+    }
+}
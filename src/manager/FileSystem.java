@@ -1,16 +1,99 @@
 package manager;
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 // Clase que representa un sistema de archivos simple con directorios y archivos
 // Permite navegar entre directorios, crear archivos y directorios, listar contenidos y eliminar entradas
-public class FileSystem {
+// El árbol es compartido y seguro para varios hilos: cada usuario abre su propia Sesion con su directorio actual,
+// y las modificaciones bloquean solo el directorio afectado. Los métodos sin sesión usan una sesión por defecto.
+// Abierto sobre una carpeta (ver abrir), cada modificación queda además registrada en una Bitacora en disco.
+// Un mv de un directorio es lo único que cambia las rutas de otros nodos: se hace de a uno, con la escritura
+// de estructura tomada, y lo que depende de que las rutas no cambien (los lotes, y con bitácora cada registro) toma la lectura
+public class FileSystem implements SistemaArchivos, AutoCloseable {
+    private static final int CAPACIDAD_CACHE_RUTAS = 4096;
+    // Eventos que puede tener de atraso una vigilancia antes de empezar a perderlos
+    private static final int CAPACIDAD_EVENTOS = 8192;
+    private static final int LOTE_BITACORA = 256;
+    private static final long REGISTROS_POR_COMPACTACION = 1_000_000;
+    private static final String PREFIJO_INSTANTANEA = "instantanea-";
+    private static final String EXTENSION_INSTANTANEA = ".bin";
+
     private final Directorio raiz;
-    private Directorio directorioActual;
+    private final Sesion sesionPorDefecto;
+    private final CacheRutas cacheRutas;
+    // Entradas cuyo id se entregó con obtenerId, para resolverlas por id sin recorrer rutas
+    private final TablaNodos tablaNodos = new TablaNodos();
+    // Cambios publicados por touch, mkdir, rm y los lotes para las vigilancias abiertas
+    private final AnilloEventos eventos = new AnilloEventos(CAPACIDAD_EVENTOS);
+    // Solo si se pidió al crearlo; con índice, las rutas absolutas no pasan por la cache
+    private final IndiceRutas indiceRutas;
+    // Almacenes montados en rutas del árbol; vacía, no cambia nada en la resolución ni en los cambios
+    private final TablaMontajes montajes = new TablaMontajes();
+    // null mientras no se habiliten: así las operaciones no miden nada ni leen el reloj
+    private volatile Metricas metricas;
+    private final ReentrantReadWriteLock estructura = new ReentrantReadWriteLock();
+    // Solo si el sistema es persistente
+    private final Path carpeta;
+    private final Bitacora bitacora;
+    private final Object compactacion = new Object();
+    // Una compactación automática que falla no corta la operación que la disparó; el error se informa al cerrar
+    private volatile IOException errorCompactacion;
 
     public FileSystem() {
+        this(CAPACIDAD_CACHE_RUTAS);
+    }
+
+    /**
+     * @param capacidadCacheRutas Cantidad máxima de rutas absolutas resueltas que se cachean (0 la desactiva).
+     */
+    public FileSystem(int capacidadCacheRutas) {
+        this(capacidadCacheRutas, false);
+    }
+
+    /**
+     * @param capacidadCacheRutas Cantidad máxima de rutas absolutas resueltas que se cachean (0 la desactiva).
+     * @param indexarRutas Mantiene un IndiceRutas con la ruta absoluta de cada directorio, que resuelve cualquier
+     *                     ruta absoluta con una búsqueda a cambio de memoria por directorio y de un poco más de
+     *                     costo en cada alta y baja de directorios (ver getIndiceRutas).
+     */
+    public FileSystem(int capacidadCacheRutas, boolean indexarRutas) {
         // El directorio raíz se llama "/" y no tiene padre
-        this.raiz = new Directorio("/", null);
-        this.directorioActual = this.raiz;
+        this(new Directorio("/", null), capacidadCacheRutas, indexarRutas);
+    }
+
+    private FileSystem(Directorio raiz, int capacidadCacheRutas, boolean indexarRutas) {
+        this.raiz = raiz;
+        this.cacheRutas = new CacheRutas(capacidadCacheRutas);
+        this.indiceRutas = indexarRutas ? new IndiceRutas() : null;
+        this.sesionPorDefecto = new Sesion(this, raiz);
+        this.carpeta = null;
+        this.bitacora = null;
+    }
+
+    private FileSystem(Directorio raiz, Path carpeta, long primeraSecuencia, int tamanioLote,
+                       long intervaloMicros, long registrosPorCompactacion) throws IOException {
+        this.raiz = raiz;
+        this.cacheRutas = new CacheRutas(CAPACIDAD_CACHE_RUTAS);
+        this.indiceRutas = null;
+        this.sesionPorDefecto = new Sesion(this, raiz);
+        this.carpeta = carpeta;
+        this.bitacora = new Bitacora(carpeta, primeraSecuencia, tamanioLote, intervaloMicros,
+                registrosPorCompactacion, this::compactarEnSegundoPlano);
+    }
+
+    /**
+     * Abre una nueva sesión sobre el mismo árbol, posicionada en la raíz.
+     * Cada sesión tiene su propio directorio actual y debe usarse desde un solo hilo a la vez.
+     */
+    public Sesion abrirSesion() {
+        return new Sesion(this, raiz);
     }
 
     public Directorio getRaiz() {
@@ -18,236 +101,1510 @@ public class FileSystem {
     }
 
     public Directorio getDirectorioActual() {
-        return directorioActual;
+        return sesionPorDefecto.getDirectorioActual();
+    }
+
+    /**
+     * Crea una vista del árbol completo en este instante, útil para listados consistentes o copias de respaldo.
+     * Debe cerrarse (idealmente con try-with-resources) para liberar las versiones viejas que retiene.
+     */
+    public Instantanea snapshot() {
+        return new Instantanea(raiz);
+    }
+
+    /**
+     * Guarda el árbol en un archivo binario compacto, tal como está al momento de llamarlo.
+     * Las escrituras concurrentes no se bloquean ni aparecen a medias en el archivo.
+     */
+    public void guardar(Path archivo) throws IOException {
+        try (Instantanea foto = snapshot()) {
+            foto.guardar(archivo);
+        }
+    }
+
+    /**
+     * Abre un árbol guardado con guardar(). El archivo se mapea en memoria y cada directorio se arma
+     * recién la primera vez que se visita, así que el tiempo de carga no depende del tamaño del árbol.
+     * El archivo no debe modificarse mientras el sistema cargado esté en uso (guardar() lo reemplaza sin modificarlo).
+     */
+    public static FileSystem cargar(Path archivo) throws IOException {
+        return new FileSystem(ArchivoInstantanea.abrir(archivo).raiz(), CAPACIDAD_CACHE_RUTAS, false);
+    }
+
+    /**
+     * Abre (o crea) un sistema de archivos persistente en la carpeta indicada, con lotes de hasta 256 registros
+     * que se bajan apenas el escritor está libre y una compactación cada millón de registros.
+     */
+    public static FileSystem abrir(Path carpeta) throws IOException {
+        return abrir(carpeta, LOTE_BITACORA, 0, REGISTROS_POR_COMPACTACION);
+    }
+
+    /**
+     * Abre (o crea) un sistema de archivos persistente: carga la última instantánea de la carpeta, le aplica
+     * la bitácora y a partir de ahí registra cada mkdir, touch y rm exitoso antes de devolver OK.
+     * @param tamanioLote Cantidad de registros que dispara una escritura a disco sin esperar el intervalo.
+     * @param intervaloMicros Tiempo máximo que un registro espera a que se junten otros (0 = escribir apenas se pueda).
+     * @param registrosPorCompactacion Cada cuántos registros se guarda una instantánea y se descarta la bitácora vieja (0 = nunca).
+     */
+    public static FileSystem abrir(Path carpeta, int tamanioLote, long intervaloMicros,
+                                   long registrosPorCompactacion) throws IOException {
+        Files.createDirectories(carpeta);
+        List<Path> instantaneas = instantaneas(carpeta);
+        Directorio raiz;
+        long desde = 0;
+        if (instantaneas.isEmpty()) {
+            raiz = new Directorio("/", null);
+        } else {
+            Path ultima = instantaneas.get(instantaneas.size() - 1);
+            raiz = ArchivoInstantanea.abrir(ultima).raiz();
+            desde = secuenciaDe(ultima);
+        }
+        FileSystem reproduccion = new FileSystem(raiz, 0, false);
+        long siguiente = Bitacora.reproducir(carpeta, desde, reproduccion::reproducir);
+        return new FileSystem(raiz, carpeta, siguiente, tamanioLote, intervaloMicros, registrosPorCompactacion);
+    }
+
+    /**
+     * Guarda una instantánea del árbol y descarta la parte de la bitácora que ya quedó incluida en ella.
+     * Se hace sola cada tantos registros (ver abrir), pero se puede pedir en cualquier momento.
+     */
+    public void compactar() throws IOException {
+        if (bitacora == null) {
+            throw new IllegalStateException("El sistema de archivos no tiene bitácora.");
+        }
+        synchronized (compactacion) {
+            // Todo registro anterior a "desde" ya está publicado, así que la instantánea lo contiene;
+            // los posteriores que también haya alcanzado a ver se vuelven a aplicar sin efecto al reproducir
+            long desde = bitacora.rotar();
+            guardar(carpeta.resolve(String.format("%s%020d%s", PREFIJO_INSTANTANEA, desde, EXTENSION_INSTANTANEA)));
+            for (Path instantanea : instantaneas(carpeta)) {
+                if (secuenciaDe(instantanea) < desde) {
+                    Files.deleteIfExists(instantanea);
+                }
+            }
+            bitacora.eliminarSegmentosAnteriores(desde);
+        }
+    }
+
+    /**
+     * Baja a disco lo que quede pendiente en la bitácora y la cierra. En un sistema solo en memoria no hace nada.
+     * Si alguna compactación automática falló, su error se lanza acá (la bitácora sigue completa igual).
+     */
+    @Override
+    public void close() throws IOException {
+        Metricas publicadas = metricas;
+        if (publicadas != null) {
+            publicadas.retirarJmx();
+        }
+        if (bitacora != null) {
+            bitacora.cerrar();
+            IOException error = errorCompactacion;
+            if (error != null) {
+                throw new IOException("No se pudo compactar la bitácora.", error);
+            }
+        }
+    }
+
+    public CacheRutas getCacheRutas() {
+        return cacheRutas;
+    }
+
+    // null si el sistema se creó sin índice de rutas
+    public IndiceRutas getIndiceRutas() {
+        return indiceRutas;
+    }
+
+    /**
+     * Empieza a medir cd, touch, mkdir, rm, ls y la resolución de rutas de todas las sesiones.
+     * Si ya estaban habilitadas, devuelve las mismas métricas sin reiniciarlas.
+     */
+    public synchronized Metricas habilitarMetricas() {
+        if (metricas == null) {
+            metricas = new Metricas();
+        }
+        return metricas;
+    }
+
+    // Deja de medir; las métricas ya tomadas siguen disponibles en el objeto que devolvió habilitarMetricas
+    public synchronized void deshabilitarMetricas() {
+        if (metricas != null) {
+            metricas.retirarJmx();
+            metricas = null;
+        }
+    }
+
+    // null si las métricas no están habilitadas
+    public Metricas getMetricas() {
+        return metricas;
+    }
+
+    /**
+     * Monta un almacén en la ruta: su contenido aparece como un directorio nuevo con ese nombre, y las rutas
+     * absolutas que caen dentro se resuelven desde la raíz del montaje de prefijo más largo que las cubre.
+     * Los cambios dentro del montaje pasan primero por el almacén (uno de solo lectura los rechaza con SOLO_LECTURA).
+     * Un mv no cruza de un montaje a otro, ningún comando mueve ni borra un directorio que contenga un punto de
+     * montaje (OTRO_MONTAJE), y los lotes solo cambian lo que está en memoria.
+     * @param ruta Ruta del punto de montaje, que no debe existir; su directorio padre sí.
+     * @return OK, YA_EXISTE, RUTA_INEXISTENTE, OTRO_MONTAJE si el padre está en un montaje que no es en memoria,
+     *         o NOMBRE_VACIO/NOMBRE_INVALIDO.
+     * @throws IOException Si no se pudo preparar el almacén (por ejemplo, recorrer la carpeta de uno de disco).
+     * @throws IllegalStateException Si el sistema tiene bitácora, que no registra montajes, o si el almacén ya se montó.
+     */
+    public CodigoResultado montar(String ruta, Almacen almacen) throws IOException {
+        if (bitacora != null) {
+            throw new IllegalStateException("Un sistema con bitácora no admite montajes.");
+        }
+        if (ruta == null || ruta.isEmpty()) {
+            return CodigoResultado.NOMBRE_VACIO;
+        }
+        CursorRuta cursor = new CursorRuta(ruta);
+        if (!tieneHojaValida(cursor)) {
+            return CodigoResultado.NOMBRE_INVALIDO;
+        }
+        Directorio padre = resolverPadre(sesionPorDefecto.getDirectorioActual(), cursor);
+        if (padre == null) {
+            return CodigoResultado.RUTA_INEXISTENTE;
+        }
+        String nombre = cursor.hoja();
+        // Los montajes y desmontajes se hacen de a uno
+        synchronized (montajes) {
+            Montaje contenedor = montajeDe(padre);
+            if (contenedor != null && !contenedor.getAlmacen().esEnMemoria()) {
+                return CodigoResultado.OTRO_MONTAJE;
+            }
+            synchronized (padre) {
+                if (padre.estaDesconectado()) {
+                    return CodigoResultado.RUTA_INEXISTENTE;
+                }
+                if (padre.getHijo(nombre) != null) {
+                    return CodigoResultado.YA_EXISTE;
+                }
+                almacen.marcarMontado();
+                Directorio raizMontaje = almacen.crearRaiz(nombre, padre);
+                agregar(Bitacora.MKDIR, padre, raizMontaje);
+                montajes.agregar(new Montaje(rutaDe(padre, nombre), raizMontaje, almacen));
+            }
+        }
+        return CodigoResultado.OK;
+    }
+
+    /**
+     * Quita el montaje de la ruta junto con su directorio, como un rm -r que no toca el almacén: lo que hay
+     * en la carpeta o en la instantánea queda como estaba, y lo creado en un montaje en memoria se pierde.
+     * @return OK, NO_ENCONTRADO si la ruta no es un punto de montaje, u OTRO_MONTAJE si hay otros montados dentro.
+     */
+    public CodigoResultado desmontar(String ruta) {
+        Directorio raizMontaje = ruta == null || ruta.isEmpty() ? null : manejarRuta(sesionPorDefecto.getDirectorioActual(), ruta);
+        if (raizMontaje == null) {
+            return CodigoResultado.NO_ENCONTRADO;
+        }
+        synchronized (montajes) {
+            String rutaMontaje = raizMontaje.getRutaCompleta();
+            Montaje montaje = montajes.exacto(rutaMontaje);
+            if (montaje == null || montaje.getRaiz() != raizMontaje) {
+                return CodigoResultado.NO_ENCONTRADO;
+            }
+            if (montajes.contarDentroDe(rutaMontaje) > 1) {
+                return CodigoResultado.OTRO_MONTAJE;
+            }
+            Directorio padre = raizMontaje.getPadre();
+            synchronized (padre) {
+                synchronized (raizMontaje) {
+                    montajes.quitar(montaje);
+                    montaje.getAlmacen().cerrar();
+                    Directorio.iniciarPoda();
+                    raizMontaje.marcarEliminado(true);
+                    eliminar(Bitacora.RM_RECURSIVO, padre, raizMontaje.getNombre());
+                }
+            }
+        }
+        BorradoRecursivo.liberar(raizMontaje, indiceRutas != null ? indiceRutas::quitar : null, Directorio::terminarPoda);
+        return CodigoResultado.OK;
+    }
+
+    // Rutas de los puntos de montaje, del más largo al más corto
+    public List<String> getMontajes() {
+        return montajes.rutas();
     }
 
     /**
      * Cambia el directorio actual al especificado por dirName.
      * Si dirName es "..", se mueve al directorio padre.
      * Si dirName es un nombre de directorio, busca en el directorio actual.
-     * Si no se encuentra, imprime un mensaje de error y retorna false.
      * @param dirName El nombre del directorio al que cambiar.
-     * @return true si el cambio fue exitoso, false si no se encontró el directorio o si no se puede subir más.
+     * @return OK si el cambio fue exitoso, NO_ENCONTRADO si no existe el directorio o EN_LA_RAIZ si no se puede subir más.
      */
-    public boolean cd(String dirName) {
+    @Override
+    public CodigoResultado cd(String dirName) {
+        return cd(sesionPorDefecto, dirName);
+    }
+
+    CodigoResultado cd(Sesion sesion, String dirName) {
+        return medir(Metricas.Operacion.CD, sesion, dirName, FileSystem::cambiarDirectorio);
+    }
+
+    private CodigoResultado cambiarDirectorio(Sesion sesion, String dirName) {
         if (dirName == null || dirName.isEmpty()) {
-            System.out.println("Error: El nombre del directorio no puede ser nulo o vacío.");
-            return false;
+            return CodigoResultado.NOMBRE_VACIO;
         }
 
         // Direcciona al padre
+        Directorio directorioActual = sesion.getDirectorioActual();
         if (dirName.equals("..")) {
             if (directorioActual.getPadre() != null) {
-                directorioActual = directorioActual.getPadre();
-                return true;
+                sesion.setDirectorioActual(directorioActual.getPadre());
+                return CodigoResultado.OK;
             } else {
-                return false;
+                return CodigoResultado.EN_LA_RAIZ;
             }
         }
 
-        Directorio destino = manejarRuta(dirName);
+        Directorio destino = manejarRuta(directorioActual, dirName);
 
         if (destino != null) {
-            this.directorioActual = destino;
-            return true;
+            sesion.setDirectorioActual(destino);
+            return CodigoResultado.OK;
         } else {
-            System.out.println("Error: Directorio '" + dirName + "' no encontrado.");
-            return false;
+            return CodigoResultado.NO_ENCONTRADO;
         }
     }
 
     /**
      * Crea un nuevo archivo con el nombre especificado en el directorio actual o el directorio especificado si se pasa una ruta.
-     * Si el archivo ya existe, imprime un mensaje de error y retorna false.
      * @param fileName El nombre del archivo a crear.
-     * @return true si el archivo fue creado exitosamente, false si ya existe o si el nombre es inválido.
+     * @return OK si el archivo fue creado, YA_EXISTE si ya hay una entrada con ese nombre,
+     *         RUTA_INEXISTENTE si no existe el directorio destino, o NOMBRE_VACIO/NOMBRE_INVALIDO.
      */
-    public boolean touch (String fileName){
+    @Override
+    public CodigoResultado touch (String fileName){
+        return touch(sesionPorDefecto, fileName);
+    }
+
+    CodigoResultado touch(Sesion sesion, String fileName) {
+        return medir(Metricas.Operacion.TOUCH, sesion, fileName, FileSystem::crearArchivo);
+    }
+
+    private CodigoResultado crearArchivo(Sesion sesion, String fileName) {
         if (fileName == null || fileName.isEmpty()) {
-            System.out.println("Error: El nombre del archivo no puede ser nulo o vacío.");
-            return false;
+            return CodigoResultado.NOMBRE_VACIO;
         }
 
-        // En caso de que el nombre del archivo contenga una ruta, separo el nombre del archivo y la ruta del directorio
-        String[] partesRuta = fileName.split("/");
-        String nombreArchivo = partesRuta[partesRuta.length - 1];
-        String rutaDirectorio = "";
-        if (partesRuta.length > 1) {
-            rutaDirectorio = String.join("/", Arrays.copyOfRange(partesRuta, 0, partesRuta.length - 1));
+        // En caso de que el nombre del archivo contenga una ruta, se resuelve el directorio y el nombre en una sola pasada
+        CursorRuta cursor = new CursorRuta(fileName);
+        if (!tieneHojaValida(cursor)) {
+            return CodigoResultado.NOMBRE_INVALIDO;
         }
+        Directorio dirDestino = resolverPadre(sesion.getDirectorioActual(), cursor);
 
-        Directorio dirDestino;
-        if (rutaDirectorio.isEmpty()) { // Si no hay ruta, es en el directorio actual
-            dirDestino = directorioActual;
-        } else {
-            dirDestino = manejarRuta(rutaDirectorio);
+        if (dirDestino == null) {
+            return CodigoResultado.RUTA_INEXISTENTE;
         }
 
-        if (dirDestino == null) {
-            System.out.println("Error: La ruta del directorio para '" + fileName + "' no existe.");
-            return false;
+        String nombreArchivo = cursor.hoja();
+        long secuencia;
+
+        // Se bloquea solo el directorio destino: la verificación y el alta deben ser atómicas,
+        // y un rm concurrente del destino lo marca como eliminado bajo este mismo bloqueo
+        boolean rutas = bloquearRutas();
+        try {
+            synchronized (dirDestino) {
+                if (dirDestino.estaDesconectado()) {
+                    return CodigoResultado.RUTA_INEXISTENTE;
+                }
+                if (dirDestino.getHijo(nombreArchivo) != null) {
+                    return CodigoResultado.YA_EXISTE;
+                }
+                if (!montajes.estaVacia()) {
+                    CodigoResultado permitido = pasarAlAlmacen(dirDestino,
+                            almacen -> almacen.crear(dirDestino, nombreArchivo, false));
+                    if (permitido != CodigoResultado.OK) {
+                        return permitido;
+                    }
+                }
+
+                Archivo nuevoArchivo = new Archivo(nombreArchivo, dirDestino);
+                secuencia = agregar(Bitacora.TOUCH, dirDestino, nuevoArchivo);
+            }
+        } finally {
+            if (rutas) liberarEstructura();
         }
+        if (secuencia == Bitacora.RECHAZADO) {
+            return CodigoResultado.RUTA_INEXISTENTE;
+        }
+        esperarBitacora(secuencia);
+        return CodigoResultado.OK;
+    }
 
-        if (dirDestino.getHijo(nombreArchivo) != null) {
-            System.out.println("Error: Ya existe un archivo o directorio con el nombre '" + nombreArchivo + "' en este directorio.");
-            return false;
+    /**
+     * Escribe en la salida los archivos y carpetas dentro del directorio actual.
+     * @return La cantidad de entradas listadas (0 si el directorio está vacío).
+     */
+    @Override
+    public int ls(Salida salida) {
+        return ls(sesionPorDefecto, salida);
+    }
+
+    int ls(Sesion sesion, Salida salida) {
+        Metricas metricas = this.metricas;
+        long inicio = metricas != null ? System.nanoTime() : 0;
+        // Se recorre una única versión de los hijos, así que el listado es consistente aunque haya escrituras concurrentes
+        Map<String, FileSystemBase> hijos = sesion.getDirectorioActual().getHijos();
+        for (FileSystemBase hijo : hijos.values()) {
+            salida.entrada(hijo.getNombre(), hijo instanceof Directorio);
+        }
+        if (metricas != null) {
+            metricas.registrar(Metricas.Operacion.LS, System.nanoTime() - inicio, false);
+            metricas.registrarAbanico(hijos.size());
         }
+        return hijos.size();
+    }
 
-        Archivo nuevoArchivo = new Archivo(nombreArchivo, dirDestino);
-        dirDestino.addHijo(nuevoArchivo);        
-        return true;
+    /**
+     * Escribe en la salida una página del directorio de la ruta, ordenada por nombre y filtrada por prefijo.
+     * Se apoya en un índice ordenado del directorio, así que una página cuesta O(log n + limite) y no O(n).
+     * Cada página lee una única versión del directorio: con altas concurrentes entre páginas, las entradas
+     * posteriores al token aparecen en las páginas siguientes y ninguna se repite.
+     * @param ruta Directorio a listar, o null/vacío para el actual.
+     * @param prefijo Prefijo de los nombres a listar (null o "" para todos).
+     * @param desde Token de la página anterior (PaginaListado.getSiguiente), o null para la primera.
+     * @param limite Cantidad máxima de entradas de la página.
+     * @return La página, con resultado NO_ENCONTRADO si la ruta no es un directorio.
+     */
+    @Override
+    public PaginaListado ls(String ruta, String prefijo, String desde, int limite, Salida salida) {
+        return ls(sesionPorDefecto, ruta, prefijo, desde, limite, salida);
+    }
+
+    PaginaListado ls(Sesion sesion, String ruta, String prefijo, String desde, int limite, Salida salida) {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("El tamaño de la página debe ser positivo.");
+        }
+        Metricas metricas = this.metricas;
+        long inicio = metricas != null ? System.nanoTime() : 0;
+        Directorio directorio = ruta == null || ruta.isEmpty()
+                ? sesion.getDirectorioActual()
+                : manejarRuta(sesion.getDirectorioActual(), ruta);
+        PaginaListado pagina = directorio == null
+                ? PaginaListado.NO_ENCONTRADO
+                : directorio.indiceOrdenado().listar(prefijo == null ? "" : prefijo, desde, limite, salida);
+        if (metricas != null) {
+            metricas.registrar(Metricas.Operacion.LS, System.nanoTime() - inicio, pagina.getResultado());
+            if (directorio != null) {
+                metricas.registrarAbanico(directorio.getHijos().size());
+            }
+        }
+        return pagina;
     }
 
     /**
-     * Lista los archivos y carpetas dentro del directorio actual.
+     * Devuelve los totales del subárbol de la ruta sin recorrerlo: cada directorio los mantiene al día.
+     * Con escrituras concurrentes cada total es exacto en algún momento de la llamada, pero no necesariamente
+     * en el mismo para todos; para totales de un único instante conviene calcularlos sobre una instantánea.
+     * @param ruta Directorio a medir, o null/vacío para el actual.
+     * @return Los totales, con resultado NO_ENCONTRADO si la ruta no es un directorio.
      */
-    public void ls() {
-        if (directorioActual.getHijos().isEmpty()) {
-            System.out.println("El directorio está vacío.");
-            return;
+    @Override
+    public UsoDirectorio du(String ruta) {
+        return du(sesionPorDefecto, ruta);
+    }
+
+    /**
+     * Devuelve el id de inodo de la entrada (archivo o directorio) de la ruta y la registra en la tabla de nodos,
+     * para poder volver a encontrarla con buscarPorId aunque después se renombre o se mueva.
+     * @return El id, o -1 si la ruta no existe.
+     */
+    public long obtenerId(String ruta) {
+        return obtenerId(sesionPorDefecto, ruta);
+    }
+
+    long obtenerId(Sesion sesion, String ruta) {
+        if (ruta == null || ruta.isEmpty()) {
+            return -1;
+        }
+        FileSystemBase entrada = resolverEntrada(sesion.getDirectorioActual(), ruta);
+        if (entrada == null) {
+            return -1;
+        }
+        tablaNodos.agregar(entrada);
+        return entrada.getId();
+    }
+
+    /**
+     * Resuelve en O(1) un id entregado por obtenerId, esté donde esté la entrada ahora.
+     * @return La entrada, o null si se eliminó, si el id se soltó o si nunca se entregó.
+     */
+    public FileSystemBase buscarPorId(long id) {
+        FileSystemBase nodo = tablaNodos.buscar(id);
+        if (nodo == null) {
+            return null;
         }
-        for (FileSystemBase hijo : directorioActual.getHijos().values()) {
-            System.out.println(hijo.getNombre() + (hijo instanceof Directorio ? "/" : ""));
+        boolean eliminado = nodo instanceof Directorio dir ? dir.estaDesconectado() : ((Archivo) nodo).estaEliminado();
+        if (eliminado) {
+            // La entrada ya no vuelve al árbol, así que no se la sigue reteniendo
+            tablaNodos.quitar(id);
+            return null;
         }
+        return nodo;
+    }
+
+    /**
+     * Abre una vigilancia sobre el subárbol del directorio de la ruta, que recibe por lotes las entradas que se crean
+     * y se eliminan desde ahora (ver Vigilancia). Mientras no haya vigilancias abiertas, publicar no cuesta nada.
+     * @return La vigilancia, o null si la ruta no es un directorio.
+     */
+    public Vigilancia vigilar(String ruta) {
+        return vigilar(sesionPorDefecto, ruta);
+    }
+
+    Vigilancia vigilar(Sesion sesion, String ruta) {
+        Directorio directorio = ruta == null || ruta.isEmpty()
+                ? sesion.getDirectorioActual()
+                : manejarRuta(sesion.getDirectorioActual(), ruta);
+        return directorio == null ? null : new Vigilancia(eventos, directorio.getRutaCompleta());
+    }
+
+    // Para Lote, que publica sus altas y bajas después de aplicarlas
+    AnilloEventos getEventos() {
+        return eventos;
+    }
+
+    // Deja de retener la entrada del id; devuelve false si no estaba registrado
+    public boolean soltarId(long id) {
+        return tablaNodos.quitar(id);
+    }
+
+    // Cantidad de ids entregados que todavía están en la tabla de nodos
+    public int getIdsRegistrados() {
+        return tablaNodos.tamanio();
+    }
+
+    UsoDirectorio du(Sesion sesion, String ruta) {
+        Directorio directorio = ruta == null || ruta.isEmpty()
+                ? sesion.getDirectorioActual()
+                : manejarRuta(sesion.getDirectorioActual(), ruta);
+        if (directorio == null) {
+            return UsoDirectorio.NO_ENCONTRADO;
+        }
+        return UsoDirectorio.de(directorio);
+    }
+
+    /**
+     * Busca las entradas bajo la ruta cuya ruta relativa coincide con el glob (por ejemplo, **&#47;*.log).
+     * El patrón se compila una vez y se evalúa nivel a nivel, cortando las ramas que ya no pueden coincidir.
+     * El stream es paralelo: el recorrido se reparte por subdirectorios entre los hilos del ForkJoinPool común
+     * y los resultados salen a medida que se encuentran, sin un orden definido. Se puede cortar en cualquier momento
+     * (findFirst, limit, anyMatch) y con sequential() se recorre de forma perezosa en el hilo que consume.
+     * @param ruta Directorio donde empieza la búsqueda, o null/vacío para el actual.
+     * @param glob Patrón con *, ?, [...] y ** como segmento para cualquier cantidad de directorios.
+     * @param maxDepth Profundidad máxima de las entradas (1 para solo los hijos directos).
+     * @return Las rutas absolutas que coinciden, o un stream vacío si la ruta no es un directorio.
+     */
+    @Override
+    public Stream<String> find(String ruta, String glob, int maxDepth) {
+        return find(sesionPorDefecto, ruta, glob, maxDepth);
+    }
+
+    Stream<String> find(Sesion sesion, String ruta, String glob, int maxDepth) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("La profundidad máxima no puede ser negativa.");
+        }
+        PatronGlob patron = PatronGlob.compilar(glob);
+        Directorio directorio = ruta == null || ruta.isEmpty()
+                ? sesion.getDirectorioActual()
+                : manejarRuta(sesion.getDirectorioActual(), ruta);
+        if (directorio == null) {
+            return Stream.empty();
+        }
+        return StreamSupport.stream(new RecorridoBusqueda(patron, directorio, maxDepth), true);
     }
 
     /**
      * Crea un nuevo directorio con el nombre especificado en el directorio actual o en el directorio especificado si se pasa una ruta.
-     * Si el directorio ya existe, imprime un mensaje de error y retorna false.
      * @param dirName El nombre del directorio a crear.
-     * @return true si el directorio fue creado exitosamente, false si ya existe o si el nombre es inválido.
+     * @return OK si el directorio fue creado, YA_EXISTE si ya hay una entrada con ese nombre,
+     *         RUTA_INEXISTENTE si no existe el directorio padre, o NOMBRE_VACIO/NOMBRE_INVALIDO.
      */
-    public boolean mkdir(String dirName) {
+    @Override
+    public CodigoResultado mkdir(String dirName) {
+        return mkdir(sesionPorDefecto, dirName);
+    }
+
+    CodigoResultado mkdir(Sesion sesion, String dirName) {
+        return medir(Metricas.Operacion.MKDIR, sesion, dirName, FileSystem::crearDirectorio);
+    }
+
+    private CodigoResultado crearDirectorio(Sesion sesion, String dirName) {
         if (dirName == null || dirName.isEmpty()) {
-            System.out.println("Error: El nombre del directorio no puede ser nulo o vacío.");
-            return false;
+            return CodigoResultado.NOMBRE_VACIO;
         }
 
-        String[] partesRuta = dirName.split("/");
-        String nombreDirectorio = partesRuta[partesRuta.length - 1];
-        String rutaDirectorioPadre = "";
-        if (partesRuta.length > 1) {
-            rutaDirectorioPadre = String.join("/", Arrays.copyOfRange(partesRuta, 0, partesRuta.length - 1));
+        CursorRuta cursor = new CursorRuta(dirName);
+        if (!tieneHojaValida(cursor)) {
+            return CodigoResultado.NOMBRE_INVALIDO;
         }
+        Directorio dirPadre = resolverPadre(sesion.getDirectorioActual(), cursor);
 
-        Directorio dirPadre;
-        if (rutaDirectorioPadre.isEmpty()) { // Si no hay ruta, es en el directorio actual
-            dirPadre = directorioActual;
-        } else {
-            dirPadre = manejarRuta(rutaDirectorioPadre);
+        if (dirPadre == null) {
+            return CodigoResultado.RUTA_INEXISTENTE;
         }
 
-        if (dirPadre == null) {
-            System.out.println("Error: La ruta del directorio padre para '" + dirName + "' no existe.");
-            return false;
+        String nombreDirectorio = cursor.hoja();
+        long secuencia;
+
+        boolean rutas = bloquearRutas();
+        try {
+            synchronized (dirPadre) {
+                if (dirPadre.estaDesconectado()) {
+                    return CodigoResultado.RUTA_INEXISTENTE;
+                }
+                if (dirPadre.getHijo(nombreDirectorio) != null) {
+                    return CodigoResultado.YA_EXISTE;
+                }
+                if (!montajes.estaVacia()) {
+                    CodigoResultado permitido = pasarAlAlmacen(dirPadre,
+                            almacen -> almacen.crear(dirPadre, nombreDirectorio, true));
+                    if (permitido != CodigoResultado.OK) {
+                        return permitido;
+                    }
+                }
+
+                Directorio nuevoDirectorio = new Directorio(nombreDirectorio, dirPadre);
+                secuencia = agregar(Bitacora.MKDIR, dirPadre, nuevoDirectorio);
+            }
+        } finally {
+            if (rutas) liberarEstructura();
+        }
+        if (secuencia == Bitacora.RECHAZADO) {
+            return CodigoResultado.RUTA_INEXISTENTE;
         }
+        esperarBitacora(secuencia);
+        return CodigoResultado.OK;
+    }
 
-        if (dirPadre.getHijo(nombreDirectorio) != null) {
-            System.out.println("Error: Ya existe un archivo o directorio con el nombre '" + nombreDirectorio + "' en este directorio.");
-            return false;
+    /**
+     * Crea el directorio de la ruta junto con todos los intermedios que falten (mkdir -p), en un solo recorrido:
+     * cada segmento se busca en el directorio al que se llegó con el anterior y solo los que no existen se crean.
+     * @param dirName La ruta del directorio a crear.
+     * @return OK si el directorio quedó creado o ya existía, YA_EXISTE si la ruta termina en un archivo,
+     *         RUTA_INEXISTENTE si algún intermedio es un archivo o se borró durante la creación, o NOMBRE_VACIO/NOMBRE_INVALIDO.
+     */
+    @Override
+    public CodigoResultado mkdirConPadres(String dirName) {
+        return mkdirConPadres(sesionPorDefecto, dirName);
+    }
+
+    // Se mide junto con mkdir
+    CodigoResultado mkdirConPadres(Sesion sesion, String dirName) {
+        return medir(Metricas.Operacion.MKDIR, sesion, dirName, FileSystem::crearDirectorios);
+    }
+
+    private CodigoResultado crearDirectorios(Sesion sesion, String dirName) {
+        if (dirName == null || dirName.isEmpty()) {
+            return CodigoResultado.NOMBRE_VACIO;
         }
 
-        Directorio nuevoDirectorio = new Directorio(nombreDirectorio, dirPadre);
-        dirPadre.addHijo(nuevoDirectorio);
-        return true;
+        CursorRuta cursor = new CursorRuta(dirName);
+        if (!tieneHojaValida(cursor)) {
+            return CodigoResultado.NOMBRE_INVALIDO;
+        }
+        Directorio actual = cursor.esAbsoluta() ? raiz : sesion.getDirectorioActual();
+        CodigoResultado resultado = CodigoResultado.OK;
+        long secuencia = -1;
+
+        while (cursor.siguiente()) {
+            if (cursor.esPuntoPunto()) {
+                if (actual.getPadre() != null) {
+                    actual = actual.getPadre();
+                }
+                continue;
+            }
+            if (cursor.esPunto()) {
+                continue;
+            }
+            String nombre = cursor.segmento();
+            FileSystemBase existente = actual.getHijo(nombre);
+            if (existente == null) {
+                // Se bloquea un directorio por vez, el que recibe el alta, como en mkdir
+                boolean rutas = bloquearRutas();
+                try {
+                    synchronized (actual) {
+                        if (actual.estaDesconectado()) {
+                            resultado = CodigoResultado.RUTA_INEXISTENTE;
+                            break;
+                        }
+                        existente = actual.getHijo(nombre);
+                        if (existente == null && !montajes.estaVacia()) {
+                            Directorio padre = actual;
+                            CodigoResultado permitido = pasarAlAlmacen(padre, almacen -> almacen.crear(padre, nombre, true));
+                            if (permitido != CodigoResultado.OK) {
+                                resultado = permitido;
+                                break;
+                            }
+                        }
+                        if (existente == null) {
+                            Directorio nuevo = new Directorio(nombre, actual);
+                            long registrada = agregar(Bitacora.MKDIR, actual, nuevo);
+                            if (registrada == Bitacora.RECHAZADO) {
+                                resultado = CodigoResultado.RUTA_INEXISTENTE;
+                                break;
+                            }
+                            secuencia = registrada;
+                            existente = nuevo;
+                        }
+                    }
+                } finally {
+                    if (rutas) liberarEstructura();
+                }
+            }
+            if (existente instanceof Directorio dir) {
+                actual = dir;
+            } else {
+                resultado = cursor.esHoja() ? CodigoResultado.YA_EXISTE : CodigoResultado.RUTA_INEXISTENTE;
+                break;
+            }
+        }
+        // Los intermedios que alcanzaron a crearse quedan aunque el resto falle, igual que en mkdir -p
+        esperarBitacora(secuencia);
+        return resultado;
     }
 
     /**
-     * Imprime la ruta completa del directorio actual. [cite: 16]
+     * Empieza un lote de touch, mkdir y rm que se aplica de forma atómica y agrupado por directorio padre.
+     * Las rutas relativas del lote se resuelven contra el directorio actual de la sesión por defecto.
      */
-    public void pwd() {
-        System.out.println(directorioActual.getRutaCompleta());
+    public Lote lote() {
+        return new Lote(this, sesionPorDefecto);
+    }
+
+    /**
+     * Escribe en la salida la ruta completa del directorio actual. [cite: 16]
+     */
+    @Override
+    public void pwd(Salida salida) {
+        pwd(sesionPorDefecto, salida);
+    }
+
+    void pwd(Sesion sesion, Salida salida) {
+        salida.linea(sesion.getDirectorioActual().getRutaCompleta());
     }
 
     /*
      * Elimina un archivo o directorio especificado por su nombre.
-     * Si el nombre es nulo o vacío, imprime un mensaje de error y retorna false
-     * Si el directorio no esta vacio no se lo puede eliminar
+     * Devuelve NOMBRE_VACIO si el nombre es nulo o vacío, NO_ENCONTRADO si la entrada no existe
+     * y DIRECTORIO_NO_VACIO si se intenta eliminar un directorio que no está vacío
      */
-    public boolean rm (String name) {
+    @Override
+    public CodigoResultado rm (String name) {
+        return rm(sesionPorDefecto, name);
+    }
+
+    CodigoResultado rm(Sesion sesion, String name) {
+        return medir(Metricas.Operacion.RM, sesion, name, FileSystem::eliminarEntrada);
+    }
+
+    private CodigoResultado eliminarEntrada(Sesion sesion, String name) {
         if (name == null || name.isEmpty()) {
-            System.out.println("Error: El nombre no puede ser nulo o vacío.");
-            return false;
+            return CodigoResultado.NOMBRE_VACIO;
         }
 
-        String[] partesRuta = name.split("/");
-        String nombreAEliminar = partesRuta[partesRuta.length - 1];
-        String rutaDirectorioPadre = "";
-        if (partesRuta.length > 1) {
-            rutaDirectorioPadre = String.join("/", Arrays.copyOfRange(partesRuta, 0, partesRuta.length - 1));
+        CursorRuta cursor = new CursorRuta(name);
+        if (!tieneHojaValida(cursor)) {
+            return CodigoResultado.NOMBRE_INVALIDO;
         }
+        Directorio dirPadre = resolverPadre(sesion.getDirectorioActual(), cursor);
 
-        Directorio dirPadre;
-        if (rutaDirectorioPadre.isEmpty()) { // Si no hay ruta, es en el directorio actual
-            dirPadre = directorioActual;
-        } else {
-            dirPadre = manejarRuta(rutaDirectorioPadre);
+        if (dirPadre == null) {
+            return CodigoResultado.RUTA_INEXISTENTE;
+        }
+
+        String nombreAEliminar = cursor.hoja();
+        long secuencia;
+
+        // Los bloqueos se toman siempre de padre a hijo, igual que en el resto de las operaciones
+        boolean rutas = bloquearRutas();
+        try {
+            synchronized (dirPadre) {
+                if (dirPadre.estaDesconectado()) {
+                    return CodigoResultado.RUTA_INEXISTENTE;
+                }
+                FileSystemBase entrada = dirPadre.getHijo(nombreAEliminar);
+                if (entrada == null) {
+                    return CodigoResultado.NO_ENCONTRADO;
+                }
+
+                if (entrada instanceof Directorio dirAEliminar) {
+                    // Con el directorio bloqueado nadie puede crear algo dentro entre la verificación y el borrado
+                    synchronized (dirAEliminar) {
+                        if (!dirAEliminar.estaVacio()) {
+                            return CodigoResultado.DIRECTORIO_NO_VACIO;
+                        }
+                        CodigoResultado permitido = eliminarDelAlmacen(dirPadre, nombreAEliminar, entrada, false);
+                        if (permitido != CodigoResultado.OK) {
+                            return permitido;
+                        }
+                        secuencia = eliminar(Bitacora.RM, dirPadre, nombreAEliminar);
+                    }
+                } else {
+                    CodigoResultado permitido = eliminarDelAlmacen(dirPadre, nombreAEliminar, entrada, false);
+                    if (permitido != CodigoResultado.OK) {
+                        return permitido;
+                    }
+                    secuencia = eliminar(Bitacora.RM, dirPadre, nombreAEliminar);
+                }
+            }
+        } finally {
+            if (rutas) liberarEstructura();
         }
+        if (secuencia == Bitacora.RECHAZADO) {
+            return CodigoResultado.RUTA_INEXISTENTE;
+        }
+        esperarBitacora(secuencia);
+        return CodigoResultado.OK;
+    }
+
+    /**
+     * Elimina un archivo o un directorio con todo su contenido (rm -r).
+     * El subárbol se quita de su padre en una sola operación, así que deja de verse en el momento, y la memoria
+     * de sus nodos se libera después en segundo plano. Las sesiones paradas dentro del subárbol lo ven vacío
+     * y no pueden crear nada en él.
+     * @param name El nombre o la ruta de la entrada a eliminar.
+     * @return El borrado, cuyo resultado es OK, NO_ENCONTRADO, RUTA_INEXISTENTE o NOMBRE_VACIO/NOMBRE_INVALIDO;
+     *         con esperar() se obtienen las cantidades de archivos y directorios eliminados.
+     */
+    @Override
+    public BorradoRecursivo rmRecursivo(String name) {
+        return rmRecursivo(sesionPorDefecto, name);
+    }
+
+    BorradoRecursivo rmRecursivo(Sesion sesion, String name) {
+        if (name == null || name.isEmpty()) {
+            return BorradoRecursivo.terminado(CodigoResultado.NOMBRE_VACIO, 0, 0);
+        }
+
+        CursorRuta cursor = new CursorRuta(name);
+        if (!tieneHojaValida(cursor)) {
+            return BorradoRecursivo.terminado(CodigoResultado.NOMBRE_INVALIDO, 0, 0);
+        }
+        Directorio dirPadre = resolverPadre(sesion.getDirectorioActual(), cursor);
 
         if (dirPadre == null) {
-            System.out.println("Error: La ruta del directorio padre para '" + name + "' no existe.");
-            return false;
+            return BorradoRecursivo.terminado(CodigoResultado.RUTA_INEXISTENTE, 0, 0);
         }
 
-        FileSystemBase entrada = dirPadre.getHijo(nombreAEliminar);
-        if (entrada == null) {
-            System.out.println("Error: '" + name + "' no encontrado.");
-            return false;
+        String nombreAEliminar = cursor.hoja();
+        FileSystemBase entrada;
+        long secuencia;
+
+        boolean rutas = bloquearRutas();
+        try {
+            synchronized (dirPadre) {
+                if (dirPadre.estaDesconectado()) {
+                    return BorradoRecursivo.terminado(CodigoResultado.RUTA_INEXISTENTE, 0, 0);
+                }
+                entrada = dirPadre.getHijo(nombreAEliminar);
+                if (entrada == null) {
+                    return BorradoRecursivo.terminado(CodigoResultado.NO_ENCONTRADO, 0, 0);
+                }
+
+                if (entrada instanceof Directorio dirAEliminar) {
+                    // La raíz del subárbol se marca antes de registrar el borrado: desde ese momento la bitácora rechaza
+                    // cualquier alta o baja dentro del subárbol, así que ninguna puede quedar registrada después del rm -r
+                    synchronized (dirAEliminar) {
+                        CodigoResultado permitido = eliminarDelAlmacen(dirPadre, nombreAEliminar, entrada, true);
+                        if (permitido != CodigoResultado.OK) {
+                            return BorradoRecursivo.terminado(permitido, 0, 0);
+                        }
+                        Directorio.iniciarPoda();
+                        dirAEliminar.marcarEliminado(true);
+                        try {
+                            secuencia = eliminar(Bitacora.RM_RECURSIVO, dirPadre, nombreAEliminar);
+                        } catch (RuntimeException e) {
+                            dirAEliminar.marcarEliminado(false);
+                            Directorio.terminarPoda();
+                            throw e;
+                        }
+                        if (secuencia == Bitacora.RECHAZADO) {
+                            // Un rm -r concurrente de un ancestro ganó la carrera
+                            dirAEliminar.marcarEliminado(false);
+                            Directorio.terminarPoda();
+                        }
+                    }
+                } else {
+                    CodigoResultado permitido = eliminarDelAlmacen(dirPadre, nombreAEliminar, entrada, false);
+                    if (permitido != CodigoResultado.OK) {
+                        return BorradoRecursivo.terminado(permitido, 0, 0);
+                    }
+                    secuencia = eliminar(Bitacora.RM, dirPadre, nombreAEliminar);
+                }
+            }
+        } finally {
+            if (rutas) liberarEstructura();
+        }
+        if (secuencia == Bitacora.RECHAZADO) {
+            return BorradoRecursivo.terminado(CodigoResultado.RUTA_INEXISTENTE, 0, 0);
+        }
+
+        BorradoRecursivo borrado;
+        if (entrada instanceof Archivo archivo) {
+            archivo.liberarContenido();
+            borrado = BorradoRecursivo.terminado(CodigoResultado.OK, 1, 0);
+        } else {
+            borrado = BorradoRecursivo.liberar(entrada, indiceRutas != null ? indiceRutas::quitar : null,
+                    Directorio::terminarPoda);
+        }
+        esperarBitacora(secuencia);
+        return borrado;
+    }
+    /**
+     * Mueve o renombra un archivo o un directorio (mv). Si el destino es un directorio existente, la entrada se mueve
+     * adentro con su mismo nombre; si no, el destino es la ruta nueva completa. Un directorio se mueve sin recorrer
+     * su contenido: cambian solo las entradas de los dos padres, y sus totales pasan de unos ancestros a otros.
+     * @return OK, NO_ENCONTRADO si el origen no existe, RUTA_INEXISTENTE si no existe el directorio padre de alguna
+     *         de las rutas, YA_EXISTE si el destino ya existe, DESTINO_DENTRO_DEL_ORIGEN si un directorio quedaría
+     *         dentro de sí mismo, o NOMBRE_VACIO/NOMBRE_INVALIDO.
+     */
+    @Override
+    public CodigoResultado mv(String origen, String destino) {
+        return mv(sesionPorDefecto, origen, destino);
+    }
+
+    CodigoResultado mv(Sesion sesion, String origen, String destino) {
+        return new Traslado(Bitacora.MV, origen, destino).aplicar(sesion);
+    }
+
+    /**
+     * Copia un archivo o un directorio con todo su contenido (cp -r), con el mismo criterio de destino que mv.
+     * La copia no duplica nada al crearse: un archivo comparte el contenido hasta que alguno de los dos se escribe,
+     * y un directorio arma sus hijos, tal como estaban al copiar, recién cuando alguien lo recorre
+     * (ver Directorio.copiaDe). Sus totales de du ya están desde el principio.
+     * @return Los mismos resultados que mv.
+     */
+    @Override
+    public CodigoResultado cp(String origen, String destino) {
+        return cp(sesionPorDefecto, origen, destino);
+    }
+
+    CodigoResultado cp(Sesion sesion, String origen, String destino) {
+        return new Traslado(Bitacora.CP, origen, destino).aplicar(sesion);
+    }
+
+    // Un mv o un cp. Se resuelve y se aplica con la estructura bloqueada: para leer si no mueve un directorio,
+    // para escribir si lo mueve, así nadie cambia de lugar los ancestros del destino mientras se verifica que
+    // no quede dentro del origen. Los dos padres se bloquean en el mismo orden que en un Lote
+    private final class Traslado {
+        private final byte tipo;
+        private final String origen;
+        private final String destino;
+        private boolean exclusivo;
+        private long secuencia = -1;
+
+        private Traslado(byte tipo, String origen, String destino) {
+            this.tipo = tipo;
+            this.origen = origen;
+            this.destino = destino;
         }
 
-        
-        if (entrada instanceof Directorio dirAEliminar) {
-            if (!dirAEliminar.getHijos().isEmpty()) {
-                System.out.println("Error: El directorio '" + nombreAEliminar + "' no está vacío y no puede ser eliminado.");
-                return false;
+        private CodigoResultado aplicar(Sesion sesion) {
+            if (origen == null || origen.isEmpty() || destino == null || destino.isEmpty()) {
+                return CodigoResultado.NOMBRE_VACIO;
+            }
+            if (!tieneHojaValida(new CursorRuta(origen)) || !tieneHojaValida(new CursorRuta(destino))) {
+                return CodigoResultado.NOMBRE_INVALIDO;
+            }
+            while (true) {
+                ReentrantReadWriteLock.ReadLock lectura = estructura.readLock();
+                ReentrantReadWriteLock.WriteLock escritura = estructura.writeLock();
+                CodigoResultado resultado;
+                if (exclusivo) escritura.lock(); else lectura.lock();
+                try {
+                    resultado = resolver(sesion.getDirectorioActual());
+                } finally {
+                    if (exclusivo) escritura.unlock(); else lectura.unlock();
+                }
+                if (resultado != null) {
+                    if (resultado.esExito()) {
+                        esperarBitacora(secuencia);
+                    }
+                    return resultado;
+                }
+                // Resultó ser un mv de un directorio: se vuelve a empezar con la escritura
+                exclusivo = true;
             }
         }
 
-        dirPadre.removeHijo(nombreAEliminar);
+        // Devuelve null si hace falta la escritura de estructura y no se la tiene
+        private CodigoResultado resolver(Directorio actual) {
+            CursorRuta cursorOrigen = new CursorRuta(origen);
+            Directorio padreOrigen = resolverPadre(actual, cursorOrigen);
+            if (padreOrigen == null) {
+                return CodigoResultado.RUTA_INEXISTENTE;
+            }
+            String nombre = cursorOrigen.hoja();
+            Directorio padreDestino = manejarRuta(actual, destino);
+            String nuevoNombre = nombre;
+            if (padreDestino == null) {
+                CursorRuta cursorDestino = new CursorRuta(destino);
+                padreDestino = resolverPadre(actual, cursorDestino);
+                if (padreDestino == null) {
+                    return CodigoResultado.RUTA_INEXISTENTE;
+                }
+                nuevoNombre = cursorDestino.hoja();
+            }
+
+            Directorio primero = padreOrigen;
+            Directorio segundo = padreDestino;
+            int orden = Lote.ORDEN_BLOQUEO.compare(primero, segundo);
+            if (orden > 0) {
+                primero = padreDestino;
+                segundo = padreOrigen;
+            }
+            if (primero == segundo) {
+                synchronized (primero) {
+                    return aplicarBloqueado(padreOrigen, nombre, padreDestino, nuevoNombre);
+                }
+            }
+            if (orden == 0) {
+                synchronized (Lote.EMPATE) {
+                    synchronized (primero) {
+                        synchronized (segundo) {
+                            return aplicarBloqueado(padreOrigen, nombre, padreDestino, nuevoNombre);
+                        }
+                    }
+                }
+            }
+            synchronized (primero) {
+                synchronized (segundo) {
+                    return aplicarBloqueado(padreOrigen, nombre, padreDestino, nuevoNombre);
+                }
+            }
+        }
+
+        private CodigoResultado aplicarBloqueado(Directorio padreOrigen, String nombre,
+                                                 Directorio padreDestino, String nuevoNombre) {
+            if (padreOrigen.estaDesconectado() || padreDestino.estaDesconectado()) {
+                return CodigoResultado.RUTA_INEXISTENTE;
+            }
+            FileSystemBase entrada = padreOrigen.getHijo(nombre);
+            if (entrada == null) {
+                return CodigoResultado.NO_ENCONTRADO;
+            }
+            if (entrada instanceof Directorio dir) {
+                if (tipo == Bitacora.MV && !exclusivo) {
+                    return null;
+                }
+                if (contiene(dir, padreDestino)) {
+                    return CodigoResultado.DESTINO_DENTRO_DEL_ORIGEN;
+                }
+            }
+            if (padreDestino.getHijo(nuevoNombre) != null) {
+                return CodigoResultado.YA_EXISTE;
+            }
+            if (!montajes.estaVacia()) {
+                CodigoResultado permitido = trasladarEnAlmacen(entrada, padreOrigen, nombre, padreDestino, nuevoNombre);
+                if (permitido != CodigoResultado.OK) {
+                    return permitido;
+                }
+            }
+
+            FileSystemBase copia = null;
+            if (tipo == Bitacora.CP) {
+                copia = entrada instanceof Directorio dir
+                        ? Directorio.copiaDe(dir, nuevoNombre, padreDestino)
+                        : ((Archivo) entrada).copiaEn(Long.MAX_VALUE, nuevoNombre, padreDestino);
+            }
+            if (bitacora != null) {
+                // Se rechaza también si el origen quedó dentro de un rm -r: al reproducir ya no estaría
+                secuencia = bitacora.registrar(tipo, rutaDe(padreOrigen, nombre), rutaDe(padreDestino, nuevoNombre),
+                        List.of(padreOrigen, padreDestino));
+                if (secuencia == Bitacora.RECHAZADO) {
+                    if (copia instanceof Directorio dir) {
+                        dir.descartarCopia();
+                    }
+                    return CodigoResultado.RUTA_INEXISTENTE;
+                }
+            }
+            if (copia != null) {
+                padreDestino.addHijo(copia);
+            } else {
+                Directorio.mover(padreOrigen, nombre, padreDestino, nuevoNombre);
+                if (indiceRutas != null && entrada instanceof Directorio dir) {
+                    // Solo se reindexa el directorio movido; sus descendientes se corrigen al resolverlos
+                    long generacion = FileSystemBase.generacionActual();
+                    indiceRutas.agregar(rutaDe(padreDestino, nuevoNombre), dir, generacion);
+                }
+            }
+            if (secuencia >= 0) {
+                bitacora.terminar(secuencia);
+            }
+            return CodigoResultado.OK;
+        }
+
+        // Un cp se puede hacer desde cualquier lado y lo aplica el almacén del destino; un mv tiene que quedar
+        // dentro del mismo montaje y no puede llevarse un punto de montaje
+        private CodigoResultado trasladarEnAlmacen(FileSystemBase entrada, Directorio padreOrigen, String nombre,
+                                                   Directorio padreDestino, String nuevoNombre) {
+            if (tipo == Bitacora.CP) {
+                return pasarAlAlmacen(padreDestino, almacen -> almacen.copiar(entrada, padreDestino, nuevoNombre));
+            }
+            if (montajeDe(padreOrigen) != montajeDe(padreDestino)
+                    || entrada instanceof Directorio && montajes.hayDentroDe(rutaDe(padreOrigen, nombre))) {
+                return CodigoResultado.OTRO_MONTAJE;
+            }
+            return pasarAlAlmacen(padreDestino, almacen -> almacen.mover(padreOrigen, nombre, padreDestino, nuevoNombre));
+        }
+    }
+
+    // Si directorio es el mismo que ancestro o está dentro de él
+    private static boolean contiene(Directorio ancestro, Directorio directorio) {
+        for (Directorio d = directorio; d != null; d = d.getPadre()) {
+            if (d == ancestro) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Montaje al que pertenece el directorio, o null si está en el árbol propio del sistema
+    private Montaje montajeDe(Directorio directorio) {
+        return montajes.estaVacia() ? null : montajes.buscar(directorio.getRutaCompleta());
+    }
+
+    // Pasa al almacén de su montaje un cambio dentro del directorio, antes de aplicarlo en memoria.
+    // Se llama con el directorio bloqueado. Los montajes solo existen sin bitácora, así que un cambio que
+    // el almacén ya aplicó no puede quedar rechazado después por un rm -r concurrente registrado antes
+    private CodigoResultado pasarAlAlmacen(Directorio directorio, CambioAlmacen cambio) {
+        Montaje montaje = montajeDe(directorio);
+        if (montaje == null) {
+            return CodigoResultado.OK;
+        }
+        Almacen almacen = montaje.getAlmacen();
+        if (almacen.esSoloLectura()) {
+            return CodigoResultado.SOLO_LECTURA;
+        }
+        // Cualquier falla del almacén (también una ruta que la carpeta no admite) deja el cambio sin aplicar en memoria
+        try {
+            cambio.aplicar(almacen);
+        } catch (IOException | RuntimeException e) {
+            return CodigoResultado.ERROR_ALMACEN;
+        }
+        return CodigoResultado.OK;
+    }
+
+    // Un directorio que es o contiene un punto de montaje no se elimina; lo demás pasa por el almacén
+    private CodigoResultado eliminarDelAlmacen(Directorio padre, String nombre, FileSystemBase entrada, boolean recursivo) {
+        if (montajes.estaVacia()) {
+            return CodigoResultado.OK;
+        }
+        if (entrada instanceof Directorio && montajes.hayDentroDe(rutaDe(padre, nombre))) {
+            return CodigoResultado.OTRO_MONTAJE;
+        }
+        return pasarAlAlmacen(padre, almacen -> almacen.eliminar(padre, nombre, recursivo));
+    }
+
+    // Para Lote: los lotes se aplican solo en memoria, así que no cambian montajes de instantánea o de disco,
+    // ni quitan puntos de montaje
+    CodigoResultado admitirEnLote(Directorio padre, boolean baja, String ruta) {
+        if (montajes.estaVacia()) {
+            return CodigoResultado.OK;
+        }
+        Montaje montaje = montajeDe(padre);
+        if (montaje != null && !montaje.getAlmacen().esEnMemoria()) {
+            return montaje.getAlmacen().esSoloLectura() ? CodigoResultado.SOLO_LECTURA : CodigoResultado.OTRO_MONTAJE;
+        }
+        return baja && montajes.hayDentroDe(ruta) ? CodigoResultado.OTRO_MONTAJE : CodigoResultado.OK;
+    }
+
+    @FunctionalInterface
+    private interface CambioAlmacen {
+        void aplicar(Almacen almacen) throws IOException;
+    }
+
+    // Con bitácora, las altas y bajas sueltas toman la lectura de estructura alrededor del bloqueo del directorio,
+    // así la ruta que registran es la del lugar donde se aplican. Sin bitácora no hay rutas que registrar
+    private boolean bloquearRutas() {
+        if (bitacora == null) {
+            return false;
+        }
+        bloquearEstructura();
         return true;
     }
+
+    // Para Lote: mientras se tiene, ningún directorio cambia de lugar
+    void bloquearEstructura() {
+        estructura.readLock().lock();
+    }
+
+    void liberarEstructura() {
+        estructura.readLock().unlock();
+    }
+
+    // Las altas y bajas se registran en la bitácora antes de publicarse, con el bloqueo del directorio tomado,
+    // así una operación que depende de otra (crear dentro de un directorio recién creado) nunca queda antes en la bitácora
+    // Devuelven la secuencia del registro, -1 sin bitácora o Bitacora.RECHAZADO si el padre quedó dentro de un rm -r
+    private long agregar(byte tipo, Directorio padre, FileSystemBase hijo) {
+        Directorio indexado = indiceRutas != null && hijo instanceof Directorio dir ? dir : null;
+        boolean avisar = eventos.hayVigilancias();
+        if (bitacora == null && indexado == null && !avisar) {
+            padre.addHijo(hijo);
+            return -1;
+        }
+        long generacion = FileSystemBase.generacionActual();
+        String ruta = rutaDe(padre, hijo.getNombre());
+        long secuencia = -1;
+        if (bitacora != null) {
+            secuencia = bitacora.registrar(tipo, ruta, padre);
+            if (secuencia == Bitacora.RECHAZADO) {
+                return secuencia;
+            }
+        }
+        padre.addHijo(hijo);
+        if (indexado != null) {
+            indiceRutas.agregar(ruta, indexado, generacion);
+        }
+        if (avisar) {
+            eventos.publicar(EventoCambio.Tipo.CREADO, ruta, hijo instanceof Directorio);
+        }
+        if (secuencia >= 0) {
+            bitacora.terminar(secuencia);
+        }
+        return secuencia;
+    }
+
+    private long eliminar(byte tipo, Directorio padre, String nombre) {
+        boolean avisar = eventos.hayVigilancias();
+        FileSystemBase hijo = indiceRutas != null || avisar ? padre.getHijo(nombre) : null;
+        if (indiceRutas != null && hijo instanceof Directorio dir) {
+            indiceRutas.quitar(dir);
+        }
+        if (bitacora == null && !avisar) {
+            padre.removeHijo(nombre);
+            return -1;
+        }
+        String ruta = rutaDe(padre, nombre);
+        long secuencia = -1;
+        if (bitacora != null) {
+            secuencia = bitacora.registrar(tipo, ruta, padre);
+            if (secuencia == Bitacora.RECHAZADO) {
+                return secuencia;
+            }
+        }
+        padre.removeHijo(nombre);
+        if (avisar) {
+            eventos.publicar(EventoCambio.Tipo.ELIMINADO, ruta, hijo instanceof Directorio);
+        }
+        if (secuencia >= 0) {
+            bitacora.terminar(secuencia);
+        }
+        return secuencia;
+    }
+
+    // Para Lote: busca un directorio por su ruta absoluta, aprovechando la cache de rutas
+    Directorio buscarDirectorio(String rutaAbsoluta) {
+        return manejarRuta(raiz, rutaAbsoluta);
+    }
+
+    // Para Lote, con los bloqueos de todos los destinos tomados: registra el lote entero como un único registro
+    long registrarLote(byte[] tipos, String[] rutas, List<Directorio> destinos) {
+        return bitacora == null ? -1 : bitacora.registrarLote(tipos, rutas, destinos);
+    }
+
+    // Para Lote, con los directorios que creó y los que quitó; no hacen nada si el sistema no tiene índice de rutas
+    void indexar(String rutaAbsoluta, Directorio directorio, long generacion) {
+        if (indiceRutas != null) {
+            indiceRutas.agregar(rutaAbsoluta, directorio, generacion);
+        }
+    }
+
+    void desindexar(Directorio directorio) {
+        if (indiceRutas != null) {
+            indiceRutas.quitar(directorio);
+        }
+    }
+
+    // Para Lote, después de publicar todos sus cambios
+    void terminarLote(long secuencia) {
+        if (secuencia >= 0) {
+            bitacora.terminar(secuencia);
+        }
+    }
+
+    // Se llama sin bloqueos tomados: la operación no se informa como exitosa hasta que su registro está en disco
+    void esperarBitacora(long secuencia) {
+        if (secuencia >= 0) {
+            bitacora.esperar(secuencia);
+        }
+    }
+
+    private static String rutaDe(Directorio padre, String nombre) {
+        return padre.getPadre() == null ? "/" + nombre : padre.getRutaCompleta() + "/" + nombre;
+    }
+
+    // Aplica un registro de la bitácora al abrir el sistema. Los registros pueden estar ya incluidos en la instantánea,
+    // así que cada uno se aplica solo si todavía tiene efecto (crear lo que no existe, borrar lo que existe)
+    private void reproducir(byte tipo, String ruta, String destino) {
+        if (tipo == Bitacora.MV || tipo == Bitacora.CP) {
+            reproducirTraslado(tipo, ruta, destino);
+            return;
+        }
+        CursorRuta cursor = new CursorRuta(ruta);
+        Directorio padre = recorrer(raiz, cursor, true);
+        if (padre == null || !cursor.tieneHoja()) {
+            return;
+        }
+        String nombre = cursor.hoja();
+        FileSystemBase existente = padre.getHijo(nombre);
+        switch (tipo) {
+            case Bitacora.MKDIR -> {
+                if (existente == null) padre.addHijo(new Directorio(nombre, padre));
+            }
+            case Bitacora.TOUCH -> {
+                if (existente == null) padre.addHijo(new Archivo(nombre, padre));
+            }
+            case Bitacora.RM -> {
+                if (existente != null && !(existente instanceof Directorio dir && !dir.estaVacio())) {
+                    padre.removeHijo(nombre);
+                }
+            }
+            case Bitacora.RM_RECURSIVO -> {
+                if (existente != null) padre.removeHijo(nombre);
+            }
+            default -> throw new IllegalStateException("Tipo de registro desconocido en la bitácora: " + tipo);
+        }
+    }
+
+    // Un mv o un cp ya aplicado no tiene el origen o ya tiene el destino
+    private void reproducirTraslado(byte tipo, String ruta, String destino) {
+        CursorRuta cursorOrigen = new CursorRuta(ruta);
+        CursorRuta cursorDestino = new CursorRuta(destino);
+        Directorio padreOrigen = recorrer(raiz, cursorOrigen, true);
+        Directorio padreDestino = recorrer(raiz, cursorDestino, true);
+        if (padreOrigen == null || padreDestino == null || !cursorOrigen.tieneHoja() || !cursorDestino.tieneHoja()) {
+            return;
+        }
+        String nombre = cursorOrigen.hoja();
+        String nuevoNombre = cursorDestino.hoja();
+        FileSystemBase entrada = padreOrigen.getHijo(nombre);
+        if (entrada == null || padreDestino.getHijo(nuevoNombre) != null
+                || entrada instanceof Directorio dir && contiene(dir, padreDestino)) {
+            return;
+        }
+        if (tipo == Bitacora.MV) {
+            Directorio.mover(padreOrigen, nombre, padreDestino, nuevoNombre);
+        } else if (entrada instanceof Directorio dir) {
+            padreDestino.addHijo(Directorio.copiaDe(dir, nuevoNombre, padreDestino));
+        } else {
+            padreDestino.addHijo(((Archivo) entrada).copiaEn(Long.MAX_VALUE, nuevoNombre, padreDestino));
+        }
+    }
+
+    private void compactarEnSegundoPlano() {
+        try {
+            compactar();
+        } catch (IOException e) {
+            errorCompactacion = e;
+        } catch (UncheckedIOException e) {
+            errorCompactacion = e.getCause();
+        } finally {
+            bitacora.compactacionTerminada();
+        }
+    }
+
+    // Instantáneas de la carpeta, de la más vieja a la más nueva
+    private static List<Path> instantaneas(Path carpeta) throws IOException {
+        try (Stream<Path> archivos = Files.list(carpeta)) {
+            return archivos.filter(p -> {
+                String nombre = p.getFileName().toString();
+                return nombre.startsWith(PREFIJO_INSTANTANEA) && nombre.endsWith(EXTENSION_INSTANTANEA);
+            }).sorted().toList();
+        }
+    }
+
+    // Primera secuencia de la bitácora que no está incluida con seguridad en la instantánea
+    private static long secuenciaDe(Path instantanea) {
+        String nombre = instantanea.getFileName().toString();
+        return Long.parseLong(nombre.substring(PREFIJO_INSTANTANEA.length(), nombre.length() - EXTENSION_INSTANTANEA.length()));
+    }
+
     /**
      * Resuelve una ruta (absoluta o relativa) y devuelve el Directorio correspondiente.
      * Este es el método clave para el bonus de "Rutas enteras". 
+     * Las rutas absolutas se buscan primero en el índice de rutas, si el sistema lo tiene, o en la cache de rutas.
      * @param ruta La ruta a resolver (ej. "/home/user/docs", "files/images", "../..").
      * @return El objeto Directorio si la ruta es válida, o null si no se encuentra.
      */
-    private Directorio manejarRuta(String ruta) {
-        Directorio inicio = ruta.startsWith("/") ? raiz : directorioActual;
-        String[] partes = ruta.startsWith("/") ? ruta.substring(1).split("/") : ruta.split("/");
-
-        Directorio actual = inicio;
-
-        for (String parte : partes) {
-            if (parte.isEmpty()) continue; // Manejar barras dobles o rutas que terminan en barra
-            if (actual == null) return null; // Si en algún punto el directorio actual se vuelve nulo, la ruta es inválida
-
-            switch (parte) {
-                case ".." -> {
-                    if (actual.getPadre() != null) {
-                        actual = actual.getPadre();
-                    } else if (actual.equals(raiz)) {
-                        // Si estamos en la raíz y la parte es "..", nos quedamos en la raíz
-                        actual = raiz;
-                    } else {
-                        // No hay padre para ir
-                        return null;
-                    }
-                }
-                case "." -> {
-                    // "."" significa el directorio actual, no hacemos nada
+    private Directorio manejarRuta(Directorio directorioActual, String ruta) {
+        return medirResolucion(directorioActual, ruta, FileSystem::buscarRuta);
+    }
+
+    // El cursor de una ruta absoluta se arma recién si hay que recorrerla: un acierto de la cache no reserva nada
+    private Directorio buscarRuta(Directorio directorioActual, String ruta) {
+        if (ruta.isEmpty() || ruta.charAt(0) != '/' || contienePuntos(ruta)) {
+            // Las rutas con "." o ".." dependen de directorios intermedios que la cache no valida
+            return recorrer(directorioActual, new CursorRuta(ruta), false);
+        }
+        return resolverAbsoluta(ruta, null, false);
+    }
+
+    /**
+     * Resuelve el directorio que contiene a la hoja (último segmento) de la ruta del cursor,
+     * sin volver a partir ni unir la ruta.
+     * @return El Directorio padre de la hoja, o null si alguno de los directorios intermedios no existe.
+     */
+    private Directorio resolverPadre(Directorio directorioActual, CursorRuta cursor) {
+        return medirResolucion(directorioActual, cursor, FileSystem::buscarPadre);
+    }
+
+    private Directorio buscarPadre(Directorio directorioActual, CursorRuta cursor) {
+        String ruta = cursor.getRuta();
+        if (!cursor.esAbsoluta() || contienePuntos(ruta)) {
+            return recorrer(directorioActual, cursor, true);
+        }
+        String rutaPadre = cursor.rutaPadre();
+        if (rutaPadre.isEmpty()) {
+            return raiz;
+        }
+        return resolverAbsoluta(rutaPadre, cursor, true);
+    }
+
+    // Cuerpo de un comando medido. Se pasa como referencia a un método sin capturar nada, así llamarlo con las
+    // métricas deshabilitadas cuesta leer un campo, sin asignar nada
+    @FunctionalInterface
+    private interface Cuerpo {
+        CodigoResultado ejecutar(FileSystem fileSystem, Sesion sesion, String ruta);
+    }
+
+    // Igual, para la resolución de rutas: la ruta llega como texto o como cursor
+    @FunctionalInterface
+    private interface Resolucion<R> {
+        Directorio resolver(FileSystem fileSystem, Directorio directorioActual, R ruta);
+    }
+
+    // Mide la operación si las métricas están habilitadas; si no, solo la ejecuta, sin leer el reloj
+    private CodigoResultado medir(Metricas.Operacion operacion, Sesion sesion, String ruta, Cuerpo cuerpo) {
+        Metricas metricas = this.metricas;
+        if (metricas == null) {
+            return cuerpo.ejecutar(this, sesion, ruta);
+        }
+        long inicio = System.nanoTime();
+        CodigoResultado resultado = cuerpo.ejecutar(this, sesion, ruta);
+        metricas.registrar(operacion, System.nanoTime() - inicio, resultado);
+        return resultado;
+    }
+
+    // Como medir, para la resolución de rutas. La profundidad se cuenta subiendo por los padres:
+    // solo se paga con las métricas habilitadas
+    private <R> Directorio medirResolucion(Directorio directorioActual, R ruta, Resolucion<R> resolucion) {
+        Metricas metricas = this.metricas;
+        if (metricas == null) {
+            return resolucion.resolver(this, directorioActual, ruta);
+        }
+        long inicio = System.nanoTime();
+        Directorio resuelto = resolucion.resolver(this, directorioActual, ruta);
+        metricas.registrar(Metricas.Operacion.RESOLUCION, System.nanoTime() - inicio, resuelto == null);
+        if (resuelto != null) {
+            int niveles = 0;
+            for (Directorio d = resuelto.getPadre(); d != null; d = d.getPadre()) {
+                niveles++;
+            }
+            metricas.registrarProfundidad(niveles);
+        }
+        return resuelto;
+    }
+
+    // Sin cursor, la clave es la ruta entera y se recorre desde ella
+    private Directorio resolverAbsoluta(String clave, CursorRuta cursor, boolean hastaPadre) {
+        // Dentro de un montaje se resuelve desde su raíz, sin pasar por el índice ni la cache
+        if (!montajes.estaVacia() && esCanonica(clave)) {
+            Montaje montaje = montajes.buscar(clave);
+            if (montaje != null) {
+                return montaje.resolver(clave);
+            }
+        }
+        // El índice valida sus entradas comparando la clave con la ruta del directorio, así que solo acepta rutas
+        // canónicas; las demás van por la cache, que valida solo por generación. La raíz no se indexa
+        if (indiceRutas != null && clave.length() > 1 && esCanonica(clave)) {
+            return resolverConIndice(clave, cursor, hastaPadre);
+        }
+        if (!cacheRutas.estaActiva()) {
+            return recorrer(raiz, cursor != null ? cursor : new CursorRuta(clave), hastaPadre);
+        }
+        return resolverConCache(clave, cursor, hastaPadre);
+    }
+
+    private Directorio resolverConIndice(String clave, CursorRuta cursor, boolean hastaPadre) {
+        Directorio indexado = indiceRutas.buscar(clave);
+        if (indexado != null) {
+            return indexado;
+        }
+        long generacion = FileSystemBase.generacionActual();
+        Directorio resuelto = recorrer(raiz, cursor != null ? cursor : new CursorRuta(clave), hastaPadre);
+        if (resuelto != null) {
+            indiceRutas.agregar(clave, resuelto, generacion);
+        }
+        return resuelto;
+    }
+
+    private Directorio resolverConCache(String clave, CursorRuta cursor, boolean hastaPadre) {
+        Directorio cacheado = cacheRutas.buscar(clave);
+        if (cacheado != null) {
+            return cacheado;
+        }
+        long generacion = FileSystemBase.generacionActual();
+        Directorio resuelto = recorrer(raiz, cursor != null ? cursor : new CursorRuta(clave), hastaPadre);
+        if (resuelto != null) {
+            cacheRutas.guardar(clave, resuelto, generacion);
+        }
+        return resuelto;
+    }
+
+    // Recorre el árbol segmento por segmento; si hastaPadre es true se detiene antes de la hoja
+    // La lectura de hijos no toma bloqueos: puede ver el árbol justo antes o después de una modificación concurrente
+    private Directorio recorrer(Directorio directorioActual, CursorRuta cursor, boolean hastaPadre) {
+        Directorio actual = cursor.esAbsoluta() ? raiz : directorioActual;
+
+        while (cursor.siguiente()) {
+            if (hastaPadre && cursor.esHoja()) break;
+
+            if (cursor.esPuntoPunto()) {
+                if (actual.getPadre() != null) {
+                    actual = actual.getPadre();
+                } else if (actual != raiz) {
+                    // No hay padre para ir; si estamos en la raíz nos quedamos en la raíz
+                    return null;
                 }
-                default -> {
-                    FileSystemBase siguiente = actual.getHijo(parte);
-                    if (siguiente instanceof Directorio dir) {
-                        actual = dir;
-                    } else {
-                        // La parte no es un directorio o no existe
-                        return null;
-                    }
+            } else if (!cursor.esPunto()) { // "." significa el directorio actual, no hacemos nada
+                FileSystemBase siguiente = actual.getHijo(cursor.segmento());
+                if (siguiente instanceof Directorio dir) {
+                    actual = dir;
+                } else {
+                    // La parte no es un directorio o no existe
+                    return null;
                 }
             }
         }
         return actual;
     }
+
+    // Archivo o directorio de la ruta; las rutas que terminan en "." o "..", o la raíz, solo pueden ser directorios
+    private FileSystemBase resolverEntrada(Directorio directorioActual, String ruta) {
+        CursorRuta cursor = new CursorRuta(ruta);
+        if (!tieneHojaValida(cursor)) {
+            return manejarRuta(directorioActual, ruta);
+        }
+        Directorio padre = resolverPadre(directorioActual, cursor);
+        return padre != null ? padre.getHijo(cursor.hoja()) : null;
+    }
+
+    // La hoja debe existir y no puede ser "." ni "..", ya que no nombran una entrada nueva
+    private static boolean tieneHojaValida(CursorRuta cursor) {
+        return cursor.tieneHoja() && !cursor.hojaEsPunto();
+    }
+
+    private static boolean esCanonica(String ruta) {
+        return !ruta.contains("//") && !ruta.endsWith("/");
+    }
+
+    private static boolean contienePuntos(String ruta) {
+        return ruta.contains("/./") || ruta.contains("/../") || ruta.endsWith("/.") || ruta.endsWith("/..");
+    }
 }
@@ -0,0 +1,533 @@
+package manager;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+// Implementación alternativa del sistema de archivos que guarda el árbol fuera del heap (ver ArenaNodos)
+// Ofrece los mismos comandos y resultados que FileSystem, pero sin un objeto Java por entrada:
+// la presión sobre el GC no crece con la cantidad de nodos, a cambio de no exponer Archivo/Directorio
+// Todas las operaciones se serializan con un único bloqueo
+public class FileSystemArena implements SistemaArchivos, AutoCloseable {
+    private static final long CAPACIDAD_INICIAL = 1 << 16;
+
+    private final ArenaNodos arena;
+    private int directorioActual = ArenaNodos.RAIZ;
+    // Directorio actual que ya fue borrado: igual que en FileSystem se puede seguir parado en él,
+    // así que su registro recién se libera al salir de ahí (los ids se reutilizan). Si lo borró un rm -r
+    // de un ancestro, se conserva toda la cadena hasta la raíz del subárbol para que .. y pwd sigan andando
+    private int[] actualesEliminados = new int[0];
+    private boolean cerrado;
+
+    public FileSystemArena() {
+        this(CAPACIDAD_INICIAL);
+    }
+
+    /**
+     * @param capacidadInicial Cantidad de nodos esperada, para dimensionar las tablas internas desde el inicio.
+     */
+    public FileSystemArena(long capacidadInicial) {
+        this.arena = new ArenaNodos(capacidadInicial);
+    }
+
+    @Override
+    public synchronized CodigoResultado cd(String dirName) {
+        verificarAbierto();
+        if (dirName == null || dirName.isEmpty()) {
+            return CodigoResultado.NOMBRE_VACIO;
+        }
+
+        // Direcciona al padre
+        if (dirName.equals("..")) {
+            int padre = arena.padre(directorioActual);
+            if (padre != ArenaNodos.NINGUNO) {
+                cambiarDirectorioActual(padre);
+                return CodigoResultado.OK;
+            } else {
+                return CodigoResultado.EN_LA_RAIZ;
+            }
+        }
+
+        int destino = recorrer(new CursorRuta(dirName), false);
+        if (destino != ArenaNodos.NINGUNO) {
+            cambiarDirectorioActual(destino);
+            return CodigoResultado.OK;
+        } else {
+            return CodigoResultado.NO_ENCONTRADO;
+        }
+    }
+
+    @Override
+    public synchronized CodigoResultado touch(String fileName) {
+        verificarAbierto();
+        if (fileName == null || fileName.isEmpty()) {
+            return CodigoResultado.NOMBRE_VACIO;
+        }
+        return crear(fileName, ArenaNodos.ARCHIVO);
+    }
+
+    @Override
+    public synchronized CodigoResultado mkdir(String dirName) {
+        verificarAbierto();
+        if (dirName == null || dirName.isEmpty()) {
+            return CodigoResultado.NOMBRE_VACIO;
+        }
+        return crear(dirName, ArenaNodos.DIRECTORIO);
+    }
+
+    // mkdir -p, con el mismo recorrido que recorrer pero creando cada segmento que falte
+    @Override
+    public synchronized CodigoResultado mkdirConPadres(String dirName) {
+        verificarAbierto();
+        if (dirName == null || dirName.isEmpty()) {
+            return CodigoResultado.NOMBRE_VACIO;
+        }
+
+        CursorRuta cursor = new CursorRuta(dirName);
+        if (!tieneHojaValida(cursor)) {
+            return CodigoResultado.NOMBRE_INVALIDO;
+        }
+        int actual = cursor.esAbsoluta() ? ArenaNodos.RAIZ : directorioActual;
+        while (cursor.siguiente()) {
+            if (cursor.esPuntoPunto()) {
+                int padre = arena.padre(actual);
+                if (padre != ArenaNodos.NINGUNO) {
+                    actual = padre;
+                }
+            } else if (!cursor.esPunto()) {
+                int siguiente = arena.buscarHijo(actual, dirName, cursor.inicio(), cursor.fin());
+                if (siguiente == ArenaNodos.NINGUNO) {
+                    if (esActualEliminado(actual)) {
+                        return CodigoResultado.RUTA_INEXISTENTE;
+                    }
+                    siguiente = arena.crear(actual, dirName, cursor.inicio(), cursor.fin(), ArenaNodos.DIRECTORIO);
+                } else if (arena.tipo(siguiente) != ArenaNodos.DIRECTORIO) {
+                    return cursor.esHoja() ? CodigoResultado.YA_EXISTE : CodigoResultado.RUTA_INEXISTENTE;
+                }
+                actual = siguiente;
+            }
+        }
+        return CodigoResultado.OK;
+    }
+
+    @Override
+    public synchronized CodigoResultado rm(String name) {
+        verificarAbierto();
+        if (name == null || name.isEmpty()) {
+            return CodigoResultado.NOMBRE_VACIO;
+        }
+
+        CursorRuta cursor = new CursorRuta(name);
+        if (!tieneHojaValida(cursor)) {
+            return CodigoResultado.NOMBRE_INVALIDO;
+        }
+        int dirPadre = recorrer(cursor, true);
+        if (dirPadre == ArenaNodos.NINGUNO) {
+            return CodigoResultado.RUTA_INEXISTENTE;
+        }
+
+        int entrada = arena.buscarHijo(dirPadre, name, cursor.inicioHoja(), cursor.finHoja());
+        if (entrada == ArenaNodos.NINGUNO) {
+            return CodigoResultado.NO_ENCONTRADO;
+        }
+        if (arena.tipo(entrada) == ArenaNodos.DIRECTORIO && arena.cantidadHijos(entrada) > 0) {
+            return CodigoResultado.DIRECTORIO_NO_VACIO;
+        }
+        if (entrada == directorioActual) {
+            arena.desenlazar(entrada);
+            actualesEliminados = new int[] {entrada};
+        } else {
+            arena.eliminar(entrada);
+        }
+        return CodigoResultado.OK;
+    }
+
+    // Acá no hay nada que diferir: los nodos se liberan en el momento, en orden posterior y sin recursión
+    @Override
+    public synchronized BorradoRecursivo rmRecursivo(String name) {
+        verificarAbierto();
+        if (name == null || name.isEmpty()) {
+            return BorradoRecursivo.terminado(CodigoResultado.NOMBRE_VACIO, 0, 0);
+        }
+
+        CursorRuta cursor = new CursorRuta(name);
+        if (!tieneHojaValida(cursor)) {
+            return BorradoRecursivo.terminado(CodigoResultado.NOMBRE_INVALIDO, 0, 0);
+        }
+        int dirPadre = recorrer(cursor, true);
+        if (dirPadre == ArenaNodos.NINGUNO || esActualEliminado(dirPadre)) {
+            return BorradoRecursivo.terminado(CodigoResultado.RUTA_INEXISTENTE, 0, 0);
+        }
+
+        int entrada = arena.buscarHijo(dirPadre, name, cursor.inicioHoja(), cursor.finHoja());
+        if (entrada == ArenaNodos.NINGUNO) {
+            return BorradoRecursivo.terminado(CodigoResultado.NO_ENCONTRADO, 0, 0);
+        }
+        if (arena.tipo(entrada) == ArenaNodos.ARCHIVO) {
+            arena.eliminar(entrada);
+            return BorradoRecursivo.terminado(CodigoResultado.OK, 1, 0);
+        }
+
+        long[] cantidades = new long[2];
+        int[] cadena = cadenaHasta(entrada);
+        if (cadena == null) {
+            podarHijos(entrada, cantidades);
+            arena.eliminar(entrada);
+            cantidades[1]++;
+        } else {
+            // El directorio actual queda dentro del subárbol: se desenlaza la cadena que lleva hasta él
+            // y se libera todo lo demás; los registros de la cadena se liberan al salir con cd
+            // (los que ya estaban borrados de antes no tienen hijos ni enlace que quitar)
+            arena.desenlazar(entrada);
+            for (int i = cadena.length - 1; i >= 0; i--) {
+                if (esActualEliminado(cadena[i])) {
+                    continue;
+                }
+                if (i > 0) {
+                    arena.desenlazar(cadena[i - 1]);
+                }
+                podarHijos(cadena[i], cantidades);
+                cantidades[1]++;
+            }
+            actualesEliminados = cadena;
+        }
+        return BorradoRecursivo.terminado(CodigoResultado.OK, cantidades[0], cantidades[1]);
+    }
+
+    // Mover es O(1), como en FileSystem: solo cambian el enlace y la ranura del nodo
+    @Override
+    public synchronized CodigoResultado mv(String origen, String destino) {
+        return trasladar(origen, destino, false);
+    }
+
+    // Acá la copia es completa en el momento: se recorre el subárbol y se crea un nodo por cada entrada
+    @Override
+    public synchronized CodigoResultado cp(String origen, String destino) {
+        return trasladar(origen, destino, true);
+    }
+
+    @Override
+    public synchronized int ls(Salida salida) {
+        verificarAbierto();
+        for (int hijo = arena.primerHijo(directorioActual); hijo != ArenaNodos.NINGUNO; hijo = arena.siguiente(hijo)) {
+            salida.entrada(arena.nombre(hijo), arena.tipo(hijo) == ArenaNodos.DIRECTORIO);
+        }
+        return arena.cantidadHijos(directorioActual);
+    }
+
+    // El arena no tiene un índice ordenado: cada página recorre todos los hijos y se queda con los primeros
+    // limite nombres en orden, sin guardar más que esos
+    @Override
+    public synchronized PaginaListado ls(String ruta, String prefijo, String desde, int limite, Salida salida) {
+        verificarAbierto();
+        if (limite <= 0) {
+            throw new IllegalArgumentException("El tamaño de la página debe ser positivo.");
+        }
+        int directorio = ruta == null || ruta.isEmpty() ? directorioActual : recorrer(new CursorRuta(ruta), false);
+        if (directorio == ArenaNodos.NINGUNO) {
+            return PaginaListado.NO_ENCONTRADO;
+        }
+        String filtro = prefijo == null ? "" : prefijo;
+        // Se guarda uno más que el límite, para saber si hay otra página
+        TreeMap<String, Integer> primeros = new TreeMap<>();
+        for (int hijo = arena.primerHijo(directorio); hijo != ArenaNodos.NINGUNO; hijo = arena.siguiente(hijo)) {
+            String nombre = arena.nombre(hijo);
+            if (nombre.startsWith(filtro) && (desde == null || nombre.compareTo(desde) > 0)) {
+                primeros.put(nombre, hijo);
+                if (primeros.size() > limite + 1L) {
+                    primeros.pollLastEntry();
+                }
+            }
+        }
+        boolean hayMas = primeros.size() > limite;
+        if (hayMas) {
+            primeros.pollLastEntry();
+        }
+        for (Map.Entry<String, Integer> entrada : primeros.entrySet()) {
+            salida.entrada(entrada.getKey(), arena.tipo(entrada.getValue()) == ArenaNodos.DIRECTORIO);
+        }
+        return new PaginaListado(CodigoResultado.OK, primeros.size(), hayMas ? primeros.lastKey() : null);
+    }
+
+    // Con un único bloqueo y ids que se reutilizan, el recorrido no puede quedar abierto entre llamadas:
+    // se hace entero dentro del bloqueo y el stream se arma sobre las rutas ya encontradas
+    @Override
+    public synchronized Stream<String> find(String ruta, String glob, int maxDepth) {
+        verificarAbierto();
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("La profundidad máxima no puede ser negativa.");
+        }
+        PatronGlob patron = PatronGlob.compilar(glob);
+        int inicio = ruta == null || ruta.isEmpty() ? directorioActual : recorrer(new CursorRuta(ruta), false);
+        if (inicio == ArenaNodos.NINGUNO || maxDepth == 0) {
+            return Stream.empty();
+        }
+        List<String> encontradas = new ArrayList<>();
+        ArrayDeque<Pendiente> pila = new ArrayDeque<>();
+        pila.push(new Pendiente(inicio, inicio == ArenaNodos.RAIZ ? "" : rutaCompleta(inicio), patron.inicial(), 1));
+        while (!pila.isEmpty()) {
+            Pendiente pendiente = pila.pop();
+            for (int hijo = arena.primerHijo(pendiente.id); hijo != ArenaNodos.NINGUNO; hijo = arena.siguiente(hijo)) {
+                String nombre = arena.nombre(hijo);
+                long estados = patron.avanzar(pendiente.estados, nombre);
+                if (estados == 0) {
+                    continue;
+                }
+                boolean bajar = arena.tipo(hijo) == ArenaNodos.DIRECTORIO && pendiente.profundidad < maxDepth
+                        && patron.puedeSeguir(estados);
+                if (patron.acepta(estados)) {
+                    encontradas.add(pendiente.ruta + "/" + nombre);
+                }
+                if (bajar) {
+                    pila.push(new Pendiente(hijo, pendiente.ruta + "/" + nombre, estados, pendiente.profundidad + 1));
+                }
+            }
+        }
+        return encontradas.stream();
+    }
+
+    // El arena no guarda totales por directorio: se recorre el subárbol, y sus archivos no tienen contenido
+    @Override
+    public synchronized UsoDirectorio du(String ruta) {
+        verificarAbierto();
+        int inicio = ruta == null || ruta.isEmpty() ? directorioActual : recorrer(new CursorRuta(ruta), false);
+        if (inicio == ArenaNodos.NINGUNO) {
+            return UsoDirectorio.NO_ENCONTRADO;
+        }
+        long archivos = 0;
+        long directorios = 0;
+        int profundidad = 0;
+        ArrayDeque<int[]> pila = new ArrayDeque<>();
+        pila.push(new int[] {inicio, 0});
+        while (!pila.isEmpty()) {
+            int[] pendiente = pila.pop();
+            for (int hijo = arena.primerHijo(pendiente[0]); hijo != ArenaNodos.NINGUNO; hijo = arena.siguiente(hijo)) {
+                profundidad = Math.max(profundidad, pendiente[1] + 1);
+                if (arena.tipo(hijo) == ArenaNodos.DIRECTORIO) {
+                    directorios++;
+                    pila.push(new int[] {hijo, pendiente[1] + 1});
+                } else {
+                    archivos++;
+                }
+            }
+        }
+        return new UsoDirectorio(CodigoResultado.OK, archivos, directorios, 0, profundidad);
+    }
+
+    @Override
+    public synchronized void pwd(Salida salida) {
+        verificarAbierto();
+        salida.linea(rutaCompleta(directorioActual));
+    }
+
+    public synchronized long getCantidadNodos() {
+        return arena.cantidadNodos();
+    }
+
+    // Memoria nativa reservada por el arena, que no cuenta para el heap
+    public synchronized long getBytesFueraDelHeap() {
+        return arena.bytesFueraDelHeap();
+    }
+
+    /**
+     * Libera la memoria nativa del arena; después de cerrarlo no se puede seguir usando.
+     */
+    @Override
+    public synchronized void close() {
+        if (!cerrado) {
+            cerrado = true;
+            arena.liberar();
+        }
+    }
+
+    private CodigoResultado crear(String ruta, int tipo) {
+        CursorRuta cursor = new CursorRuta(ruta);
+        if (!tieneHojaValida(cursor)) {
+            return CodigoResultado.NOMBRE_INVALIDO;
+        }
+        int dirPadre = recorrer(cursor, true);
+        if (dirPadre == ArenaNodos.NINGUNO || esActualEliminado(dirPadre)) {
+            return CodigoResultado.RUTA_INEXISTENTE;
+        }
+        if (arena.buscarHijo(dirPadre, ruta, cursor.inicioHoja(), cursor.finHoja()) != ArenaNodos.NINGUNO) {
+            return CodigoResultado.YA_EXISTE;
+        }
+        arena.crear(dirPadre, ruta, cursor.inicioHoja(), cursor.finHoja(), tipo);
+        return CodigoResultado.OK;
+    }
+
+    private CodigoResultado trasladar(String origen, String destino, boolean copiar) {
+        verificarAbierto();
+        if (origen == null || origen.isEmpty() || destino == null || destino.isEmpty()) {
+            return CodigoResultado.NOMBRE_VACIO;
+        }
+        CursorRuta cursorOrigen = new CursorRuta(origen);
+        CursorRuta cursorDestino = new CursorRuta(destino);
+        if (!tieneHojaValida(cursorOrigen) || !tieneHojaValida(cursorDestino)) {
+            return CodigoResultado.NOMBRE_INVALIDO;
+        }
+        int padreOrigen = recorrer(cursorOrigen, true);
+        if (padreOrigen == ArenaNodos.NINGUNO || esActualEliminado(padreOrigen)) {
+            return CodigoResultado.RUTA_INEXISTENTE;
+        }
+        int entrada = arena.buscarHijo(padreOrigen, origen, cursorOrigen.inicioHoja(), cursorOrigen.finHoja());
+        if (entrada == ArenaNodos.NINGUNO) {
+            return CodigoResultado.NO_ENCONTRADO;
+        }
+
+        // Si el destino es un directorio, la entrada va adentro con su mismo nombre
+        String ruta = destino;
+        int inicio;
+        int fin;
+        int padreDestino = recorrer(new CursorRuta(destino), false);
+        if (padreDestino != ArenaNodos.NINGUNO) {
+            ruta = origen;
+            inicio = cursorOrigen.inicioHoja();
+            fin = cursorOrigen.finHoja();
+        } else {
+            padreDestino = recorrer(cursorDestino, true);
+            inicio = cursorDestino.inicioHoja();
+            fin = cursorDestino.finHoja();
+        }
+        if (padreDestino == ArenaNodos.NINGUNO || esActualEliminado(padreDestino)) {
+            return CodigoResultado.RUTA_INEXISTENTE;
+        }
+        if (arena.tipo(entrada) == ArenaNodos.DIRECTORIO) {
+            for (int d = padreDestino; d != ArenaNodos.NINGUNO; d = arena.padre(d)) {
+                if (d == entrada) {
+                    return CodigoResultado.DESTINO_DENTRO_DEL_ORIGEN;
+                }
+            }
+        }
+        if (arena.buscarHijo(padreDestino, ruta, inicio, fin) != ArenaNodos.NINGUNO) {
+            return CodigoResultado.YA_EXISTE;
+        }
+        if (copiar) {
+            arena.copiar(entrada, padreDestino, ruta, inicio, fin);
+        } else {
+            arena.mover(entrada, padreDestino, ruta, inicio, fin);
+        }
+        return CodigoResultado.OK;
+    }
+
+    // Igual que FileSystem.recorrer, pero los segmentos se buscan por offsets sin crear Strings
+    private int recorrer(CursorRuta cursor, boolean hastaPadre) {
+        int actual = cursor.esAbsoluta() ? ArenaNodos.RAIZ : directorioActual;
+        String ruta = cursor.getRuta();
+
+        while (cursor.siguiente()) {
+            if (hastaPadre && cursor.esHoja()) break;
+
+            if (cursor.esPuntoPunto()) {
+                // En la raíz nos quedamos en la raíz
+                int padre = arena.padre(actual);
+                if (padre != ArenaNodos.NINGUNO) {
+                    actual = padre;
+                }
+            } else if (!cursor.esPunto()) {
+                int siguiente = arena.buscarHijo(actual, ruta, cursor.inicio(), cursor.fin());
+                if (siguiente == ArenaNodos.NINGUNO || arena.tipo(siguiente) != ArenaNodos.DIRECTORIO) {
+                    return ArenaNodos.NINGUNO;
+                }
+                actual = siguiente;
+            }
+        }
+        return actual;
+    }
+
+    private void cambiarDirectorioActual(int destino) {
+        if (actualesEliminados.length > 0 && !esActualEliminado(destino)) {
+            for (int id : actualesEliminados) {
+                arena.liberarRegistro(id);
+            }
+            actualesEliminados = new int[0];
+        }
+        directorioActual = destino;
+    }
+
+    private boolean esActualEliminado(int id) {
+        for (int eliminado : actualesEliminados) {
+            if (eliminado == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Directorios desde el actual hasta raizSubarbol inclusive, o null si el actual no está dentro de ese subárbol
+    private int[] cadenaHasta(int raizSubarbol) {
+        int largo = 1;
+        int actual = directorioActual;
+        while (actual != raizSubarbol) {
+            if (actual == ArenaNodos.RAIZ) {
+                return null;
+            }
+            actual = arena.padre(actual);
+            largo++;
+        }
+        int[] cadena = new int[largo];
+        actual = directorioActual;
+        for (int i = 0; i < largo; i++) {
+            cadena[i] = actual;
+            actual = arena.padre(actual);
+        }
+        return cadena;
+    }
+
+    // Libera todos los descendientes del directorio, de las hojas hacia arriba, y suma archivos y directorios liberados
+    private void podarHijos(int raiz, long[] cantidades) {
+        int nodo = raiz;
+        while (true) {
+            int hijo = arena.primerHijo(nodo);
+            if (hijo != ArenaNodos.NINGUNO) {
+                nodo = hijo;
+                continue;
+            }
+            if (nodo == raiz) {
+                return;
+            }
+            int padre = arena.padre(nodo);
+            cantidades[arena.tipo(nodo) == ArenaNodos.ARCHIVO ? 0 : 1]++;
+            arena.eliminar(nodo);
+            nodo = padre;
+        }
+    }
+
+    private String rutaCompleta(int id) {
+        if (id == ArenaNodos.RAIZ) {
+            return "/";
+        }
+        StringBuilder ruta = new StringBuilder();
+        for (int actual = id; actual != ArenaNodos.RAIZ; actual = arena.padre(actual)) {
+            ruta.insert(0, arena.nombre(actual)).insert(0, '/');
+        }
+        return ruta.toString();
+    }
+
+    private static boolean tieneHojaValida(CursorRuta cursor) {
+        return cursor.tieneHoja() && !cursor.hojaEsPunto();
+    }
+
+    private void verificarAbierto() {
+        if (cerrado) {
+            throw new IllegalStateException("El sistema de archivos ya fue cerrado.");
+        }
+    }
+
+    // Directorio que falta recorrer en un find
+    private static final class Pendiente {
+        private final int id;
+        private final String ruta;
+        private final long estados;
+        private final int profundidad;
+
+        private Pendiente(int id, String ruta, long estados, int profundidad) {
+            this.id = id;
+            this.ruta = ruta;
+            this.estados = estados;
+            this.profundidad = profundidad;
+        }
+    }
+}
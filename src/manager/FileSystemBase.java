@@ -1,11 +1,37 @@
 package manager;
-import java.util.Objects;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
 
 // Clase base para todos los elementos del sistema de archivos
-// Contiene propiedades comunes como nombre y padre, y métodos para obtener la ruta completa
+// Contiene propiedades comunes como nombre, padre e id de inodo, y métodos para obtener la ruta completa
 public abstract class FileSystemBase {
-    private String nombre;
-    private Directorio padre;
+    // Los ids de inodo son únicos en todo el proceso y no se reutilizan; 0 no es un id válido
+    private static final AtomicLong siguienteId = new AtomicLong();
+    // Generación global de rutas: se incrementa cuando se renombra o se mueve un directorio. Una ruta cacheada
+    // en una generación anterior no se tira: se revalida contra la ruta actual de su padre, así que solo se
+    // rearman las del subárbol que cambió
+    private static final AtomicLong generacionRutas = new AtomicLong();
+    private static final VarHandle MARCAS_COPIA;
+
+    static {
+        try {
+            MARCAS_COPIA = MethodHandles.lookup().findVarHandle(FileSystemBase.class, "marcasCopia", MarcaCopia[].class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // No cambia al renombrar ni al mover el nodo; una copia (cp) o un nodo cargado de una instantánea tiene uno nuevo
+    private final long id = siguienteId.incrementAndGet();
+    private volatile String nombre;
+    private volatile Directorio padre;
+    // Ruta completa cacheada junto con el padre, el nombre y la ruta del padre con que se armó
+    private volatile RutaCacheada rutaCacheada;
+    // Se marca al quitarlo de su padre: las sumas de los totales por subárbol que suben desde adentro se cortan acá
+    private volatile boolean desenlazado;
+    // Copias (cp -r) sin terminar de armar que leen este subárbol en una época anterior; casi siempre null
+    private volatile MarcaCopia[] marcasCopia;
 
     public FileSystemBase(String nombre, Directorio padre) {
         this.setNombre(nombre);
@@ -16,39 +42,120 @@ public abstract class FileSystemBase {
         if (nombre == null || nombre.isEmpty()) {
             throw new IllegalArgumentException("El nombre no puede ser nulo o vacío.");
         }
+        boolean cambia = this.nombre != null && !this.nombre.equals(nombre);
         this.nombre = nombre;
+        if (cambia) {
+            invalidarRuta();
+        }
+    }
+
+    public long getId() {
+        return id;
     }
-    
+
     public String getNombre() {
         return nombre;
     }
 
     public void setPadre(Directorio padre) {
+        boolean cambia = this.padre != null && this.padre != padre;
         this.padre = padre;
+        if (cambia) {
+            invalidarRuta();
+        }
     }
 
     public Directorio getPadre() {
         return padre;
     }
 
+    void marcarDesenlazado(boolean desenlazado) {
+        this.desenlazado = desenlazado;
+    }
+
+    boolean estaDesenlazado() {
+        return desenlazado;
+    }
+
+    MarcaCopia[] getMarcasCopia() {
+        return marcasCopia;
+    }
+
+    boolean cambiarMarcasCopia(MarcaCopia[] esperadas, MarcaCopia[] nuevas) {
+        return MARCAS_COPIA.compareAndSet(this, esperadas, nuevas);
+    }
+
     // Método para obtener la ruta completa del elemento en el sistema de archivos
+    // La cacheada vale si el nodo conserva el padre y el nombre con que se armó: si además no cambió la generación
+    // se devuelve sin más; si cambió, se revalida comparando (por identidad) la ruta actual del padre con la usada,
+    // que es la misma cadena mientras nada cambió entre el padre y la raíz.
+    // La generación se lee antes que el padre y el nombre, así que una ruta armada con datos que un mv cambia
+    // mientras tanto queda con una generación vieja y con el padre o el nombre anteriores, y no se vuelve a usar
     public String getRutaCompleta() {
-        if (padre == null) return "/";
-        String rutaPadre = padre.getRutaCompleta();
-        return (rutaPadre.equals("/") ? "" : rutaPadre) + "/" + nombre;
+        long generacion = generacionRutas.get();
+        Directorio padre = this.padre;
+        String nombre = this.nombre;
+        RutaCacheada cache = rutaCacheada;
+        if (cache != null && cache.padre == padre && cache.nombre == nombre) {
+            if (cache.generacion == generacion) {
+                return cache.ruta;
+            }
+            String rutaPadre = padre != null ? padre.getRutaCompleta() : null;
+            if (rutaPadre == cache.rutaPadre) {
+                cache.generacion = generacion;
+                return cache.ruta;
+            }
+            return armarRuta(padre, nombre, rutaPadre, generacion);
+        }
+        return armarRuta(padre, nombre, padre != null ? padre.getRutaCompleta() : null, generacion);
+    }
+
+    private String armarRuta(Directorio padre, String nombre, String rutaPadre, long generacion) {
+        String ruta = rutaPadre == null ? "/" : (rutaPadre.equals("/") ? "" : rutaPadre) + "/" + nombre;
+        rutaCacheada = new RutaCacheada(ruta, rutaPadre, padre, nombre, generacion);
+        return ruta;
+    }
+
+    static long generacionActual() {
+        return generacionRutas.get();
     }
 
-    // Sobrescribir equals y hashCode para comparar entradas por su ruta completa
+    // Un archivo solo invalida su propia ruta; un directorio hace además que sus descendientes revaliden la suya
+    private void invalidarRuta() {
+        rutaCacheada = null;
+        if (this instanceof Directorio) {
+            generacionRutas.incrementAndGet();
+        }
+    }
+
+    // equals y hashCode por id de inodo: un nodo es igual a sí mismo aunque se renombre o se mueva,
+    // y dos nodos distintos no son iguales aunque tengan o hayan tenido la misma ruta
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || this.getClass() != o.getClass()) return false;
-        FileSystemBase that = (FileSystemBase) o;
-        return Objects.equals(getRutaCompleta(), that.getRutaCompleta());
+        return o instanceof FileSystemBase that && id == that.id;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(getRutaCompleta());
+        return Long.hashCode(id);
+    }
+
+    private static final class RutaCacheada {
+        private final String ruta;
+        private final String rutaPadre;
+        private final Directorio padre;
+        private final String nombre;
+        // Última generación en la que se comprobó que vale; puede quedar atrás por una escritura concurrente,
+        // lo que solo obliga a revalidarla
+        private volatile long generacion;
+
+        private RutaCacheada(String ruta, String rutaPadre, Directorio padre, String nombre, long generacion) {
+            this.ruta = ruta;
+            this.rutaPadre = rutaPadre;
+            this.padre = padre;
+            this.nombre = nombre;
+            this.generacion = generacion;
+        }
     }
 }
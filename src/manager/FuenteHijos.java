@@ -0,0 +1,17 @@
+package manager;
+
+// De dónde saca sus hijos un directorio que todavía no los tiene en memoria: una instantánea mapeada
+// (ArchivoInstantanea) o una carpeta real (AlmacenDisco). Cada directorio de la fuente se identifica con un índice;
+// sus totales se conocen sin armarlo, y sus hijos se arman recién la primera vez que alguien los consulta,
+// con los subdirectorios a su vez sin armar
+abstract class FuenteHijos {
+    // Totales del subárbol del directorio, sin contarlo a él
+    abstract long archivosEnSubarbol(int indice);
+
+    abstract long directoriosEnSubarbol(int indice);
+
+    abstract int profundidad(int indice);
+
+    // Hijos directos del directorio del índice, con directorio como padre
+    abstract MapaHijos hijos(Directorio directorio, int indice);
+}
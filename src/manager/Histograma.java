@@ -0,0 +1,69 @@
+package manager;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Histograma de valores no negativos con cubetas log-lineales, como los de HdrHistogram: los valores menores que
+// SUBCUBETAS tienen una cubeta cada uno, y de ahí en adelante cada potencia de dos se parte en SUBCUBETAS / 2
+// cubetas iguales, así que el error relativo de cualquier valor es menor que 1/16 con menos de mil cubetas
+// para todo el rango de long. Sirve tanto para latencias en nanosegundos como para profundidades y cantidades.
+// Los conteos se reparten en franjas según el hilo que registra, para que varios hilos no peleen por la misma
+// línea de caché; el resumen las suma
+final class Histograma {
+    private static final int BITS_SUBCUBETA = 5;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    private static final int MITAD = SUBCUBETAS / 2;
+    // La última potencia de dos es la del bit 62, el más alto de un long positivo
+    static final int CUBETAS = (63 - BITS_SUBCUBETA) * MITAD + SUBCUBETAS;
+    private static final int FRANJAS = Math.min(8, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+    private final AtomicLongArray[] franjas = new AtomicLongArray[FRANJAS];
+    private final LongAdder suma = new LongAdder();
+    private final LongAccumulator maximo = new LongAccumulator(Math::max, 0);
+
+    Histograma() {
+        for (int i = 0; i < FRANJAS; i++) {
+            franjas[i] = new AtomicLongArray(CUBETAS);
+        }
+    }
+
+    void registrar(long valor) {
+        if (valor < 0) {
+            valor = 0;
+        }
+        int franja = (int) Thread.currentThread().getId() & (FRANJAS - 1);
+        franjas[franja].getAndIncrement(cubeta(valor));
+        suma.add(valor);
+        maximo.accumulate(valor);
+    }
+
+    ResumenHistograma resumen() {
+        long[] conteos = new long[CUBETAS];
+        for (AtomicLongArray franja : franjas) {
+            for (int i = 0; i < CUBETAS; i++) {
+                conteos[i] += franja.get(i);
+            }
+        }
+        return new ResumenHistograma(conteos, suma.sum(), maximo.get());
+    }
+
+    static int cubeta(long valor) {
+        if (valor < SUBCUBETAS) {
+            return (int) valor;
+        }
+        // Se conservan los BITS_SUBCUBETA bits más altos del valor: el corrimiento dice la potencia de dos
+        // y esos bits, que empiezan siempre con 1, la subcubeta dentro de ella
+        int corrimiento = 63 - Long.numberOfLeadingZeros(valor) - BITS_SUBCUBETA + 1;
+        return corrimiento * MITAD + (int) (valor >>> corrimiento);
+    }
+
+    // Mayor valor que cae en la cubeta
+    static long limiteSuperior(int cubeta) {
+        if (cubeta < SUBCUBETAS) {
+            return cubeta;
+        }
+        int corrimiento = cubeta / MITAD - 1;
+        long inicio = (long) (cubeta % MITAD + MITAD) << corrimiento;
+        return inicio + (1L << corrimiento) - 1;
+    }
+}
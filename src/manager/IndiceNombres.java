@@ -0,0 +1,180 @@
+package manager;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+// Índice persistente de los hijos de un directorio ordenados por nombre, para listarlos por páginas
+// Es un treap con copia de camino: cada alta o baja copia solo los nodos de la rama afectada, así que
+// las versiones anteriores del índice siguen siendo válidas igual que las de MapaHijos.
+// La prioridad de cada nodo sale del hash del nombre, de modo que la forma del árbol depende solo del conjunto
+// de nombres y la profundidad esperada es O(log n) sin necesidad de un generador aleatorio.
+// Ubicar el inicio de una página cuesta O(log n) y cada entrada siguiente O(1) amortizado
+final class IndiceNombres {
+    static final IndiceNombres VACIO = new IndiceNombres(null);
+
+    private final Nodo raiz;
+
+    private IndiceNombres(Nodo raiz) {
+        this.raiz = raiz;
+    }
+
+    // Arma el índice de todas las entradas del mapa: se ordenan los nombres y el treap se construye en O(n) con una pila
+    static IndiceNombres desde(MapaHijos hijos) {
+        int cantidad = hijos.tamanio();
+        if (cantidad == 0) {
+            return VACIO;
+        }
+        Nodo[] nodos = new Nodo[cantidad];
+        Iterator<Map.Entry<String, FileSystemBase>> entradas = hijos.iterador();
+        for (int i = 0; i < cantidad; i++) {
+            Map.Entry<String, FileSystemBase> entrada = entradas.next();
+            nodos[i] = new Nodo(entrada.getKey(), entrada.getValue(), prioridad(entrada.getKey()), null, null);
+        }
+        Arrays.sort(nodos, (a, b) -> a.nombre.compareTo(b.nombre));
+
+        // Rama derecha del árbol armado hasta el momento; cada nodo nuevo cuelga de ella según su prioridad
+        Nodo[] rama = new Nodo[cantidad];
+        int alto = 0;
+        for (Nodo nodo : nodos) {
+            Nodo ultimoQuitado = null;
+            while (alto > 0 && rama[alto - 1].prioridad < nodo.prioridad) {
+                ultimoQuitado = rama[--alto];
+            }
+            nodo.izq = ultimoQuitado;
+            if (alto > 0) {
+                rama[alto - 1].der = nodo;
+            }
+            rama[alto++] = nodo;
+        }
+        return new IndiceNombres(rama[0]);
+    }
+
+    IndiceNombres con(String nombre, FileSystemBase valor) {
+        return new IndiceNombres(con(raiz, nombre, valor, prioridad(nombre)));
+    }
+
+    IndiceNombres sin(String nombre) {
+        Nodo nueva = sin(raiz, nombre);
+        return nueva == raiz ? this : new IndiceNombres(nueva);
+    }
+
+    /**
+     * Escribe en orden las entradas que empiezan con el prefijo y vienen después de despuesDe (exclusivo).
+     * @param despuesDe Último nombre de la página anterior, o null para empezar desde el principio.
+     * @return La página, cuyo token de continuación es el último nombre escrito si quedan más entradas.
+     */
+    PaginaListado listar(String prefijo, String despuesDe, int limite, Salida salida) {
+        boolean inclusivo = despuesDe == null || despuesDe.compareTo(prefijo) < 0;
+        String inicio = inclusivo ? prefijo : despuesDe;
+
+        // Pila con los ancestros pendientes de visitar, empezando por el primer nodo que cumple el límite inferior
+        Nodo[] pila = new Nodo[32];
+        int alto = 0;
+        for (Nodo nodo = raiz; nodo != null; ) {
+            int comparacion = nodo.nombre.compareTo(inicio);
+            if (comparacion > 0 || (comparacion == 0 && inclusivo)) {
+                if (alto == pila.length) pila = Arrays.copyOf(pila, alto * 2);
+                pila[alto++] = nodo;
+                nodo = nodo.izq;
+            } else {
+                nodo = nodo.der;
+            }
+        }
+
+        int cantidad = 0;
+        String ultimo = null;
+        while (alto > 0) {
+            Nodo nodo = pila[--alto];
+            if (!nodo.nombre.startsWith(prefijo)) {
+                // Los nombres con un mismo prefijo son contiguos en el orden, así que no hay más
+                break;
+            }
+            if (cantidad == limite) {
+                return new PaginaListado(CodigoResultado.OK, cantidad, ultimo);
+            }
+            salida.entrada(nodo.nombre, nodo.valor instanceof Directorio);
+            ultimo = nodo.nombre;
+            cantidad++;
+            for (Nodo hijo = nodo.der; hijo != null; hijo = hijo.izq) {
+                if (alto == pila.length) pila = Arrays.copyOf(pila, alto * 2);
+                pila[alto++] = hijo;
+            }
+        }
+        return new PaginaListado(CodigoResultado.OK, cantidad, null);
+    }
+
+    private static Nodo con(Nodo nodo, String nombre, FileSystemBase valor, int prioridad) {
+        if (nodo == null) {
+            return new Nodo(nombre, valor, prioridad, null, null);
+        }
+        int comparacion = nombre.compareTo(nodo.nombre);
+        if (comparacion == 0) {
+            return new Nodo(nombre, valor, nodo.prioridad, nodo.izq, nodo.der);
+        }
+        if (comparacion < 0) {
+            Nodo izq = con(nodo.izq, nombre, valor, prioridad);
+            if (izq.prioridad > nodo.prioridad) {
+                // Rotación a la derecha: el nodo nuevo sube
+                return new Nodo(izq.nombre, izq.valor, izq.prioridad, izq.izq,
+                        new Nodo(nodo.nombre, nodo.valor, nodo.prioridad, izq.der, nodo.der));
+            }
+            return new Nodo(nodo.nombre, nodo.valor, nodo.prioridad, izq, nodo.der);
+        }
+        Nodo der = con(nodo.der, nombre, valor, prioridad);
+        if (der.prioridad > nodo.prioridad) {
+            return new Nodo(der.nombre, der.valor, der.prioridad,
+                    new Nodo(nodo.nombre, nodo.valor, nodo.prioridad, nodo.izq, der.izq), der.der);
+        }
+        return new Nodo(nodo.nombre, nodo.valor, nodo.prioridad, nodo.izq, der);
+    }
+
+    // Devuelve el mismo nodo si el nombre no estaba, para no copiar la rama en vano
+    private static Nodo sin(Nodo nodo, String nombre) {
+        if (nodo == null) {
+            return null;
+        }
+        int comparacion = nombre.compareTo(nodo.nombre);
+        if (comparacion == 0) {
+            return unir(nodo.izq, nodo.der);
+        }
+        if (comparacion < 0) {
+            Nodo izq = sin(nodo.izq, nombre);
+            return izq == nodo.izq ? nodo : new Nodo(nodo.nombre, nodo.valor, nodo.prioridad, izq, nodo.der);
+        }
+        Nodo der = sin(nodo.der, nombre);
+        return der == nodo.der ? nodo : new Nodo(nodo.nombre, nodo.valor, nodo.prioridad, nodo.izq, der);
+    }
+
+    // Une dos treaps en los que todos los nombres de a son menores que los de b
+    private static Nodo unir(Nodo a, Nodo b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.prioridad > b.prioridad) {
+            return new Nodo(a.nombre, a.valor, a.prioridad, a.izq, unir(a.der, b));
+        }
+        return new Nodo(b.nombre, b.valor, b.prioridad, unir(a, b.izq), b.der);
+    }
+
+    // Mezcla el hash del nombre para que nombres parecidos ("f1", "f2", ...) no tengan prioridades correlacionadas
+    private static int prioridad(String nombre) {
+        int h = nombre.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 15);
+    }
+
+    // Los hijos solo se asignan al construir con desde(), antes de publicar el índice
+    private static final class Nodo {
+        private final String nombre;
+        private final FileSystemBase valor;
+        private final int prioridad;
+        private Nodo izq;
+        private Nodo der;
+
+        private Nodo(String nombre, FileSystemBase valor, int prioridad, Nodo izq, Nodo der) {
+            this.nombre = nombre;
+            this.valor = valor;
+            this.prioridad = prioridad;
+            this.izq = izq;
+            this.der = der;
+        }
+    }
+}
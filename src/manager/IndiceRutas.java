@@ -0,0 +1,120 @@
+package manager;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Índice global opcional de rutas absolutas a directorios: una ruta se resuelve con una sola búsqueda
+// en lugar de una por nivel. A diferencia de CacheRutas no tiene capacidad ni desalojo, y un mv no lo invalida entero.
+// Lo mantienen las operaciones de FileSystem: mkdir, mkdir -p y los lotes agregan, rm y rm -r quitan, mv reindexa
+// el directorio movido. Lo que no se indexó en el momento (los descendientes de un directorio movido, las copias
+// de un cp -r y lo cargado de una instantánea) se agrega la primera vez que se resuelve recorriendo.
+// Cada directorio recuerda su clave, así que tiene como mucho una entrada y el índice no crece más que el árbol.
+// Una entrada se valida al usarla: si el directorio se desconectó o su ruta ya no es la clave, se descarta
+public final class IndiceRutas {
+    // Tamaños aproximados en una JVM de 64 bits con referencias comprimidas: nodo del mapa, Entrada y String
+    // de la clave sin sus caracteres (la clave suele ser la misma instancia que la ruta cacheada del directorio)
+    private static final int BYTES_POR_ENTRADA = 32 + 24 + 40;
+
+    private final ConcurrentHashMap<String, Entrada> entradas = new ConcurrentHashMap<>();
+    private final LongAdder caracteres = new LongAdder();
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder actualizaciones = new LongAdder();
+
+    IndiceRutas() {
+    }
+
+    // La clave tiene que ser una ruta absoluta canónica: sin ".", "..", barras repetidas ni barra final
+    Directorio buscar(String ruta) {
+        Entrada entrada = entradas.get(ruta);
+        if (entrada == null) {
+            fallos.increment();
+            return null;
+        }
+        Directorio directorio = entrada.directorio;
+        long generacion = FileSystemBase.generacionActual();
+        if (directorio.estaDesconectado()) {
+            descartar(ruta, entrada);
+            return null;
+        }
+        // Si algún directorio cambió de nombre o de lugar desde que se indexó, se compara la ruta una vez
+        // y la entrada queda validada para la generación actual
+        if (entrada.generacion != generacion) {
+            if (!directorio.getRutaCompleta().equals(ruta)) {
+                descartar(ruta, entrada);
+                return null;
+            }
+            entrada.generacion = generacion;
+        }
+        aciertos.increment();
+        return directorio;
+    }
+
+    // La generación debe leerse antes de armar la ruta, igual que en CacheRutas
+    void agregar(String ruta, Directorio directorio, long generacion) {
+        String anterior = directorio.claveIndice;
+        directorio.claveIndice = ruta;
+        if (anterior != null && !anterior.equals(ruta)) {
+            quitar(anterior, directorio);
+        }
+        if (entradas.put(ruta, new Entrada(directorio, generacion)) == null) {
+            caracteres.add(ruta.length());
+        }
+        actualizaciones.increment();
+    }
+
+    void quitar(Directorio directorio) {
+        String clave = directorio.claveIndice;
+        if (clave != null) {
+            directorio.claveIndice = null;
+            quitar(clave, directorio);
+            actualizaciones.increment();
+        }
+    }
+
+    public int getEntradas() {
+        return entradas.size();
+    }
+
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    // Altas, bajas y reindexados hechos por las operaciones y por las resoluciones que recorrieron
+    public long getActualizaciones() {
+        return actualizaciones.sum();
+    }
+
+    // Memoria aproximada que ocupa el índice, sin contar la tabla del mapa
+    public long getBytesEstimados() {
+        return (long) entradas.size() * BYTES_POR_ENTRADA + caracteres.sum();
+    }
+
+    private void quitar(String clave, Directorio directorio) {
+        Entrada entrada = entradas.get(clave);
+        if (entrada != null && entrada.directorio == directorio && entradas.remove(clave, entrada)) {
+            caracteres.add(-clave.length());
+        }
+    }
+
+    private void descartar(String ruta, Entrada entrada) {
+        if (entradas.remove(ruta, entrada)) {
+            caracteres.add(-ruta.length());
+        }
+        fallos.increment();
+    }
+
+    private static final class Entrada {
+        private final Directorio directorio;
+        // Generación de rutas en la que se comprobó que la clave es la ruta del directorio
+        private volatile long generacion;
+
+        private Entrada(Directorio directorio, long generacion) {
+            this.directorio = directorio;
+            this.generacion = generacion;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package manager;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Vista de solo lectura del árbol tal como estaba al momento de crearla (point-in-time)
+// Las escrituras posteriores no la afectan y leerla nunca bloquea. Mientras está abierta se conservan
+// las versiones viejas de los directorios modificados, así que hay que cerrarla al terminar
+public final class Instantanea implements AutoCloseable {
+    private final Directorio raiz;
+    private final long epoca;
+    private volatile boolean cerrada;
+
+    Instantanea(Directorio raiz) {
+        this.raiz = raiz;
+        this.epoca = RelojVersiones.global().abrirInstantanea();
+    }
+
+    public long getEpoca() {
+        return epoca;
+    }
+
+    public Directorio getRaiz() {
+        return raiz;
+    }
+
+    // Hijos de un directorio según esta instantánea
+    public Map<String, FileSystemBase> getHijos(Directorio directorio) {
+        verificarAbierta();
+        return directorio.hijosEn(epoca).comoMapa();
+    }
+
+    /**
+     * Busca una entrada por su ruta absoluta según esta instantánea.
+     * @return La entrada, o null si no existía en ese momento.
+     */
+    public FileSystemBase buscar(String ruta) {
+        verificarAbierta();
+        CursorRuta cursor = new CursorRuta(ruta);
+        FileSystemBase actual = raiz;
+        while (cursor.siguiente()) {
+            if (cursor.esPunto()) continue;
+            if (!(actual instanceof Directorio dir)) return null;
+            if (cursor.esPuntoPunto()) {
+                actual = dir.getPadre() != null ? dir.getPadre() : dir;
+                continue;
+            }
+            actual = dir.hijosEn(epoca).get(cursor.segmento());
+            if (actual == null) return null;
+        }
+        return actual;
+    }
+
+    /**
+     * Lista el contenido de un directorio según esta instantánea, con "/" al final de los subdirectorios.
+     * @return Los nombres, o null si la ruta no era un directorio en ese momento.
+     */
+    public List<String> ls(String ruta) {
+        if (!(buscar(ruta) instanceof Directorio dir)) {
+            return null;
+        }
+        MapaHijos hijos = dir.hijosEn(epoca);
+        List<String> nombres = new ArrayList<>(hijos.tamanio());
+        for (Map.Entry<String, FileSystemBase> hijo : hijos.comoMapa().entrySet()) {
+            nombres.add(hijo.getKey() + (hijo.getValue() instanceof Directorio ? "/" : ""));
+        }
+        return nombres;
+    }
+
+    /**
+     * Guarda el árbol de esta instantánea en formato binario (ver FileSystem.cargar para leerlo).
+     */
+    public void guardar(Path archivo) throws IOException {
+        verificarAbierta();
+        ArchivoInstantanea.guardar(this, archivo);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!cerrada) {
+            cerrada = true;
+            RelojVersiones.global().cerrarInstantanea(epoca);
+        }
+    }
+
+    private void verificarAbierta() {
+        if (cerrada) {
+            throw new IllegalStateException("La instantánea ya fue cerrada.");
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package manager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Conjunto de touch, mkdir y rm que se aplica de una sola vez y de forma atómica: se aplican todas o ninguna.
+// Las operaciones se agrupan por directorio padre, así que cada padre se resuelve una sola vez y recibe
+// una única versión nueva con todos sus cambios, en lugar de un recorrido y una publicación por entrada.
+// Dentro del lote las altas se aplican antes que las bajas: las altas de los directorios de arriba hacia abajo
+// (mkdir a y touch a/x funcionan en cualquier orden) y las bajas de abajo hacia arriba (igual rm a/x y rm a);
+// las operaciones sobre un mismo padre conservan el orden en que se agregaron.
+// Las rutas relativas se resuelven contra la ruta del directorio actual de la sesión al aplicar el lote.
+// Un lote se arma desde un solo hilo; aplicarlo no lo vacía, así que se puede volver a aplicar.
+public final class Lote {
+    // Desempata el orden de bloqueo de dos directorios del mismo nivel con el mismo identityHashCode
+    // Lo comparten con FileSystem.mv y cp, que bloquean los dos padres en el mismo orden
+    static final Object EMPATE = new Object();
+    private static final Comparator<Operacion> ORDEN = Comparator
+            .comparingInt((Operacion o) -> o.tipo == Bitacora.RM ? 1 : 0)
+            .thenComparingInt(o -> o.tipo == Bitacora.RM ? -o.profundidad : o.profundidad)
+            .thenComparing(o -> o.padre, (a, b) -> a == b ? 0 : a.compareTo(b));
+    static final Comparator<Directorio> ORDEN_BLOQUEO = Comparator
+            .comparingInt(Lote::profundidad)
+            .thenComparingInt(System::identityHashCode);
+
+    private final FileSystem fileSystem;
+    private final Sesion sesion;
+    private final List<Operacion> operaciones = new ArrayList<>();
+
+    Lote(FileSystem fileSystem, Sesion sesion) {
+        this.fileSystem = fileSystem;
+        this.sesion = sesion;
+    }
+
+    public Lote touch(String fileName) {
+        return agregar(Bitacora.TOUCH, fileName);
+    }
+
+    public Lote mkdir(String dirName) {
+        return agregar(Bitacora.MKDIR, dirName);
+    }
+
+    // Solo entradas sueltas o directorios vacíos, o que queden vacíos por las otras bajas del lote
+    public Lote rm(String name) {
+        return agregar(Bitacora.RM, name);
+    }
+
+    public int cantidad() {
+        return operaciones.size();
+    }
+
+    /**
+     * Valida todas las operaciones con los directorios afectados bloqueados y, si ninguna falla, las publica
+     * con una única época (una instantánea ve el lote entero o nada) y las registra en la bitácora como un solo
+     * registro, que tras una caída se reproduce completo o no se reproduce.
+     * @return OK, o el resultado de la primera operación que falló junto con su posición en el lote.
+     */
+    public ResultadoLote aplicar() {
+        if (operaciones.isEmpty()) {
+            return new ResultadoLote(CodigoResultado.OK, -1, 0);
+        }
+        String[] base = segmentos(sesion.getDirectorioActual().getRutaCompleta());
+        Operacion anterior = null;
+        for (Operacion operacion : operaciones) {
+            CodigoResultado resultado = operacion.normalizar(base, anterior);
+            if (resultado != CodigoResultado.OK) {
+                return new ResultadoLote(resultado, operacion.posicion, 0);
+            }
+            anterior = operacion;
+        }
+        Operacion[] ordenadas = operaciones.toArray(new Operacion[0]);
+        // El ordenamiento es estable: dentro de un mismo padre se respeta el orden del lote
+        Arrays.sort(ordenadas, ORDEN);
+
+        while (true) {
+            // Sin un mv de un directorio en el medio, las rutas resueltas siguen llevando a los mismos directorios
+            Aplicacion aplicacion;
+            ResultadoLote resultado;
+            fileSystem.bloquearEstructura();
+            try {
+                aplicacion = new Aplicacion(ordenadas);
+                resultado = aplicacion.bloquearYAplicar(0);
+            } finally {
+                fileSystem.liberarEstructura();
+            }
+            if (resultado != null) {
+                fileSystem.esperarBitacora(aplicacion.secuencia);
+                return resultado;
+            }
+            // Algún directorio cambió entre la resolución y el bloqueo: se resuelve todo de nuevo
+        }
+    }
+
+    private Lote agregar(byte tipo, String ruta) {
+        operaciones.add(new Operacion(tipo, ruta, operaciones.size()));
+        return this;
+    }
+
+    private static int profundidad(Directorio directorio) {
+        int profundidad = 0;
+        for (Directorio d = directorio.getPadre(); d != null; d = d.getPadre()) {
+            profundidad++;
+        }
+        return profundidad;
+    }
+
+    private static String[] segmentos(String ruta) {
+        CursorRuta cursor = new CursorRuta(ruta);
+        List<String> segmentos = new ArrayList<>();
+        while (cursor.siguiente()) {
+            segmentos.add(cursor.segmento());
+        }
+        return segmentos.toArray(new String[0]);
+    }
+
+    // Una aplicación del lote: resuelve los padres sin bloquear, bloquea todo lo que va a tocar y recién ahí valida
+    private final class Aplicacion {
+        private final Operacion[] ordenadas;
+        // Por ruta absoluta, cada directorio que el lote usa como padre o que crea
+        private final Map<String, Grupo> grupos = new HashMap<>();
+        // Directorios que las bajas esperan encontrar, bloqueados para verificar que estén vacíos
+        private final Map<Operacion, Directorio> aQuitar = new IdentityHashMap<>();
+        private final Directorio[] bloqueos;
+        private final boolean hayEmpates;
+        private long secuencia = -1;
+
+        private Aplicacion(Operacion[] ordenadas) {
+            this.ordenadas = ordenadas;
+            Set<Directorio> aBloquear = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Operacion operacion : ordenadas) {
+                Grupo grupo = grupos.computeIfAbsent(operacion.padre,
+                        ruta -> new Grupo(operacion.profundidad, fileSystem.buscarDirectorio(ruta)));
+                if (grupo.real == null) {
+                    continue;
+                }
+                aBloquear.add(grupo.real);
+                if (operacion.tipo == Bitacora.RM && grupo.real.getHijo(operacion.nombre) instanceof Directorio dir) {
+                    aQuitar.put(operacion, dir);
+                    aBloquear.add(dir);
+                }
+            }
+            bloqueos = aBloquear.toArray(new Directorio[0]);
+            // Siempre de padres a hijos, como el resto de las operaciones, y en un orden fijo dentro de cada nivel
+            Arrays.sort(bloqueos, ORDEN_BLOQUEO);
+            boolean empates = false;
+            for (int i = 1; i < bloqueos.length; i++) {
+                empates |= ORDEN_BLOQUEO.compare(bloqueos[i - 1], bloqueos[i]) == 0;
+            }
+            hayEmpates = empates;
+        }
+
+        // Devuelve null si hay que reintentar
+        private ResultadoLote bloquearYAplicar(int i) {
+            if (i == 0 && hayEmpates) {
+                synchronized (EMPATE) {
+                    return bloquearDesde(0);
+                }
+            }
+            return bloquearDesde(i);
+        }
+
+        private ResultadoLote bloquearDesde(int i) {
+            if (i == bloqueos.length) {
+                return validarYAplicar();
+            }
+            synchronized (bloqueos[i]) {
+                return bloquearDesde(i + 1);
+            }
+        }
+
+        private ResultadoLote validarYAplicar() {
+            for (Operacion operacion : ordenadas) {
+                Grupo grupo = grupos.get(operacion.padre);
+                Directorio destino = grupo.directorio();
+                if (destino == null || grupo.real != null && grupo.real.estaDesconectado()) {
+                    return fallo(CodigoResultado.RUTA_INEXISTENTE, operacion);
+                }
+                if (grupo.real != null) {
+                    CodigoResultado admitido = fileSystem.admitirEnLote(grupo.real, operacion.tipo == Bitacora.RM, operacion.ruta);
+                    if (admitido != CodigoResultado.OK) {
+                        return fallo(admitido, operacion);
+                    }
+                }
+                CodigoResultado resultado = operacion.tipo == Bitacora.RM
+                        ? validarBaja(operacion, grupo)
+                        : validarAlta(operacion, grupo, destino);
+                if (resultado == null) {
+                    return null;
+                }
+                if (resultado != CodigoResultado.OK) {
+                    return fallo(resultado, operacion);
+                }
+            }
+
+            List<Directorio> destinos = new ArrayList<>();
+            for (Grupo grupo : grupos.values()) {
+                if (grupo.real != null && grupo.tieneCambios()) {
+                    destinos.add(grupo.real);
+                }
+            }
+            byte[] tipos = new byte[ordenadas.length];
+            String[] rutas = new String[ordenadas.length];
+            for (int i = 0; i < ordenadas.length; i++) {
+                tipos[i] = ordenadas[i].tipo;
+                rutas[i] = ordenadas[i].ruta;
+            }
+            secuencia = fileSystem.registrarLote(tipos, rutas, destinos);
+            if (secuencia == Bitacora.RECHAZADO) {
+                secuencia = -1;
+                return new ResultadoLote(CodigoResultado.RUTA_INEXISTENTE, -1, 0);
+            }
+            long generacion = FileSystemBase.generacionActual();
+            publicar();
+            // Con la estructura bloqueada ningún mv de un directorio puede cambiar las rutas de los grupos
+            for (Map.Entry<String, Grupo> grupo : grupos.entrySet()) {
+                if (grupo.getValue().nuevo != null) {
+                    fileSystem.indexar(grupo.getKey(), grupo.getValue().nuevo, generacion);
+                }
+            }
+            for (Directorio quitado : aQuitar.values()) {
+                fileSystem.desindexar(quitado);
+            }
+            AnilloEventos eventos = fileSystem.getEventos();
+            if (eventos.hayVigilancias()) {
+                // En el orden en que se aplicaron, así un mkdir y un rm del mismo directorio se ven como tales
+                for (Operacion operacion : ordenadas) {
+                    eventos.publicar(operacion.tipo == Bitacora.RM ? EventoCambio.Tipo.ELIMINADO : EventoCambio.Tipo.CREADO,
+                            operacion.ruta, operacion.directorio);
+                }
+            }
+            fileSystem.terminarLote(secuencia);
+            return new ResultadoLote(CodigoResultado.OK, -1, ordenadas.length);
+        }
+
+        private CodigoResultado validarAlta(Operacion operacion, Grupo grupo, Directorio destino) {
+            if (grupo.altas.containsKey(operacion.nombre)
+                    || grupo.real != null && grupo.real.getHijo(operacion.nombre) != null) {
+                return CodigoResultado.YA_EXISTE;
+            }
+            operacion.directorio = operacion.tipo == Bitacora.MKDIR;
+            if (operacion.tipo == Bitacora.TOUCH) {
+                grupo.altas.put(operacion.nombre, new Archivo(operacion.nombre, destino));
+                return CodigoResultado.OK;
+            }
+            // El directorio se arma fuera del árbol, con sus propias altas, y se engancha al final en una sola publicación
+            Directorio nuevo = new Directorio(operacion.nombre, destino);
+            nuevo.marcarDesenlazado(true);
+            grupo.altas.put(operacion.nombre, nuevo);
+            Grupo propio = grupos.computeIfAbsent(operacion.ruta, ruta -> new Grupo(operacion.profundidad + 1, null));
+            if (propio.real != null) {
+                // Existía al resolver y ya no está
+                return null;
+            }
+            propio.nuevo = nuevo;
+            return CodigoResultado.OK;
+        }
+
+        private CodigoResultado validarBaja(Operacion operacion, Grupo grupo) {
+            FileSystemBase entrada = grupo.altas.get(operacion.nombre);
+            boolean delLote = entrada != null;
+            if (!delLote && grupo.real != null && !grupo.bajas.contains(operacion.nombre)) {
+                entrada = grupo.real.getHijo(operacion.nombre);
+                if (entrada instanceof Directorio dir && aQuitar.get(operacion) != dir) {
+                    return null;
+                }
+            }
+            if (entrada == null) {
+                return CodigoResultado.NO_ENCONTRADO;
+            }
+            operacion.directorio = entrada instanceof Directorio;
+            if (entrada instanceof Directorio dir) {
+                Grupo propio = grupos.get(operacion.ruta);
+                if (propio != null && propio.directorio() != dir) {
+                    return null;
+                }
+                int hijos = propio != null ? propio.cantidadHijos() : dir.getHijos().size();
+                if (hijos > 0) {
+                    return CodigoResultado.DIRECTORIO_NO_VACIO;
+                }
+                if (delLote) {
+                    propio.nuevo = null;
+                }
+            }
+            if (delLote) {
+                grupo.altas.remove(operacion.nombre);
+            } else {
+                grupo.bajas.add(operacion.nombre);
+            }
+            return CodigoResultado.OK;
+        }
+
+        // Con una sola época para todo el lote: primero se arman los directorios nuevos, de los más profundos
+        // a los menos, y después cada padre existente publica sus cambios de una vez
+        private void publicar() {
+            List<Grupo> nuevos = new ArrayList<>();
+            for (Grupo grupo : grupos.values()) {
+                if (grupo.nuevo != null && !grupo.altas.isEmpty()) {
+                    nuevos.add(grupo);
+                }
+            }
+            nuevos.sort(Comparator.comparingInt((Grupo g) -> g.profundidad).reversed());
+            RelojVersiones reloj = RelojVersiones.global();
+            long epoca = reloj.entrar();
+            try {
+                for (Grupo grupo : nuevos) {
+                    grupo.nuevo.aplicarLote(grupo.altas.values(), Set.of(), epoca);
+                }
+                for (Grupo grupo : grupos.values()) {
+                    if (grupo.real != null && grupo.tieneCambios()) {
+                        grupo.real.aplicarLote(grupo.altas.values(), grupo.bajas, epoca);
+                    }
+                }
+            } finally {
+                reloj.salir(epoca);
+            }
+        }
+
+        private ResultadoLote fallo(CodigoResultado resultado, Operacion operacion) {
+            return new ResultadoLote(resultado, operacion.posicion, 0);
+        }
+    }
+
+    // Un directorio afectado por el lote: el existente que se resolvió, o el que crea el propio lote
+    private static final class Grupo {
+        private final int profundidad;
+        private final Directorio real;
+        private Directorio nuevo;
+        private final Map<String, FileSystemBase> altas = new LinkedHashMap<>();
+        private final Set<String> bajas = new LinkedHashSet<>();
+
+        private Grupo(int profundidad, Directorio real) {
+            this.profundidad = profundidad;
+            this.real = real;
+        }
+
+        private Directorio directorio() {
+            return real != null ? real : nuevo;
+        }
+
+        private boolean tieneCambios() {
+            return !altas.isEmpty() || !bajas.isEmpty();
+        }
+
+        // Hijos que va a tener después del lote
+        private int cantidadHijos() {
+            return (real != null ? real.getHijos().size() : 0) + altas.size() - bajas.size();
+        }
+    }
+
+    private static final class Operacion {
+        private final byte tipo;
+        private final String original;
+        private final int posicion;
+        // Completados al aplicar: ruta absoluta sin . ni .., la de su padre, su nombre y la profundidad del padre
+        private String ruta;
+        private String padre;
+        private String nombre;
+        private int profundidad;
+        // Completado al validar: si la entrada que crea o quita es un directorio
+        private boolean directorio;
+
+        private Operacion(byte tipo, String original, int posicion) {
+            this.tipo = tipo;
+            this.original = original;
+            this.posicion = posicion;
+        }
+
+        // En la raíz, .. se queda en la raíz, igual que al resolver una ruta en FileSystem
+        // Si la operación anterior tiene el mismo padre se reutiliza su String, que ya tiene el hash calculado
+        private CodigoResultado normalizar(String[] base, Operacion anterior) {
+            if (original == null || original.isEmpty()) {
+                return CodigoResultado.NOMBRE_VACIO;
+            }
+            int canonicos = segmentosCanonicos(original);
+            if (canonicos > 0) {
+                // El caso común, una ruta absoluta sin . ni .. ni barras de más, no necesita armarse de nuevo
+                int corte = original.lastIndexOf('/');
+                ruta = original;
+                nombre = original.substring(corte + 1);
+                profundidad = canonicos - 1;
+                if (anterior != null && anterior.padre.length() == Math.max(corte, 1) && original.startsWith(anterior.padre)) {
+                    padre = anterior.padre;
+                } else {
+                    padre = corte == 0 ? "/" : original.substring(0, corte);
+                }
+                return CodigoResultado.OK;
+            }
+            CursorRuta cursor = new CursorRuta(original);
+            if (!cursor.tieneHoja() || cursor.hojaEsPunto()) {
+                return CodigoResultado.NOMBRE_INVALIDO;
+            }
+            List<String> segmentos = new ArrayList<>();
+            if (!cursor.esAbsoluta()) {
+                segmentos.addAll(Arrays.asList(base));
+            }
+            while (cursor.siguiente()) {
+                if (cursor.esPuntoPunto()) {
+                    if (!segmentos.isEmpty()) segmentos.remove(segmentos.size() - 1);
+                } else if (!cursor.esPunto()) {
+                    segmentos.add(cursor.segmento());
+                }
+            }
+            nombre = cursor.hoja();
+            profundidad = segmentos.size() - 1;
+            StringBuilder armada = new StringBuilder();
+            for (int i = 0; i < profundidad; i++) {
+                armada.append('/').append(segmentos.get(i));
+            }
+            padre = profundidad == 0 ? "/" : armada.toString();
+            ruta = armada.append('/').append(nombre).toString();
+            return CodigoResultado.OK;
+        }
+
+        // Cantidad de segmentos si la ruta es absoluta, sin segmentos vacíos, . ni .., y sin barra final; si no, -1
+        private static int segmentosCanonicos(String ruta) {
+            if (ruta.charAt(0) != '/' || ruta.charAt(ruta.length() - 1) == '/') {
+                return -1;
+            }
+            int segmentos = 0;
+            int inicio = 1;
+            for (int i = 1; i <= ruta.length(); i++) {
+                if (i == ruta.length() || ruta.charAt(i) == '/') {
+                    int largo = i - inicio;
+                    if (largo == 0 || ruta.charAt(inicio) == '.' && (largo == 1 || largo == 2 && ruta.charAt(inicio + 1) == '.')) {
+                        return -1;
+                    }
+                    segmentos++;
+                    inicio = i + 1;
+                }
+            }
+            return segmentos;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package manager;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+// Mapa persistente (inmutable) de nombre a entrada para los hijos de un directorio
+// Cada modificación devuelve un mapa nuevo, así las versiones viejas de un directorio siguen siendo
+// válidas para quien las esté leyendo. La representación cambia según el tamaño para no pagar
+// la estructura de un mapa grande en los millones de directorios chicos:
+//  - hasta MAX_ARREGLO entradas: un arreglo ordenado con búsqueda binaria (MapaHijosArreglo)
+//  - hasta MAX_TABLA entradas: una tabla de direccionamiento abierto (MapaHijosTabla)
+//  - más grandes: un HAMT que copia solo el camino modificado (MapaHijosHamt)
+// Al achicarse se vuelve a la representación menor con un margen, para no alternar en cada alta y baja
+abstract class MapaHijos {
+    static final int MAX_ARREGLO = 8;
+    static final int MAX_TABLA = 64;
+
+    static final MapaHijos VACIO = new MapaHijosArreglo(new Object[0]);
+
+    abstract FileSystemBase get(String nombre);
+
+    // Devuelve un mapa con la entrada agregada o reemplazada
+    abstract MapaHijos con(String nombre, FileSystemBase valor);
+
+    // Devuelve un mapa sin la entrada, o este mismo si no existía
+    abstract MapaHijos sin(String nombre);
+
+    abstract int tamanio();
+
+    abstract Iterator<Map.Entry<String, FileSystemBase>> iterador();
+
+    final boolean estaVacio() {
+        return tamanio() == 0;
+    }
+
+    // Vista de solo lectura como Map; como el mapa es inmutable, recorrerla es consistente aunque haya escrituras
+    final Map<String, FileSystemBase> comoMapa() {
+        return new Vista(this);
+    }
+
+    // Arma directamente la representación que corresponde a la cantidad de entradas, sin pasar por las menores
+    static MapaHijos desde(Iterator<Map.Entry<String, FileSystemBase>> entradas, int cantidad) {
+        if (cantidad <= MAX_ARREGLO) {
+            return MapaHijosArreglo.desde(entradas);
+        }
+        if (cantidad <= MAX_TABLA) {
+            return MapaHijosTabla.desde(entradas, cantidad);
+        }
+        return MapaHijosHamt.desde(entradas);
+    }
+
+    static int hash(String nombre) {
+        int h = nombre.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Vista extends AbstractMap<String, FileSystemBase> {
+        private final MapaHijos mapa;
+
+        Vista(MapaHijos mapa) {
+            this.mapa = mapa;
+        }
+
+        @Override
+        public FileSystemBase get(Object clave) {
+            return clave instanceof String nombre ? mapa.get(nombre) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object clave) {
+            return get(clave) != null;
+        }
+
+        @Override
+        public int size() {
+            return mapa.tamanio();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return mapa.estaVacio();
+        }
+
+        @Override
+        public Set<Entry<String, FileSystemBase>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, FileSystemBase>> iterator() {
+                    return mapa.iterador();
+                }
+
+                @Override
+                public int size() {
+                    return mapa.tamanio();
+                }
+            };
+        }
+    }
+}
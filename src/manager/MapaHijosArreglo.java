@@ -0,0 +1,115 @@
+package manager;
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+// Representación de los directorios chicos: un único arreglo con pares clave/valor ordenados por nombre
+// No tiene tabla ni nodos intermedios, así que un directorio con pocas entradas ocupa casi solo sus referencias
+final class MapaHijosArreglo extends MapaHijos {
+    // Por debajo de este tamaño la tabla vuelve a ser un arreglo
+    static final int MIN_TABLA = 4;
+
+    private final Object[] pares;
+
+    MapaHijosArreglo(Object[] pares) {
+        this.pares = pares;
+    }
+
+    @Override
+    FileSystemBase get(String nombre) {
+        int i = buscar(nombre);
+        return i >= 0 ? (FileSystemBase) pares[2 * i + 1] : null;
+    }
+
+    @Override
+    MapaHijos con(String nombre, FileSystemBase valor) {
+        int i = buscar(nombre);
+        if (i >= 0) {
+            Object[] copia = pares.clone();
+            copia[2 * i + 1] = valor;
+            return new MapaHijosArreglo(copia);
+        }
+        if (tamanio() == MAX_ARREGLO) {
+            return MapaHijosTabla.desde(iterador(), MAX_ARREGLO).con(nombre, valor);
+        }
+        int posicion = -(i + 1);
+        Object[] copia = new Object[pares.length + 2];
+        System.arraycopy(pares, 0, copia, 0, 2 * posicion);
+        copia[2 * posicion] = nombre;
+        copia[2 * posicion + 1] = valor;
+        System.arraycopy(pares, 2 * posicion, copia, 2 * posicion + 2, pares.length - 2 * posicion);
+        return new MapaHijosArreglo(copia);
+    }
+
+    @Override
+    MapaHijos sin(String nombre) {
+        int i = buscar(nombre);
+        if (i < 0) {
+            return this;
+        }
+        if (pares.length == 2) {
+            return VACIO;
+        }
+        Object[] copia = new Object[pares.length - 2];
+        System.arraycopy(pares, 0, copia, 0, 2 * i);
+        System.arraycopy(pares, 2 * i + 2, copia, 2 * i, pares.length - 2 * i - 2);
+        return new MapaHijosArreglo(copia);
+    }
+
+    @Override
+    int tamanio() {
+        return pares.length / 2;
+    }
+
+    // Búsqueda binaria; si no está devuelve -(posición de inserción) - 1, como Arrays.binarySearch
+    private int buscar(String nombre) {
+        int bajo = 0;
+        int alto = tamanio() - 1;
+        while (bajo <= alto) {
+            int medio = (bajo + alto) >>> 1;
+            int comparacion = ((String) pares[2 * medio]).compareTo(nombre);
+            if (comparacion < 0) {
+                bajo = medio + 1;
+            } else if (comparacion > 0) {
+                alto = medio - 1;
+            } else {
+                return medio;
+            }
+        }
+        return -(bajo + 1);
+    }
+
+    // Arma un arreglo ordenado a partir de las entradas de otra representación
+    static MapaHijos desde(Iterator<Map.Entry<String, FileSystemBase>> entradas) {
+        MapaHijos mapa = VACIO;
+        while (entradas.hasNext()) {
+            Map.Entry<String, FileSystemBase> entrada = entradas.next();
+            mapa = mapa.con(entrada.getKey(), entrada.getValue());
+        }
+        return mapa;
+    }
+
+    @Override
+    Iterator<Map.Entry<String, FileSystemBase>> iterador() {
+        return new Iterator<>() {
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                return 2 * i < pares.length;
+            }
+
+            @Override
+            public Map.Entry<String, FileSystemBase> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Map.Entry<String, FileSystemBase> entrada =
+                        new AbstractMap.SimpleImmutableEntry<>((String) pares[2 * i], (FileSystemBase) pares[2 * i + 1]);
+                i++;
+                return entrada;
+            }
+        };
+    }
+}
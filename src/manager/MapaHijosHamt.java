@@ -0,0 +1,470 @@
+package manager;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+// Representación de los directorios grandes: un HAMT de 32 ramas
+// Cada modificación copia solo el camino hasta la entrada, compartiendo el resto con la versión anterior
+final class MapaHijosHamt extends MapaHijos {
+    // Por debajo de este tamaño conviene volver a la tabla de direccionamiento abierto
+    static final int MIN_HAMT = 32;
+
+    private static final MapaHijosHamt VACIO_HAMT = new MapaHijosHamt(NodoBitmap.VACIO, 0);
+    private static final int BITS = 5;
+    private static final int MASCARA = (1 << BITS) - 1;
+
+    private final Nodo raiz;
+    private final int tamanio;
+
+    private MapaHijosHamt(Nodo raiz, int tamanio) {
+        this.raiz = raiz;
+        this.tamanio = tamanio;
+    }
+
+    // Las claves no se repiten. Se arma de una vez, nivel por nivel, en lugar de copiar un camino por cada entrada
+    static MapaHijos desde(Iterator<Map.Entry<String, FileSystemBase>> entradas) {
+        List<Map.Entry<String, FileSystemBase>> lista = new ArrayList<>();
+        entradas.forEachRemaining(lista::add);
+        int cantidad = lista.size();
+        String[] claves = new String[cantidad];
+        FileSystemBase[] valores = new FileSystemBase[cantidad];
+        int[] hashes = new int[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            Map.Entry<String, FileSystemBase> entrada = lista.get(i);
+            claves[i] = entrada.getKey();
+            valores[i] = entrada.getValue();
+            hashes[i] = hash(claves[i]);
+        }
+        if (cantidad == 0) {
+            return VACIO_HAMT;
+        }
+        Construccion construccion = new Construccion(claves, valores, hashes);
+        return new MapaHijosHamt(construccion.nodo(0, cantidad, 0), cantidad);
+    }
+
+    @Override
+    FileSystemBase get(String nombre) {
+        return raiz.buscar(nombre, hash(nombre), 0);
+    }
+
+    @Override
+    MapaHijos con(String nombre, FileSystemBase valor) {
+        return agregar(nombre, valor);
+    }
+
+    private MapaHijosHamt agregar(String nombre, FileSystemBase valor) {
+        int h = hash(nombre);
+        boolean existia = raiz.buscar(nombre, h, 0) != null;
+        return new MapaHijosHamt(raiz.con(nombre, h, 0, valor), existia ? tamanio : tamanio + 1);
+    }
+
+    @Override
+    MapaHijos sin(String nombre) {
+        int h = hash(nombre);
+        if (raiz.buscar(nombre, h, 0) == null) {
+            return this;
+        }
+        MapaHijosHamt resultado = new MapaHijosHamt(raiz.sin(nombre, h, 0), tamanio - 1);
+        if (resultado.tamanio < MIN_HAMT) {
+            return MapaHijosTabla.desde(resultado.iterador(), resultado.tamanio);
+        }
+        return resultado;
+    }
+
+    @Override
+    int tamanio() {
+        return tamanio;
+    }
+
+    @Override
+    Iterator<Map.Entry<String, FileSystemBase>> iterador() {
+        return new Iterador(raiz);
+    }
+
+    private static int indice(int h, int desplazamiento) {
+        return (h >>> desplazamiento) & MASCARA;
+    }
+
+    private abstract static class Nodo {
+        abstract FileSystemBase buscar(String nombre, int h, int desplazamiento);
+
+        abstract Nodo con(String nombre, int h, int desplazamiento, FileSystemBase valor);
+
+        // Solo se llama si la clave existe
+        abstract Nodo sin(String nombre, int h, int desplazamiento);
+
+        // Un nodo con una sola entrada y sin subnodos se puede subir al padre
+        abstract boolean tieneUnaSolaEntrada();
+
+        abstract int cantidadEntradas();
+
+        abstract String clave(int i);
+
+        abstract FileSystemBase valor(int i);
+
+        abstract int cantidadSubnodos();
+
+        abstract Nodo subnodo(int i);
+    }
+
+    // Nodo con dos mapas de bits: entradas guardadas en línea y subnodos
+    // Las entradas ocupan el principio del arreglo como pares clave/valor y los subnodos el final, en orden inverso
+    private static final class NodoBitmap extends Nodo {
+        static final NodoBitmap VACIO = new NodoBitmap(0, 0, new Object[0]);
+
+        private final int datos;
+        private final int nodos;
+        private final Object[] arreglo;
+
+        NodoBitmap(int datos, int nodos, Object[] arreglo) {
+            this.datos = datos;
+            this.nodos = nodos;
+            this.arreglo = arreglo;
+        }
+
+        @Override
+        FileSystemBase buscar(String nombre, int h, int desplazamiento) {
+            int bit = 1 << indice(h, desplazamiento);
+            if ((datos & bit) != 0) {
+                int i = Integer.bitCount(datos & (bit - 1));
+                return nombre.equals(arreglo[2 * i]) ? (FileSystemBase) arreglo[2 * i + 1] : null;
+            }
+            if ((nodos & bit) != 0) {
+                return subnodoPorBit(bit).buscar(nombre, h, desplazamiento + BITS);
+            }
+            return null;
+        }
+
+        @Override
+        Nodo con(String nombre, int h, int desplazamiento, FileSystemBase valor) {
+            int bit = 1 << indice(h, desplazamiento);
+            if ((datos & bit) != 0) {
+                int i = Integer.bitCount(datos & (bit - 1));
+                String clave = (String) arreglo[2 * i];
+                if (clave.equals(nombre)) {
+                    Object[] copia = arreglo.clone();
+                    copia[2 * i + 1] = valor;
+                    return new NodoBitmap(datos, nodos, copia);
+                }
+                // Dos claves en la misma posición: se bajan ambas a un subnodo
+                FileSystemBase otro = (FileSystemBase) arreglo[2 * i + 1];
+                Nodo sub = fusionar(clave, hash(clave), otro, nombre, h, valor, desplazamiento + BITS);
+                return reemplazarEntradaPorSubnodo(bit, i, sub);
+            }
+            if ((nodos & bit) != 0) {
+                int j = Integer.bitCount(nodos & (bit - 1));
+                Object[] copia = arreglo.clone();
+                copia[arreglo.length - 1 - j] = subnodoPorBit(bit).con(nombre, h, desplazamiento + BITS, valor);
+                return new NodoBitmap(datos, nodos, copia);
+            }
+            int i = Integer.bitCount(datos & (bit - 1));
+            Object[] copia = new Object[arreglo.length + 2];
+            System.arraycopy(arreglo, 0, copia, 0, 2 * i);
+            copia[2 * i] = nombre;
+            copia[2 * i + 1] = valor;
+            System.arraycopy(arreglo, 2 * i, copia, 2 * i + 2, arreglo.length - 2 * i);
+            return new NodoBitmap(datos | bit, nodos, copia);
+        }
+
+        @Override
+        Nodo sin(String nombre, int h, int desplazamiento) {
+            int bit = 1 << indice(h, desplazamiento);
+            if ((datos & bit) != 0) {
+                int i = Integer.bitCount(datos & (bit - 1));
+                Object[] copia = new Object[arreglo.length - 2];
+                System.arraycopy(arreglo, 0, copia, 0, 2 * i);
+                System.arraycopy(arreglo, 2 * i + 2, copia, 2 * i, arreglo.length - 2 * i - 2);
+                return new NodoBitmap(datos ^ bit, nodos, copia);
+            }
+            int j = Integer.bitCount(nodos & (bit - 1));
+            Nodo sub = subnodoPorBit(bit).sin(nombre, h, desplazamiento + BITS);
+            if (sub.tieneUnaSolaEntrada()) {
+                // Se sube la única entrada que quedó en el subnodo para mantener el árbol compacto
+                return reemplazarSubnodoPorEntrada(bit, j, sub.clave(0), sub.valor(0));
+            }
+            Object[] copia = arreglo.clone();
+            copia[arreglo.length - 1 - j] = sub;
+            return new NodoBitmap(datos, nodos, copia);
+        }
+
+        private Nodo subnodoPorBit(int bit) {
+            int j = Integer.bitCount(nodos & (bit - 1));
+            return (Nodo) arreglo[arreglo.length - 1 - j];
+        }
+
+        private Nodo reemplazarEntradaPorSubnodo(int bit, int i, Nodo sub) {
+            int j = Integer.bitCount(nodos & (bit - 1));
+            Object[] copia = new Object[arreglo.length - 1];
+            int finDatos = 2 * Integer.bitCount(datos);
+            // Entradas sin el par i
+            System.arraycopy(arreglo, 0, copia, 0, 2 * i);
+            System.arraycopy(arreglo, 2 * i + 2, copia, 2 * i, finDatos - 2 * i - 2);
+            // Subnodos: los j primeros (guardados al final) se mantienen, el nuevo va en la posición j
+            int posicionNueva = copia.length - 1 - j;
+            System.arraycopy(arreglo, finDatos, copia, finDatos - 2, posicionNueva - (finDatos - 2));
+            copia[posicionNueva] = sub;
+            System.arraycopy(arreglo, arreglo.length - j, copia, copia.length - j, j);
+            return new NodoBitmap(datos ^ bit, nodos | bit, copia);
+        }
+
+        private Nodo reemplazarSubnodoPorEntrada(int bit, int j, String clave, FileSystemBase valor) {
+            int i = Integer.bitCount(datos & (bit - 1));
+            Object[] copia = new Object[arreglo.length + 1];
+            int finDatos = 2 * Integer.bitCount(datos);
+            System.arraycopy(arreglo, 0, copia, 0, 2 * i);
+            copia[2 * i] = clave;
+            copia[2 * i + 1] = valor;
+            System.arraycopy(arreglo, 2 * i, copia, 2 * i + 2, finDatos - 2 * i);
+            // Subnodos sin el de la posición j
+            int posicionVieja = arreglo.length - 1 - j;
+            System.arraycopy(arreglo, finDatos, copia, finDatos + 2, posicionVieja - finDatos);
+            System.arraycopy(arreglo, posicionVieja + 1, copia, posicionVieja + 2, j);
+            return new NodoBitmap(datos | bit, nodos ^ bit, copia);
+        }
+
+        @Override
+        boolean tieneUnaSolaEntrada() {
+            return nodos == 0 && Integer.bitCount(datos) == 1;
+        }
+
+        @Override
+        int cantidadEntradas() {
+            return Integer.bitCount(datos);
+        }
+
+        @Override
+        String clave(int i) {
+            return (String) arreglo[2 * i];
+        }
+
+        @Override
+        FileSystemBase valor(int i) {
+            return (FileSystemBase) arreglo[2 * i + 1];
+        }
+
+        @Override
+        int cantidadSubnodos() {
+            return Integer.bitCount(nodos);
+        }
+
+        @Override
+        Nodo subnodo(int i) {
+            return (Nodo) arreglo[arreglo.length - 1 - i];
+        }
+    }
+
+    // Nodo para claves cuyo hash completo coincide; se recorre linealmente
+    private static final class NodoColision extends Nodo {
+        private final int h;
+        private final String[] claves;
+        private final FileSystemBase[] valores;
+
+        NodoColision(int h, String[] claves, FileSystemBase[] valores) {
+            this.h = h;
+            this.claves = claves;
+            this.valores = valores;
+        }
+
+        @Override
+        FileSystemBase buscar(String nombre, int hash, int desplazamiento) {
+            for (int i = 0; i < claves.length; i++) {
+                if (claves[i].equals(nombre)) return valores[i];
+            }
+            return null;
+        }
+
+        @Override
+        Nodo con(String nombre, int hash, int desplazamiento, FileSystemBase valor) {
+            for (int i = 0; i < claves.length; i++) {
+                if (claves[i].equals(nombre)) {
+                    FileSystemBase[] nuevos = valores.clone();
+                    nuevos[i] = valor;
+                    return new NodoColision(h, claves, nuevos);
+                }
+            }
+            String[] nuevasClaves = Arrays.copyOf(claves, claves.length + 1);
+            FileSystemBase[] nuevosValores = Arrays.copyOf(valores, valores.length + 1);
+            nuevasClaves[claves.length] = nombre;
+            nuevosValores[valores.length] = valor;
+            return new NodoColision(h, nuevasClaves, nuevosValores);
+        }
+
+        @Override
+        Nodo sin(String nombre, int hash, int desplazamiento) {
+            String[] nuevasClaves = new String[claves.length - 1];
+            FileSystemBase[] nuevosValores = new FileSystemBase[valores.length - 1];
+            for (int i = 0, k = 0; i < claves.length; i++) {
+                if (!claves[i].equals(nombre)) {
+                    nuevasClaves[k] = claves[i];
+                    nuevosValores[k++] = valores[i];
+                }
+            }
+            return new NodoColision(h, nuevasClaves, nuevosValores);
+        }
+
+        @Override
+        boolean tieneUnaSolaEntrada() {
+            return claves.length == 1;
+        }
+
+        @Override
+        int cantidadEntradas() {
+            return claves.length;
+        }
+
+        @Override
+        String clave(int i) {
+            return claves[i];
+        }
+
+        @Override
+        FileSystemBase valor(int i) {
+            return valores[i];
+        }
+
+        @Override
+        int cantidadSubnodos() {
+            return 0;
+        }
+
+        @Override
+        Nodo subnodo(int i) {
+            throw new IndexOutOfBoundsException(i);
+        }
+    }
+
+    private static Nodo fusionar(String clave1, int h1, FileSystemBase valor1,
+                                 String clave2, int h2, FileSystemBase valor2, int desplazamiento) {
+        if (desplazamiento >= 32) {
+            return new NodoColision(h1, new String[] {clave1, clave2}, new FileSystemBase[] {valor1, valor2});
+        }
+        int i1 = indice(h1, desplazamiento);
+        int i2 = indice(h2, desplazamiento);
+        if (i1 == i2) {
+            Nodo sub = fusionar(clave1, h1, valor1, clave2, h2, valor2, desplazamiento + BITS);
+            return new NodoBitmap(0, 1 << i1, new Object[] {sub});
+        }
+        Object[] arreglo = i1 < i2
+                ? new Object[] {clave1, valor1, clave2, valor2}
+                : new Object[] {clave2, valor2, clave1, valor1};
+        return new NodoBitmap((1 << i1) | (1 << i2), 0, arreglo);
+    }
+
+    // Reparte un rango de entradas entre las 32 posiciones del nivel (ordenándolas por posición) y arma el nodo:
+    // una entrada sola queda en línea y varias en la misma posición bajan a un subnodo, igual que al agregarlas de a una
+    private static final class Construccion {
+        private final String[] claves;
+        private final FileSystemBase[] valores;
+        private final int[] hashes;
+        private final String[] clavesAux;
+        private final FileSystemBase[] valoresAux;
+        private final int[] hashesAux;
+
+        private Construccion(String[] claves, FileSystemBase[] valores, int[] hashes) {
+            this.claves = claves;
+            this.valores = valores;
+            this.hashes = hashes;
+            this.clavesAux = new String[claves.length];
+            this.valoresAux = new FileSystemBase[claves.length];
+            this.hashesAux = new int[claves.length];
+        }
+
+        private Nodo nodo(int desde, int hasta, int desplazamiento) {
+            if (desplazamiento >= 32) {
+                return new NodoColision(hashes[desde], Arrays.copyOfRange(claves, desde, hasta),
+                        Arrays.copyOfRange(valores, desde, hasta));
+            }
+            int[] inicios = new int[(1 << BITS) + 1];
+            for (int i = desde; i < hasta; i++) {
+                inicios[indice(hashes[i], desplazamiento) + 1]++;
+            }
+            for (int b = 0; b < 1 << BITS; b++) {
+                inicios[b + 1] += inicios[b];
+            }
+            int[] siguiente = Arrays.copyOf(inicios, 1 << BITS);
+            for (int i = desde; i < hasta; i++) {
+                int destino = desde + siguiente[indice(hashes[i], desplazamiento)]++;
+                clavesAux[destino] = claves[i];
+                valoresAux[destino] = valores[i];
+                hashesAux[destino] = hashes[i];
+            }
+            System.arraycopy(clavesAux, desde, claves, desde, hasta - desde);
+            System.arraycopy(valoresAux, desde, valores, desde, hasta - desde);
+            System.arraycopy(hashesAux, desde, hashes, desde, hasta - desde);
+
+            int datos = 0;
+            int nodos = 0;
+            for (int b = 0; b < 1 << BITS; b++) {
+                int cantidad = inicios[b + 1] - inicios[b];
+                if (cantidad == 1) {
+                    datos |= 1 << b;
+                } else if (cantidad > 1) {
+                    nodos |= 1 << b;
+                }
+            }
+            Object[] arreglo = new Object[2 * Integer.bitCount(datos) + Integer.bitCount(nodos)];
+            int i = 0;
+            int j = 0;
+            for (int b = 0; b < 1 << BITS; b++) {
+                int inicio = desde + inicios[b];
+                if ((datos & 1 << b) != 0) {
+                    arreglo[2 * i] = claves[inicio];
+                    arreglo[2 * i++ + 1] = valores[inicio];
+                } else if ((nodos & 1 << b) != 0) {
+                    arreglo[arreglo.length - 1 - j++] = nodo(inicio, desde + inicios[b + 1], desplazamiento + BITS);
+                }
+            }
+            return new NodoBitmap(datos, nodos, arreglo);
+        }
+    }
+
+    // Recorre las entradas en profundidad con una pila explícita, sin copiar el mapa
+    private static final class Iterador implements Iterator<Map.Entry<String, FileSystemBase>> {
+        private final ArrayDeque<Nodo> pendientes = new ArrayDeque<>();
+        private Nodo actual;
+        private int posicion;
+
+        Iterador(Nodo raiz) {
+            pendientes.push(raiz);
+            avanzarNodo();
+        }
+
+        private void avanzarNodo() {
+            actual = null;
+            while (!pendientes.isEmpty()) {
+                Nodo nodo = pendientes.pop();
+                for (int i = nodo.cantidadSubnodos() - 1; i >= 0; i--) {
+                    pendientes.push(nodo.subnodo(i));
+                }
+                if (nodo.cantidadEntradas() > 0) {
+                    actual = nodo;
+                    posicion = 0;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return actual != null;
+        }
+
+        @Override
+        public Map.Entry<String, FileSystemBase> next() {
+            if (actual == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, FileSystemBase> entrada =
+                    new AbstractMap.SimpleImmutableEntry<>(actual.clave(posicion), actual.valor(posicion));
+            if (++posicion == actual.cantidadEntradas()) {
+                avanzarNodo();
+            }
+            return entrada;
+        }
+    }
+}
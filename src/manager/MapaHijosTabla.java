@@ -0,0 +1,143 @@
+package manager;
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+// Representación de los directorios medianos: tabla de direccionamiento abierto con sondeo lineal,
+// claves y valores intercalados en un solo arreglo. Cada escritura copia la tabla entera, lo que
+// hasta MAX_TABLA entradas cuesta menos que los nodos de un HAMT y deja las búsquedas en uno o dos accesos
+final class MapaHijosTabla extends MapaHijos {
+    private final Object[] ranuras;
+    private final int tamanio;
+
+    private MapaHijosTabla(Object[] ranuras, int tamanio) {
+        this.ranuras = ranuras;
+        this.tamanio = tamanio;
+    }
+
+    static MapaHijos desde(Iterator<Map.Entry<String, FileSystemBase>> entradas, int cantidad) {
+        Object[] ranuras = new Object[2 * capacidadPara(cantidad)];
+        int tamanio = 0;
+        while (entradas.hasNext()) {
+            Map.Entry<String, FileSystemBase> entrada = entradas.next();
+            insertar(ranuras, entrada.getKey(), entrada.getValue());
+            tamanio++;
+        }
+        return new MapaHijosTabla(ranuras, tamanio);
+    }
+
+    @Override
+    FileSystemBase get(String nombre) {
+        int i = posicion(ranuras, nombre);
+        return ranuras[2 * i] != null ? (FileSystemBase) ranuras[2 * i + 1] : null;
+    }
+
+    @Override
+    MapaHijos con(String nombre, FileSystemBase valor) {
+        int i = posicion(ranuras, nombre);
+        if (ranuras[2 * i] != null) {
+            Object[] copia = ranuras.clone();
+            copia[2 * i + 1] = valor;
+            return new MapaHijosTabla(copia, tamanio);
+        }
+        if (tamanio == MAX_TABLA) {
+            return MapaHijosHamt.desde(iterador()).con(nombre, valor);
+        }
+        int capacidad = capacidadPara(tamanio + 1);
+        Object[] copia;
+        if (2 * capacidad == ranuras.length) {
+            copia = ranuras.clone();
+            copia[2 * i] = nombre;
+            copia[2 * i + 1] = valor;
+        } else {
+            copia = new Object[2 * capacidad];
+            for (int j = 0; j < ranuras.length; j += 2) {
+                if (ranuras[j] != null) insertar(copia, (String) ranuras[j], (FileSystemBase) ranuras[j + 1]);
+            }
+            insertar(copia, nombre, valor);
+        }
+        return new MapaHijosTabla(copia, tamanio + 1);
+    }
+
+    @Override
+    MapaHijos sin(String nombre) {
+        if (get(nombre) == null) {
+            return this;
+        }
+        // Con sondeo lineal borrar exige reubicar las claves siguientes; como igual hay que copiar, se reconstruye
+        Iterator<Map.Entry<String, FileSystemBase>> resto = new Iterador(nombre);
+        if (tamanio - 1 < MapaHijosArreglo.MIN_TABLA) {
+            return MapaHijosArreglo.desde(resto);
+        }
+        return desde(resto, tamanio - 1);
+    }
+
+    @Override
+    int tamanio() {
+        return tamanio;
+    }
+
+    @Override
+    Iterator<Map.Entry<String, FileSystemBase>> iterador() {
+        return new Iterador(null);
+    }
+
+    // Menor potencia de dos que mantiene la ocupación en 3/4 o menos
+    private static int capacidadPara(int cantidad) {
+        int capacidad = 8;
+        while (capacidad * 3 < cantidad * 4) {
+            capacidad <<= 1;
+        }
+        return capacidad;
+    }
+
+    // Devuelve la ranura donde está la clave o la primera libre donde iría
+    private static int posicion(Object[] ranuras, String nombre) {
+        int mascara = ranuras.length / 2 - 1;
+        int i = hash(nombre) & mascara;
+        while (ranuras[2 * i] != null && !ranuras[2 * i].equals(nombre)) {
+            i = (i + 1) & mascara;
+        }
+        return i;
+    }
+
+    private static void insertar(Object[] ranuras, String nombre, FileSystemBase valor) {
+        int i = posicion(ranuras, nombre);
+        ranuras[2 * i] = nombre;
+        ranuras[2 * i + 1] = valor;
+    }
+
+    // Recorre las ranuras ocupadas, opcionalmente salteando una clave
+    private final class Iterador implements Iterator<Map.Entry<String, FileSystemBase>> {
+        private final String excluida;
+        private int j = -2;
+
+        Iterador(String excluida) {
+            this.excluida = excluida;
+            avanzar();
+        }
+
+        private void avanzar() {
+            do {
+                j += 2;
+            } while (j < ranuras.length && (ranuras[j] == null || ranuras[j].equals(excluida)));
+        }
+
+        @Override
+        public boolean hasNext() {
+            return j < ranuras.length;
+        }
+
+        @Override
+        public Map.Entry<String, FileSystemBase> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, FileSystemBase> entrada =
+                    new AbstractMap.SimpleImmutableEntry<>((String) ranuras[j], (FileSystemBase) ranuras[j + 1]);
+            avanzar();
+            return entrada;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package manager;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Época fijada por un cp -r que todavía no terminó de armarse, anotada en el directorio copiado
+// Solo lo que está debajo de un nodo marcado (el copiado, o lo que un mv sacó de él) conserva sus versiones viejas
+// y duplica su contenido al escribirse: el resto del árbol no se entera de la copia. Un nodo encuentra sus marcas
+// subiendo por sus padres, cosa que se hace solo mientras haya alguna copia abierta en el proceso.
+// Las marcas se miran con el reloj de versiones ya tomado: como la copia anota la marca antes de cerrar su época,
+// toda escritura con una época posterior la ve
+final class MarcaCopia {
+    private static final MarcaCopia[] NINGUNA = new MarcaCopia[0];
+    // Copias abiertas en todo el proceso; sin ninguna, nadie sube a buscar marcas
+    private static final AtomicInteger abiertas = new AtomicInteger();
+
+    private long epoca;
+    private volatile boolean liberada;
+
+    private MarcaCopia() {
+    }
+
+    // Marca el directorio y cierra la época en curso, que es la que ve la copia
+    static MarcaCopia abrir(Directorio fuente) {
+        MarcaCopia marca = new MarcaCopia();
+        abiertas.incrementAndGet();
+        RelojVersiones.global().cerrarEpoca(e -> {
+            marca.epoca = e;
+            agregar(fuente, marca);
+        });
+        return marca;
+    }
+
+    long getEpoca() {
+        return epoca;
+    }
+
+    // La llama una sola vez el Cleaner de la copia; las marcas liberadas se quitan de los nodos al pasar
+    void liberar() {
+        liberada = true;
+        abiertas.decrementAndGet();
+    }
+
+    // Época de la marca más antigua sobre el nodo o sus ancestros, o Long.MAX_VALUE si no hay ninguna
+    static long masAntiguaSobre(FileSystemBase nodo) {
+        long minima = Long.MAX_VALUE;
+        if (abiertas.get() == 0) {
+            return minima;
+        }
+        for (FileSystemBase n = nodo; n != null; n = n.getPadre()) {
+            for (MarcaCopia marca : vigentes(n)) {
+                minima = Math.min(minima, marca.epoca);
+            }
+        }
+        return minima;
+    }
+
+    // Indica si alguna marca sobre el nodo o sus ancestros fijó una época en [desde, hasta)
+    static boolean hayEntre(FileSystemBase nodo, long desde, long hasta) {
+        if (abiertas.get() == 0) {
+            return false;
+        }
+        for (FileSystemBase n = nodo; n != null; n = n.getPadre()) {
+            for (MarcaCopia marca : vigentes(n)) {
+                if (marca.epoca >= desde && marca.epoca < hasta) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Un mv que saca al nodo de debajo de una marca se la lleva: la copia todavía puede leerlo en su época.
+    // Se llama antes de cambiarle el padre
+    static void heredar(FileSystemBase nodo, Directorio origen) {
+        if (abiertas.get() == 0) {
+            return;
+        }
+        for (Directorio d = origen; d != null; d = d.getPadre()) {
+            for (MarcaCopia marca : vigentes(d)) {
+                agregar(nodo, marca);
+            }
+        }
+    }
+
+    private static void agregar(FileSystemBase nodo, MarcaCopia marca) {
+        while (true) {
+            MarcaCopia[] actuales = nodo.getMarcasCopia();
+            if (actuales != null && Arrays.asList(actuales).contains(marca)) {
+                return;
+            }
+            MarcaCopia[] nuevas = actuales == null ? new MarcaCopia[] {marca} : Arrays.copyOf(actuales, actuales.length + 1);
+            nuevas[nuevas.length - 1] = marca;
+            if (nodo.cambiarMarcasCopia(actuales, nuevas)) {
+                return;
+            }
+        }
+    }
+
+    // Marcas del nodo que siguen abiertas; de paso quita las liberadas
+    private static MarcaCopia[] vigentes(FileSystemBase nodo) {
+        MarcaCopia[] actuales = nodo.getMarcasCopia();
+        if (actuales == null) {
+            return NINGUNA;
+        }
+        int liberadas = 0;
+        for (MarcaCopia marca : actuales) {
+            if (marca.liberada) liberadas++;
+        }
+        if (liberadas == 0) {
+            return actuales;
+        }
+        MarcaCopia[] quedan = liberadas == actuales.length ? null : new MarcaCopia[actuales.length - liberadas];
+        int i = 0;
+        for (MarcaCopia marca : actuales) {
+            if (!marca.liberada) quedan[i++] = marca;
+        }
+        // Si otro hilo agregó una marca mientras tanto, la limpieza queda para la próxima pasada
+        nodo.cambiarMarcasCopia(actuales, quedan);
+        return quedan != null ? quedan : NINGUNA;
+    }
+}
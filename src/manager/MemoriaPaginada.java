@@ -0,0 +1,100 @@
+package manager;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+// Memoria fuera del heap direccionada con offsets long, repartida en páginas de ByteBuffer directos
+// Un solo ByteBuffer no puede superar los 2 GB, así que las páginas permiten crecer sin ese límite
+// y sin copiar lo ya escrito. Las páginas se piden a medida que hacen falta y se llenan con ceros.
+final class MemoriaPaginada {
+    private final int bitsPagina;
+    private final long mascara;
+    private ByteBuffer[] paginas = new ByteBuffer[0];
+
+    MemoriaPaginada(int bitsPagina) {
+        this.bitsPagina = bitsPagina;
+        this.mascara = (1L << bitsPagina) - 1;
+    }
+
+    // Mapea en memoria, de solo lectura, el tramo [desde, desde + largo) de un archivo; la última página puede quedar incompleta
+    static MemoriaPaginada mapear(FileChannel canal, long desde, long largo, int bitsPagina) throws IOException {
+        MemoriaPaginada memoria = new MemoriaPaginada(bitsPagina);
+        long tamanioPagina = 1L << bitsPagina;
+        int cantidad = (int) ((largo + tamanioPagina - 1) >>> bitsPagina);
+        memoria.paginas = new ByteBuffer[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            long inicio = (long) i << bitsPagina;
+            memoria.paginas[i] = canal.map(FileChannel.MapMode.READ_ONLY, desde + inicio,
+                    Math.min(tamanioPagina, largo - inicio)).order(ByteOrder.nativeOrder());
+        }
+        return memoria;
+    }
+
+    long capacidad() {
+        return (long) paginas.length << bitsPagina;
+    }
+
+    // Se asegura de que existan páginas hasta la posición indicada (exclusiva)
+    void asegurar(long hasta) {
+        int necesarias = (int) ((hasta + mascara) >>> bitsPagina);
+        if (necesarias <= paginas.length) {
+            return;
+        }
+        int anteriores = paginas.length;
+        paginas = Arrays.copyOf(paginas, necesarias);
+        for (int i = anteriores; i < necesarias; i++) {
+            paginas[i] = ByteBuffer.allocateDirect(1 << bitsPagina).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    // Libera todas las páginas; los ByteBuffer directos se devuelven al sistema cuando el GC los recolecta
+    void liberar() {
+        paginas = new ByteBuffer[0];
+    }
+
+    // Escribe en el canal los primeros bytes de la memoria, página por página
+    void escribirEn(WritableByteChannel canal, long largo) throws IOException {
+        for (int i = 0; (long) i << bitsPagina < largo; i++) {
+            ByteBuffer pagina = paginas[i].duplicate();
+            pagina.clear().limit((int) Math.min(pagina.capacity(), largo - ((long) i << bitsPagina)));
+            while (pagina.hasRemaining()) {
+                canal.write(pagina);
+            }
+        }
+    }
+
+    int getInt(long posicion) {
+        return paginas[(int) (posicion >>> bitsPagina)].getInt((int) (posicion & mascara));
+    }
+
+    void putInt(long posicion, int valor) {
+        paginas[(int) (posicion >>> bitsPagina)].putInt((int) (posicion & mascara), valor);
+    }
+
+    short getShort(long posicion) {
+        return paginas[(int) (posicion >>> bitsPagina)].getShort((int) (posicion & mascara));
+    }
+
+    void putShort(long posicion, short valor) {
+        paginas[(int) (posicion >>> bitsPagina)].putShort((int) (posicion & mascara), valor);
+    }
+
+    byte get(long posicion) {
+        return paginas[(int) (posicion >>> bitsPagina)].get((int) (posicion & mascara));
+    }
+
+    void put(long posicion, byte valor) {
+        paginas[(int) (posicion >>> bitsPagina)].put((int) (posicion & mascara), valor);
+    }
+
+    char getChar(long posicion) {
+        return paginas[(int) (posicion >>> bitsPagina)].getChar((int) (posicion & mascara));
+    }
+
+    void putChar(long posicion, char valor) {
+        paginas[(int) (posicion >>> bitsPagina)].putChar((int) (posicion & mascara), valor);
+    }
+}
@@ -0,0 +1,238 @@
+package manager;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Métricas de uso de un FileSystem: llamadas y errores por comando, histogramas de latencia, y las distribuciones
+// de la profundidad de las rutas resueltas y de la cantidad de entradas de los directorios listados.
+// Se toman solo si se habilitaron en el sistema (ver FileSystem.habilitarMetricas); si no, cada operación paga
+// una lectura de campo y una comparación con null. Los contadores son LongAdder y los histogramas se reparten
+// en franjas, así que registrar desde muchos hilos a la vez no los pone a competir por una misma variable.
+// Se consultan con resumen(), o desde una consola JMX una vez publicadas con publicarJmx
+public final class Metricas {
+    public enum Operacion {
+        CD("cd"), TOUCH("touch"), MKDIR("mkdir"), RM("rm"), LS("ls"),
+        // Resolver una ruta a su directorio, también cuando es parte de otro comando
+        RESOLUCION("resolucion");
+
+        private final String nombre;
+
+        Operacion(String nombre) {
+            this.nombre = nombre;
+        }
+
+        public String getNombre() {
+            return nombre;
+        }
+    }
+
+    private static final String DOMINIO_JMX = "manager";
+
+    private final LongAdder[] llamadas = new LongAdder[Operacion.values().length];
+    private final LongAdder[] errores = new LongAdder[Operacion.values().length];
+    private final Histograma[] latencias = new Histograma[Operacion.values().length];
+    private final Histograma profundidades = new Histograma();
+    private final Histograma abanicos = new Histograma();
+    private final List<ObjectName> publicadas = new ArrayList<>();
+
+    Metricas() {
+        for (int i = 0; i < llamadas.length; i++) {
+            llamadas[i] = new LongAdder();
+            errores[i] = new LongAdder();
+            latencias[i] = new Histograma();
+        }
+    }
+
+    void registrar(Operacion operacion, long nanos, boolean error) {
+        int i = operacion.ordinal();
+        llamadas[i].increment();
+        if (error) {
+            errores[i].increment();
+        }
+        latencias[i].registrar(nanos);
+    }
+
+    void registrar(Operacion operacion, long nanos, CodigoResultado resultado) {
+        registrar(operacion, nanos, resultado != CodigoResultado.OK);
+    }
+
+    // Niveles entre la raíz y el directorio resuelto: 0 para la raíz
+    void registrarProfundidad(int niveles) {
+        profundidades.registrar(niveles);
+    }
+
+    // Entradas del directorio listado
+    void registrarAbanico(int entradas) {
+        abanicos.registrar(entradas);
+    }
+
+    /**
+     * Copia los valores acumulados hasta ahora. Con operaciones concurrentes cada contador es exacto en algún
+     * momento de la llamada, pero no necesariamente en el mismo para todos.
+     */
+    public ResumenMetricas resumen() {
+        long[] totalLlamadas = new long[llamadas.length];
+        long[] totalErrores = new long[llamadas.length];
+        ResumenHistograma[] resumenLatencias = new ResumenHistograma[llamadas.length];
+        for (int i = 0; i < llamadas.length; i++) {
+            totalLlamadas[i] = llamadas[i].sum();
+            totalErrores[i] = errores[i].sum();
+            resumenLatencias[i] = latencias[i].resumen();
+        }
+        return new ResumenMetricas(totalLlamadas, totalErrores, resumenLatencias,
+                profundidades.resumen(), abanicos.resumen());
+    }
+
+    /**
+     * Publica las métricas en el servidor de MBeans de la plataforma: una MXBean general con las distribuciones,
+     * manager:type=FileSystem,name=nombre, y una por comando con ",operacion=cd" y así.
+     * @param nombre Distingue a este sistema de otros publicados en la misma JVM.
+     * @throws JMException Si el nombre no es válido o ya hay métricas publicadas con él.
+     */
+    public synchronized void publicarJmx(String nombre) throws JMException {
+        if (!publicadas.isEmpty()) {
+            throw new IllegalStateException("Las métricas ya están publicadas.");
+        }
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        String base = DOMINIO_JMX + ":type=FileSystem,name=" + ObjectName.quote(nombre);
+        try {
+            publicar(servidor, new ObjectName(base), new General());
+            for (Operacion operacion : Operacion.values()) {
+                publicar(servidor, new ObjectName(base + ",operacion=" + operacion.nombre), new PorOperacion(operacion));
+            }
+        } catch (JMException e) {
+            retirarJmx();
+            throw e;
+        }
+    }
+
+    // Saca del servidor de MBeans lo publicado con publicarJmx; no hace nada si no se publicó
+    public synchronized void retirarJmx() {
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName nombre : publicadas) {
+            try {
+                servidor.unregisterMBean(nombre);
+            } catch (JMException e) {
+                // Alguien ya la sacó por su cuenta
+            }
+        }
+        publicadas.clear();
+    }
+
+    private void publicar(MBeanServer servidor, ObjectName nombre, Object mbean) throws JMException {
+        servidor.registerMBean(mbean, nombre);
+        publicadas.add(nombre);
+    }
+
+    // Atributos JMX de las distribuciones de profundidad de rutas y de entradas por directorio listado
+    public interface MetricasMXBean {
+        long getRutasResueltas();
+        double getProfundidadMedia();
+        long getProfundidadP99();
+        long getProfundidadMaxima();
+        long getDirectoriosListados();
+        double getAbanicoMedio();
+        long getAbanicoP99();
+        long getAbanicoMaximo();
+    }
+
+    // Atributos JMX de un comando; las latencias están en nanosegundos
+    public interface OperacionMXBean {
+        long getLlamadas();
+        long getErrores();
+        double getLatenciaMedia();
+        long getLatenciaP50();
+        long getLatenciaP99();
+        long getLatenciaP999();
+        long getLatenciaMaxima();
+    }
+
+    private final class General implements MetricasMXBean {
+        @Override
+        public long getRutasResueltas() {
+            return profundidades.resumen().getCantidad();
+        }
+
+        @Override
+        public double getProfundidadMedia() {
+            return profundidades.resumen().getMedia();
+        }
+
+        @Override
+        public long getProfundidadP99() {
+            return profundidades.resumen().percentil(0.99);
+        }
+
+        @Override
+        public long getProfundidadMaxima() {
+            return profundidades.resumen().getMaximo();
+        }
+
+        @Override
+        public long getDirectoriosListados() {
+            return abanicos.resumen().getCantidad();
+        }
+
+        @Override
+        public double getAbanicoMedio() {
+            return abanicos.resumen().getMedia();
+        }
+
+        @Override
+        public long getAbanicoP99() {
+            return abanicos.resumen().percentil(0.99);
+        }
+
+        @Override
+        public long getAbanicoMaximo() {
+            return abanicos.resumen().getMaximo();
+        }
+    }
+
+    private final class PorOperacion implements OperacionMXBean {
+        private final int i;
+
+        private PorOperacion(Operacion operacion) {
+            this.i = operacion.ordinal();
+        }
+
+        @Override
+        public long getLlamadas() {
+            return llamadas[i].sum();
+        }
+
+        @Override
+        public long getErrores() {
+            return errores[i].sum();
+        }
+
+        @Override
+        public double getLatenciaMedia() {
+            return latencias[i].resumen().getMedia();
+        }
+
+        @Override
+        public long getLatenciaP50() {
+            return latencias[i].resumen().percentil(0.50);
+        }
+
+        @Override
+        public long getLatenciaP99() {
+            return latencias[i].resumen().percentil(0.99);
+        }
+
+        @Override
+        public long getLatenciaP999() {
+            return latencias[i].resumen().percentil(0.999);
+        }
+
+        @Override
+        public long getLatenciaMaxima() {
+            return latencias[i].resumen().getMaximo();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package manager;
+
+// Un almacén colgado en una ruta del árbol. La raíz del montaje es un directorio más entre los hijos del padre
+// del punto de montaje, así que los recorridos comunes lo atraviesan; la TablaMontajes permite además llegar
+// a ella de un salto y saber a qué almacén pertenece un directorio
+final class Montaje {
+    private final String ruta;
+    private final Directorio raiz;
+    private final Almacen almacen;
+
+    Montaje(String ruta, Directorio raiz, Almacen almacen) {
+        this.ruta = ruta;
+        this.raiz = raiz;
+        this.almacen = almacen;
+    }
+
+    String getRuta() {
+        return ruta;
+    }
+
+    Directorio getRaiz() {
+        return raiz;
+    }
+
+    Almacen getAlmacen() {
+        return almacen;
+    }
+
+    // Si la ruta es la del punto de montaje o está debajo de él
+    boolean cubre(String rutaAbsoluta) {
+        return rutaAbsoluta.startsWith(ruta)
+                && (rutaAbsoluta.length() == ruta.length() || rutaAbsoluta.charAt(ruta.length()) == '/');
+    }
+
+    /**
+     * Resuelve una ruta absoluta canónica cubierta por el montaje recorriendo solo la parte que está debajo de él:
+     * los directorios que el almacén todavía no cargó se cargan al pasar.
+     * @return El directorio, o null si alguna parte no existe o no es un directorio.
+     */
+    Directorio resolver(String rutaAbsoluta) {
+        Directorio actual = raiz;
+        if (rutaAbsoluta.length() == ruta.length()) {
+            return actual;
+        }
+        CursorRuta cursor = new CursorRuta(rutaAbsoluta.substring(ruta.length()));
+        while (cursor.siguiente()) {
+            if (!(actual.getHijo(cursor.segmento()) instanceof Directorio dir)) {
+                return null;
+            }
+            actual = dir;
+        }
+        return actual;
+    }
+}
@@ -0,0 +1,35 @@
+package manager;
+
+// Resultado de un ls paginado: cuántas entradas se escribieron en la salida y desde dónde seguir
+// El token de continuación es el último nombre de la página; pasarlo en la llamada siguiente
+// devuelve las entradas posteriores a él según el estado del directorio en ese momento
+public final class PaginaListado {
+    static final PaginaListado NO_ENCONTRADO = new PaginaListado(CodigoResultado.NO_ENCONTRADO, 0, null);
+
+    private final CodigoResultado resultado;
+    private final int cantidad;
+    private final String siguiente;
+
+    PaginaListado(CodigoResultado resultado, int cantidad, String siguiente) {
+        this.resultado = resultado;
+        this.cantidad = cantidad;
+        this.siguiente = siguiente;
+    }
+
+    public CodigoResultado getResultado() {
+        return resultado;
+    }
+
+    public int getCantidad() {
+        return cantidad;
+    }
+
+    // Token para pedir la página siguiente, o null si no quedan más entradas
+    public String getSiguiente() {
+        return siguiente;
+    }
+
+    public boolean hayMas() {
+        return siguiente != null;
+    }
+}
@@ -0,0 +1,253 @@
+package manager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Patrón glob compilado una sola vez por búsqueda, que se evalúa segmento a segmento mientras se baja por el árbol
+// Admite * (cualquier cosa dentro de un nombre), ? (un carácter), [abc], [a-z] y [!x], y ** como segmento
+// completo para cero o más directorios. El patrón se aplica a la ruta relativa al directorio de la búsqueda.
+// Se recorre como un autómata: el estado es el conjunto de segmentos del patrón que pueden seguir (un bit por
+// segmento), así que ninguna entrada se compara más de una vez contra cada segmento y un conjunto vacío corta la rama
+final class PatronGlob {
+    // Un segmento más para el estado final, que indica que la ruta entera coincidió
+    private static final int MAX_SEGMENTOS = 63;
+
+    private final Segmento[] segmentos;
+    private final long dobles;
+    private final long inicial;
+
+    private PatronGlob(Segmento[] segmentos) {
+        this.segmentos = segmentos;
+        long dobles = 0;
+        for (int i = 0; i < segmentos.length; i++) {
+            if (segmentos[i].tipo == Segmento.DOBLE) {
+                dobles |= 1L << i;
+            }
+        }
+        this.dobles = dobles;
+        this.inicial = cerrar(1L);
+    }
+
+    static PatronGlob compilar(String glob) {
+        if (glob == null || glob.isEmpty()) {
+            throw new IllegalArgumentException("El patrón de búsqueda no puede estar vacío.");
+        }
+        List<Segmento> segmentos = new ArrayList<>();
+        for (String parte : glob.split("/")) {
+            if (parte.isEmpty()) continue;
+            // Dos ** seguidos equivalen a uno
+            if (parte.equals("**") && !segmentos.isEmpty() && segmentos.get(segmentos.size() - 1).tipo == Segmento.DOBLE) {
+                continue;
+            }
+            segmentos.add(Segmento.compilar(parte));
+        }
+        if (segmentos.isEmpty()) {
+            throw new IllegalArgumentException("El patrón de búsqueda no puede estar vacío.");
+        }
+        if (segmentos.size() > MAX_SEGMENTOS) {
+            throw new IllegalArgumentException("El patrón de búsqueda tiene demasiados segmentos.");
+        }
+        return new PatronGlob(segmentos.toArray(new Segmento[0]));
+    }
+
+    // Estado antes de bajar al primer nivel
+    long inicial() {
+        return inicial;
+    }
+
+    // Estado para una entrada con este nombre, dentro de un directorio con el estado recibido; 0 si no puede coincidir
+    long avanzar(long estados, String nombre) {
+        long siguientes = 0;
+        for (long pendientes = estados & ~finales(); pendientes != 0; pendientes &= pendientes - 1) {
+            int i = Long.numberOfTrailingZeros(pendientes);
+            Segmento segmento = segmentos[i];
+            if (segmento.tipo == Segmento.DOBLE) {
+                siguientes |= 1L << i;
+            } else if (segmento.coincide(nombre)) {
+                siguientes |= 1L << (i + 1);
+            }
+        }
+        return cerrar(siguientes);
+    }
+
+    // La ruta hasta la entrada coincide con el patrón completo
+    boolean acepta(long estados) {
+        return (estados & finales()) != 0;
+    }
+
+    // Algún descendiente de la entrada todavía puede coincidir
+    boolean puedeSeguir(long estados) {
+        return (estados & ~finales()) != 0;
+    }
+
+    private long finales() {
+        return 1L << segmentos.length;
+    }
+
+    // Un ** puede no consumir ningún directorio, así que también habilita el segmento que le sigue
+    private long cerrar(long estados) {
+        long dobles = estados & this.dobles;
+        while (dobles != 0) {
+            int i = Long.numberOfTrailingZeros(dobles);
+            dobles &= dobles - 1;
+            long siguiente = 1L << (i + 1);
+            if ((estados & siguiente) == 0) {
+                estados |= siguiente;
+                dobles |= siguiente & this.dobles;
+            }
+        }
+        return estados;
+    }
+
+    private static final class Segmento {
+        private static final int LITERAL = 0;
+        private static final int TODO = 1;
+        private static final int SUFIJO = 2;
+        private static final int COMODINES = 3;
+        private static final int DOBLE = 4;
+
+        // Elementos de un segmento con comodines
+        private static final byte CARACTER = 0;
+        private static final byte UNO = 1;
+        private static final byte ESTRELLA = 2;
+        private static final byte CLASE = 3;
+
+        private final int tipo;
+        private final String texto;
+        private final byte[] elementos;
+        private final char[] caracteres;
+        // Para cada CLASE: pares de extremos de los rangos y si está negada
+        private final char[][] rangos;
+        private final boolean[] negadas;
+
+        private Segmento(int tipo, String texto, byte[] elementos, char[] caracteres, char[][] rangos, boolean[] negadas) {
+            this.tipo = tipo;
+            this.texto = texto;
+            this.elementos = elementos;
+            this.caracteres = caracteres;
+            this.rangos = rangos;
+            this.negadas = negadas;
+        }
+
+        static Segmento compilar(String parte) {
+            if (parte.equals("**")) {
+                return new Segmento(DOBLE, parte, null, null, null, null);
+            }
+            if (parte.equals("*")) {
+                return new Segmento(TODO, parte, null, null, null, null);
+            }
+            boolean comodines = false;
+            for (int i = 0; i < parte.length(); i++) {
+                char c = parte.charAt(i);
+                comodines |= c == '*' || c == '?' || c == '[';
+            }
+            if (!comodines) {
+                return new Segmento(LITERAL, parte, null, null, null, null);
+            }
+            // El caso más común, como *.log, se resuelve con un endsWith
+            String resto = parte.substring(1);
+            if (parte.charAt(0) == '*' && resto.indexOf('*') < 0 && resto.indexOf('?') < 0 && resto.indexOf('[') < 0) {
+                return new Segmento(SUFIJO, resto, null, null, null, null);
+            }
+
+            int largo = parte.length();
+            byte[] elementos = new byte[largo];
+            char[] caracteres = new char[largo];
+            char[][] rangos = new char[largo][];
+            boolean[] negadas = new boolean[largo];
+            int cantidad = 0;
+            for (int i = 0; i < largo; i++) {
+                char c = parte.charAt(i);
+                int cierre = c == '[' ? parte.indexOf(']', i + 2) : -1;
+                if (c == '*') {
+                    // Varias estrellas seguidas equivalen a una
+                    if (cantidad == 0 || elementos[cantidad - 1] != ESTRELLA) {
+                        elementos[cantidad++] = ESTRELLA;
+                    }
+                } else if (c == '?') {
+                    elementos[cantidad++] = UNO;
+                } else if (cierre > 0) {
+                    int desde = i + 1;
+                    boolean negada = parte.charAt(desde) == '!';
+                    if (negada) desde++;
+                    rangos[cantidad] = rangos(parte, desde, cierre);
+                    negadas[cantidad] = negada;
+                    elementos[cantidad++] = CLASE;
+                    i = cierre;
+                } else {
+                    // Un [ sin cierre se toma como carácter común
+                    caracteres[cantidad] = c;
+                    elementos[cantidad++] = CARACTER;
+                }
+            }
+            return new Segmento(COMODINES, parte, Arrays.copyOf(elementos, cantidad), caracteres, rangos, negadas);
+        }
+
+        // [a-z0-9_] se guarda como los pares a z 0 9 _ _
+        private static char[] rangos(String parte, int desde, int hasta) {
+            StringBuilder pares = new StringBuilder();
+            for (int i = desde; i < hasta; i++) {
+                char c = parte.charAt(i);
+                if (i + 2 < hasta && parte.charAt(i + 1) == '-') {
+                    pares.append(c).append(parte.charAt(i + 2));
+                    i += 2;
+                } else {
+                    pares.append(c).append(c);
+                }
+            }
+            return pares.toString().toCharArray();
+        }
+
+        boolean coincide(String nombre) {
+            return switch (tipo) {
+                case LITERAL -> texto.equals(nombre);
+                case TODO -> true;
+                case SUFIJO -> nombre.endsWith(texto);
+                default -> coincideComodines(nombre);
+            };
+        }
+
+        // Recorrido lineal con retroceso solo hasta la última estrella, sin recursión
+        private boolean coincideComodines(String nombre) {
+            int e = 0;
+            int c = 0;
+            int ultimaEstrella = -1;
+            int retomarDesde = 0;
+            int largo = nombre.length();
+            while (c < largo) {
+                if (e < elementos.length && elementos[e] == ESTRELLA) {
+                    ultimaEstrella = e++;
+                    retomarDesde = c;
+                } else if (e < elementos.length && coincideUno(e, nombre.charAt(c))) {
+                    e++;
+                    c++;
+                } else if (ultimaEstrella >= 0) {
+                    // La estrella absorbe un carácter más y se vuelve a probar desde ahí
+                    e = ultimaEstrella + 1;
+                    c = ++retomarDesde;
+                } else {
+                    return false;
+                }
+            }
+            while (e < elementos.length && elementos[e] == ESTRELLA) e++;
+            return e == elementos.length;
+        }
+
+        private boolean coincideUno(int e, char c) {
+            switch (elementos[e]) {
+                case UNO:
+                    return true;
+                case CLASE:
+                    char[] pares = rangos[e];
+                    for (int i = 0; i < pares.length; i += 2) {
+                        if (c >= pares[i] && c <= pares[i + 1]) {
+                            return !negadas[e];
+                        }
+                    }
+                    return negadas[e];
+                default:
+                    return caracteres[e] == c;
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package manager;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+// Pool compartido de bloques fuera del heap para el contenido de los archivos chicos
+// Los bloques se cortan de losas grandes de memoria directa, así no se pide memoria al sistema por cada bloque,
+// y los devueltos se reutilizan. Todo bloque del pool está lleno de ceros.
+final class PoolBloques {
+    static final int BITS_BLOQUE = 14;
+    static final int TAMANIO_BLOQUE = 1 << BITS_BLOQUE;
+    private static final int BLOQUES_POR_LOSA = 256;
+    private static final byte[] CEROS = new byte[TAMANIO_BLOQUE];
+    private static final PoolBloques GLOBAL = new PoolBloques();
+
+    private final ArrayDeque<ByteBuffer> libres = new ArrayDeque<>();
+    private long bloquesCreados;
+
+    static PoolBloques global() {
+        return GLOBAL;
+    }
+
+    synchronized ByteBuffer tomar() {
+        if (libres.isEmpty()) {
+            ByteBuffer losa = ByteBuffer.allocateDirect(TAMANIO_BLOQUE * BLOQUES_POR_LOSA);
+            for (int i = 0; i < BLOQUES_POR_LOSA; i++) {
+                libres.push(losa.slice(i * TAMANIO_BLOQUE, TAMANIO_BLOQUE));
+            }
+            bloquesCreados += BLOQUES_POR_LOSA;
+        }
+        return libres.pop();
+    }
+
+    void devolver(ByteBuffer bloque) {
+        bloque.put(0, CEROS);
+        synchronized (this) {
+            libres.push(bloque);
+        }
+    }
+
+    synchronized long bytesReservados() {
+        return bloquesCreados * TAMANIO_BLOQUE;
+    }
+
+    synchronized long bytesLibres() {
+        return (long) libres.size() * TAMANIO_BLOQUE;
+    }
+}
@@ -0,0 +1,176 @@
+package manager;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+// Recorrido en profundidad de un find, entregado de a una ruta para que quien consume pueda cortar en cualquier momento
+// Cada tramo pendiente son los hijos de un directorio que falta recorrer; trySplit cede la mitad de los tramos más
+// cercanos a la raíz (los subárboles más grandes) o, si queda uno solo, la mitad de sus hijos. Así un stream paralelo
+// reparte el árbol entre los hilos del ForkJoinPool por subdirectorios, igual que BorradoRecursivo
+// Cada directorio se lee en su versión publicada al llegar a él, sin bloquear a los escritores
+final class RecorridoBusqueda implements Spliterator<String> {
+    // Por debajo de esta cantidad de hijos no vale la pena partir un directorio entre dos tareas
+    private static final int UMBRAL_DIVISION = 64;
+
+    private final PatronGlob patron;
+    private final int profundidadMaxima;
+    private final ArrayDeque<Tramo> pendientes;
+
+    RecorridoBusqueda(PatronGlob patron, Directorio inicio, int profundidadMaxima) {
+        this(patron, profundidadMaxima, new ArrayDeque<>());
+        if (profundidadMaxima > 0) {
+            Tramo tramo = new Tramo(inicio, null, inicio.getNombre(), patron.inicial(), 1);
+            tramo.ruta = inicio.getPadre() == null ? "" : inicio.getRutaCompleta();
+            pendientes.add(tramo);
+        }
+    }
+
+    private RecorridoBusqueda(PatronGlob patron, int profundidadMaxima, ArrayDeque<Tramo> pendientes) {
+        this.patron = patron;
+        this.profundidadMaxima = profundidadMaxima;
+        this.pendientes = pendientes;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super String> accion) {
+        Tramo tramo;
+        while ((tramo = pendientes.peekLast()) != null) {
+            FileSystemBase hijo = tramo.siguiente();
+            if (hijo == null) {
+                pendientes.pollLast();
+                continue;
+            }
+            long estados = patron.avanzar(tramo.estados, hijo.getNombre());
+            if (estados == 0) {
+                continue;
+            }
+            if (hijo instanceof Directorio dir && tramo.profundidad < profundidadMaxima && patron.puedeSeguir(estados)) {
+                pendientes.addLast(new Tramo(dir, tramo, hijo.getNombre(), estados, tramo.profundidad + 1));
+            }
+            if (patron.acepta(estados)) {
+                accion.accept(tramo.rutaDe(hijo.getNombre()));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Spliterator<String> trySplit() {
+        if (pendientes.size() > 1) {
+            ArrayDeque<Tramo> cedidos = new ArrayDeque<>();
+            for (int i = pendientes.size() / 2; i > 0; i--) {
+                cedidos.addLast(pendientes.pollFirst());
+            }
+            return new RecorridoBusqueda(patron, profundidadMaxima, cedidos);
+        }
+        Tramo unico = pendientes.peekFirst();
+        if (unico == null) {
+            return null;
+        }
+        unico.aArreglo();
+        if (unico.hasta - unico.desde < UMBRAL_DIVISION) {
+            return null;
+        }
+        int medio = (unico.desde + unico.hasta) >>> 1;
+        ArrayDeque<Tramo> cedidos = new ArrayDeque<>();
+        cedidos.add(new Tramo(unico, medio, unico.hasta));
+        unico.hasta = medio;
+        return new RecorridoBusqueda(patron, profundidadMaxima, cedidos);
+    }
+
+    @Override
+    public long estimateSize() {
+        return pendientes.isEmpty() ? 0 : Long.MAX_VALUE;
+    }
+
+    // Cada ruta aparece una sola vez; no hay un orden definido entre las que se recorren en paralelo
+    @Override
+    public int characteristics() {
+        return NONNULL | DISTINCT;
+    }
+
+    // Hijos de un directorio que falta recorrer. Se leen con el iterador de la versión publicada cuando el tramo
+    // llega al tope de la pila; recién si hay que partirlo se copian a un arreglo para poder ceder un rango.
+    // La ruta se arma recién cuando hay una coincidencia adentro y queda guardada, así bajar por una cadena profunda
+    // sin coincidencias no cuesta una copia de la ruta por nivel
+    private static final class Tramo {
+        private final Directorio directorio;
+        private final Tramo padre;
+        private final String nombre;
+        private String ruta;
+        private final long estados;
+        private final int profundidad;
+        private Iterator<FileSystemBase> iterador;
+        private FileSystemBase[] hijos;
+        private int desde;
+        private int hasta;
+
+        private Tramo(Directorio directorio, Tramo padre, String nombre, long estados, int profundidad) {
+            this.directorio = directorio;
+            this.padre = padre;
+            this.nombre = nombre;
+            this.estados = estados;
+            this.profundidad = profundidad;
+        }
+
+        private Tramo(Tramo otro, int desde, int hasta) {
+            this(otro.directorio, otro.padre, otro.nombre, otro.estados, otro.profundidad);
+            this.ruta = otro.ruta;
+            this.hijos = otro.hijos;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        // El hijo siguiente, o null si el tramo terminó
+        private FileSystemBase siguiente() {
+            if (hijos != null) {
+                return desde < hasta ? hijos[desde++] : null;
+            }
+            if (iterador == null) {
+                iterador = directorio.getHijos().values().iterator();
+            }
+            return iterador.hasNext() ? iterador.next() : null;
+        }
+
+        private void aArreglo() {
+            if (hijos != null) {
+                return;
+            }
+            if (iterador == null) {
+                hijos = directorio.getHijos().values().toArray(new FileSystemBase[0]);
+            } else {
+                List<FileSystemBase> resto = new ArrayList<>();
+                iterador.forEachRemaining(resto::add);
+                hijos = resto.toArray(new FileSystemBase[0]);
+            }
+            desde = 0;
+            hasta = hijos.length;
+        }
+
+        private String rutaDe(String hijo) {
+            return ruta() + "/" + hijo;
+        }
+
+        // Sube hasta el primer ancestro con la ruta ya armada y la completa hacia abajo, sin recursión
+        private String ruta() {
+            if (ruta == null) {
+                ArrayDeque<Tramo> faltantes = new ArrayDeque<>();
+                Tramo t = this;
+                for (; t.ruta == null; t = t.padre) {
+                    faltantes.push(t);
+                }
+                String armada = t.ruta;
+                while (!faltantes.isEmpty()) {
+                    Tramo siguiente = faltantes.pop();
+                    armada = armada + "/" + siguiente.nombre;
+                    siguiente.ruta = armada;
+                }
+            }
+            return ruta;
+        }
+    }
+}
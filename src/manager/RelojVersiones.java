@@ -0,0 +1,100 @@
+package manager;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongConsumer;
+
+// Reloj de épocas para las versiones de los directorios (MVCC)
+// Cada escritura estampa su versión con la época actual. Abrir una instantánea cierra la época en curso:
+// las escrituras siguientes usan la época nueva y quedan fuera de ella. Antes de devolverla se espera a que
+// terminen las pocas escrituras que todavía estaban publicando con la época cerrada, así la instantánea
+// nunca ve una escritura a medias. Las escrituras no esperan a nadie y los lectores nunca bloquean.
+// Directorio usa otra instancia para las sumas de los totales por subárbol, que esperarEnCurso deja terminar
+// Una copia (cp -r) también cierra una época, pero no la registra acá: la anota solo en el subárbol copiado
+// (ver MarcaCopia), así las versiones y los contenidos del resto del árbol no se retienen por ella
+final class RelojVersiones {
+    private static final RelojVersiones GLOBAL = new RelojVersiones();
+    private static final int FRANJAS = 64;
+    // Separación entre franjas para que cada contador ocupe su propia línea de cache
+    private static final int RELLENO = 8;
+
+    private final AtomicLong epoca = new AtomicLong(1);
+    // Escrituras en curso por paridad de época, repartidas en franjas fijas por hilo
+    private final AtomicLongArray[] enCurso = {
+            new AtomicLongArray(FRANJAS * RELLENO), new AtomicLongArray(FRANJAS * RELLENO)};
+    // Instantáneas abiertas: época -> cantidad
+    private final ConcurrentSkipListMap<Long, Integer> abiertas = new ConcurrentSkipListMap<>();
+    private volatile long masAntigua = Long.MAX_VALUE;
+
+    static RelojVersiones global() {
+        return GLOBAL;
+    }
+
+    // Registra una escritura en curso y devuelve la época con la que debe estampar su versión
+    long entrar() {
+        int franja = franjaDelHilo();
+        while (true) {
+            long e = epoca.get();
+            AtomicLongArray contadores = enCurso[(int) (e & 1)];
+            contadores.incrementAndGet(franja);
+            if (epoca.get() == e) {
+                return e;
+            }
+            // Se abrió una instantánea en el medio: se reintenta con la época nueva
+            contadores.decrementAndGet(franja);
+        }
+    }
+
+    void salir(long e) {
+        enCurso[(int) (e & 1)].decrementAndGet(franjaDelHilo());
+    }
+
+    // Época de la instantánea abierta más antigua, o Long.MAX_VALUE si no hay ninguna
+    long instantaneaMasAntigua() {
+        return masAntigua;
+    }
+
+    synchronized long abrirInstantanea() {
+        long e = epoca.get();
+        abiertas.merge(e, 1, Integer::sum);
+        masAntigua = abiertas.firstKey();
+        epoca.incrementAndGet();
+        esperarSalida(e);
+        return e;
+    }
+
+    // Cierra la época en curso como abrirInstantanea, pero sin registrarla: antes de cerrarla se la pasa a anunciar,
+    // así las escrituras con la época siguiente ya ven lo que anunció
+    synchronized long cerrarEpoca(LongConsumer anunciar) {
+        long e = epoca.get();
+        anunciar.accept(e);
+        epoca.incrementAndGet();
+        esperarSalida(e);
+        return e;
+    }
+
+    // Cierra la época en curso y espera a que terminen las escrituras que entraron con ella; las que empiecen
+    // después ya ven todo lo que se publicó antes de llamar
+    synchronized void esperarEnCurso() {
+        esperarSalida(epoca.getAndIncrement());
+    }
+
+    synchronized void cerrarInstantanea(long e) {
+        abiertas.computeIfPresent(e, (clave, cantidad) -> cantidad == 1 ? null : cantidad - 1);
+        masAntigua = abiertas.isEmpty() ? Long.MAX_VALUE : abiertas.firstKey();
+    }
+
+    private void esperarSalida(long e) {
+        AtomicLongArray contadores = enCurso[(int) (e & 1)];
+        for (int i = 0; i < FRANJAS; i++) {
+            while (contadores.get(i * RELLENO) != 0) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private static int franjaDelHilo() {
+        long id = Thread.currentThread().getId();
+        return (int) ((id ^ (id >>> 16)) & (FRANJAS - 1)) * RELLENO;
+    }
+}
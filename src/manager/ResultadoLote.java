@@ -0,0 +1,29 @@
+package manager;
+
+// Resultado de aplicar un Lote: como se aplica todo o nada, si una operación falla no queda ninguna aplicada
+public final class ResultadoLote {
+    private final CodigoResultado resultado;
+    private final int fallida;
+    private final int aplicadas;
+
+    ResultadoLote(CodigoResultado resultado, int fallida, int aplicadas) {
+        this.resultado = resultado;
+        this.fallida = fallida;
+        this.aplicadas = aplicadas;
+    }
+
+    public CodigoResultado getResultado() {
+        return resultado;
+    }
+
+    // Posición en el lote (en el orden en que se agregó) de la operación que falló, o -1 si no falló
+    // o si el lote entero se rechazó porque uno de sus directorios se borró mientras se aplicaba
+    public int getFallida() {
+        return fallida;
+    }
+
+    // Cantidad de operaciones aplicadas: todas las del lote, o 0 si falló
+    public int getAplicadas() {
+        return aplicadas;
+    }
+}
@@ -0,0 +1,70 @@
+package manager;
+
+// Copia de un histograma de Metricas en un momento dado. Los percentiles se informan con el mayor valor de la cubeta
+// en la que caen (nunca más que el máximo registrado), así que pueden pasarse del valor real en menos de 1/16
+public final class ResumenHistograma {
+    private final long[] conteos;
+    private final long cantidad;
+    private final long suma;
+    private final long maximo;
+
+    ResumenHistograma(long[] conteos, long suma, long maximo) {
+        long cantidad = 0;
+        for (long conteo : conteos) {
+            cantidad += conteo;
+        }
+        this.conteos = conteos;
+        this.cantidad = cantidad;
+        this.suma = suma;
+        this.maximo = maximo;
+    }
+
+    public long getCantidad() {
+        return cantidad;
+    }
+
+    public long getMaximo() {
+        return maximo;
+    }
+
+    public double getMedia() {
+        return cantidad == 0 ? 0 : (double) suma / cantidad;
+    }
+
+    /**
+     * @param p Fracción de los valores que quedan por debajo, entre 0 y 1 (0.99 es el percentil 99).
+     * @return El valor del percentil, o 0 si no hay valores registrados.
+     */
+    public long percentil(double p) {
+        if (p < 0 || p > 1) {
+            throw new IllegalArgumentException("El percentil debe estar entre 0 y 1.");
+        }
+        if (cantidad == 0) {
+            return 0;
+        }
+        long hasta = Math.max(1, (long) Math.ceil(p * cantidad));
+        long acumulado = 0;
+        for (int i = 0; i < conteos.length; i++) {
+            acumulado += conteos[i];
+            if (acumulado >= hasta) {
+                return Math.min(Histograma.limiteSuperior(i), maximo);
+            }
+        }
+        return maximo;
+    }
+
+    /**
+     * Cantidad de valores registrados entre desde y hasta inclusive. Exacto para valores menores que 32;
+     * por encima, los extremos se redondean a las cubetas que los contienen.
+     */
+    public long contar(long desde, long hasta) {
+        if (cantidad == 0 || hasta < desde || hasta < 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = Histograma.cubeta(Math.max(0, desde)); i <= Histograma.cubeta(hasta); i++) {
+            total += conteos[i];
+        }
+        return total;
+    }
+}
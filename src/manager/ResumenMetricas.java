@@ -0,0 +1,42 @@
+package manager;
+
+// Copia de las Metricas de un FileSystem en un momento dado; las latencias están en nanosegundos
+public final class ResumenMetricas {
+    private final long[] llamadas;
+    private final long[] errores;
+    private final ResumenHistograma[] latencias;
+    private final ResumenHistograma profundidades;
+    private final ResumenHistograma abanicos;
+
+    ResumenMetricas(long[] llamadas, long[] errores, ResumenHistograma[] latencias,
+                    ResumenHistograma profundidades, ResumenHistograma abanicos) {
+        this.llamadas = llamadas;
+        this.errores = errores;
+        this.latencias = latencias;
+        this.profundidades = profundidades;
+        this.abanicos = abanicos;
+    }
+
+    public long getLlamadas(Metricas.Operacion operacion) {
+        return llamadas[operacion.ordinal()];
+    }
+
+    // Llamadas que no terminaron en OK; una resolución cuenta como error si la ruta no llevó a un directorio
+    public long getErrores(Metricas.Operacion operacion) {
+        return errores[operacion.ordinal()];
+    }
+
+    public ResumenHistograma getLatencias(Metricas.Operacion operacion) {
+        return latencias[operacion.ordinal()];
+    }
+
+    // Profundidad de los directorios a los que llevaron las rutas resueltas, contando la raíz como 0
+    public ResumenHistograma getProfundidades() {
+        return profundidades;
+    }
+
+    // Cantidad de entradas de cada directorio listado con ls
+    public ResumenHistograma getAbanicos() {
+        return abanicos;
+    }
+}
@@ -0,0 +1,14 @@
+package manager;
+
+// Destino de lo que escriben ls y pwd, provisto por quien llama al comando
+// Basta con implementar linea (por ejemplo lista::add); quien quiera evitar concatenar
+// la barra de los directorios puede sobrescribir entrada
+@FunctionalInterface
+public interface Salida {
+    void linea(String texto);
+
+    // Una entrada de ls; por defecto los directorios se muestran con "/" al final
+    default void entrada(String nombre, boolean esDirectorio) {
+        linea(esDirectorio ? nombre + "/" : nombre);
+    }
+}
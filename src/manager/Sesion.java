@@ -0,0 +1,106 @@
+package manager;
+import java.util.stream.Stream;
+
+// Sesión de un usuario sobre un FileSystem compartido
+// Solo guarda su propio directorio actual; los comandos se ejecutan sobre el árbol común del FileSystem
+public class Sesion implements SistemaArchivos {
+    private final FileSystem fileSystem;
+    private volatile Directorio directorioActual;
+
+    Sesion(FileSystem fileSystem, Directorio directorioActual) {
+        this.fileSystem = fileSystem;
+        this.directorioActual = directorioActual;
+    }
+
+    public Directorio getDirectorioActual() {
+        return directorioActual;
+    }
+
+    void setDirectorioActual(Directorio directorioActual) {
+        this.directorioActual = directorioActual;
+    }
+
+    public FileSystem getFileSystem() {
+        return fileSystem;
+    }
+
+    @Override
+    public CodigoResultado cd(String dirName) {
+        return fileSystem.cd(this, dirName);
+    }
+
+    @Override
+    public CodigoResultado touch(String fileName) {
+        return fileSystem.touch(this, fileName);
+    }
+
+    @Override
+    public CodigoResultado mkdir(String dirName) {
+        return fileSystem.mkdir(this, dirName);
+    }
+
+    @Override
+    public CodigoResultado mkdirConPadres(String dirName) {
+        return fileSystem.mkdirConPadres(this, dirName);
+    }
+
+    // Las rutas relativas del lote se resuelven contra el directorio actual de esta sesión
+    public Lote lote() {
+        return new Lote(fileSystem, this);
+    }
+
+    @Override
+    public CodigoResultado rm(String name) {
+        return fileSystem.rm(this, name);
+    }
+
+    @Override
+    public BorradoRecursivo rmRecursivo(String name) {
+        return fileSystem.rmRecursivo(this, name);
+    }
+
+    @Override
+    public CodigoResultado mv(String origen, String destino) {
+        return fileSystem.mv(this, origen, destino);
+    }
+
+    @Override
+    public CodigoResultado cp(String origen, String destino) {
+        return fileSystem.cp(this, origen, destino);
+    }
+
+    @Override
+    public int ls(Salida salida) {
+        return fileSystem.ls(this, salida);
+    }
+
+    @Override
+    public PaginaListado ls(String ruta, String prefijo, String desde, int limite, Salida salida) {
+        return fileSystem.ls(this, ruta, prefijo, desde, limite, salida);
+    }
+
+    @Override
+    public Stream<String> find(String ruta, String glob, int maxDepth) {
+        return fileSystem.find(this, ruta, glob, maxDepth);
+    }
+
+    @Override
+    public UsoDirectorio du(String ruta) {
+        return fileSystem.du(this, ruta);
+    }
+
+    // Las rutas relativas se resuelven contra el directorio actual de esta sesión
+    public Vigilancia vigilar(String ruta) {
+        return fileSystem.vigilar(this, ruta);
+    }
+
+    // El id se resuelve después con getFileSystem().buscarPorId, desde cualquier sesión
+    public long obtenerId(String ruta) {
+        return fileSystem.obtenerId(this, ruta);
+    }
+
+    @Override
+    public void pwd(Salida salida) {
+        fileSystem.pwd(this, salida);
+    }
+}
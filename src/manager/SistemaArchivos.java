@@ -0,0 +1,43 @@
+package manager;
+import java.util.stream.Stream;
+
+// Operaciones de consola que ofrece cualquier implementación del sistema de archivos,
+// ya sea el árbol de objetos (FileSystem) o el arena fuera del heap (FileSystemArena)
+// Ninguna hace entrada/salida: los comandos devuelven un CodigoResultado y ls/pwd escriben en la Salida recibida
+public interface SistemaArchivos {
+    CodigoResultado cd(String dirName);
+
+    CodigoResultado touch(String fileName);
+
+    CodigoResultado mkdir(String dirName);
+
+    // mkdir -p: crea también los directorios intermedios que falten; si el directorio ya existe devuelve OK
+    CodigoResultado mkdirConPadres(String dirName);
+
+    CodigoResultado rm(String name);
+
+    // Elimina una entrada con todo su contenido; las cantidades eliminadas se leen del borrado devuelto
+    BorradoRecursivo rmRecursivo(String name);
+
+    // Mueve o renombra; si el destino es un directorio existente, la entrada se mueve adentro con su nombre
+    CodigoResultado mv(String origen, String destino);
+
+    // Copia una entrada con todo su contenido (cp -r), con el mismo criterio de destino que mv
+    CodigoResultado cp(String origen, String destino);
+
+    // Lista el directorio actual en el orden interno, sin costo extra; devuelve la cantidad de entradas listadas
+    int ls(Salida salida);
+
+    // Lista por páginas y ordenado por nombre el directorio de la ruta (null o "" para el actual), solo con los nombres
+    // que empiezan con el prefijo y posteriores al token de la página anterior (null para empezar desde el principio)
+    PaginaListado ls(String ruta, String prefijo, String desde, int limite, Salida salida);
+
+    // Rutas absolutas de las entradas bajo la ruta (null o "" para el actual) cuya ruta relativa coincide con el glob,
+    // hasta maxDepth niveles por debajo; si la ruta no es un directorio el stream sale vacío
+    Stream<String> find(String ruta, String glob, int maxDepth);
+
+    // Totales del subárbol de la ruta (null o "" para el actual): archivos, directorios, bytes y profundidad
+    UsoDirectorio du(String ruta);
+
+    void pwd(Salida salida);
+}
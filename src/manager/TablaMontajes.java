@@ -0,0 +1,79 @@
+package manager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// Tabla de montajes de un FileSystem, consultada al resolver rutas absolutas y antes de cada cambio
+// Los montajes son pocos y cambian rara vez, así que se guardan en un arreglo que se reemplaza entero en cada
+// cambio (las lecturas no bloquean), ordenado de la ruta más larga a la más corta: el primero que cubre una ruta
+// es el de prefijo más largo, que es el que manda cuando hay montajes anidados
+final class TablaMontajes {
+    private static final Comparator<Montaje> MAS_LARGO_PRIMERO =
+            Comparator.comparingInt((Montaje m) -> m.getRuta().length()).reversed();
+
+    private volatile Montaje[] montajes = new Montaje[0];
+
+    boolean estaVacia() {
+        return montajes.length == 0;
+    }
+
+    // Montaje de prefijo más largo que cubre la ruta absoluta canónica, o null si no la cubre ninguno
+    Montaje buscar(String ruta) {
+        for (Montaje montaje : montajes) {
+            if (montaje.cubre(ruta)) {
+                return montaje;
+            }
+        }
+        return null;
+    }
+
+    // Montaje con exactamente esa ruta, o null
+    Montaje exacto(String ruta) {
+        for (Montaje montaje : montajes) {
+            if (montaje.getRuta().equals(ruta)) {
+                return montaje;
+            }
+        }
+        return null;
+    }
+
+    // Si algún punto de montaje es la ruta o está debajo de ella
+    boolean hayDentroDe(String ruta) {
+        return contarDentroDe(ruta) > 0;
+    }
+
+    // Cuántos puntos de montaje son la ruta o están debajo de ella
+    int contarDentroDe(String ruta) {
+        int cantidad = 0;
+        for (Montaje montaje : montajes) {
+            if (montaje.getRuta().startsWith(ruta)
+                    && (montaje.getRuta().length() == ruta.length() || ruta.equals("/")
+                        || montaje.getRuta().charAt(ruta.length()) == '/')) {
+                cantidad++;
+            }
+        }
+        return cantidad;
+    }
+
+    List<String> rutas() {
+        List<String> rutas = new ArrayList<>();
+        for (Montaje montaje : montajes) {
+            rutas.add(montaje.getRuta());
+        }
+        return rutas;
+    }
+
+    synchronized void agregar(Montaje montaje) {
+        Montaje[] nuevos = Arrays.copyOf(montajes, montajes.length + 1);
+        nuevos[montajes.length] = montaje;
+        Arrays.sort(nuevos, MAS_LARGO_PRIMERO);
+        montajes = nuevos;
+    }
+
+    synchronized void quitar(Montaje montaje) {
+        List<Montaje> quedan = new ArrayList<>(Arrays.asList(montajes));
+        quedan.remove(montaje);
+        montajes = quedan.toArray(new Montaje[0]);
+    }
+}
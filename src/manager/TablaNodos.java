@@ -0,0 +1,133 @@
+package manager;
+
+// Tabla de nodos por id de inodo con claves long, sin boxing: direccionamiento abierto con sondeo lineal y borrado
+// por corrimiento hacia atrás, así no quedan lápidas que alarguen las búsquedas. Como CacheRutas, se divide en
+// segmentos según el hash del id, cada uno con su propio bloqueo, para que varias sesiones no compitan por uno solo
+final class TablaNodos {
+    private static final int SEGMENTOS = 16;
+    private static final int CAPACIDAD_INICIAL = 16;
+
+    private final Segmento[] segmentos = new Segmento[SEGMENTOS];
+
+    TablaNodos() {
+        for (int i = 0; i < SEGMENTOS; i++) {
+            segmentos[i] = new Segmento();
+        }
+    }
+
+    void agregar(FileSystemBase nodo) {
+        long h = mezclar(nodo.getId());
+        segmentos[segmento(h)].agregar(nodo, h);
+    }
+
+    FileSystemBase buscar(long id) {
+        long h = mezclar(id);
+        return segmentos[segmento(h)].buscar(id, h);
+    }
+
+    boolean quitar(long id) {
+        long h = mezclar(id);
+        return segmentos[segmento(h)].quitar(id, h);
+    }
+
+    int tamanio() {
+        int tamanio = 0;
+        for (Segmento segmento : segmentos) {
+            tamanio += segmento.tamanio();
+        }
+        return tamanio;
+    }
+
+    // Los ids son consecutivos: se mezclan para repartirlos entre segmentos y ranuras
+    private static long mezclar(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    // Los bits altos eligen el segmento y los bajos la ranura dentro de él
+    private static int segmento(long h) {
+        return (int) (h >>> 60) & (SEGMENTOS - 1);
+    }
+
+    private static final class Segmento {
+        // 0 marca una ranura libre, ya que ningún nodo tiene id 0
+        private long[] ids = new long[CAPACIDAD_INICIAL];
+        private FileSystemBase[] nodos = new FileSystemBase[CAPACIDAD_INICIAL];
+        private int cantidad;
+
+        private synchronized void agregar(FileSystemBase nodo, long h) {
+            int mascara = ids.length - 1;
+            int i = (int) h & mascara;
+            while (ids[i] != 0) {
+                if (ids[i] == nodo.getId()) {
+                    nodos[i] = nodo;
+                    return;
+                }
+                i = (i + 1) & mascara;
+            }
+            ids[i] = nodo.getId();
+            nodos[i] = nodo;
+            // Se agranda al pasar 3/4 de ocupación para que las cadenas de sondeo sigan cortas
+            if (++cantidad * 4 > ids.length * 3) {
+                agrandar();
+            }
+        }
+
+        private synchronized FileSystemBase buscar(long id, long h) {
+            int mascara = ids.length - 1;
+            for (int i = (int) h & mascara; ids[i] != 0; i = (i + 1) & mascara) {
+                if (ids[i] == id) {
+                    return nodos[i];
+                }
+            }
+            return null;
+        }
+
+        private synchronized boolean quitar(long id, long h) {
+            int mascara = ids.length - 1;
+            int i = (int) h & mascara;
+            while (ids[i] != id) {
+                if (ids[i] == 0) {
+                    return false;
+                }
+                i = (i + 1) & mascara;
+            }
+            // Corre hacia atrás las entradas siguientes que quedarían inalcanzables con el hueco
+            int hueco = i;
+            for (int j = (i + 1) & mascara; ids[j] != 0; j = (j + 1) & mascara) {
+                int ideal = (int) mezclar(ids[j]) & mascara;
+                if (((j - ideal) & mascara) >= ((j - hueco) & mascara)) {
+                    ids[hueco] = ids[j];
+                    nodos[hueco] = nodos[j];
+                    hueco = j;
+                }
+            }
+            ids[hueco] = 0;
+            nodos[hueco] = null;
+            cantidad--;
+            return true;
+        }
+
+        private synchronized int tamanio() {
+            return cantidad;
+        }
+
+        private void agrandar() {
+            long[] idsViejos = ids;
+            FileSystemBase[] nodosViejos = nodos;
+            ids = new long[idsViejos.length * 2];
+            nodos = new FileSystemBase[idsViejos.length * 2];
+            int mascara = ids.length - 1;
+            for (int k = 0; k < idsViejos.length; k++) {
+                if (idsViejos[k] != 0) {
+                    int i = (int) mezclar(idsViejos[k]) & mascara;
+                    while (ids[i] != 0) {
+                        i = (i + 1) & mascara;
+                    }
+                    ids[i] = idsViejos[k];
+                    nodos[i] = nodosViejos[k];
+                }
+            }
+        }
+    }
+}
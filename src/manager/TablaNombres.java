@@ -0,0 +1,170 @@
+package manager;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+// Pool de nombres internados fuera del heap: cada nombre distinto se guarda una sola vez y se identifica con un int
+// Los nombres que entran en Latin-1 ocupan un byte por carácter y el resto dos (UTF-16). Se buscan directamente
+// sobre un tramo de la ruta, sin crear un String por segmento. Los nombres no se liberan nunca.
+final class TablaNombres {
+    static final int BITS_PAGINA = 20;
+    private static final int ENCABEZADO = 4; // short largo + short codificación
+    private static final int MAX_LARGO = Short.MAX_VALUE;
+    private static final int RANURA = 8; // int hash + int (id + 1)
+
+    private final MemoriaPaginada pool = new MemoriaPaginada(BITS_PAGINA);
+    private final MemoriaPaginada ranuras = new MemoriaPaginada(BITS_PAGINA);
+    private long finPool;
+    private long capacidadRanuras;
+    private long cantidad;
+
+    TablaNombres(long capacidadInicial) {
+        capacidadRanuras = Long.highestOneBit(Math.max(1024, capacidadInicial * 2 - 1));
+        ranuras.asegurar(capacidadRanuras * RANURA);
+    }
+
+    long cantidad() {
+        return cantidad;
+    }
+
+    long bytesUsados() {
+        return finPool + capacidadRanuras * RANURA;
+    }
+
+    // Largo en bytes del pool de nombres, que es lo único que hace falta guardar para volver a leerlos por id
+    long largoPool() {
+        return finPool;
+    }
+
+    void escribirPoolEn(WritableByteChannel canal) throws IOException {
+        pool.escribirEn(canal, finPool);
+    }
+
+    // Devuelve el id del nombre ruta[inicio, fin), o -1 si nunca se internó
+    int buscar(String ruta, int inicio, int fin) {
+        int h = hash(ruta, inicio, fin);
+        long mascara = capacidadRanuras - 1;
+        for (long i = h & mascara; ; i = (i + 1) & mascara) {
+            long posicion = i * RANURA;
+            int id = ranuras.getInt(posicion + 4) - 1;
+            if (id < 0) return -1;
+            if (ranuras.getInt(posicion) == h && igual(id, ruta, inicio, fin)) return id;
+        }
+    }
+
+    int internar(String ruta, int inicio, int fin) {
+        int existente = buscar(ruta, inicio, fin);
+        if (existente >= 0) {
+            return existente;
+        }
+        int largo = fin - inicio;
+        if (largo > MAX_LARGO) {
+            throw new IllegalArgumentException("El nombre supera los " + MAX_LARGO + " caracteres.");
+        }
+        boolean latin1 = true;
+        for (int i = inicio; i < fin && latin1; i++) {
+            latin1 = ruta.charAt(i) < 256;
+        }
+        int bytes = ENCABEZADO + (latin1 ? largo : 2 * largo);
+        // Un nombre nunca cruza el límite de una página
+        long pagina = 1L << BITS_PAGINA;
+        if ((finPool & (pagina - 1)) + bytes > pagina) {
+            finPool = (finPool + pagina - 1) & ~(pagina - 1);
+        }
+        long posicion = finPool;
+        pool.asegurar(posicion + bytes);
+        pool.putShort(posicion, (short) largo);
+        pool.putShort(posicion + 2, (short) (latin1 ? 0 : 1));
+        for (int i = 0; i < largo; i++) {
+            char c = ruta.charAt(inicio + i);
+            if (latin1) {
+                pool.put(posicion + ENCABEZADO + i, (byte) c);
+            } else {
+                pool.putChar(posicion + ENCABEZADO + 2L * i, c);
+            }
+        }
+        // Se alinea a 4 bytes para que el id (offset / 4) alcance pools de hasta 8 GB
+        finPool = (posicion + bytes + 3) & ~3L;
+        int id = (int) (posicion >>> 2);
+
+        if ((cantidad + 1) * 4 > capacidadRanuras * 3) {
+            agrandar();
+        }
+        insertarRanura(hash(ruta, inicio, fin), id);
+        cantidad++;
+        return id;
+    }
+
+    String texto(int id) {
+        return texto(pool, id);
+    }
+
+    // Lee un nombre por id desde un pool con este mismo formato, por ejemplo uno mapeado desde un archivo
+    static String texto(MemoriaPaginada pool, int id) {
+        long posicion = (long) id << 2;
+        int largo = pool.getShort(posicion);
+        boolean latin1 = pool.getShort(posicion + 2) == 0;
+        char[] caracteres = new char[largo];
+        for (int i = 0; i < largo; i++) {
+            caracteres[i] = latin1 ? (char) (pool.get(posicion + ENCABEZADO + i) & 0xFF)
+                    : pool.getChar(posicion + ENCABEZADO + 2L * i);
+        }
+        return new String(caracteres);
+    }
+
+    void liberar() {
+        pool.liberar();
+        ranuras.liberar();
+    }
+
+    private boolean igual(int id, String ruta, int inicio, int fin) {
+        long posicion = (long) id << 2;
+        int largo = pool.getShort(posicion);
+        if (largo != fin - inicio) return false;
+        boolean latin1 = pool.getShort(posicion + 2) == 0;
+        for (int i = 0; i < largo; i++) {
+            char c = latin1 ? (char) (pool.get(posicion + ENCABEZADO + i) & 0xFF)
+                    : pool.getChar(posicion + ENCABEZADO + 2L * i);
+            if (c != ruta.charAt(inicio + i)) return false;
+        }
+        return true;
+    }
+
+    private void insertarRanura(int h, int id) {
+        long mascara = capacidadRanuras - 1;
+        long i = h & mascara;
+        while (ranuras.getInt(i * RANURA + 4) != 0) {
+            i = (i + 1) & mascara;
+        }
+        ranuras.putInt(i * RANURA, h);
+        ranuras.putInt(i * RANURA + 4, id + 1);
+    }
+
+    // Duplica la tabla de ranuras; se reubica usando el hash guardado, sin releer los nombres
+    private void agrandar() {
+        long capacidadVieja = capacidadRanuras;
+        MemoriaPaginada vieja = new MemoriaPaginada(BITS_PAGINA);
+        vieja.asegurar(capacidadVieja * RANURA);
+        for (long i = 0; i < capacidadVieja * RANURA; i += 4) {
+            vieja.putInt(i, ranuras.getInt(i));
+        }
+        capacidadRanuras = capacidadVieja * 2;
+        ranuras.liberar();
+        ranuras.asegurar(capacidadRanuras * RANURA);
+        for (long i = 0; i < capacidadVieja; i++) {
+            int id = vieja.getInt(i * RANURA + 4) - 1;
+            if (id >= 0) {
+                insertarRanura(vieja.getInt(i * RANURA), id);
+            }
+        }
+        vieja.liberar();
+    }
+
+    private static int hash(String ruta, int inicio, int fin) {
+        int h = 0;
+        for (int i = inicio; i < fin; i++) {
+            h = 31 * h + ruta.charAt(i);
+        }
+        h *= 0x9E3779B9;
+        return (h ^ (h >>> 16)) & 0x7FFFFFFF;
+    }
+}
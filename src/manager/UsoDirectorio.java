@@ -0,0 +1,47 @@
+package manager;
+
+// Resultado de un du: los totales del subárbol de un directorio, sin contar al propio directorio
+// En FileSystem cada directorio los mantiene al día con cada alta, baja o escritura, así que leerlos es O(1)
+public final class UsoDirectorio {
+    static final UsoDirectorio NO_ENCONTRADO = new UsoDirectorio(CodigoResultado.NO_ENCONTRADO, 0, 0, 0, 0);
+
+    private final CodigoResultado resultado;
+    private final long archivos;
+    private final long directorios;
+    private final long bytes;
+    private final int profundidad;
+
+    UsoDirectorio(CodigoResultado resultado, long archivos, long directorios, long bytes, int profundidad) {
+        this.resultado = resultado;
+        this.archivos = archivos;
+        this.directorios = directorios;
+        this.bytes = bytes;
+        this.profundidad = profundidad;
+    }
+
+    static UsoDirectorio de(Directorio directorio) {
+        return new UsoDirectorio(CodigoResultado.OK, directorio.getArchivosEnSubarbol(),
+                directorio.getDirectoriosEnSubarbol(), directorio.getBytesEnSubarbol(), directorio.getProfundidad());
+    }
+
+    public CodigoResultado getResultado() {
+        return resultado;
+    }
+
+    public long getArchivos() {
+        return archivos;
+    }
+
+    public long getDirectorios() {
+        return directorios;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    // Niveles por debajo del directorio: 0 si está vacío, 1 si solo tiene entradas sin descendientes
+    public int getProfundidad() {
+        return profundidad;
+    }
+}
@@ -0,0 +1,47 @@
+package manager;
+
+// Versión inmutable de los hijos de un directorio, estampada con la época en que se publicó
+// Las versiones forman una cadena de la más nueva a la más vieja; solo se conservan las que
+// todavía puede ver alguna instantánea abierta
+final class VersionDirectorio {
+    // Versión inicial compartida por todos los directorios nuevos: vacía y visible desde cualquier época
+    static final VersionDirectorio INICIAL = new VersionDirectorio(0, MapaHijos.VACIO, null);
+
+    final long numero;
+    final MapaHijos hijos;
+    // Los mismos hijos ordenados por nombre; null hasta que alguien lista el directorio por páginas
+    volatile IndiceNombres indice;
+    private volatile VersionDirectorio anterior;
+
+    VersionDirectorio(long numero, MapaHijos hijos, VersionDirectorio anterior) {
+        this(numero, hijos, null, anterior);
+    }
+
+    VersionDirectorio(long numero, MapaHijos hijos, IndiceNombres indice, VersionDirectorio anterior) {
+        this.numero = numero;
+        this.hijos = hijos;
+        this.indice = indice;
+        this.anterior = anterior;
+    }
+
+    VersionDirectorio anterior() {
+        return anterior;
+    }
+
+    // Devuelve la versión más nueva visible desde la época indicada
+    VersionDirectorio visibleEn(long epoca) {
+        VersionDirectorio v = this;
+        while (v != null && v.numero > epoca) {
+            v = v.anterior;
+        }
+        return v;
+    }
+
+    // Descarta las versiones que ya no puede ver ni la instantánea abierta más antigua
+    void podar(long masAntigua) {
+        VersionDirectorio v = visibleEn(masAntigua);
+        if (v != null && v.anterior != null) {
+            v.anterior = null;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package manager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Suscripción a los cambios de un subárbol, en lugar de consultarlo con ls una y otra vez
+// Recibe, en orden y por lotes, las entradas creadas o eliminadas dentro del directorio vigilado desde que se abrió,
+// y la eliminación del propio directorio o de alguno de sus ancestros. El subárbol se identifica por la ruta
+// que tenía el directorio al abrir la vigilancia: si después se mueve, se siguen viendo los cambios en esa ruta.
+// Si se atrasa más que la capacidad del anillo, en vez de frenar a quien publica pierde los eventos más viejos
+// y el lote trae un evento DESBORDE en su lugar; quien la usa debería volver a leer el subárbol entero en ese caso.
+// Una vigilancia se consume desde un solo hilo y hay que cerrarla: mientras quede alguna abierta, cada cambio
+// arma su evento
+public final class Vigilancia implements AutoCloseable {
+    // Espera máxima entre dos revisiones del anillo mientras no hay eventos
+    private static final long PAUSA_MAXIMA_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AnilloEventos anillo;
+    private final String ruta;
+    private long siguiente;
+    private boolean cerrada;
+
+    Vigilancia(AnilloEventos anillo, String ruta) {
+        this.anillo = anillo;
+        this.ruta = ruta;
+        this.siguiente = anillo.abrir();
+    }
+
+    public String getRuta() {
+        return ruta;
+    }
+
+    /**
+     * Devuelve sin esperar los eventos del subárbol que llegaron desde la última llamada.
+     * @param maximo Cantidad máxima de eventos del lote, contando el DESBORDE si lo hay.
+     * @return Los eventos en el orden en que se publicaron; vacío si no hay ninguno nuevo.
+     */
+    public List<EventoCambio> recibir(int maximo) {
+        if (cerrada) {
+            throw new IllegalStateException("La vigilancia está cerrada.");
+        }
+        List<EventoCambio> lote = new ArrayList<>();
+        long desbordados = 0;
+        while (lote.size() < maximo) {
+            long publicados = anillo.publicados();
+            if (siguiente == publicados) {
+                break;
+            }
+            if (publicados - siguiente > anillo.capacidad()) {
+                long desde = publicados - anillo.capacidad();
+                desbordados += desde - siguiente;
+                siguiente = desde;
+                continue;
+            }
+            EventoCambio evento = anillo.leer(siguiente);
+            if (evento == null || evento.getSecuencia() < siguiente) {
+                // Tomada pero todavía sin escribir: los eventos siguientes esperan para no salir de orden
+                break;
+            }
+            if (evento.getSecuencia() > siguiente) {
+                // Se pisó mientras se leía: cuenta como perdido y se sigue con el próximo
+                desbordados++;
+                siguiente++;
+                continue;
+            }
+            if (desbordados > 0) {
+                lote.add(new EventoCambio(EventoCambio.Tipo.DESBORDE, null, false, siguiente - desbordados, desbordados));
+                desbordados = 0;
+                if (lote.size() == maximo) {
+                    break;
+                }
+            }
+            siguiente++;
+            if (incluye(evento)) {
+                lote.add(evento);
+            }
+        }
+        if (desbordados > 0) {
+            lote.add(new EventoCambio(EventoCambio.Tipo.DESBORDE, null, false, siguiente - desbordados, desbordados));
+        }
+        return lote;
+    }
+
+    /**
+     * Como recibir, pero si no hay eventos espera hasta que llegue alguno o pase el tiempo indicado.
+     * La espera revisa el anillo cada tanto en lugar de que quien publica tenga que despertar a alguien.
+     * @return Los eventos del lote; vacío si se cumplió el tiempo sin ninguno.
+     */
+    public List<EventoCambio> recibir(int maximo, long espera, TimeUnit unidad) throws InterruptedException {
+        long limite = System.nanoTime() + unidad.toNanos(espera);
+        long pausa = 1_000;
+        while (true) {
+            List<EventoCambio> lote = recibir(maximo);
+            long restante = limite - System.nanoTime();
+            if (!lote.isEmpty() || restante <= 0) {
+                return lote;
+            }
+            LockSupport.parkNanos(Math.min(pausa, restante));
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            pausa = Math.min(pausa * 2, PAUSA_MAXIMA_NANOS);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!cerrada) {
+            cerrada = true;
+            anillo.cerrar();
+        }
+    }
+
+    // Cambios dentro del subárbol, y la eliminación del directorio vigilado o de uno de sus ancestros
+    private boolean incluye(EventoCambio evento) {
+        String cambiada = evento.getRuta();
+        if (ruta.equals("/") || dentroDe(cambiada, ruta)) {
+            return true;
+        }
+        return evento.getTipo() == EventoCambio.Tipo.ELIMINADO && dentroDe(ruta, cambiada);
+    }
+
+    private static boolean dentroDe(String ruta, String ancestro) {
+        return ruta.startsWith(ancestro)
+                && (ruta.length() == ancestro.length() || ruta.charAt(ancestro.length()) == '/');
+    }
+}
@@ -0,0 +1,72 @@
+package servidor;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import manager.Sesion;
+
+// Atiende a un cliente en su propio hilo, con su propia sesión (y por lo tanto su propio directorio actual)
+// Las respuestas se acumulan en el buffer de salida y se envían recién cuando no quedan pedidos ya recibidos
+// por contestar: un cliente que manda muchos pedidos juntos recibe las respuestas juntas, en pocas escrituras
+final class Conexion implements Runnable {
+    private final SocketChannel canal;
+    private final Sesion sesion;
+    // Las conexiones abiertas del servidor, de donde se quita al terminar
+    private final Set<Conexion> abiertas;
+
+    Conexion(SocketChannel canal, Sesion sesion, Set<Conexion> abiertas) {
+        this.canal = canal;
+        this.sesion = sesion;
+        this.abiertas = abiertas;
+    }
+
+    @Override
+    public void run() {
+        try (canal;
+             BufferedReader entrada = new BufferedReader(new InputStreamReader(Channels.newInputStream(canal), StandardCharsets.UTF_8));
+             Writer salida = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(canal), StandardCharsets.UTF_8))) {
+            List<String> cuerpo = new ArrayList<>();
+            String linea;
+            while ((linea = entrada.readLine()) != null && !linea.trim().equals(Protocolo.SALIR)) {
+                cuerpo.clear();
+                String codigo;
+                try {
+                    codigo = Protocolo.ejecutar(sesion, linea, cuerpo);
+                } catch (RuntimeException e) {
+                    codigo = Protocolo.fallo(cuerpo, e);
+                }
+                salida.write(codigo);
+                salida.write(' ');
+                salida.write(Integer.toString(cuerpo.size()));
+                salida.write('\n');
+                for (String texto : cuerpo) {
+                    salida.write(texto);
+                    salida.write('\n');
+                }
+                if (!entrada.ready()) {
+                    salida.flush();
+                }
+            }
+        } catch (IOException e) {
+            // El cliente cortó la conexión o el servidor se cerró: no hay a quién avisarle
+        } finally {
+            abiertas.remove(this);
+        }
+    }
+
+    void cerrar() {
+        try {
+            canal.close();
+        } catch (IOException e) {
+            // Ya estaba cerrado
+        }
+    }
+}
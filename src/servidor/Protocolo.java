@@ -0,0 +1,131 @@
+package servidor;
+import java.util.List;
+import manager.CodigoResultado;
+import manager.PaginaListado;
+import manager.SistemaArchivos;
+import manager.UsoDirectorio;
+
+// Protocolo de líneas del servidor, en UTF-8. Cada pedido es una línea con el comando y sus argumentos separados
+// por un espacio, así que las rutas no pueden tener espacios:
+//   cd r | pwd | ls [r] | mkdir [-p] r | touch r | rm [-r] r | mv o d | cp o d | du [r] | find r glob [prof] | salir
+// Cada respuesta es una línea "<código> <n>" seguida de n líneas: el código es el nombre de un CodigoResultado
+// o ERROR si el pedido no se entendió o no se pudo ejecutar (con el motivo en la línea siguiente). Las respuestas salen en el orden
+// de los pedidos, así que un cliente puede mandar muchos pedidos seguidos antes de leer (pipelining)
+final class Protocolo {
+    static final String SALIR = "salir";
+    static final String ERROR = "ERROR";
+    // Entradas que se piden por vez al listar una ruta, igual que en la consola
+    private static final int TAMANIO_PAGINA = 1024;
+
+    private Protocolo() {
+    }
+
+    /**
+     * Ejecuta un pedido sobre el sistema (la sesión de la conexión) y deja las líneas de la respuesta en cuerpo.
+     * @return El código de la respuesta.
+     */
+    static String ejecutar(SistemaArchivos sistema, String linea, List<String> cuerpo) {
+        String[] partes = linea.trim().split(" +");
+        String comando = partes[0];
+        int argumentos = partes.length - 1;
+        CodigoResultado resultado;
+        switch (comando) {
+            case "cd" -> {
+                if (argumentos != 1) return error(cuerpo, "cd necesita una ruta");
+                resultado = sistema.cd(partes[1]);
+            }
+            case "pwd" -> {
+                sistema.pwd(cuerpo::add);
+                resultado = CodigoResultado.OK;
+            }
+            case "ls" -> {
+                if (argumentos > 1) return error(cuerpo, "ls recibe como mucho una ruta");
+                resultado = argumentos == 0 ? listarActual(sistema, cuerpo) : listar(sistema, partes[1], cuerpo);
+            }
+            case "mkdir" -> {
+                if (argumentos == 2 && partes[1].equals("-p")) {
+                    resultado = sistema.mkdirConPadres(partes[2]);
+                } else if (argumentos == 1 && !esOpcion(partes[1])) {
+                    resultado = sistema.mkdir(partes[1]);
+                } else {
+                    return error(cuerpo, "uso: mkdir [-p] ruta");
+                }
+            }
+            case "touch" -> {
+                if (argumentos != 1) return error(cuerpo, "touch necesita una ruta");
+                resultado = sistema.touch(partes[1]);
+            }
+            case "rm" -> {
+                if (argumentos == 2 && partes[1].equals("-r")) {
+                    resultado = sistema.rmRecursivo(partes[2]).getResultado();
+                } else if (argumentos == 1 && !esOpcion(partes[1])) {
+                    resultado = sistema.rm(partes[1]);
+                } else {
+                    return error(cuerpo, "uso: rm [-r] ruta");
+                }
+            }
+            case "mv", "cp" -> {
+                if (argumentos != 2) return error(cuerpo, comando + " necesita un origen y un destino");
+                resultado = comando.equals("mv") ? sistema.mv(partes[1], partes[2]) : sistema.cp(partes[1], partes[2]);
+            }
+            case "du" -> {
+                if (argumentos > 1) return error(cuerpo, "du recibe como mucho una ruta");
+                UsoDirectorio uso = sistema.du(argumentos == 0 ? null : partes[1]);
+                resultado = uso.getResultado();
+                if (resultado.esExito()) {
+                    cuerpo.add(uso.getArchivos() + " " + uso.getDirectorios() + " " + uso.getBytes() + " " + uso.getProfundidad());
+                }
+            }
+            case "find" -> {
+                if (argumentos < 2 || argumentos > 3) return error(cuerpo, "uso: find ruta glob [profundidad]");
+                int profundidad;
+                try {
+                    profundidad = argumentos == 3 ? Integer.parseInt(partes[3]) : Integer.MAX_VALUE;
+                } catch (NumberFormatException e) {
+                    return error(cuerpo, "la profundidad debe ser un número");
+                }
+                if (profundidad < 0) return error(cuerpo, "la profundidad no puede ser negativa");
+                sistema.find(partes[1], partes[2], profundidad).sequential().forEach(cuerpo::add);
+                resultado = CodigoResultado.OK;
+            }
+            default -> {
+                return error(cuerpo, "comando desconocido: " + comando);
+            }
+        }
+        return resultado.name();
+    }
+
+    private static CodigoResultado listarActual(SistemaArchivos sistema, List<String> cuerpo) {
+        sistema.ls(cuerpo::add);
+        return CodigoResultado.OK;
+    }
+
+    private static CodigoResultado listar(SistemaArchivos sistema, String ruta, List<String> cuerpo) {
+        String desde = null;
+        do {
+            PaginaListado pagina = sistema.ls(ruta, "", desde, TAMANIO_PAGINA, cuerpo::add);
+            if (pagina.getResultado() != CodigoResultado.OK) {
+                return pagina.getResultado();
+            }
+            desde = pagina.getSiguiente();
+        } while (desde != null);
+        return CodigoResultado.OK;
+    }
+
+    // Una opción sin la ruta (mkdir -p, rm -r) no se toma como el nombre de la entrada
+    private static boolean esOpcion(String argumento) {
+        return argumento.startsWith("-");
+    }
+
+    // Un pedido que falló por una excepción se contesta igual, para no perder los pedidos encadenados detrás
+    static String fallo(List<String> cuerpo, RuntimeException e) {
+        String motivo = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        return error(cuerpo, motivo.replace('\n', ' '));
+    }
+
+    private static String error(List<String> cuerpo, String motivo) {
+        cuerpo.clear();
+        cuerpo.add(motivo);
+        return ERROR;
+    }
+}
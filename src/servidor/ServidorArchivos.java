@@ -0,0 +1,150 @@
+package servidor;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+import javax.management.JMException;
+import manager.FileSystem;
+
+// Expone un FileSystem por un socket local, TCP o de dominio Unix, con el protocolo de líneas de Protocolo
+// Cada cliente tiene su propia Sesion sobre el mismo árbol y su propio hilo: un hilo virtual si la JVM los tiene
+// (Java 21 o posterior) o, si no, un hilo de plataforma con una pila chica, así miles de conexiones
+// abiertas no reservan memoria de más. Un hilo aparte acepta las conexiones
+public final class ServidorArchivos implements AutoCloseable {
+    // Pila de los hilos de plataforma que atienden conexiones cuando no hay hilos virtuales
+    private static final long TAMANIO_PILA = 256 * 1024;
+    private static final int PENDIENTES_POR_ACEPTAR = 4096;
+    private static final long PAUSA_REINTENTO_NANOS = 10_000_000;
+
+    private final FileSystem fileSystem;
+    private final ServerSocketChannel canal;
+    private final ExecutorService hilos;
+    private final Set<Conexion> abiertas = ConcurrentHashMap.newKeySet();
+    private final Thread aceptador;
+
+    private ServidorArchivos(FileSystem fileSystem, ServerSocketChannel canal) {
+        this.fileSystem = fileSystem;
+        this.canal = canal;
+        this.hilos = hilosPorConexion();
+        this.aceptador = new Thread(this::aceptar, "servidor-archivos");
+        this.aceptador.setDaemon(true);
+    }
+
+    // Uso: ServidorArchivos [puerto | archivo.sock], por defecto el puerto 7070. Atiende hasta que se corta el proceso
+    // Las métricas del sistema quedan publicadas por JMX con el nombre "servidor" (ver Metricas.publicarJmx)
+    public static void main(String[] args) throws IOException, InterruptedException, JMException {
+        String destino = args.length > 0 ? args[0] : "7070";
+        FileSystem fileSystem = new FileSystem();
+        fileSystem.habilitarMetricas().publicarJmx("servidor");
+        ServidorArchivos servidor = destino.chars().allMatch(Character::isDigit)
+                ? iniciarTcp(fileSystem, Integer.parseInt(destino))
+                : iniciarUnix(fileSystem, Path.of(destino));
+        System.out.println("Escuchando en " + servidor.getDireccion());
+        servidor.aceptador.join();
+    }
+
+    // Escucha en un puerto TCP de la interfaz local; con puerto 0 se elige uno libre (ver getDireccion)
+    public static ServidorArchivos iniciarTcp(FileSystem fileSystem, int puerto) throws IOException {
+        return iniciar(fileSystem, new InetSocketAddress(InetAddress.getLoopbackAddress(), puerto));
+    }
+
+    // Escucha en un socket de dominio Unix; el archivo del socket no debe existir y se borra al cerrar
+    public static ServidorArchivos iniciarUnix(FileSystem fileSystem, Path archivo) throws IOException {
+        return iniciar(fileSystem, UnixDomainSocketAddress.of(archivo));
+    }
+
+    private static ServidorArchivos iniciar(FileSystem fileSystem, SocketAddress direccion) throws IOException {
+        ServerSocketChannel canal = direccion instanceof UnixDomainSocketAddress
+                ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                : ServerSocketChannel.open();
+        try {
+            canal.bind(direccion, PENDIENTES_POR_ACEPTAR);
+        } catch (IOException e) {
+            canal.close();
+            throw e;
+        }
+        ServidorArchivos servidor = new ServidorArchivos(fileSystem, canal);
+        servidor.aceptador.start();
+        return servidor;
+    }
+
+    public SocketAddress getDireccion() throws IOException {
+        return canal.getLocalAddress();
+    }
+
+    public int getConexionesAbiertas() {
+        return abiertas.size();
+    }
+
+    // Deja de aceptar, corta las conexiones abiertas y espera a que terminen sus hilos
+    @Override
+    public void close() throws IOException {
+        SocketAddress direccion = canal.getLocalAddress();
+        canal.close();
+        for (Conexion conexion : abiertas) {
+            conexion.cerrar();
+        }
+        hilos.shutdown();
+        try {
+            aceptador.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (direccion instanceof UnixDomainSocketAddress unix) {
+            Files.deleteIfExists(unix.getPath());
+        }
+    }
+
+    private void aceptar() {
+        while (true) {
+            SocketChannel cliente;
+            try {
+                cliente = canal.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (!canal.isOpen()) return;
+                // Por ejemplo, sin descriptores libres: se reintenta en un momento en lugar de girar en vacío
+                LockSupport.parkNanos(PAUSA_REINTENTO_NANOS);
+                continue;
+            }
+            Conexion conexion = new Conexion(cliente, fileSystem.abrirSesion(), abiertas);
+            abiertas.add(conexion);
+            try {
+                hilos.execute(conexion);
+            } catch (RuntimeException e) {
+                // El servidor se está cerrando
+                abiertas.remove(conexion);
+                conexion.cerrar();
+            }
+        }
+    }
+
+    // Un hilo nuevo por conexión: virtual si la JVM lo permite. Se busca por reflexión para seguir compilando
+    // y corriendo en Java 17, donde no existen
+    private static ExecutorService hilosPorConexion() {
+        try {
+            Method virtuales = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtuales.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(tarea -> {
+                Thread hilo = new Thread(null, tarea, "conexion-archivos", TAMANIO_PILA);
+                hilo.setDaemon(true);
+                return hilo;
+            });
+        }
+    }
+}